@@ -0,0 +1,63 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.FontProperties;
+import com.example.demo.config.LogoProperties;
+import com.example.demo.config.PreviewProperties;
+import com.example.demo.config.TemplateProperties;
+import com.example.demo.generator.FontRegistry;
+import com.example.demo.generator.LogoRegistry;
+import com.example.demo.generator.PageSkeletonCache;
+import com.example.demo.generator.PaymentReportGenerator;
+import com.example.demo.generator.ReportPreviewRenderer;
+import com.example.demo.generator.ReportTemplateEngine;
+import com.example.demo.generator.StatementReportGenerator;
+import com.example.demo.metrics.ReportMetrics;
+import com.example.demo.model.PaymentData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * Construye los generadores con la misma configuración por defecto que la aplicación,
+ * sin levantar el contexto de Spring
+ */
+final class BenchmarkFixtures {
+
+    private static final ResourceLoader RESOURCE_LOADER = new DefaultResourceLoader();
+
+    private BenchmarkFixtures() {
+    }
+
+    static PaymentReportGenerator paymentReportGenerator() {
+        return new PaymentReportGenerator(logoRegistry(), new PageSkeletonCache(16 * 1024 * 1024), fontRegistry(),
+                new ReportMetrics(new SimpleMeterRegistry()), templateEngine());
+    }
+
+    static ReportPreviewRenderer previewRenderer() {
+        return new ReportPreviewRenderer(templateEngine(), fontRegistry(), logoRegistry(), new PreviewProperties());
+    }
+
+    static StatementReportGenerator statementReportGenerator() {
+        return new StatementReportGenerator(logoRegistry(), fontRegistry());
+    }
+
+    static PaymentData paymentData(int index) {
+        return new PaymentData("TX-" + index, 1250.75 + index % 100, "Tarjeta de Crédito", "María García");
+    }
+
+    private static LogoRegistry logoRegistry() {
+        LogoProperties properties = new LogoProperties();
+        properties.getLocations().put("default", "classpath:report/images/company-logo.jpg");
+        return new LogoRegistry(properties, RESOURCE_LOADER);
+    }
+
+    private static ReportTemplateEngine templateEngine() {
+        TemplateProperties properties = new TemplateProperties();
+        properties.setHotReload(false);
+        return new ReportTemplateEngine(properties, RESOURCE_LOADER);
+    }
+
+    private static FontRegistry fontRegistry() {
+        return new FontRegistry(new FontProperties(), RESOURCE_LOADER);
+    }
+}
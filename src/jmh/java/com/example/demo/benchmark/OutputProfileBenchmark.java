@@ -0,0 +1,55 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.OutputProfile;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.RenderMode;
+import com.example.demo.generator.PaymentReportGenerator;
+import com.example.demo.model.PaymentData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el coste de CPU de cada perfil de salida con el reporte completo (logo incluido).
+ * El tamaño resultante de cada perfil se publica en la métrica {@code report.render.output}.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class OutputProfileBenchmark {
+
+    @Param({"FAST", "BALANCED", "SMALLEST"})
+    public OutputProfile outputProfile;
+
+    @Param({"SKELETON", "FLOW", "DIRECT"})
+    public RenderMode renderMode;
+
+    private PaymentReportGenerator generator;
+    private PaymentReportConfig config;
+    private PaymentData paymentData;
+
+    @Setup
+    public void setUp() {
+        generator = BenchmarkFixtures.paymentReportGenerator();
+        paymentData = BenchmarkFixtures.paymentData(1);
+        config = new PaymentReportConfig.Builder()
+                .withLogo(true)
+                .withFooterMessage("Gracias por su pago")
+                .withRenderMode(renderMode)
+                .withOutputProfile(outputProfile)
+                .build();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream generatePdf() {
+        return generator.generatePDF(config, paymentData);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.Format;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.RenderMode;
+import com.example.demo.config.Theme;
+import com.example.demo.generator.PaymentReportGenerator;
+import com.example.demo.model.PaymentData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide {@link PaymentReportGenerator#generatePDF(PaymentReportConfig, PaymentData)} para cada
+ * tema, formato y modo de renderizado. Las secciones se varían de una en una respecto del
+ * reporte completo para que el número de combinaciones siga siendo manejable.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PaymentReportGeneratorBenchmark {
+
+    @Param({"LIGHT", "DARK"})
+    public Theme theme;
+
+    @Param({"A4", "LETTER"})
+    public Format format;
+
+    @Param({"SKELETON", "FLOW", "DIRECT"})
+    public RenderMode renderMode;
+
+    @Param({"ALL", "NO_LOGO", "NO_PAYMENT_DETAILS", "NO_USER_INFO", "NO_TIMESTAMP", "NO_FOOTER", "LONG_FOOTER"})
+    public Layout layout;
+
+    private PaymentReportGenerator generator;
+    private PaymentReportConfig config;
+    private PaymentData paymentData;
+
+    @Setup
+    public void setUp() {
+        generator = BenchmarkFixtures.paymentReportGenerator();
+        paymentData = BenchmarkFixtures.paymentData(1);
+        config = layout.apply(new PaymentReportConfig.Builder()
+                .withLogo(true)
+                .withTitle("Reporte de Pago")
+                .withPaymentDetails(true)
+                .withUserInfo(true)
+                .withTheme(theme)
+                .withTimestamp(true)
+                .withFooterMessage("Gracias por su pago")
+                .withFormat(format)
+                .withRenderMode(renderMode))
+                .build();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream generatePdf() {
+        return generator.generatePDF(config, paymentData);
+    }
+
+    /**
+     * Variaciones del reporte completo: cada una desactiva o alarga una sola sección
+     */
+    public enum Layout {
+        ALL,
+        NO_LOGO,
+        NO_PAYMENT_DETAILS,
+        NO_USER_INFO,
+        NO_TIMESTAMP,
+        NO_FOOTER,
+        LONG_FOOTER;
+
+        PaymentReportConfig.Builder apply(PaymentReportConfig.Builder builder) {
+            return switch (this) {
+                case ALL -> builder;
+                case NO_LOGO -> builder.withLogo(false);
+                case NO_PAYMENT_DETAILS -> builder.withPaymentDetails(false);
+                case NO_USER_INFO -> builder.withUserInfo(false);
+                case NO_TIMESTAMP -> builder.withTimestamp(false);
+                case NO_FOOTER -> builder.withFooterMessage("");
+                case LONG_FOOTER -> builder.withFooterMessage("Gracias por su pago. ".repeat(40));
+            };
+        }
+    }
+}
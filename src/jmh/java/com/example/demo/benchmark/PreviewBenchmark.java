@@ -0,0 +1,58 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.generator.PaymentReportGenerator;
+import com.example.demo.generator.ReportPreviewRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el coste de las vistas previas ligeras con el del PDF completo que aproximan,
+ * con el mismo reporte (logo incluido) y el modo de renderizado por defecto. Cada llamada
+ * usa un pago distinto, de modo que las franjas de la miniatura con los valores del pago
+ * no se encuentran en la caché, igual que con solicitudes reales.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PreviewBenchmark {
+
+    private PaymentReportGenerator generator;
+    private ReportPreviewRenderer previewRenderer;
+    private PaymentReportConfig config;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        System.setProperty("java.awt.headless", "true");
+        generator = BenchmarkFixtures.paymentReportGenerator();
+        previewRenderer = BenchmarkFixtures.previewRenderer();
+        config = new PaymentReportConfig.Builder()
+                .withLogo(true)
+                .withFooterMessage("Gracias por su pago")
+                .build();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream pdf() {
+        return generator.generatePDF(config, BenchmarkFixtures.paymentData(index++));
+    }
+
+    @Benchmark
+    public byte[] png() {
+        return previewRenderer.renderPng(config, BenchmarkFixtures.paymentData(index++), null);
+    }
+
+    @Benchmark
+    public String html() {
+        return previewRenderer.renderHtml(config, BenchmarkFixtures.paymentData(index++));
+    }
+}
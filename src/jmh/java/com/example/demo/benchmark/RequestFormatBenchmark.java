@@ -0,0 +1,89 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.RequestEncoding;
+import com.example.demo.config.RequestMappers;
+import com.example.demo.dto.PaymentReportRequest;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el coste de interpretar las solicitudes de reporte en JSON, CBOR y Smile: una
+ * solicitud suelta, como en {@code /api/reports/payment}, y un lote de solicitudes
+ * concatenadas, como en {@code /api/reports/payment/bulk}. El tamaño de cada codificación se
+ * imprime al preparar el benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RequestFormatBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    public RequestEncoding encoding;
+
+    private ObjectReader reader;
+    private byte[] single;
+    private byte[] batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        RequestMappers mappers = new RequestMappers(Jackson2ObjectMapperBuilder.json().build(),
+                Jackson2ObjectMapperBuilder.json());
+        reader = mappers.get(encoding).readerFor(PaymentReportRequest.class);
+        single = mappers.get(encoding).writeValueAsBytes(request(1));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 1; i <= BATCH_SIZE; i++) {
+            stream.write(mappers.get(encoding).writeValueAsBytes(request(i)));
+            if (encoding == RequestEncoding.JSON) {
+                stream.write('\n');
+            }
+        }
+        batch = stream.toByteArray();
+        System.out.printf(Locale.ROOT, "%n%s: %d bytes por solicitud, %d bytes por lote de %d%n",
+                encoding, single.length, batch.length, BATCH_SIZE);
+    }
+
+    @Benchmark
+    public PaymentReportRequest parseSingle() throws IOException {
+        return reader.readValue(single);
+    }
+
+    @Benchmark
+    public void parseBatch(Blackhole blackhole) throws IOException {
+        try (MappingIterator<PaymentReportRequest> requests = reader.readValues(new ByteArrayInputStream(batch))) {
+            while (requests.hasNextValue()) {
+                blackhole.consume(requests.nextValue());
+            }
+        }
+    }
+
+    private static PaymentReportRequest request(int index) {
+        PaymentReportRequest request = new PaymentReportRequest();
+        request.setTransactionId(String.format("TX-%06d", index));
+        request.setAmount(100 + index * 0.37);
+        request.setPaymentMethod("Tarjeta de Crédito");
+        request.setCustomerName("María García");
+        request.setIncludeLogo(index % 2 == 0);
+        request.setFooterMessage("Gracias por su pago");
+        request.setGeneratedAt(LocalDateTime.of(2024, 5, 1, 10, 30).plusMinutes(index));
+        return request;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.Format;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.RenderMode;
+import com.example.demo.config.Theme;
+import com.example.demo.generator.StatementReportGenerator;
+import com.example.demo.model.PaymentData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Mide los estados de cuenta de varias filas. Los pagos se generan al vuelo y el PDF se
+ * descarta, de modo que la asignación medida es la del generador.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class StatementReportGeneratorBenchmark {
+
+    private static final long MEMORY_BUDGET_BYTES = 1024 * 1024;
+
+    @Param({"10", "1000", "10000"})
+    public int rows;
+
+    @Param({"LIGHT", "DARK"})
+    public Theme theme;
+
+    private StatementReportGenerator generator;
+    private PaymentReportConfig config;
+
+    @Setup
+    public void setUp() {
+        generator = BenchmarkFixtures.statementReportGenerator();
+        config = new PaymentReportConfig.Builder()
+                .withLogo(true)
+                .withTitle("Estado de Cuenta")
+                .withPaymentDetails(true)
+                .withUserInfo(true)
+                .withTheme(theme)
+                .withTimestamp(true)
+                .withFooterMessage("Gracias por su preferencia")
+                .withFormat(Format.A4)
+                .withRenderMode(RenderMode.FLOW)
+                .build();
+    }
+
+    @Benchmark
+    public int generateStatement() {
+        Iterator<PaymentData> payments = IntStream.range(0, rows).mapToObj(BenchmarkFixtures::paymentData).iterator();
+        return generator.generateStatement(config, "María García", payments, OutputStream.nullOutputStream(),
+                MEMORY_BUDGET_BYTES);
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.demo.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Prueba de carga de extremo a extremo: arranca el jar de la aplicación en un puerto libre,
+ * genera carga de modelo abierto sobre cada escenario, guarda las latencias y las compara
+ * con la línea base. Termina con error si la mediana o el percentil 99 empeoran, o el
+ * rendimiento baja, más que el umbral, o si la fracción de errores supera el máximo.
+ * <p>
+ * Se configura con propiedades del sistema {@code loadtest.*}; la tarea {@code loadTest} de
+ * Gradle las toma de las propiedades del proyecto con el mismo nombre.
+ */
+public final class LoadTest {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    /**
+     * Escenarios disponibles: nombre, endpoint y tasa por defecto en solicitudes por segundo
+     */
+    private static final Map<String, Scenario> SCENARIOS = new LinkedHashMap<>();
+
+    static {
+        SCENARIOS.put("payment", new Scenario("/api/reports/payment", 20));
+        SCENARIOS.put("preview", new Scenario("/api/reports/payment/preview/png", 40));
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(required("loadtest.jar"));
+        Path resultsDir = Path.of(System.getProperty("loadtest.results", "build/results/loadtest"));
+        Path baselineFile = Path.of(System.getProperty("loadtest.baseline", "src/loadtest/baseline/results.json"));
+        String warmUpText = System.getProperty("loadtest.warmup", "10s");
+        String durationText = System.getProperty("loadtest.duration", "30s");
+        Duration warmUp = duration(warmUpText);
+        Duration duration = duration(durationText);
+        boolean poisson = !"uniform".equals(System.getProperty("loadtest.arrivals", "poisson"));
+        int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 512);
+        long seed = Long.getLong("loadtest.seed", 42);
+        double threshold = Double.parseDouble(System.getProperty("loadtest.threshold", "20"));
+        double maxErrorRatio = Double.parseDouble(System.getProperty("loadtest.max-error-ratio", "0.01"));
+        List<String> scenarios = Arrays.stream(System.getProperty("loadtest.scenarios", String.join(",", SCENARIOS.keySet()))
+                .split(",")).map(String::trim).filter(name -> !name.isEmpty()).toList();
+        for (String name : scenarios) {
+            if (!SCENARIOS.containsKey(name)) {
+                throw new IllegalArgumentException("Escenario desconocido: " + name + "; disponibles: " + SCENARIOS.keySet());
+            }
+        }
+
+        Files.createDirectories(resultsDir);
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI base = URI.create("http://localhost:" + port);
+        Process app = startApplication(jar, port, resultsDir.resolve("app.log"));
+        List<ScenarioResult> results = new ArrayList<>();
+        try {
+            awaitReadiness(client, base, app);
+            for (String name : scenarios) {
+                Scenario scenario = SCENARIOS.get(name);
+                double rate = Double.parseDouble(System.getProperty("loadtest." + name + ".rate",
+                        String.valueOf(scenario.defaultRate())));
+                URI uri = base.resolve(scenario.path());
+                System.out.printf(Locale.ROOT, "%s: %.1f solicitudes/s, calentamiento %s, medición %s%n",
+                        name, rate, warmUpText, durationText);
+                new OpenLoadGenerator(client, uri, RequestMix.standard(), rate, poisson, maxInFlight, seed)
+                        .run(name, warmUp, null);
+                try (PrintStream percentiles = new PrintStream(resultsDir.resolve(name + ".hgrm").toFile())) {
+                    results.add(new OpenLoadGenerator(client, uri, RequestMix.standard(), rate, poisson, maxInFlight,
+                            seed + 1).run(name, duration, percentiles));
+                }
+            }
+        } finally {
+            app.destroy();
+            app.waitFor();
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        mapper.writeValue(resultsDir.resolve("results.json").toFile(), results);
+        List<String> failures = compare(results, loadBaseline(mapper, baselineFile), threshold, maxErrorRatio);
+        if (!failures.isEmpty()) {
+            System.err.println("La prueba de carga no superó la línea base:");
+            failures.forEach(failure -> System.err.println("  " + failure));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Imprime cada escenario frente a la línea base y devuelve las regresiones encontradas
+     */
+    static List<String> compare(List<ScenarioResult> results, Map<String, ScenarioResult> baseline,
+                                double threshold, double maxErrorRatio) {
+        List<String> failures = new ArrayList<>();
+        System.out.printf(Locale.ROOT, "%-10s %9s %9s %9s %9s %9s %9s %11s %8s%n",
+                "escenario", "ofrecido", "rend.", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "serv p99", "errores");
+        for (ScenarioResult result : results) {
+            System.out.printf(Locale.ROOT, "%-10s %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f %11.1f %8d%n",
+                    result.scenario(), result.offeredRate(), result.throughput(), result.p50Ms(), result.p90Ms(),
+                    result.p99Ms(), result.p999Ms(), result.serviceP99Ms(),
+                    result.errors() + result.rejected() + result.dropped());
+            if (result.errorRatio() > maxErrorRatio) {
+                failures.add(String.format(Locale.ROOT, "%s: %.1f%% de solicitudes sin respuesta correcta (máximo %.1f%%)",
+                        result.scenario(), result.errorRatio() * 100, maxErrorRatio * 100));
+            }
+            ScenarioResult base = baseline.get(result.scenario());
+            if (base == null) {
+                System.out.printf("%-10s sin línea base%n", result.scenario());
+                continue;
+            }
+            if (base.offeredRate() != result.offeredRate()) {
+                System.out.printf(Locale.ROOT, "%-10s la línea base se midió a %.1f solicitudes/s; no se compara%n",
+                        result.scenario(), base.offeredRate());
+                continue;
+            }
+            checkLatency(failures, result.scenario(), "p50", base.p50Ms(), result.p50Ms(), threshold);
+            checkLatency(failures, result.scenario(), "p99", base.p99Ms(), result.p99Ms(), threshold);
+            double change = (result.throughput() - base.throughput()) / base.throughput() * 100;
+            System.out.printf(Locale.ROOT, "%-10s rendimiento %.1f -> %.1f (%+.1f%%)%n",
+                    result.scenario(), base.throughput(), result.throughput(), change);
+            if (-change > threshold) {
+                failures.add(String.format(Locale.ROOT, "%s: el rendimiento bajó %.1f%% (umbral %.0f%%)",
+                        result.scenario(), -change, threshold));
+            }
+        }
+        return failures;
+    }
+
+    private static void checkLatency(List<String> failures, String scenario, String percentile, double before,
+                                     double after, double threshold) {
+        double change = (after - before) / before * 100;
+        System.out.printf(Locale.ROOT, "%-10s %s %.1f -> %.1f ms (%+.1f%%)%n", scenario, percentile, before, after, change);
+        if (change > threshold) {
+            failures.add(String.format(Locale.ROOT, "%s: el %s empeoró %.1f%% (umbral %.0f%%)",
+                    scenario, percentile, change, threshold));
+        }
+    }
+
+    private static Map<String, ScenarioResult> loadBaseline(ObjectMapper mapper, Path baselineFile) throws IOException {
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No hay línea base en " + baselineFile + "; se guarda con la tarea loadTestBaseline");
+            return Map.of();
+        }
+        List<ScenarioResult> baseline = mapper.readValue(baselineFile.toFile(), new TypeReference<>() {
+        });
+        return baseline.stream().collect(Collectors.toMap(ScenarioResult::scenario, Function.identity()));
+    }
+
+    private static Process startApplication(Path jar, int port, Path log) throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        String jvmArgs = System.getProperty("loadtest.jvm-args", "");
+        if (!jvmArgs.isBlank()) {
+            command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        }
+        command.addAll(List.of("-jar", jar.toString(), "--server.port=" + port));
+        String appArgs = System.getProperty("loadtest.app-args", "");
+        if (!appArgs.isBlank()) {
+            command.addAll(Arrays.asList(appArgs.trim().split("\\s+")));
+        }
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+    }
+
+    private static void awaitReadiness(HttpClient client, URI base, Process app) throws Exception {
+        HttpRequest readiness = HttpRequest.newBuilder(base.resolve("/actuator/health/readiness")).build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("La aplicación terminó al arrancar (código " + app.exitValue() + ")");
+            }
+            try {
+                if (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Todavía no escucha en el puerto
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("La aplicación no estuvo lista en " + STARTUP_TIMEOUT);
+    }
+
+    /**
+     * Interpreta una duración como {@code 500ms}, {@code 30s} o {@code 2m}
+     */
+    private static Duration duration(String value) {
+        String text = value.trim();
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        if (text.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        if (text.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(text));
+    }
+
+    private static String required(String name) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Falta la propiedad " + name);
+        }
+        return value;
+    }
+
+    private record Scenario(String path, double defaultRate) {
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.demo.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga de modelo abierto: las solicitudes llegan a una tasa fija, con intervalos
+ * exponenciales (llegadas de Poisson) o constantes, sin esperar a que terminen las anteriores.
+ * <p>
+ * Para no caer en la omisión coordinada, la latencia de cada solicitud se mide desde el
+ * instante programado para su llegada y no desde su envío: si el servidor o el propio
+ * generador se retrasan, el retraso cuenta en la latencia igual que lo notaría un cliente real.
+ */
+final class OpenLoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient client;
+    private final URI uri;
+    private final RequestMix mix;
+    private final double rate;
+    private final boolean poisson;
+    private final int maxInFlight;
+    private final Random random;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param client el cliente HTTP, compartido entre escenarios
+     * @param uri el endpoint al que se envían las solicitudes
+     * @param mix la combinación de variantes de solicitud
+     * @param rate las solicitudes por segundo
+     * @param poisson true para intervalos exponenciales, false para intervalos constantes
+     * @param maxInFlight el máximo de solicitudes en curso; las que lo superan se cuentan como descartadas
+     * @param seed la semilla de los sorteos, para repetir la misma secuencia de llegadas y variantes
+     */
+    OpenLoadGenerator(HttpClient client, URI uri, RequestMix mix, double rate, boolean poisson, int maxInFlight,
+                      long seed) {
+        this.client = client;
+        this.uri = uri;
+        this.mix = mix;
+        this.rate = rate;
+        this.poisson = poisson;
+        this.maxInFlight = maxInFlight;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Genera carga durante el tiempo indicado y espera a que terminen las solicitudes en curso
+     *
+     * @param scenario el nombre del escenario en el resultado
+     * @param duration el tiempo durante el que llegan solicitudes
+     * @param percentiles si no es null, recibe la distribución completa de la latencia de respuesta
+     * @return el resultado del escenario
+     */
+    ScenarioResult run(String scenario, Duration duration, PrintStream percentiles) throws InterruptedException {
+        Histogram responseTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        LongAdder succeeded = new LongAdder();
+        LongAdder errors = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        LongAdder dropped = new LongAdder();
+        Map<String, LongAdder> variants = new ConcurrentHashMap<>();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicLong lastCompletion = new AtomicLong();
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long intended = start;
+        long requests = 0;
+        while (intended < end) {
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            RequestMix.Variant variant = mix.pick(random);
+            requests++;
+            variants.computeIfAbsent(variant.name(), name -> new LongAdder()).increment();
+            if (inFlight.get() >= maxInFlight) {
+                dropped.increment();
+            } else {
+                inFlight.incrementAndGet();
+                long scheduledAt = intended;
+                long sentAt = System.nanoTime();
+                client.sendAsync(request(variant), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, failure) -> {
+                            long now = System.nanoTime();
+                            responseTime.recordValue(micros(now - scheduledAt));
+                            serviceTime.recordValue(micros(now - sentAt));
+                            if (failure != null) {
+                                errors.increment();
+                            } else if (response.statusCode() == 429 || response.statusCode() == 503) {
+                                rejected.increment();
+                            } else if (response.statusCode() >= 400) {
+                                errors.increment();
+                            } else {
+                                succeeded.increment();
+                            }
+                            lastCompletion.accumulateAndGet(now, Math::max);
+                            inFlight.decrementAndGet();
+                        });
+            }
+            intended += nextInterval();
+        }
+
+        long drainDeadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        errors.add(inFlight.get());
+
+        double elapsedSeconds = (Math.max(lastCompletion.get(), end) - start) / 1e9;
+        if (percentiles != null) {
+            responseTime.outputPercentileDistribution(percentiles, 1000.0);
+        }
+        Map<String, Long> variantCounts = new TreeMap<>();
+        variants.forEach((name, count) -> variantCounts.put(name, count.sum()));
+        return new ScenarioResult(scenario, rate, succeeded.sum() / elapsedSeconds, requests, errors.sum(),
+                rejected.sum(), dropped.sum(), millis(responseTime, 50), millis(responseTime, 90),
+                millis(responseTime, 99), millis(responseTime, 99.9), responseTime.getMaxValue() / 1000.0,
+                millis(serviceTime, 50), millis(serviceTime, 99), variantCounts);
+    }
+
+    private HttpRequest request(RequestMix.Variant variant) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(variant.body(sequence.incrementAndGet())))
+                .build();
+    }
+
+    private long nextInterval() {
+        double meanNanos = 1e9 / rate;
+        return poisson ? (long) (-Math.log(1 - random.nextDouble()) * meanNanos) : (long) meanNanos;
+    }
+
+    private static long micros(long nanos) {
+        return Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
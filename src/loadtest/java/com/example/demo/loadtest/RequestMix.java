@@ -0,0 +1,72 @@
+package com.example.demo.loadtest;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Combinación ponderada de variantes de solicitud de un escenario: tema, logo y tamaño del
+ * pie. Cada solicitud lleva otra transacción para que la caché de resultados y la agrupación
+ * de solicitudes idénticas no oculten el renderizado.
+ */
+final class RequestMix {
+
+    private static final String FOOTER_TEXT = "Gracias por su pago. ";
+
+    private final List<Variant> variants;
+    private final int totalWeight;
+
+    private RequestMix(List<Variant> variants) {
+        this.variants = variants;
+        this.totalWeight = variants.stream().mapToInt(Variant::weight).sum();
+    }
+
+    /**
+     * La combinación por defecto: mayoría de reportes claros sin logo y pie corto, como en
+     * producción, y una parte de reportes oscuros, con logo y con pies largos
+     */
+    static RequestMix standard() {
+        return new RequestMix(List.of(
+                new Variant("light", 5, "LIGHT", false, 0),
+                new Variant("light-logo", 2, "LIGHT", true, 40),
+                new Variant("dark-logo", 2, "DARK", true, 40),
+                new Variant("light-long-footer", 1, "LIGHT", true, 1200)));
+    }
+
+    /**
+     * @return la variante sorteada según los pesos
+     */
+    Variant pick(Random random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Variant variant : variants) {
+            ticket -= variant.weight();
+            if (ticket < 0) {
+                return variant;
+            }
+        }
+        throw new IllegalStateException("Pesos inválidos");
+    }
+
+    /**
+     * Una variante de solicitud
+     *
+     * @param name nombre con el que se cuenta en el resultado
+     * @param weight peso relativo en la combinación
+     * @param theme tema del reporte
+     * @param includeLogo si el reporte lleva logo
+     * @param footerLength longitud aproximada del pie en caracteres
+     */
+    record Variant(String name, int weight, String theme, boolean includeLogo, int footerLength) {
+
+        /**
+         * @return el cuerpo JSON de la solicitud número {@code sequence}
+         */
+        String body(long sequence) {
+            String footer = FOOTER_TEXT.repeat((footerLength + FOOTER_TEXT.length() - 1) / FOOTER_TEXT.length());
+            return String.format(Locale.ROOT,
+                    "{\"transactionId\":\"LT-%d\",\"amount\":%.2f,\"paymentMethod\":\"Tarjeta de Crédito\","
+                            + "\"customerName\":\"María García\",\"theme\":\"%s\",\"includeLogo\":%b,\"footerMessage\":\"%s\"}",
+                    sequence, 100 + sequence % 1000 / 7.0, theme, includeLogo, footer.trim());
+        }
+    }
+}
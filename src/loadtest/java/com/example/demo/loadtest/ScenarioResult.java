@@ -0,0 +1,37 @@
+package com.example.demo.loadtest;
+
+import java.util.Map;
+
+/**
+ * Resultado de un escenario de carga. Las latencias de respuesta se miden desde el instante en
+ * que la solicitud debía enviarse según la tasa de llegada, de modo que incluyen la espera que
+ * provoca un servidor saturado; el tiempo de servicio se mide desde el envío real y sirve para
+ * ver cuánto de la latencia es cola.
+ *
+ * @param scenario nombre del escenario
+ * @param offeredRate solicitudes por segundo programadas
+ * @param throughput respuestas correctas por segundo
+ * @param requests solicitudes programadas durante la medición
+ * @param errors respuestas con error o sin respuesta
+ * @param rejected respuestas 429 y 503 por sobrecarga
+ * @param dropped solicitudes no enviadas por superar el máximo de solicitudes en curso
+ * @param p50Ms mediana de la latencia de respuesta en milisegundos
+ * @param p90Ms percentil 90 de la latencia de respuesta
+ * @param p99Ms percentil 99 de la latencia de respuesta
+ * @param p999Ms percentil 99,9 de la latencia de respuesta
+ * @param maxMs latencia de respuesta máxima
+ * @param serviceP50Ms mediana del tiempo de servicio
+ * @param serviceP99Ms percentil 99 del tiempo de servicio
+ * @param variants solicitudes enviadas por variante
+ */
+record ScenarioResult(String scenario, double offeredRate, double throughput, long requests, long errors,
+                      long rejected, long dropped, double p50Ms, double p90Ms, double p99Ms, double p999Ms,
+                      double maxMs, double serviceP50Ms, double serviceP99Ms, Map<String, Long> variants) {
+
+    /**
+     * @return la fracción de solicitudes programadas que no tuvieron una respuesta correcta
+     */
+    double errorRatio() {
+        return requests == 0 ? 0 : (errors + rejected + dropped) / (double) requests;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.archive;
+
+import java.time.Instant;
+
+/**
+ * Un reporte guardado en el archivo. Los reportes archivados no cambian: el identificador
+ * sirve también de ETag.
+ *
+ * @param id identificador del reporte en el archivo
+ * @param transactionId identificador de la transacción del pago
+ * @param customerName nombre del cliente, o null si el pago no lo indicaba
+ * @param archivedAt momento en que se archivó
+ * @param size tamaño del PDF en bytes
+ * @param fingerprint huella de la solicitud si el reporte es reproducible, o null
+ */
+public record ArchiveEntry(String id, String transactionId, String customerName, Instant archivedAt, int size,
+                           String fingerprint) {
+}
@@ -0,0 +1,67 @@
+package com.example.demo.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+
+/**
+ * Ubicación de un PDF archivado dentro de su segmento. Permite enviarlo sin cargarlo en el
+ * heap: con sendfile a partir del archivo y la posición, o escribiéndolo desde la proyección
+ * en memoria del segmento.
+ */
+public final class ArchiveRegion {
+
+    private final ArchiveEntry entry;
+    private final ArchiveSegment segment;
+    private final long offset;
+
+    ArchiveRegion(ArchiveEntry entry, ArchiveSegment segment, long offset) {
+        this.entry = entry;
+        this.segment = segment;
+        this.offset = offset;
+    }
+
+    public ArchiveEntry getEntry() {
+        return entry;
+    }
+
+    /**
+     * @return el archivo del segmento que contiene el PDF
+     */
+    public Path getFile() {
+        return segment.getPath();
+    }
+
+    /**
+     * @return la posición del primer byte del PDF en el archivo del segmento
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return el tamaño del PDF en bytes
+     */
+    public int getLength() {
+        return entry.size();
+    }
+
+    /**
+     * Escribe una parte del PDF
+     *
+     * @param out el flujo de destino; no se cierra
+     * @param start la posición del primer byte dentro del PDF
+     * @param count los bytes que se escriben
+     */
+    public void writeTo(OutputStream out, long start, long count) throws IOException {
+        segment.transferTo(offset + start, count, Channels.newChannel(out));
+    }
+
+    /**
+     * @return una copia del PDF completo
+     */
+    public byte[] toByteArray() throws IOException {
+        return segment.read(offset, entry.size());
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.demo.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Archivo de un segmento del archivo de reportes: una secuencia de registros que solo crece.
+ * Cada registro es una cabecera con los datos del reporte seguida del PDF tal cual:
+ * <pre>
+ * int   marca ("RPT1")
+ * int   longitud de la cabecera
+ * cabecera: id, huella, transacción y cliente (UTF modificado), fecha en milisegundos,
+ *           longitud y CRC-32 del PDF
+ * bytes del PDF
+ * </pre>
+ * El segmento activo recibe los nuevos registros y se lee con el canal; al cerrarse se proyecta
+ * en memoria completo y desde entonces se lee sin llamadas al sistema.
+ */
+final class ArchiveSegment {
+
+    static final String FILE_PREFIX = "segment-";
+    static final String FILE_SUFFIX = ".log";
+
+    private static final int MAGIC = 0x52505431;
+    private static final int PREAMBLE_BYTES = 8;
+    /**
+     * Límite de la cabecera al leer un segmento: una longitud mayor indica un registro dañado
+     */
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+
+    private final long number;
+    private final Path path;
+    private final FileChannel channel;
+    private volatile long size;
+    private volatile boolean sealed;
+    private volatile MappedByteBuffer mapped;
+    /**
+     * Bytes de los registros vigentes; lo modifica el archivo con su cerrojo tomado
+     */
+    private long liveBytes;
+
+    private ArchiveSegment(long number, Path path, FileChannel channel, long size) {
+        this.number = number;
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+    }
+
+    /**
+     * Abre o crea el segmento con el número indicado
+     */
+    static ArchiveSegment open(Path directory, long number) throws IOException {
+        Path path = directory.resolve(String.format("%s%012d%s", FILE_PREFIX, number, FILE_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new ArchiveSegment(number, path, channel, channel.size());
+    }
+
+    /**
+     * @return el número del segmento a partir del nombre de su archivo, o -1 si no es un segmento
+     */
+    static long parseNumber(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Codifica un registro completo, listo para añadirlo a un segmento
+     */
+    static ByteBuffer encode(ArchiveEntry entry, byte[] pdf) {
+        ByteArrayOutputStream header = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.writeUTF(entry.id());
+            out.writeUTF(entry.fingerprint() != null ? entry.fingerprint() : "");
+            out.writeUTF(entry.transactionId());
+            out.writeUTF(entry.customerName() != null ? entry.customerName() : "");
+            out.writeLong(entry.archivedAt().toEpochMilli());
+            out.writeInt(pdf.length);
+            CRC32 crc = new CRC32();
+            crc.update(pdf);
+            out.writeInt((int) crc.getValue());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer record = ByteBuffer.allocate(PREAMBLE_BYTES + header.size() + pdf.length);
+        record.putInt(MAGIC).putInt(header.size()).put(header.toByteArray()).put(pdf);
+        return record.flip();
+    }
+
+    /**
+     * Añade un registro al final del segmento
+     *
+     * @return la posición del registro en el segmento
+     */
+    long append(ByteBuffer record, boolean sync) throws IOException {
+        long offset = size;
+        long position = offset;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        if (sync) {
+            channel.force(false);
+        }
+        size = position;
+        return offset;
+    }
+
+    /**
+     * Recorre los registros del segmento. Un registro incompleto o dañado al final del segmento
+     * (una escritura interrumpida) se descarta recortando el archivo si {@code truncate} es true.
+     *
+     * @param consumer recibe cada registro válido
+     * @return los bytes descartados al final del segmento
+     */
+    long scan(Consumer<Scanned> consumer, boolean truncate) throws IOException {
+        long position = 0;
+        long fileSize = channel.size();
+        ByteBuffer preamble = ByteBuffer.allocate(PREAMBLE_BYTES);
+        while (position < fileSize) {
+            preamble.clear();
+            if (!readFully(preamble, position) || preamble.getInt(0) != MAGIC) {
+                break;
+            }
+            int headerLength = preamble.getInt(4);
+            if (headerLength <= 0 || headerLength > MAX_HEADER_BYTES) {
+                break;
+            }
+            ByteBuffer header = ByteBuffer.allocate(headerLength);
+            if (!readFully(header, position + PREAMBLE_BYTES)) {
+                break;
+            }
+            ArchiveEntry entry;
+            try {
+                entry = decodeHeader(header.array());
+            } catch (IOException e) {
+                break;
+            }
+            long payloadOffset = position + PREAMBLE_BYTES + headerLength;
+            long end = payloadOffset + entry.size();
+            if (end > fileSize) {
+                break;
+            }
+            consumer.accept(new Scanned(entry, position, payloadOffset));
+            position = end;
+        }
+        long discarded = fileSize - position;
+        if (discarded > 0 && truncate) {
+            channel.truncate(position);
+        }
+        size = position;
+        return discarded;
+    }
+
+    /**
+     * Cierra el segmento a nuevos registros y lo proyecta en memoria para leerlo. Un segmento
+     * de más de 2 GB, que no cabe en una proyección, se sigue leyendo con el canal.
+     */
+    void seal() throws IOException {
+        if (mapped == null && size <= Integer.MAX_VALUE) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        sealed = true;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * Escribe una parte del segmento en el canal de destino; si el segmento está proyectado en
+     * memoria se escribe desde la proyección
+     */
+    void transferTo(long offset, long length, WritableByteChannel target) throws IOException {
+        MappedByteBuffer view = mapped;
+        if (view != null) {
+            ByteBuffer slice = view.slice((int) offset, (int) length);
+            while (slice.hasRemaining()) {
+                target.write(slice);
+            }
+            return;
+        }
+        long position = offset;
+        long end = offset + length;
+        while (position < end) {
+            position += channel.transferTo(position, end - position, target);
+        }
+    }
+
+    /**
+     * Copia una parte del segmento a un arreglo nuevo
+     */
+    byte[] read(long offset, int length) throws IOException {
+        byte[] data = new byte[length];
+        MappedByteBuffer view = mapped;
+        if (view != null) {
+            view.get((int) offset, data);
+            return data;
+        }
+        if (!readFully(ByteBuffer.wrap(data), offset)) {
+            throw new EOFException("Registro incompleto en " + path);
+        }
+        return data;
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    private static ArchiveEntry decodeHeader(byte[] header) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+        String id = in.readUTF();
+        String fingerprint = in.readUTF();
+        String transactionId = in.readUTF();
+        String customerName = in.readUTF();
+        Instant archivedAt = Instant.ofEpochMilli(in.readLong());
+        int size = in.readInt();
+        in.readInt(); // CRC-32 del PDF
+        if (size < 0) {
+            throw new IOException("Longitud de PDF inválida: " + size);
+        }
+        return new ArchiveEntry(id, transactionId, customerName.isEmpty() ? null : customerName, archivedAt, size,
+                fingerprint.isEmpty() ? null : fingerprint);
+    }
+
+    long getNumber() {
+        return number;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getLiveBytes() {
+        return liveBytes;
+    }
+
+    void addLiveBytes(long bytes) {
+        liveBytes += bytes;
+    }
+
+    /**
+     * Un registro encontrado al recorrer el segmento
+     */
+    record Scanned(ArchiveEntry entry, long recordOffset, long payloadOffset) {
+    }
+}
@@ -0,0 +1,446 @@
+package com.example.demo.archive;
+
+import com.example.demo.config.ArchiveProperties;
+import com.example.demo.model.PaymentData;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Archivo en disco de los reportes generados. Los PDF se añaden a segmentos que solo crecen
+ * y se indexan en memoria por identificador, transacción, cliente, fecha y huella; el índice
+ * se reconstruye al iniciar recorriendo los segmentos. Una nueva descarga de un reporte
+ * archivado se envía desde el segmento sin volver a renderizarlo ni cargarlo en el heap.
+ * <p>
+ * Los reportes expiran al superar la retención. La compactación periódica elimina los
+ * segmentos que ya no tienen reportes vigentes y reescribe los que tienen una fracción alta de
+ * bytes expirados copiando sus reportes vigentes al segmento activo. Los archivos retirados se
+ * borran en la compactación siguiente, de modo que las descargas en curso, que pueden leer el
+ * archivo por su nombre, terminan antes.
+ */
+@Component
+public class ReportArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportArchive.class);
+    private static final Comparator<ArchiveEntry> NEWEST_FIRST =
+            Comparator.comparing(ArchiveEntry::archivedAt).reversed().thenComparing(ArchiveEntry::id);
+
+    private final ArchiveProperties properties;
+    private final ZoneId zone = ZoneId.systemDefault();
+    /**
+     * Serializa las escrituras: altas, expiraciones y compactaciones
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeMap<Long, ArchiveSegment> segments = new TreeMap<>();
+    private final List<ArchiveSegment> retired = new ArrayList<>();
+    private ArchiveSegment active;
+
+    private final Map<String, Located> byId = new ConcurrentHashMap<>();
+    private final Map<String, Located> byFingerprint = new ConcurrentHashMap<>();
+    private final Map<String, List<ArchiveEntry>> byTransaction = new ConcurrentHashMap<>();
+    private final Map<String, List<ArchiveEntry>> byCustomer = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<LocalDate, List<ArchiveEntry>> byDate = new ConcurrentSkipListMap<>();
+
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder compactedBytes = new LongAdder();
+    private volatile long liveBytes;
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param properties La configuración del archivo
+     */
+    public ReportArchive(ArchiveProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Abre los segmentos existentes y reconstruye el índice. Un registro incompleto al final
+     * del último segmento (una escritura interrumpida) se descarta.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Path directory = properties.getDirectory();
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                ArchiveSegment.FILE_PREFIX + "*" + ArchiveSegment.FILE_SUFFIX)) {
+            for (Path file : stream) {
+                long number = ArchiveSegment.parseNumber(file);
+                if (number >= 0) {
+                    files.put(number, file);
+                }
+            }
+        }
+        Instant cutoff = Instant.now().minus(properties.getRetention());
+        lock.lock();
+        try {
+            for (Long number : files.keySet()) {
+                ArchiveSegment segment = ArchiveSegment.open(directory, number);
+                boolean last = number.equals(files.lastKey());
+                long discarded = segment.scan(scanned -> {
+                    if (!scanned.entry().archivedAt().isBefore(cutoff)) {
+                        index(new Located(scanned.entry(), segment, scanned.recordOffset(), scanned.payloadOffset()));
+                    }
+                }, last);
+                if (discarded > 0) {
+                    logger.warn("Se descartaron {} bytes dañados al final del segmento {}", discarded, segment.getPath());
+                }
+                segments.put(number, segment);
+                if (last) {
+                    active = segment;
+                } else {
+                    segment.seal();
+                }
+            }
+            if (active == null) {
+                active = ArchiveSegment.open(directory, 1);
+                segments.put(active.getNumber(), active);
+            }
+        } finally {
+            lock.unlock();
+        }
+        logger.info("Archivo de reportes en {}: {} reportes en {} segmentos", directory, byId.size(), segments.size());
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            for (ArchiveSegment segment : segments.values()) {
+                closeQuietly(segment);
+            }
+            for (ArchiveSegment segment : retired) {
+                closeQuietly(segment);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true si el archivo está activado
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Guarda un reporte generado. Un reporte reproducible que ya está archivado con la misma
+     * huella no se vuelve a guardar.
+     *
+     * @param fingerprint la huella de la solicitud si el reporte es reproducible, o null
+     * @param paymentData los datos del pago
+     * @param pdf el contenido del PDF
+     * @return el reporte archivado, o null si el archivo está desactivado
+     * @throws UncheckedIOException si no se pudo escribir en el segmento
+     */
+    public ArchiveEntry store(String fingerprint, PaymentData paymentData, byte[] pdf) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        if (fingerprint != null) {
+            Located existing = byFingerprint.get(fingerprint);
+            if (existing != null) {
+                return existing.entry();
+            }
+        }
+        ArchiveEntry entry = new ArchiveEntry(UUID.randomUUID().toString(), paymentData.getTransactionId(),
+                paymentData.getCustomerName(), Instant.now().truncatedTo(ChronoUnit.MILLIS), pdf.length, fingerprint);
+        ByteBuffer record = ArchiveSegment.encode(entry, pdf);
+        lock.lock();
+        try {
+            if (fingerprint != null && byFingerprint.containsKey(fingerprint)) {
+                return byFingerprint.get(fingerprint).entry();
+            }
+            Located located = append(entry, record);
+            index(located);
+            stored.increment();
+            return entry;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo archivar el reporte " + entry.id(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param id el identificador del reporte archivado
+     * @return la ubicación del reporte, o null si no existe o expiró
+     */
+    public ArchiveRegion region(String id) {
+        return region(byId.get(id));
+    }
+
+    /**
+     * @param fingerprint la huella de un reporte reproducible
+     * @return la ubicación del reporte archivado con esa huella, o null si no lo hay
+     */
+    public ArchiveRegion regionByFingerprint(String fingerprint) {
+        return region(byFingerprint.get(fingerprint));
+    }
+
+    /**
+     * @param transactionId el identificador de la transacción
+     * @return la ubicación del reporte más reciente de la transacción, o null si no lo hay
+     */
+    public ArchiveRegion latestRegion(String transactionId) {
+        List<ArchiveEntry> entries = byTransaction.get(transactionId);
+        return entries == null || entries.isEmpty() ? null : region(entries.get(0).id());
+    }
+
+    /**
+     * Busca reportes archivados. Se usa el índice más selectivo de los criterios indicados:
+     * transacción, cliente o fechas.
+     *
+     * @param transactionId la transacción, o null
+     * @param customerName el cliente, sin distinguir mayúsculas, o null
+     * @param from el primer día de archivo incluido, o null
+     * @param to el último día de archivo incluido, o null
+     * @param limit el número máximo de resultados
+     * @return los reportes encontrados, del más reciente al más antiguo
+     */
+    public List<ArchiveEntry> find(String transactionId, String customerName, LocalDate from, LocalDate to, int limit) {
+        Stream<ArchiveEntry> candidates;
+        if (transactionId != null) {
+            candidates = byTransaction.getOrDefault(transactionId, List.of()).stream();
+        } else if (customerName != null) {
+            candidates = byCustomer.getOrDefault(customerKey(customerName), List.of()).stream();
+        } else {
+            candidates = byDate.subMap(from != null ? from : LocalDate.MIN, true, to != null ? to : LocalDate.MAX, true)
+                    .values().stream().flatMap(List::stream);
+        }
+        return candidates
+                .filter(entry -> customerName == null || customerKey(customerName).equals(customerKey(entry.customerName())))
+                .filter(entry -> from == null || !date(entry).isBefore(from))
+                .filter(entry -> to == null || !date(entry).isAfter(to))
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Expira los reportes que superan la retención y compacta los segmentos cerrados
+     */
+    @Scheduled(fixedDelayString = "${report.archive.compaction-interval-ms:3600000}")
+    public void compact() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        lock.lock();
+        try {
+            deleteRetired();
+            Instant cutoff = Instant.now().minus(properties.getRetention());
+            int expired = 0;
+            for (Located located : List.copyOf(byId.values())) {
+                if (located.entry().archivedAt().isBefore(cutoff)) {
+                    unindex(located);
+                    expired++;
+                }
+            }
+            for (ArchiveSegment segment : List.copyOf(segments.values())) {
+                if (segment == active || !segment.isSealed()) {
+                    continue;
+                }
+                if (segment.getLiveBytes() == 0) {
+                    retire(segment);
+                } else if (1 - segment.getLiveBytes() / (double) segment.getSize() >= properties.getCompactionMinDeadRatio()) {
+                    rewrite(segment);
+                }
+            }
+            if (expired > 0 || !retired.isEmpty()) {
+                logger.info("Archivo compactado: {} reportes expirados, {} segmentos retirados", expired, retired.size());
+            }
+        } catch (IOException e) {
+            logger.error("Error al compactar el archivo de reportes", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getEntries() {
+        return byId.size();
+    }
+
+    public long getLiveBytes() {
+        return liveBytes;
+    }
+
+    public int getSegments() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getStored() {
+        return stored.sum();
+    }
+
+    public long getServed() {
+        return served.sum();
+    }
+
+    public long getCompactedBytes() {
+        return compactedBytes.sum();
+    }
+
+    private ArchiveRegion region(Located located) {
+        if (located == null) {
+            return null;
+        }
+        served.increment();
+        return new ArchiveRegion(located.entry(), located.segment(), located.payloadOffset());
+    }
+
+    /**
+     * Añade un registro al segmento activo, cerrando el segmento y abriendo otro si no cabe
+     */
+    private Located append(ArchiveEntry entry, ByteBuffer record) throws IOException {
+        if (active.getSize() > 0 && active.getSize() + record.remaining() > properties.getSegmentSizeBytes()) {
+            active.seal();
+            active = ArchiveSegment.open(properties.getDirectory(), active.getNumber() + 1);
+            segments.put(active.getNumber(), active);
+        }
+        long headerBytes = record.remaining() - entry.size();
+        long offset = active.append(record, properties.isSyncOnWrite());
+        return new Located(entry, active, offset, offset + headerBytes);
+    }
+
+    /**
+     * Copia los reportes vigentes de un segmento al segmento activo y retira el segmento
+     */
+    private void rewrite(ArchiveSegment segment) throws IOException {
+        List<Located> live = byId.values().stream().filter(located -> located.segment() == segment).toList();
+        for (Located located : live) {
+            int recordLength = (int) (located.payloadOffset() - located.recordOffset()) + located.entry().size();
+            ByteBuffer record = ByteBuffer.wrap(segment.read(located.recordOffset(), recordLength));
+            Located moved = append(located.entry(), record);
+            unindex(located);
+            index(moved);
+            compactedBytes.add(recordLength);
+        }
+        retire(segment);
+    }
+
+    private void retire(ArchiveSegment segment) {
+        segments.remove(segment.getNumber());
+        retired.add(segment);
+    }
+
+    private void deleteRetired() {
+        for (ArchiveSegment segment : retired) {
+            closeQuietly(segment);
+            try {
+                Files.deleteIfExists(segment.getPath());
+            } catch (IOException e) {
+                logger.warn("No se pudo borrar el segmento retirado {}: {}", segment.getPath(), e.getMessage());
+            }
+        }
+        retired.clear();
+    }
+
+    private void index(Located located) {
+        ArchiveEntry entry = located.entry();
+        byId.put(entry.id(), located);
+        if (entry.fingerprint() != null) {
+            byFingerprint.put(entry.fingerprint(), located);
+        }
+        byTransaction.compute(entry.transactionId(), (key, entries) -> with(entries, entry));
+        byCustomer.compute(customerKey(entry.customerName()), (key, entries) -> with(entries, entry));
+        byDate.compute(date(entry), (key, entries) -> with(entries, entry));
+        located.segment().addLiveBytes(located.recordLength());
+        liveBytes += located.recordLength();
+    }
+
+    private void unindex(Located located) {
+        ArchiveEntry entry = located.entry();
+        byId.remove(entry.id(), located);
+        if (entry.fingerprint() != null) {
+            byFingerprint.remove(entry.fingerprint(), located);
+        }
+        byTransaction.computeIfPresent(entry.transactionId(), (key, entries) -> without(entries, entry));
+        byCustomer.computeIfPresent(customerKey(entry.customerName()), (key, entries) -> without(entries, entry));
+        byDate.computeIfPresent(date(entry), (key, entries) -> without(entries, entry));
+        located.segment().addLiveBytes(-located.recordLength());
+        liveBytes -= located.recordLength();
+    }
+
+    /**
+     * Las listas del índice no se modifican: cada alta o baja crea una nueva, de modo que las
+     * consultas las recorren sin cerrojo
+     */
+    private static List<ArchiveEntry> with(List<ArchiveEntry> entries, ArchiveEntry entry) {
+        List<ArchiveEntry> updated = new ArrayList<>(entries != null ? entries.size() + 1 : 1);
+        if (entries != null) {
+            updated.addAll(entries);
+        }
+        updated.add(entry);
+        updated.sort(NEWEST_FIRST);
+        return List.copyOf(updated);
+    }
+
+    private static List<ArchiveEntry> without(List<ArchiveEntry> entries, ArchiveEntry entry) {
+        List<ArchiveEntry> updated = entries.stream().filter(other -> !other.id().equals(entry.id())).toList();
+        return updated.isEmpty() ? null : updated;
+    }
+
+    private LocalDate date(ArchiveEntry entry) {
+        return LocalDate.ofInstant(entry.archivedAt(), zone);
+    }
+
+    private static String customerKey(String customerName) {
+        return customerName != null ? customerName.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static void closeQuietly(ArchiveSegment segment) {
+        try {
+            segment.close();
+        } catch (IOException e) {
+            logger.warn("No se pudo cerrar el segmento {}: {}", segment.getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Un reporte indexado y su posición: el registro empieza en {@code recordOffset} y el PDF
+     * en {@code payloadOffset}
+     */
+    private record Located(ArchiveEntry entry, ArchiveSegment segment, long recordOffset, long payloadOffset) {
+
+        long recordLength() {
+            return payloadOffset - recordOffset + entry.size();
+        }
+    }
+}
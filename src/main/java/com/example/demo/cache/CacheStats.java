@@ -0,0 +1,26 @@
+package com.example.demo.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Instantánea inmutable de las estadísticas de una caché
+ */
+@Getter
+@AllArgsConstructor
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+    private final long weight;
+    private final long maxWeight;
+
+    /**
+     * @return la proporción de aciertos sobre el total de consultas, o 0 si no hubo consultas
+     */
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.demo.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Caché LRU acotada por peso (por ejemplo, bytes) en lugar de por número de entradas.
+ * Cuando el peso total supera el máximo configurado se desalojan las entradas
+ * usadas menos recientemente. Es segura para uso concurrente.
+ *
+ * @param <K> tipo de la clave
+ * @param <V> tipo del valor almacenado
+ */
+public class WeightedLruCache<K, V> {
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<K, CompletableFuture<V>> loading = new HashMap<>();
+
+    private long totalWeight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxWeight peso total máximo que puede retener la caché
+     * @param weigher función que calcula el peso de cada valor
+     */
+    public WeightedLruCache(long maxWeight, ToLongFunction<V> weigher) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("El peso máximo debe ser positivo: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Obtiene un valor marcándolo como usado recientemente
+     *
+     * @param key la clave a buscar
+     * @return el valor almacenado o null si no existe
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Obtiene un valor o lo carga si no existe. La carga se ejecuta fuera del bloqueo y una
+     * sola vez por clave: los hilos que piden la misma clave mientras se carga esperan ese
+     * resultado, o la misma excepción, en lugar de cargarla de nuevo.
+     *
+     * @param key la clave a buscar
+     * @param loader función que carga el valor; puede devolver null
+     * @return el valor almacenado o cargado, o null si el cargador no produjo ninguno
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> load;
+        boolean owner;
+        synchronized (this) {
+            V value = entries.get(key);
+            if (value != null) {
+                hits++;
+                return value;
+            }
+            misses++;
+            load = loading.get(key);
+            owner = load == null;
+            if (owner) {
+                load = new CompletableFuture<>();
+                loading.put(key, load);
+            }
+        }
+        if (owner) {
+            return load(key, loader, load);
+        }
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader, CompletableFuture<V> load) {
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                loading.remove(key);
+            }
+            load.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            if (value != null) {
+                put(key, value);
+            }
+            loading.remove(key);
+        }
+        load.complete(value);
+        return value;
+    }
+
+    /**
+     * Almacena un valor. Los valores cuyo peso supera el máximo de la caché no se retienen.
+     *
+     * @param key la clave
+     * @param value el valor a almacenar
+     */
+    public synchronized void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        V previous = entries.remove(key);
+        if (previous != null) {
+            totalWeight -= weigher.applyAsLong(previous);
+        }
+        if (weight > maxWeight) {
+            return;
+        }
+        entries.put(key, value);
+        totalWeight += weight;
+        evictIfNeeded();
+    }
+
+    /**
+     * Elimina una entrada de la caché
+     *
+     * @param key la clave a eliminar
+     */
+    public synchronized void invalidate(K key) {
+        V previous = entries.remove(key);
+        if (previous != null) {
+            totalWeight -= weigher.applyAsLong(previous);
+        }
+    }
+
+    /**
+     * Elimina todas las entradas de la caché
+     */
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    /**
+     * @return una instantánea de las estadísticas de la caché
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size(), totalWeight, maxWeight);
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        while (totalWeight > maxWeight && iterator.hasNext()) {
+            Map.Entry<K, V> eldest = iterator.next();
+            totalWeight -= weigher.applyAsLong(eldest.getValue());
+            iterator.remove();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.demo.concurrent;
+
+import com.example.demo.config.RenderProperties;
+import com.example.demo.exception.ReportGenerationException;
+import com.example.demo.exception.ReportRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Limita el número de renderizados de PDF simultáneos, que consumen CPU, y reparte los turnos
+ * entre carriles de prioridad: vistas previas, descargas y lotes. Cada carril tiene su propia
+ * cola; cuando hay solicitudes esperando en varios, los turnos se reparten en proporción a sus
+ * pesos, salvo que la solicitud más antigua de un carril supere su espera objetivo, que pasa
+ * por delante para que ningún carril se quede sin turno. Los carriles con límite de espera
+ * descartan carga: se rechazan con 429 si hay demasiadas solicitudes esperando y con 503 si la
+ * espera reciente o la propia espera supera el límite; el carril de lotes espera siempre.
+ */
+@Component
+public class RenderBulkhead {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderBulkhead.class);
+
+    /**
+     * Peso de cada nueva medida en la media móvil de la espera
+     */
+    private static final double WAIT_EWMA_WEIGHT = 0.2;
+
+    /**
+     * Avance del turno virtual de un carril de peso 1 por cada turno recibido
+     */
+    private static final long STRIDE = 1 << 20;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<RenderPriority, Lane> lanes = new EnumMap<>(RenderPriority.class);
+    private final int maxConcurrent;
+    private final int maxWaiting;
+    private int available;
+    /**
+     * Turno virtual del último carril atendido; un carril que vuelve a tener cola parte de aquí
+     * y no acumula crédito por el tiempo que estuvo vacío
+     */
+    private long virtualTime;
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param properties La configuración del renderizado
+     */
+    public RenderBulkhead(RenderProperties properties) {
+        this.maxConcurrent = properties.effectiveMaxConcurrent();
+        this.maxWaiting = properties.effectiveMaxWaiting();
+        this.available = maxConcurrent;
+        for (RenderPriority priority : RenderPriority.values()) {
+            lanes.put(priority, new Lane(priority, properties.lane(priority)));
+        }
+        logger.info("Renderizados simultáneos: {}, en espera por carril como máximo: {}", maxConcurrent, maxWaiting);
+        for (Lane lane : lanes.values()) {
+            logger.info("Carril {}: peso {}, espera objetivo {}, espera máxima {}", lane.name, lane.weight,
+                    Duration.ofNanos(lane.waitSloNanos), lane.bounded() ? Duration.ofNanos(lane.maxQueueWaitNanos) : "sin límite");
+        }
+    }
+
+    /**
+     * Comprueba sin esperar si una solicitud del carril tendría turno dentro del presupuesto.
+     * Se invoca antes de aceptar la solicitud para rechazarla sin ocupar un hilo.
+     *
+     * @param priority la prioridad de la solicitud
+     * @throws ReportRejectedException si la solicitud debe rechazarse
+     */
+    public void checkAdmission(RenderPriority priority) {
+        Lane lane = lanes.get(priority);
+        if (!lane.bounded()) {
+            return;
+        }
+        int currentlyWaiting = lane.waiting;
+        if (currentlyWaiting >= maxWaiting) {
+            throw reject(lane, HttpStatus.TOO_MANY_REQUESTS, "Demasiadas solicitudes esperando para renderizar");
+        }
+        if (currentlyWaiting > 0 && lane.averageWaitNanos > lane.maxQueueWaitNanos) {
+            throw reject(lane, HttpStatus.SERVICE_UNAVAILABLE, "La espera para renderizar supera el límite");
+        }
+    }
+
+    /**
+     * Ejecuta un renderizado cuando hay turno disponible
+     *
+     * @param priority la prioridad de la solicitud
+     * @param task el renderizado
+     * @return el resultado del renderizado
+     * @throws ReportRejectedException si una solicitud con límite de espera no obtiene turno a tiempo
+     */
+    public <T> T execute(RenderPriority priority, Supplier<T> task) {
+        checkAdmission(priority);
+        Lane lane = lanes.get(priority);
+        acquire(lane);
+        try {
+            return task.get();
+        } finally {
+            release(lane);
+        }
+    }
+
+    /**
+     * Ejecuta un renderizado sin resultado cuando hay turno disponible
+     *
+     * @param priority la prioridad de la solicitud
+     * @param task el renderizado
+     */
+    public void run(RenderPriority priority, Runnable task) {
+        execute(priority, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * @param priority la prioridad del carril
+     * @return turnos ocupados por el carril
+     */
+    public int getActive(RenderPriority priority) {
+        return lanes.get(priority).active;
+    }
+
+    /**
+     * @param priority la prioridad del carril
+     * @return solicitudes del carril esperando turno
+     */
+    public int getWaiting(RenderPriority priority) {
+        return lanes.get(priority).waiting;
+    }
+
+    /**
+     * @param priority la prioridad del carril
+     * @return turnos concedidos al carril
+     */
+    public long getGranted(RenderPriority priority) {
+        return lanes.get(priority).granted.sum();
+    }
+
+    /**
+     * @param priority la prioridad del carril
+     * @return solicitudes del carril rechazadas por falta de turno
+     */
+    public long getRejected(RenderPriority priority) {
+        return lanes.get(priority).rejected.sum();
+    }
+
+    /**
+     * @param priority la prioridad del carril
+     * @return turnos concedidos al carril por delante del reparto por pesos porque su espera
+     *         superaba la espera objetivo
+     */
+    public long getPromoted(RenderPriority priority) {
+        return lanes.get(priority).promoted.sum();
+    }
+
+    /**
+     * @param priority la prioridad del carril
+     * @return turnos concedidos al carril después de su espera objetivo
+     */
+    public long getSloMissed(RenderPriority priority) {
+        return lanes.get(priority).sloMissed.sum();
+    }
+
+    /**
+     * @param priority la prioridad del carril
+     * @return la media móvil de la espera por un turno en el carril
+     */
+    public Duration getAverageWait(RenderPriority priority) {
+        return Duration.ofNanos(lanes.get(priority).averageWaitNanos);
+    }
+
+    private void acquire(Lane lane) {
+        long start = System.nanoTime();
+        Waiter waiter = null;
+        lock.lock();
+        try {
+            if (available > 0 && queuesEmpty()) {
+                available--;
+                lane.active++;
+                lane.granted.increment();
+                recordWait(lane, 0);
+                return;
+            }
+            if (lane.queue.isEmpty()) {
+                lane.pass = Math.max(lane.pass, virtualTime);
+            }
+            waiter = new Waiter(lock.newCondition(), start);
+            lane.queue.addLast(waiter);
+            lane.waiting++;
+            long remaining = lane.maxQueueWaitNanos;
+            while (!waiter.granted) {
+                if (!lane.bounded()) {
+                    waiter.condition.await();
+                } else if (remaining > 0) {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                } else {
+                    lane.queue.remove(waiter);
+                    lane.waiting--;
+                    recordWait(lane, System.nanoTime() - start);
+                    throw reject(lane, HttpStatus.SERVICE_UNAVAILABLE,
+                            "No hubo turno para renderizar dentro del límite de espera");
+                }
+            }
+        } catch (InterruptedException e) {
+            if (waiter.granted) {
+                releaseLocked(lane);
+            } else {
+                lane.queue.remove(waiter);
+                lane.waiting--;
+            }
+            Thread.currentThread().interrupt();
+            throw new ReportGenerationException("Renderizado interrumpido mientras esperaba turno", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Lane lane) {
+        lock.lock();
+        try {
+            releaseLocked(lane);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Devuelve un turno del carril y, si hay solicitudes esperando, se lo entrega directamente a
+     * la siguiente, de modo que ninguna solicitud recién llegada se adelanta a las que esperan
+     */
+    private void releaseLocked(Lane lane) {
+        lane.active--;
+        long now = System.nanoTime();
+        Lane next = next(now);
+        if (next == null) {
+            available++;
+            return;
+        }
+        Waiter waiter = next.queue.pollFirst();
+        next.waiting--;
+        next.active++;
+        next.granted.increment();
+        virtualTime = next.pass;
+        next.pass += next.stride;
+        waiter.granted = true;
+        recordWait(next, now - waiter.enqueuedAt);
+        waiter.condition.signal();
+    }
+
+    /**
+     * Elige el carril que recibe el siguiente turno: el que más supera su espera objetivo o, si
+     * ninguno la supera, el de menor turno virtual (reparto proporcional a los pesos)
+     */
+    private Lane next(long now) {
+        Lane overdue = null;
+        double overdueRatio = 1;
+        Lane fair = null;
+        for (Lane lane : lanes.values()) {
+            Waiter head = lane.queue.peekFirst();
+            if (head == null) {
+                continue;
+            }
+            double ratio = (now - head.enqueuedAt) / (double) lane.waitSloNanos;
+            if (ratio > overdueRatio) {
+                overdue = lane;
+                overdueRatio = ratio;
+            }
+            if (fair == null || lane.pass < fair.pass) {
+                fair = lane;
+            }
+        }
+        if (overdue != null && overdue != fair) {
+            overdue.promoted.increment();
+        }
+        return overdue != null ? overdue : fair;
+    }
+
+    private boolean queuesEmpty() {
+        for (Lane lane : lanes.values()) {
+            if (!lane.queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Actualiza la media móvil de la espera del carril. Se invoca con el cerrojo tomado.
+     */
+    private void recordWait(Lane lane, long waitNanos) {
+        long average = lane.averageWaitNanos;
+        lane.averageWaitNanos = average + (long) (WAIT_EWMA_WEIGHT * (waitNanos - average));
+        if (waitNanos > lane.waitSloNanos) {
+            lane.sloMissed.increment();
+        }
+    }
+
+    private ReportRejectedException reject(Lane lane, HttpStatus status, String message) {
+        lane.rejected.increment();
+        Duration retryAfter = Duration.ofNanos(Math.max(lane.averageWaitNanos, lane.maxQueueWaitNanos));
+        logger.warn("{} (carril {}): en espera {}, espera media {} ms", message, lane.name, lane.waiting,
+                lane.averageWaitNanos / 1_000_000);
+        return new ReportRejectedException(message, status, retryAfter);
+    }
+
+    /**
+     * Una solicitud esperando turno; se le entrega el turno con el cerrojo tomado
+     */
+    private static final class Waiter {
+
+        private final Condition condition;
+        private final long enqueuedAt;
+        private boolean granted;
+
+        Waiter(Condition condition, long enqueuedAt) {
+            this.condition = condition;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    /**
+     * Cola y estado de un carril. Los contadores de espera y turnos se modifican con el
+     * cerrojo tomado y se leen sin él para la admisión y las métricas.
+     */
+    private static final class Lane {
+
+        private final String name;
+        private final int weight;
+        private final long stride;
+        private final long waitSloNanos;
+        private final long maxQueueWaitNanos;
+        private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        private final LongAdder granted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder promoted = new LongAdder();
+        private final LongAdder sloMissed = new LongAdder();
+        private long pass;
+        private volatile int waiting;
+        private volatile int active;
+        private volatile long averageWaitNanos;
+
+        Lane(RenderPriority priority, RenderProperties.Lane properties) {
+            this.name = priority.name().toLowerCase();
+            this.weight = Math.max(1, properties.getWeight());
+            this.stride = STRIDE / weight;
+            this.waitSloNanos = Math.max(1, properties.getWaitSlo().toNanos());
+            this.maxQueueWaitNanos = properties.getMaxQueueWait() != null
+                    ? properties.getMaxQueueWait().toNanos() : Long.MAX_VALUE;
+        }
+
+        boolean bounded() {
+            return maxQueueWaitNanos != Long.MAX_VALUE;
+        }
+    }
+}
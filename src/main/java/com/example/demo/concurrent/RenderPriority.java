@@ -0,0 +1,21 @@
+package com.example.demo.concurrent;
+
+/**
+ * Prioridad con la que un renderizado solicita turno en el {@link RenderBulkhead}. Cada
+ * prioridad es un carril con su propia cola, peso y espera objetivo.
+ */
+public enum RenderPriority {
+    /**
+     * Vistas previas: un usuario mira la pantalla y el carril recibe la mayor parte de los turnos
+     */
+    INTERACTIVE,
+    /**
+     * Descargas de reportes y estados de cuenta: un cliente espera la respuesta y, si no hay
+     * turno dentro del presupuesto de latencia, se rechaza
+     */
+    STANDARD,
+    /**
+     * Lotes y trabajos asíncronos: esperan turno el tiempo que haga falta
+     */
+    BULK
+}
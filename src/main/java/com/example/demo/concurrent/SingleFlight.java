@@ -0,0 +1,176 @@
+package com.example.demo.concurrent;
+
+import com.example.demo.exception.ReportGenerationException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa las solicitudes simultáneas de un mismo resultado para calcularlo una sola vez: la
+ * primera solicitud de una clave inicia el cálculo en el ejecutor y las que llegan mientras
+ * sigue en curso esperan ese mismo cálculo. Todas reciben el mismo resultado o la misma
+ * excepción. El cálculo no se ejecuta en el hilo de ninguna solicitud, de modo que una
+ * solicitud interrumpida (el cliente se desconectó) deja de esperar sin afectar a las demás;
+ * si se van todas, el cálculo se cancela. Al terminar, la clave se libera y la siguiente
+ * solicitud inicia un cálculo nuevo: no es una caché.
+ *
+ * @param <K> la clave que identifica a las solicitudes iguales
+ * @param <V> el resultado compartido
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder joined = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    /**
+     * @param executor el ejecutor de los cálculos; cada cálculo ocupa un hilo mientras dura
+     */
+    public SingleFlight(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Obtiene el resultado de la clave, uniéndose al cálculo en curso si lo hay
+     *
+     * @param key la clave de la solicitud
+     * @param task el cálculo, que solo se ejecuta si no hay otro en curso para la clave
+     * @return el resultado del cálculo
+     * @throws RuntimeException la excepción con la que terminó el cálculo, tal cual
+     * @throws ReportGenerationException si la solicitud se interrumpe mientras espera
+     */
+    public V execute(K key, Supplier<V> task) {
+        while (true) {
+            Flight<V> flight = flights.get(key);
+            if (flight == null) {
+                Flight<V> created = new Flight<>();
+                flight = flights.putIfAbsent(key, created);
+                if (flight == null) {
+                    executed.increment();
+                    start(key, created, task);
+                    return await(key, created);
+                }
+            }
+            if (flight.join()) {
+                joined.increment();
+                return await(key, flight);
+            }
+            // Todas sus solicitudes se fueron y el cálculo se canceló: se retira y se inicia otro
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return cálculos iniciados
+     */
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    /**
+     * @return solicitudes que se unieron a un cálculo en curso en lugar de iniciar otro
+     */
+    public long getJoined() {
+        return joined.sum();
+    }
+
+    /**
+     * @return cálculos cancelados porque todas sus solicitudes dejaron de esperar
+     */
+    public long getCancelled() {
+        return cancelled.sum();
+    }
+
+    /**
+     * @return cálculos en curso
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    private void start(K key, Flight<V> flight, Supplier<V> task) {
+        try {
+            flight.started(executor.submit(() -> {
+                try {
+                    flight.result.complete(task.get());
+                } catch (Throwable e) {
+                    flight.result.completeExceptionally(e);
+                } finally {
+                    flights.remove(key, flight);
+                }
+            }));
+        } catch (RuntimeException e) {
+            // El ejecutor rechazó el cálculo: todas sus solicitudes reciben el rechazo
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+        }
+    }
+
+    private V await(K key, Flight<V> flight) {
+        try {
+            return flight.result.get();
+        } catch (InterruptedException e) {
+            if (flight.leave()) {
+                cancelled.increment();
+                flights.remove(key, flight);
+            }
+            Thread.currentThread().interrupt();
+            throw new ReportGenerationException("Solicitud interrumpida mientras esperaba un renderizado compartido", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new ReportGenerationException("Error en un renderizado compartido: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Un cálculo en curso y las solicitudes que lo esperan
+     */
+    private static final class Flight<V> {
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private int waiters = 1;
+        private Future<?> task;
+
+        synchronized void started(Future<?> task) {
+            this.task = task;
+        }
+
+        /**
+         * @return false si el cálculo ya se canceló porque se fueron todas sus solicitudes
+         */
+        synchronized boolean join() {
+            if (waiters == 0) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        /**
+         * Retira una solicitud; si era la última y el cálculo no ha terminado, lo cancela
+         *
+         * @return true si el cálculo se canceló
+         */
+        synchronized boolean leave() {
+            if (--waiters > 0 || result.isDone()) {
+                return false;
+            }
+            // Un cálculo que espera turno se descarta; uno que ya renderiza termina sin nadie que lo espere
+            task.cancel(true);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Propiedades del archivo en disco de los reportes generados (prefijo {@code report.archive})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.archive")
+public class ArchiveProperties {
+
+    /**
+     * Guardar en disco los reportes descargados y servir las nuevas descargas desde el archivo
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directorio de los segmentos del archivo
+     */
+    private Path directory = Path.of("data", "report-archive");
+
+    /**
+     * Tamaño a partir del cual un segmento se cierra y los reportes se añaden a uno nuevo
+     */
+    private long segmentSizeBytes = 64 * 1024 * 1024;
+
+    /**
+     * Tiempo durante el que se conserva un reporte archivado
+     */
+    private Duration retention = Duration.ofDays(5 * 365);
+
+    /**
+     * Fracción de bytes expirados a partir de la cual un segmento cerrado se reescribe
+     * copiando solo sus reportes vigentes
+     */
+    private double compactionMinDeadRatio = 0.5;
+
+    /**
+     * Forzar cada reporte a disco antes de responder; sin esta opción queda en la caché de
+     * páginas del sistema operativo y se escribe poco después
+     */
+    private boolean syncOnWrite = false;
+
+    /**
+     * Publicar /api/reports/archive para buscar y descargar los reportes archivados. Los
+     * reportes contienen datos de pago de los clientes, así que solo debe activarse detrás
+     * de un acceso autenticado
+     */
+    private boolean endpointsEnabled = false;
+}
@@ -0,0 +1,25 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Registra los conversores HTTP de CBOR y Smile con los mapeadores de {@link RequestMappers}.
+ * Spring Boot los coloca en el lugar de los conversores por defecto, detrás del de JSON, así
+ * que las respuestas siguen siendo JSON salvo que el cliente pida otro formato con Accept.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(RequestMappers requestMappers) {
+        return new MappingJackson2CborHttpMessageConverter(requestMappers.get(RequestEncoding.CBOR));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(RequestMappers requestMappers) {
+        return new MappingJackson2SmileHttpMessageConverter(requestMappers.get(RequestEncoding.SMILE));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.config;
+
+import com.example.demo.io.OutputBufferPool;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuración del pool de búferes en los que se renderizan los reportes que se
+ * necesitan completos en memoria
+ */
+@Configuration
+public class BufferPoolConfig {
+
+    /**
+     * @param properties la configuración del pool
+     * @return el pool de búferes de salida
+     */
+    @Bean
+    public OutputBufferPool outputBufferPool(BufferPoolProperties properties) {
+        long maxRetainedBytes = properties.isEnabled() ? properties.getMaxRetainedBytes() : 0;
+        return new OutputBufferPool(maxRetainedBytes, properties.getMaxBufferBytes());
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Propiedades de configuración del pool de búferes de salida (prefijo {@code report.buffers})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.buffers")
+public class BufferPoolProperties {
+
+    /**
+     * Reutilizar los arreglos de los búferes; si se desactiva solo se conserva la previsión de tamaño
+     */
+    private boolean enabled = true;
+
+    /**
+     * Bytes que el pool puede retener en total entre usos
+     */
+    private long maxRetainedBytes = 32 * 1024 * 1024;
+
+    /**
+     * Capacidad máxima de un búfer reutilizable; los mayores se descartan al liberarse
+     */
+    private int maxBufferBytes = 4 * 1024 * 1024;
+}
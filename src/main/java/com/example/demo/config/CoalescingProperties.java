@@ -0,0 +1,21 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Propiedades de la agrupación de solicitudes idénticas simultáneas (prefijo {@code report.coalescing})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.coalescing")
+public class CoalescingProperties {
+
+    /**
+     * Compartir un único renderizado entre las solicitudes simultáneas con la misma
+     * configuración y los mismos datos del pago que un cliente espera (vistas previas y
+     * descargas; los lotes no se agrupan)
+     */
+    private boolean enabled = true;
+}
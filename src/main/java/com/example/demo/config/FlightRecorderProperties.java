@@ -0,0 +1,68 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Propiedades de la grabación continua de JFR (prefijo {@code report.jfr})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.jfr")
+public class FlightRecorderProperties {
+
+    /**
+     * Mantener una grabación de JFR en curso desde el arranque, que se vuelca bajo demanda
+     */
+    private boolean enabled = true;
+
+    /**
+     * Configuración de JFR de la grabación: {@code default} (menos del 1 % de sobrecarga) o {@code profile}
+     */
+    private String settings = "default";
+
+    /**
+     * Antigüedad máxima de los datos que conserva la grabación
+     */
+    private Duration maxAge = Duration.ofMinutes(30);
+
+    /**
+     * Tamaño máximo en disco de la grabación
+     */
+    private long maxSizeBytes = 128 * 1024 * 1024;
+
+    /**
+     * Duración a partir de la cual se graba un renderizado completo
+     */
+    private Duration renderThreshold = Duration.ofMillis(50);
+
+    /**
+     * Duración a partir de la cual se graba una etapa del generador
+     */
+    private Duration stageThreshold = Duration.ofMillis(20);
+
+    /**
+     * Duración a partir de la cual se graba una operación de un servicio, incluida la espera por un turno
+     */
+    private Duration serviceThreshold = Duration.ofMillis(100);
+
+    /**
+     * Directorio donde se escriben los volcados de la grabación
+     */
+    private Path dumpDirectory = Path.of("data", "jfr");
+
+    /**
+     * Volcados que se conservan en el directorio; al escribir uno nuevo se eliminan los más antiguos
+     */
+    private int maxDumps = 5;
+
+    /**
+     * Publicar POST /api/admin/jfr/dump. Cualquiera que llegue al servicio podría escribir
+     * volcados en el servidor, así que solo debe activarse detrás de un acceso autenticado
+     */
+    private boolean dumpEndpointEnabled = false;
+}
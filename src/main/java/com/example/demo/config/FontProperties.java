@@ -0,0 +1,30 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Propiedades de configuración para las fuentes de los reportes (prefijo {@code report.fonts})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.fonts")
+public class FontProperties {
+
+    /**
+     * Utilizar la fuente TrueType configurada en lugar de Helvetica
+     */
+    private boolean useCustomFont = false;
+
+    /**
+     * Ubicación de la fuente TrueType a incrustar
+     */
+    private String customFont = "classpath:report/fonts/default-font.ttf";
+
+    /**
+     * Incrustar solo los glifos utilizados en cada documento con el perfil de salida BALANCED;
+     * FAST incrusta siempre la fuente completa y SMALLEST siempre el subconjunto
+     */
+    private boolean subset = true;
+}
@@ -0,0 +1,58 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Propiedades de configuración para los logos de las marcas (prefijo {@code report.logo})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.logo")
+public class LogoProperties {
+
+    /**
+     * Marca utilizada cuando la solicitud no indica ninguna
+     */
+    private String defaultBrand = "default";
+
+    /**
+     * Ubicación del logo de cada marca (por ejemplo, classpath:report/images/company-logo.jpg)
+     */
+    private Map<String, String> locations = new LinkedHashMap<>();
+
+    /**
+     * Peso máximo en bytes de los logos retenidos en memoria
+     */
+    private long maxWeightBytes = 8 * 1024 * 1024;
+
+    /**
+     * Cargar todos los logos configurados al iniciar la aplicación
+     */
+    private boolean preload = true;
+
+    /**
+     * Lado mayor en píxeles con que se guarda el logo; los mayores se reducen al cargarlos.
+     * Con 625 píxeles el recuadro de 150 puntos del reporte se imprime a 300 ppp.
+     */
+    private int maxPixels = 625;
+
+    /**
+     * Calidad JPEG (0 a 1) de los logos sin transparencia que se reducen al cargarlos
+     */
+    private float scaledQuality = 0.9f;
+
+    /**
+     * Lado mayor en píxeles del logo recomprimido por el perfil de salida SMALLEST
+     */
+    private int recompressedMaxPixels = 300;
+
+    /**
+     * Calidad JPEG (0 a 1) del logo recomprimido por el perfil de salida SMALLEST
+     */
+    private float recompressedQuality = 0.6f;
+}
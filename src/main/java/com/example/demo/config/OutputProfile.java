@@ -0,0 +1,79 @@
+package com.example.demo.config;
+
+import java.util.Locale;
+
+/**
+ * Perfiles de salida del PDF: cada uno fija el equilibrio entre el tiempo de CPU del
+ * renderizado y los bytes del documento
+ */
+public enum OutputProfile {
+    /**
+     * Compresión Flate mínima, sin flujos de objetos, logo original y fuentes incrustadas
+     * completas: el menor tiempo de renderizado, para los procesos por lotes
+     */
+    FAST(1, false, false, Boolean.FALSE),
+    /**
+     * Compresión Flate por defecto, logo original y subconjuntos de fuentes según
+     * {@code report.fonts.subset}: el comportamiento habitual de iText
+     */
+    BALANCED(-1, false, false, null),
+    /**
+     * Compresión Flate máxima, tabla de referencias y objetos en flujos comprimidos (PDF 1.5),
+     * logo recomprimido a la resolución con que se muestra y subconjuntos de fuentes: el menor
+     * tamaño, para los clientes móviles con poco ancho de banda
+     */
+    SMALLEST(9, true, true, Boolean.TRUE);
+
+    private final int compressionLevel;
+    private final boolean fullCompression;
+    private final boolean recompressLogo;
+    private final Boolean subsetFonts;
+
+    OutputProfile(int compressionLevel, boolean fullCompression, boolean recompressLogo, Boolean subsetFonts) {
+        this.compressionLevel = compressionLevel;
+        this.fullCompression = fullCompression;
+        this.recompressLogo = recompressLogo;
+        this.subsetFonts = subsetFonts;
+    }
+
+    /**
+     * @return el nivel de compresión Flate de los flujos (0 a 9, -1 para el nivel por defecto)
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @return true si la tabla de referencias y los objetos se escriben en flujos comprimidos
+     */
+    public boolean isFullCompression() {
+        return fullCompression;
+    }
+
+    /**
+     * @return true si el logo se vuelve a codificar a la resolución con que se muestra
+     */
+    public boolean isRecompressLogo() {
+        return recompressLogo;
+    }
+
+    /**
+     * @param configured el valor de {@code report.fonts.subset}
+     * @return true si las fuentes incrustadas se reducen a los glifos utilizados
+     */
+    public boolean isSubsetFonts(boolean configured) {
+        return subsetFonts != null ? subsetFonts : configured;
+    }
+
+    /**
+     * @param name el nombre del perfil, sin distinguir mayúsculas; null para el perfil por defecto
+     * @return el perfil de salida
+     * @throws IllegalArgumentException si el perfil no existe
+     */
+    public static OutputProfile of(String name) {
+        if (name == null || name.isBlank()) {
+            return BALANCED;
+        }
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.demo.config;
+
+import java.util.Objects;
+
 /**
  * Clase inmutable que representa la configuración para la generación de reportes de pago PDF.
- * Utiliza el patrón Builder para permitir configuraciones fluidas.
+ * Utiliza el patrón Builder para permitir configuraciones fluidas. El hash se calcula al
+ * construirla, de modo que puede usarse como clave de caché sin recorrer sus campos.
  */
 public class PaymentReportConfig {
     private final boolean includeLogo;
@@ -12,6 +16,12 @@ public class PaymentReportConfig {
     private final boolean includeTimestamp;
     private final String footerMessage;
     private final Format format;
+    private final String brand;
+    private final RenderMode renderMode;
+    private final String template;
+    private final String profile;
+    private final OutputProfile outputProfile;
+    private final int hash;
 
     /**
      * Constructor privado que solo puede ser llamado por el Builder
@@ -25,6 +35,13 @@ public class PaymentReportConfig {
         this.includeTimestamp = builder.includeTimestamp;
         this.footerMessage = builder.footerMessage;
         this.format = builder.format;
+        this.brand = builder.brand;
+        this.renderMode = builder.renderMode;
+        this.template = builder.template;
+        this.profile = builder.profile;
+        this.outputProfile = builder.outputProfile;
+        this.hash = Objects.hash(includeLogo, title, includePaymentDetails, includeUserInfo, theme,
+                includeTimestamp, footerMessage, format, brand, renderMode, template, profile, outputProfile);
     }
 
     // Getters para todas las propiedades
@@ -60,6 +77,58 @@ public class PaymentReportConfig {
         return format;
     }
 
+    public String getBrand() {
+        return brand;
+    }
+
+    public RenderMode getRenderMode() {
+        return renderMode;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return el nombre del perfil del que procede la configuración, o null si se construyó
+     *         a partir de los campos de una solicitud
+     */
+    public String getProfile() {
+        return profile;
+    }
+
+    public OutputProfile getOutputProfile() {
+        return outputProfile;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PaymentReportConfig other) || hash != other.hash) {
+            return false;
+        }
+        return includeLogo == other.includeLogo
+                && includePaymentDetails == other.includePaymentDetails
+                && includeUserInfo == other.includeUserInfo
+                && includeTimestamp == other.includeTimestamp
+                && theme == other.theme
+                && format == other.format
+                && renderMode == other.renderMode
+                && outputProfile == other.outputProfile
+                && Objects.equals(title, other.title)
+                && Objects.equals(footerMessage, other.footerMessage)
+                && Objects.equals(brand, other.brand)
+                && Objects.equals(template, other.template)
+                && Objects.equals(profile, other.profile);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
     @Override
     public String toString() {
         return "PaymentReportConfig{" +
@@ -71,6 +140,11 @@ public class PaymentReportConfig {
                 ", includeTimestamp=" + includeTimestamp +
                 ", footerMessage='" + footerMessage + '\'' +
                 ", format=" + format +
+                ", brand='" + brand + '\'' +
+                ", renderMode=" + renderMode +
+                ", template='" + template + '\'' +
+                ", profile='" + profile + '\'' +
+                ", outputProfile=" + outputProfile +
                 '}';
     }
 
@@ -87,6 +161,11 @@ public class PaymentReportConfig {
         private boolean includeTimestamp = true;
         private String footerMessage = "";
         private Format format = Format.A4;
+        private String brand = null;
+        private RenderMode renderMode = RenderMode.SKELETON;
+        private String template = null;
+        private String profile = null;
+        private OutputProfile outputProfile = OutputProfile.BALANCED;
 
         /**
          * Constructor por defecto
@@ -182,6 +261,61 @@ public class PaymentReportConfig {
             return this;
         }
 
+        /**
+         * Configura la marca cuyo logo se incluye en el reporte
+         * 
+         * @param brand la marca (tenant) del reporte; null para usar la marca por defecto
+         * @return la instancia del Builder para encadenar llamadas
+         */
+        public Builder withBrand(String brand) {
+            this.brand = brand;
+            return this;
+        }
+
+        /**
+         * Configura el modo de renderizado del reporte
+         * 
+         * @param renderMode el modo a utilizar (FLOW, SKELETON o DIRECT)
+         * @return la instancia del Builder para encadenar llamadas
+         */
+        public Builder withRenderMode(RenderMode renderMode) {
+            this.renderMode = renderMode;
+            return this;
+        }
+
+        /**
+         * Configura la plantilla que define las secciones y el estilo del reporte
+         * 
+         * @param template el nombre de la plantilla; null para usar la plantilla por defecto
+         * @return la instancia del Builder para encadenar llamadas
+         */
+        public Builder withTemplate(String template) {
+            this.template = template;
+            return this;
+        }
+
+        /**
+         * Configura el perfil de salida, que fija la compresión del PDF, del logo y de las fuentes
+         * 
+         * @param outputProfile el perfil a utilizar (FAST, BALANCED o SMALLEST)
+         * @return la instancia del Builder para encadenar llamadas
+         */
+        public Builder withOutputProfile(OutputProfile outputProfile) {
+            this.outputProfile = outputProfile;
+            return this;
+        }
+
+        /**
+         * Indica el perfil con nombre del que procede la configuración
+         * 
+         * @param profile el nombre del perfil
+         * @return la instancia del Builder para encadenar llamadas
+         */
+        public Builder withProfile(String profile) {
+            this.profile = profile;
+            return this;
+        }
+
         /**
          * Construye una configuración de reporte inmutable con los valores configurados
          * 
@@ -0,0 +1,35 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Propiedades de las vistas previas ligeras de los reportes (prefijo {@code report.preview})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.preview")
+public class PreviewProperties {
+
+    /**
+     * Ancho en píxeles de la miniatura PNG cuando la solicitud no lo indica
+     */
+    private int defaultWidth = 300;
+
+    /**
+     * Ancho máximo en píxeles de la miniatura PNG; los anchos mayores se reducen a este
+     */
+    private int maxWidth = 1200;
+
+    /**
+     * Peso máximo en bytes de los logos escalados retenidos para las vistas previas
+     */
+    private long maxLogoWeightBytes = 4 * 1024 * 1024;
+
+    /**
+     * Peso máximo en bytes de las franjas de miniatura ya comprimidas; las franjas que se
+     * repiten entre vistas previas (márgenes, logo, títulos) no se vuelven a comprimir
+     */
+    private long maxBandWeightBytes = 8 * 1024 * 1024;
+}
@@ -0,0 +1,19 @@
+package com.example.demo.config;
+/**
+ * Enumeración para los modos de renderizado del reporte
+ */
+public enum RenderMode {
+    /**
+     * Maquetación completa del documento en cada solicitud
+     */
+    FLOW,
+    /**
+     * Estampado de los datos variables sobre un esqueleto de página precalculado
+     */
+    SKELETON,
+    /**
+     * Escritura directa del texto, las líneas y el logo en coordenadas precalculadas, sin la
+     * maquetación de iText ni el esqueleto importado
+     */
+    DIRECT
+}
@@ -0,0 +1,120 @@
+package com.example.demo.config;
+
+import com.example.demo.concurrent.RenderPriority;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Propiedades de configuración del renderizado de reportes (prefijo {@code report.render})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.render")
+public class RenderProperties {
+
+    /**
+     * Hilos del ejecutor de renderizado en paralelo de los lotes; 0 para usar el número de núcleos
+     */
+    private int threads = 0;
+
+    /**
+     * Renderizados que se ejecutan a la vez en toda la aplicación; 0 para usar el número de núcleos
+     */
+    private int maxConcurrent = 0;
+
+    /**
+     * Solicitudes de cada carril con límite de espera que pueden esperar turno para
+     * renderizar; al superarse se responde 429. 0 para usar cuatro veces el número de
+     * renderizados simultáneos.
+     */
+    private int maxWaiting = 0;
+
+    /**
+     * Carril de las vistas previas en PDF, en las que un usuario mira la pantalla
+     */
+    private Lane interactive = new Lane(8, Duration.ofMillis(100), Duration.ofSeconds(1));
+
+    /**
+     * Carril de las descargas de reportes y estados de cuenta
+     */
+    private Lane standard = new Lane(4, Duration.ofMillis(500), Duration.ofSeconds(2));
+
+    /**
+     * Carril de los lotes y los trabajos asíncronos, que esperan turno el tiempo que haga falta
+     */
+    private Lane bulk = new Lane(1, Duration.ofSeconds(10), null);
+
+    /**
+     * Hilos que escriben las respuestas en streaming, que pasan la mayor parte del tiempo esperando E/S
+     */
+    private int ioThreads = 64;
+
+    /**
+     * Respuestas en streaming que pueden esperar un hilo de escritura
+     */
+    private int ioQueueCapacity = 256;
+
+    /**
+     * @return el número efectivo de renderizados simultáneos
+     */
+    public int effectiveMaxConcurrent() {
+        return maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return el número efectivo de solicitudes en espera
+     */
+    public int effectiveMaxWaiting() {
+        return maxWaiting > 0 ? maxWaiting : 4 * effectiveMaxConcurrent();
+    }
+
+    /**
+     * @param priority la prioridad de la solicitud
+     * @return la configuración del carril de esa prioridad
+     */
+    public Lane lane(RenderPriority priority) {
+        return switch (priority) {
+            case INTERACTIVE -> interactive;
+            case STANDARD -> standard;
+            case BULK -> bulk;
+        };
+    }
+
+    /**
+     * Configuración de un carril de prioridad del limitador de renderizados
+     */
+    @Getter
+    @Setter
+    public static class Lane {
+
+        /**
+         * Peso en el reparto de turnos: con todos los carriles esperando, cada uno recibe una
+         * parte de los turnos proporcional a su peso
+         */
+        private int weight = 1;
+
+        /**
+         * Espera objetivo por un turno. La solicitud más antigua de un carril que la supera
+         * pasa por delante del reparto por pesos, de modo que ningún carril se queda sin turno
+         */
+        private Duration waitSlo = Duration.ofSeconds(1);
+
+        /**
+         * Espera máxima de una solicitud del carril; al superarse se responde 503. Sin valor,
+         * las solicitudes esperan turno el tiempo que haga falta y nunca se rechazan.
+         */
+        private Duration maxQueueWait;
+
+        public Lane() {
+        }
+
+        Lane(int weight, Duration waitSlo, Duration maxQueueWait) {
+            this.weight = weight;
+            this.waitSlo = waitSlo;
+            this.maxQueueWait = maxQueueWait;
+        }
+    }
+}
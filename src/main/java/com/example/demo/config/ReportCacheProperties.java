@@ -0,0 +1,30 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Propiedades de configuración de la caché de reportes generados (prefijo {@code report.cache})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.cache")
+public class ReportCacheProperties {
+
+    /**
+     * Guardar y reutilizar los reportes reproducibles
+     */
+    private boolean enabled = true;
+
+    /**
+     * Peso máximo en bytes de los reportes retenidos en memoria
+     */
+    private long maxWeightBytes = 64 * 1024 * 1024;
+
+    /**
+     * Versión del diseño de los reportes; debe incrementarse cuando un cambio en el generador
+     * altera el PDF resultante, para que los ETag anteriores dejen de ser válidos
+     */
+    private String renderVersion = "1";
+}
@@ -0,0 +1,93 @@
+package com.example.demo.config;
+
+import com.example.demo.exception.ReportRejectedException;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuración de los hilos dedicados a renderizar reportes
+ */
+@Configuration
+@EnableScheduling
+public class ReportExecutorConfig {
+
+    /**
+     * Ejecutor para el renderizado en paralelo de reportes. Por defecto utiliza
+     * un hilo por núcleo, ya que la maquetación de PDF consume CPU.
+     *
+     * @param properties la configuración del renderizado
+     * @return el ejecutor de renderizado
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService reportRenderExecutor(RenderProperties properties) {
+        int threads = properties.getThreads();
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(size, new CustomizableThreadFactory("report-render-"));
+    }
+
+    /**
+     * Ejecutor de los renderizados compartidos por solicitudes idénticas simultáneas. Cada
+     * renderizado espera turno en el {@code RenderBulkhead}, que en condiciones normales solo
+     * deja pasar los simultáneos más los que esperan en los dos carriles con límite de espera;
+     * pero la admisión se comprueba en el momento de recibir la solicitud, así que la cola
+     * también es acotada y lo que no cabe se rechaza con un 503 en lugar de acumularse.
+     *
+     * @param properties la configuración del renderizado
+     * @return el ejecutor de renderizados compartidos
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService reportFlightExecutor(RenderProperties properties) {
+        int size = properties.effectiveMaxConcurrent() + 2 * properties.effectiveMaxWaiting();
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(size),
+                new CustomizableThreadFactory("report-flight-"),
+                (task, executor) -> {
+                    throw new ReportRejectedException("No hay hilos disponibles para renderizados compartidos",
+                            HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(1));
+                });
+    }
+
+    /**
+     * Ejecutor de las respuestas asíncronas de Spring MVC (streaming y SSE). Sus hilos pasan
+     * la mayor parte del tiempo escribiendo en la red, por lo que puede tener muchos más hilos
+     * que núcleos: la CPU que consume el renderizado la limita el {@code RenderBulkhead}.
+     *
+     * @param properties la configuración del renderizado
+     * @return el ejecutor de respuestas asíncronas
+     */
+    @Bean
+    public ThreadPoolTaskExecutor reportIoExecutor(RenderProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getIoThreads());
+        executor.setMaxPoolSize(properties.getIoThreads());
+        executor.setQueueCapacity(properties.getIoQueueCapacity());
+        executor.setThreadNamePrefix("report-io-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * Ejecutor de los trabajos asíncronos. La cola es acotada y rechaza los trabajos que
+     * no caben en lugar de acumularlos; el servicio traduce el rechazo a una respuesta 503.
+     *
+     * @param properties la configuración de los trabajos
+     * @return el ejecutor de trabajos
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor reportJobExecutor(ReportJobProperties properties) {
+        return new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("report-job-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Propiedades de configuración de los trabajos asíncronos de reportes (prefijo {@code report.jobs})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.jobs")
+public class ReportJobProperties {
+
+    /**
+     * Trabajos que se ejecutan a la vez
+     */
+    private int workers = 2;
+
+    /**
+     * Trabajos que pueden esperar en la cola; al superarse se rechazan nuevas solicitudes
+     */
+    private int queueCapacity = 16;
+
+    /**
+     * Plazo máximo de un trabajo desde que se recibe cuando la solicitud no indica ninguno
+     */
+    private Duration defaultDeadline = Duration.ofMinutes(10);
+
+    /**
+     * Plazo máximo que puede solicitar un trabajo
+     */
+    private Duration maxDeadline = Duration.ofHours(1);
+
+    /**
+     * Tiempo durante el que se conserva un trabajo terminado y su resultado
+     */
+    private Duration resultTtl = Duration.ofMinutes(30);
+
+    /**
+     * Tiempo sugerido a los clientes para reintentar cuando la cola está llena
+     */
+    private Duration retryAfter = Duration.ofSeconds(30);
+
+    /**
+     * Directorio donde se guardan las entradas y los resultados de los trabajos
+     */
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "report-jobs");
+}
@@ -0,0 +1,44 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Propiedades de configuración de los perfiles de reporte (prefijo {@code report.profiles}).
+ * Cada perfil es una configuración completa con nombre que los clientes indican con
+ * {@code profile} en lugar de enviar todas las opciones.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.profiles")
+public class ReportProfileProperties {
+
+    /**
+     * Perfiles por nombre (por ejemplo, {@code report.profiles.definitions.receipt-dark-letter.theme=DARK})
+     */
+    private Map<String, Profile> definitions = new LinkedHashMap<>();
+
+    /**
+     * Opciones de un perfil; los valores por defecto son los del Builder de la configuración
+     */
+    @Getter
+    @Setter
+    public static class Profile {
+        private boolean includeLogo = false;
+        private String title = "Reporte de Pago";
+        private boolean includePaymentDetails = true;
+        private boolean includeUserInfo = true;
+        private Theme theme = Theme.LIGHT;
+        private boolean includeTimestamp = true;
+        private String footerMessage = "";
+        private Format format = Format.A4;
+        private String brand;
+        private RenderMode renderMode = RenderMode.SKELETON;
+        private String template;
+        private OutputProfile outputProfile = OutputProfile.BALANCED;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.config;
+
+import com.example.demo.exception.ReportProfileNotFoundException;
+import com.example.demo.generator.ReportTemplateEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registro de los perfiles de reporte. Cada perfil se construye una sola vez al iniciar la
+ * aplicación y todas las solicitudes que lo indican comparten la misma instancia inmutable
+ * de {@link PaymentReportConfig}, que sirve de clave estable para cachés y métricas. También
+ * se construye de antemano la variante de cada perfil para cada perfil de salida, de modo que
+ * elegir otro equilibrio entre CPU y bytes tampoco crea configuraciones nuevas.
+ */
+@Component
+public class ReportProfileRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportProfileRegistry.class);
+
+    private final Map<String, PaymentReportConfig> profiles;
+    private final Map<String, Map<OutputProfile, PaymentReportConfig>> outputVariants;
+
+    /**
+     * Constructor con inyección de dependencias. Los perfiles se validan aquí para que un
+     * perfil mal definido impida arrancar la aplicación.
+     *
+     * @param properties La definición de los perfiles
+     * @param templateEngine El motor de plantillas, con el que se comprueba la plantilla de cada perfil
+     * @throws IllegalStateException si algún perfil indica una plantilla que no existe
+     */
+    public ReportProfileRegistry(ReportProfileProperties properties, ReportTemplateEngine templateEngine) {
+        Map<String, PaymentReportConfig> built = new LinkedHashMap<>();
+        Map<String, Map<OutputProfile, PaymentReportConfig>> variants = new LinkedHashMap<>();
+        properties.getDefinitions().forEach((name, profile) -> {
+            PaymentReportConfig config = toConfig(name, profile, profile.getOutputProfile());
+            try {
+                templateEngine.version(config);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("El perfil de reporte " + name + " es inválido: " + e.getMessage(), e);
+            }
+            built.put(name, config);
+            Map<OutputProfile, PaymentReportConfig> byOutput = new EnumMap<>(OutputProfile.class);
+            for (OutputProfile outputProfile : OutputProfile.values()) {
+                byOutput.put(outputProfile, outputProfile == config.getOutputProfile() ? config
+                        : toConfig(name, profile, outputProfile));
+            }
+            variants.put(name, byOutput);
+        });
+        this.profiles = Collections.unmodifiableMap(built);
+        this.outputVariants = variants;
+        logger.info("Perfiles de reporte disponibles: {}", profiles.keySet());
+    }
+
+    /**
+     * @param name el nombre del perfil
+     * @return la configuración del perfil
+     * @throws ReportProfileNotFoundException si el perfil no existe
+     */
+    public PaymentReportConfig get(String name) {
+        PaymentReportConfig config = profiles.get(name);
+        if (config == null) {
+            throw new ReportProfileNotFoundException(name);
+        }
+        return config;
+    }
+
+    /**
+     * @param name el nombre del perfil
+     * @param outputProfile el perfil de salida que sustituye al del perfil
+     * @return la variante del perfil con el perfil de salida indicado
+     * @throws ReportProfileNotFoundException si el perfil no existe
+     */
+    public PaymentReportConfig get(String name, OutputProfile outputProfile) {
+        Map<OutputProfile, PaymentReportConfig> byOutput = outputVariants.get(name);
+        if (byOutput == null) {
+            throw new ReportProfileNotFoundException(name);
+        }
+        return byOutput.get(outputProfile);
+    }
+
+    /**
+     * @return los perfiles por nombre, en el orden en que se definieron
+     */
+    public Map<String, PaymentReportConfig> getProfiles() {
+        return profiles;
+    }
+
+    private static PaymentReportConfig toConfig(String name, ReportProfileProperties.Profile profile,
+                                                OutputProfile outputProfile) {
+        return new PaymentReportConfig.Builder()
+                .withLogo(profile.isIncludeLogo())
+                .withTitle(profile.getTitle())
+                .withPaymentDetails(profile.isIncludePaymentDetails())
+                .withUserInfo(profile.isIncludeUserInfo())
+                .withTheme(profile.getTheme())
+                .withTimestamp(profile.isIncludeTimestamp())
+                .withFooterMessage(profile.getFooterMessage())
+                .withFormat(profile.getFormat())
+                .withBrand(profile.getBrand())
+                .withRenderMode(profile.getRenderMode())
+                .withTemplate(profile.getTemplate())
+                .withOutputProfile(outputProfile)
+                .withProfile(name)
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.config;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Codificaciones admitidas para las solicitudes de reporte. JSON es el contrato de siempre;
+ * CBOR y Smile llevan los mismos campos en binario, más compactos y baratos de interpretar,
+ * para los clientes que envían muchos reportes.
+ */
+public enum RequestEncoding {
+
+    JSON(MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE),
+    CBOR(MediaType.APPLICATION_CBOR_VALUE, RequestEncoding.CBOR_SEQ_VALUE),
+    // Un flujo Smile es una sucesión de documentos Smile, con el mismo tipo que una solicitud suelta
+    SMILE(RequestEncoding.SMILE_VALUE, RequestEncoding.SMILE_VALUE);
+
+    /**
+     * Secuencia de documentos CBOR (RFC 8742)
+     */
+    public static final String CBOR_SEQ_VALUE = "application/cbor-seq";
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    private final MediaType mediaType;
+    private final MediaType streamMediaType;
+
+    RequestEncoding(String mediaType, String streamMediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.streamMediaType = MediaType.parseMediaType(streamMediaType);
+    }
+
+    /**
+     * @return el tipo de una solicitud suelta
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return el tipo de un flujo de solicitudes, como los lotes
+     */
+    public MediaType getStreamMediaType() {
+        return streamMediaType;
+    }
+
+    /**
+     * @param contentType el Content-Type de un flujo de solicitudes; null se interpreta como NDJSON
+     * @return la codificación del flujo
+     * @throws IllegalArgumentException si el tipo no corresponde a ninguna codificación
+     */
+    public static RequestEncoding forStream(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return JSON;
+        }
+        MediaType type = MediaType.parseMediaType(contentType);
+        for (RequestEncoding encoding : values()) {
+            if (encoding.streamMediaType.equalsTypeAndSubtype(type)) {
+                return encoding;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de flujo de solicitudes no admitido: " + contentType);
+    }
+}
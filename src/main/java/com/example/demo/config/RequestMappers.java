@@ -0,0 +1,42 @@
+package com.example.demo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Mapeadores de Jackson de cada codificación de solicitud. Los de CBOR y Smile se construyen
+ * con la misma configuración que el mapeador JSON de la aplicación (módulos, fechas y
+ * propiedades spring.jackson.*), de modo que una solicitud se interpreta igual en los tres
+ * formatos.
+ * <p>
+ * No se exponen como beans de tipo ObjectMapper: Spring Boot dejaría de crear el mapeador JSON
+ * por defecto.
+ */
+@Component
+public class RequestMappers {
+
+    private final Map<RequestEncoding, ObjectMapper> mappers = new EnumMap<>(RequestEncoding.class);
+
+    /**
+     * @param objectMapper el mapeador JSON de la aplicación
+     * @param builder el constructor de mapeadores con la configuración de Spring Boot
+     */
+    public RequestMappers(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder builder) {
+        mappers.put(RequestEncoding.JSON, objectMapper);
+        mappers.put(RequestEncoding.CBOR, builder.factory(new CBORFactory()).build());
+        mappers.put(RequestEncoding.SMILE, builder.factory(new SmileFactory()).build());
+    }
+
+    /**
+     * @return el mapeador de la codificación indicada
+     */
+    public ObjectMapper get(RequestEncoding encoding) {
+        return mappers.get(encoding);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Propiedades de configuración de las plantillas de reportes (prefijo {@code report.templates})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.templates")
+public class TemplateProperties {
+
+    /**
+     * Directorio de las plantillas; cada archivo {@code .html} es una plantilla con el nombre del archivo
+     */
+    private String location = "classpath:report/templates/";
+
+    /**
+     * Plantilla utilizada cuando la solicitud no indica ninguna
+     */
+    private String defaultTemplate = "report-template";
+
+    /**
+     * Volver a cargar las plantillas que cambian en disco sin reiniciar la aplicación; requiere
+     * una ubicación {@code file:}, ya que los recursos del classpath no cambian dentro del jar
+     */
+    private boolean hotReload = false;
+
+    /**
+     * Planes de renderizado compilados que se retienen (uno por plantilla y forma de configuración)
+     */
+    private int maxPlans = 256;
+}
@@ -0,0 +1,34 @@
+package com.example.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Propiedades del calentamiento de los generadores al iniciar (prefijo {@code report.warm-up})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "report.warm-up")
+public class WarmUpProperties {
+
+    /**
+     * Renderizar reportes de muestra antes de que la aplicación acepte solicitudes
+     */
+    private boolean enabled = true;
+
+    /**
+     * Renderizados por configuración de muestra
+     */
+    private int iterations = 20;
+
+    /**
+     * Además de los perfiles, calentar cada combinación de tema, formato y modo de renderizado
+     */
+    private boolean representative = true;
+
+    /**
+     * Pagos del estado de cuenta de muestra; 0 para no calentar los estados de cuenta
+     */
+    private int statementRows = 200;
+}
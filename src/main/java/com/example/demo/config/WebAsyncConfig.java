@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configura Spring MVC para escribir las respuestas asíncronas en el ejecutor de E/S de los
+ * reportes en lugar de crear un hilo nuevo por respuesta
+ */
+@Configuration
+public class WebAsyncConfig implements WebMvcConfigurer {
+
+    private final ThreadPoolTaskExecutor reportIoExecutor;
+
+    public WebAsyncConfig(@Qualifier("reportIoExecutor") ThreadPoolTaskExecutor reportIoExecutor) {
+        this.reportIoExecutor = reportIoExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(reportIoExecutor);
+    }
+}
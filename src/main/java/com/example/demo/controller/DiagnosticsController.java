@@ -0,0 +1,45 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.FlightRecordingDump;
+import com.example.demo.metrics.ReportFlightRecorder;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+
+/**
+ * Controlador REST de administración para diagnosticar la generación de reportes. Solo se
+ * publica con {@code report.jfr.dump-endpoint-enabled=true}, detrás de un acceso autenticado
+ */
+@RestController
+@ConditionalOnProperty(prefix = "report.jfr", name = "dump-endpoint-enabled", havingValue = "true")
+@RequestMapping("/api/admin")
+public class DiagnosticsController {
+
+    private final ReportFlightRecorder flightRecorder;
+
+    public DiagnosticsController(ReportFlightRecorder flightRecorder) {
+        this.flightRecorder = flightRecorder;
+    }
+
+    /**
+     * Endpoint para volcar la grabación continua de JFR a un archivo
+     *
+     * @return El nombre del archivo escrito en el directorio de volcados y el intervalo que cubre
+     */
+    @Operation(summary = "Volcar la grabación de JFR", description = "Escribe en el servidor un archivo .jfr con los últimos minutos de la grabación continua, incluidos los renderizados, etapas y operaciones que superaron su umbral. Solo se conservan los últimos volcados (report.jfr.max-dumps). Se publica solo con report.jfr.dump-endpoint-enabled=true")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Grabación volcada"),
+        @ApiResponse(responseCode = "409", description = "No hay ninguna grabación de JFR en curso")
+    })
+    @PostMapping("/jfr/dump")
+    public FlightRecordingDump dumpFlightRecording() throws IOException {
+        return flightRecorder.dump();
+    }
+}
@@ -1,22 +1,48 @@
 package com.example.demo.controller;
 
-import com.example.demo.config.Format;
+import com.example.demo.archive.ArchiveRegion;
+import com.example.demo.archive.ReportArchive;
+import com.example.demo.concurrent.RenderBulkhead;
+import com.example.demo.concurrent.RenderPriority;
+import com.example.demo.cache.CacheStats;
 import com.example.demo.config.PaymentReportConfig;
-import com.example.demo.config.Theme;
+import com.example.demo.config.ReportProfileRegistry;
+import com.example.demo.config.RequestEncoding;
 import com.example.demo.dto.PaymentReportRequest;
+import com.example.demo.dto.PaymentReportRequestMapper;
 import com.example.demo.model.PaymentData;
+import com.example.demo.service.BulkReportService;
 import com.example.demo.service.PaymentReportService;
+import com.example.demo.service.ReceiptBundleService;
+import com.example.demo.service.ReportFingerprint;
+import com.example.demo.service.ReportResultCache;
+import com.example.demo.service.StatementReportService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
 
 
 /**
@@ -26,54 +52,328 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/reports")
 public class PaymentReportController {
 
+    /**
+     * Tamaño en bytes del PDF, cuando se conoce antes de enviar el cuerpo (igual que Content-Length)
+     */
+    static final String REPORT_SIZE_HEADER = "X-Report-Size";
+
+    /**
+     * Perfil de salida con el que se generó el PDF
+     */
+    static final String OUTPUT_PROFILE_HEADER = "X-Report-Output-Profile";
+
     private final PaymentReportService paymentReportService;
+    private final BulkReportService bulkReportService;
+    private final StatementReportService statementReportService;
+    private final ReceiptBundleService receiptBundleService;
+    private final PaymentReportRequestMapper requestMapper;
+    private final RenderBulkhead renderBulkhead;
+    private final ReportResultCache reportCache;
+    private final ReportProfileRegistry profileRegistry;
+    private final ReportArchive archive;
+    private final Duration bulkRequestTimeout;
 
     @Autowired
-    public PaymentReportController(PaymentReportService paymentReportService) {
+    public PaymentReportController(PaymentReportService paymentReportService,
+                                   BulkReportService bulkReportService,
+                                   StatementReportService statementReportService,
+                                   ReceiptBundleService receiptBundleService,
+                                   PaymentReportRequestMapper requestMapper,
+                                   RenderBulkhead renderBulkhead,
+                                   ReportResultCache reportCache,
+                                   ReportProfileRegistry profileRegistry,
+                                   ReportArchive archive,
+                                   @Value("${report.bulk.request-timeout:30m}") Duration bulkRequestTimeout) {
         this.paymentReportService = paymentReportService;
+        this.bulkReportService = bulkReportService;
+        this.statementReportService = statementReportService;
+        this.receiptBundleService = receiptBundleService;
+        this.requestMapper = requestMapper;
+        this.renderBulkhead = renderBulkhead;
+        this.reportCache = reportCache;
+        this.profileRegistry = profileRegistry;
+        this.archive = archive;
+        this.bulkRequestTimeout = bulkRequestTimeout;
     }
 
     /**
      * Endpoint para generar un reporte de pago en PDF
      * 
      * @param request DTO con la configuración del reporte y los datos del pago
-     * @return El archivo PDF como recurso descargable
+     * @param ifNoneMatch ETag de la versión del reporte que ya tiene el cliente
+     * @param response La respuesta, en la que se anuncia el tamaño del PDF si se conoce antes de enviarlo
+     * @return El archivo PDF, escrito directamente en la respuesta a medida que se genera
      */
-    @Operation(summary = "Generar un reporte de pago en PDF", description = "Genera un reporte PDF basado en la configuración y datos proporcionados")
+    @Operation(summary = "Generar un reporte de pago en PDF", description = "Genera un reporte PDF basado en la configuración y datos proporcionados. Si se indica generatedAt el reporte es reproducible: se guarda en caché y lleva ETag. outputProfile elige el equilibrio entre CPU y bytes; el tamaño resultante se anuncia en X-Report-Size cuando se conoce antes de enviar el PDF. Acepta la solicitud en JSON, CBOR (application/cbor) o Smile (application/x-jackson-smile)")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Reporte generado exitosamente"),
+        @ApiResponse(responseCode = "304", description = "El cliente ya tiene esta versión del reporte"),
         @ApiResponse(responseCode = "400", description = "Solicitud inválida"),
+        @ApiResponse(responseCode = "429", description = "Demasiadas solicitudes en espera; reintentar tras Retry-After"),
+        @ApiResponse(responseCode = "503", description = "Espera para renderizar por encima del límite; reintentar tras Retry-After"),
         @ApiResponse(responseCode = "500", description = "Error interno del servidor")
     })
     @PostMapping("/payment")
-    public ResponseEntity<Resource> generatePaymentReport(@RequestBody PaymentReportRequest request) {
+    public ResponseEntity<StreamingResponseBody> generatePaymentReport(@RequestBody PaymentReportRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletResponse response) {
+        return paymentReport(request, ifNoneMatch, response);
+    }
+    
+    /**
+     * Variante GET del endpoint de reportes de pago, para que los navegadores y las cachés
+     * HTTP puedan revalidar el reporte con If-None-Match
+     * 
+     * @param request Configuración del reporte y datos del pago como parámetros de consulta
+     * @param ifNoneMatch ETag de la versión del reporte que ya tiene el cliente
+     * @param response La respuesta, en la que se anuncia el tamaño del PDF si se conoce antes de enviarlo
+     * @return El archivo PDF
+     */
+    @Operation(summary = "Obtener un reporte de pago en PDF", description = "Igual que la variante POST, con la solicitud como parámetros de consulta")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Reporte generado exitosamente"),
+        @ApiResponse(responseCode = "304", description = "El cliente ya tiene esta versión del reporte"),
+        @ApiResponse(responseCode = "400", description = "Solicitud inválida"),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @GetMapping("/payment")
+    public ResponseEntity<StreamingResponseBody> getPaymentReport(@ParameterObject @ModelAttribute PaymentReportRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletResponse response) {
+        return paymentReport(request, ifNoneMatch, response);
+    }
+    
+    /**
+     * Endpoint para obtener una miniatura PNG de la primera página de un reporte de pago
+     * 
+     * @param request DTO con la configuración del reporte y los datos del pago
+     * @param width Ancho de la miniatura en píxeles
+     * @return La imagen PNG, generada sin construir el PDF
+     */
+    @Operation(summary = "Vista previa del reporte como miniatura PNG", description = "Dibuja la primera página con la misma plantilla, tema, formato y logo que el PDF, sin generarlo. Es una aproximación visual que cuesta una fracción de un renderizado completo; width se ajusta a los límites configurados")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Vista previa generada exitosamente"),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @PostMapping(value = "/payment/preview/png", produces = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> previewPaymentReportImage(@RequestBody PaymentReportRequest request,
+            @RequestParam(required = false) Integer width) {
+        byte[] png = paymentReportService.previewImage(requestMapper.toConfig(request),
+                requestMapper.toPaymentData(request), width);
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .contentLength(png.length)
+                .cacheControl(CacheControl.noStore())
+                .body(png);
+    }
+    
+    /**
+     * Endpoint para obtener un reporte de pago como fragmento HTML estático
+     * 
+     * @param request DTO con la configuración del reporte y los datos del pago
+     * @return Un único elemento div con estilos en línea, generado sin construir el PDF
+     */
+    @Operation(summary = "Vista previa del reporte como fragmento HTML", description = "Devuelve el reporte como un elemento div con estilos en línea y el logo incrustado, listo para insertar en una página, sin generar el PDF")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Vista previa generada exitosamente"),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @PostMapping(value = "/payment/preview/html", produces = MediaType.TEXT_HTML_VALUE)
+    public ResponseEntity<String> previewPaymentReportHtml(@RequestBody PaymentReportRequest request) {
+        String html = paymentReportService.previewHtml(requestMapper.toConfig(request),
+                requestMapper.toPaymentData(request));
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                .cacheControl(CacheControl.noStore())
+                .body(html);
+    }
+    
+    /**
+     * Endpoint para consultar las estadísticas de la caché de reportes
+     * 
+     * @return Aciertos, fallos, expulsiones y ocupación de la caché
+     */
+    @Operation(summary = "Estadísticas de la caché de reportes")
+    @GetMapping("/cache/stats")
+    public CacheStats getCacheStats() {
+        return reportCache.stats();
+    }
+    
+    /**
+     * Endpoint para consultar los perfiles de reporte definidos en el servidor
+     * 
+     * @return Los nombres de los perfiles que pueden indicarse con {@code profile}
+     */
+    @Operation(summary = "Perfiles de reporte disponibles")
+    @GetMapping("/profiles")
+    public Set<String> getProfiles() {
+        return profileRegistry.getProfiles().keySet();
+    }
+    
+    private ResponseEntity<StreamingResponseBody> paymentReport(PaymentReportRequest request, String ifNoneMatch,
+                                                                HttpServletResponse response) {
         // Utilizar el patrón Builder para configurar el reporte
-        PaymentReportConfig config = new PaymentReportConfig.Builder()
-                .withLogo(request.isIncludeLogo())
-                .withTitle(request.getTitle())
-                .withPaymentDetails(request.isIncludePaymentDetails())
-                .withUserInfo(request.isIncludeUserInfo())
-                .withTheme(Theme.valueOf(request.getTheme()))
-                .withTimestamp(request.isIncludeTimestamp())
-                .withFooterMessage(request.getFooterMessage())
-                .withFormat(Format.valueOf(request.getFormat()))
-                .build();
+        PaymentReportConfig config = requestMapper.toConfig(request);
 
         // Crear objeto PaymentData a partir de la solicitud
-        PaymentData paymentData = new PaymentData(
-                request.getTransactionId(),
-                request.getAmount(),
-                request.getPaymentMethod(),
-                request.getCustomerName()
-        );
+        PaymentData paymentData = requestMapper.toPaymentData(request);
+        LocalDateTime generatedAt = request.getGeneratedAt();
 
-        // Generar el PDF y devolverlo como recurso
-        Resource pdfResource = paymentReportService.generatePdfReport(config, paymentData);
+        // Los reportes reproducibles se identifican por su huella y se sirven desde la caché
+        ReportFingerprint fingerprint = reportCache.fingerprint(config, paymentData, generatedAt);
+        if (fingerprint != null) {
+            String eTag = reportCache.eTag(fingerprint);
+            if (ReportResultCache.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+            byte[] cached = reportCache.get(fingerprint);
+            if (cached != null) {
+                return pdfResponse(config, eTag).contentLength(cached.length)
+                        .header(REPORT_SIZE_HEADER, String.valueOf(cached.length))
+                        .body(outputStream -> outputStream.write(cached));
+            }
+            // Un reporte reproducible que ya salió de la caché se envía desde el archivo
+            ArchiveRegion archived = archive.isEnabled() ? archive.regionByFingerprint(fingerprint.getHex()) : null;
+            if (archived != null) {
+                return pdfResponse(config, eTag).contentLength(archived.getLength())
+                        .header(REPORT_SIZE_HEADER, String.valueOf(archived.getLength()))
+                        .body(outputStream -> archived.writeTo(outputStream, 0, archived.getLength()));
+            }
+            renderBulkhead.checkAdmission(RenderPriority.STANDARD);
+            return pdfResponse(config, eTag).body(outputStream -> {
+                byte[] pdf = paymentReportService.renderReproduciblePdf(config, paymentData, generatedAt, fingerprint);
+                reportSize(response, pdf.length);
+                outputStream.write(pdf);
+            });
+        }
+
+        // Rechazar de inmediato si la espera para renderizar ya supera el límite
+        renderBulkhead.checkAdmission(RenderPriority.STANDARD);
+
+        // Generar el PDF escribiéndolo directamente en la respuesta; si cabe completo en el búfer
+        // retenido, su tamaño se anuncia antes de enviarlo
+        StreamingResponseBody body = outputStream ->
+                paymentReportService.writePdfReport(config, paymentData, outputStream, size -> reportSize(response, size));
 
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_PDF)
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payment-report.pdf\"")
-                .body(pdfResource);
+                .header(OUTPUT_PROFILE_HEADER, outputProfileName(config))
+                .body(body);
+    }
+    
+    /**
+     * Los lotes y los paquetes se escriben durante varios minutos: solo su respuesta asíncrona
+     * recibe el tiempo máximo ampliado, el resto de endpoints conserva el valor por defecto
+     */
+    private void extendAsyncTimeout(HttpServletRequest servletRequest) {
+        AsyncWebRequest asyncWebRequest = WebAsyncUtils.getAsyncManager(servletRequest).getAsyncWebRequest();
+        if (asyncWebRequest != null) {
+            asyncWebRequest.setTimeout(bulkRequestTimeout.toMillis());
+        }
+    }
+    
+    private ResponseEntity.BodyBuilder pdfResponse(PaymentReportConfig config, String eTag) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payment-report.pdf\"")
+                .header(OUTPUT_PROFILE_HEADER, outputProfileName(config))
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache());
+    }
+    
+    private static String outputProfileName(PaymentReportConfig config) {
+        return config.getOutputProfile().name().toLowerCase();
+    }
+    
+    /**
+     * Anuncia el tamaño del PDF; solo tiene efecto mientras no se haya enviado nada del cuerpo
+     */
+    private static void reportSize(HttpServletResponse response, long size) {
+        response.setContentLengthLong(size);
+        response.setHeader(REPORT_SIZE_HEADER, String.valueOf(size));
+    }
+    
+    /**
+     * Endpoint para generar un lote de reportes de pago
+     * 
+     * @param requests Flujo de solicitudes: NDJSON, secuencia CBOR o flujo Smile
+     * @param contentType Codificación del flujo
+     * @param servletRequest La solicitud, cuyo tiempo máximo de respuesta se amplía para el lote
+     * @return Un ZIP con un PDF por solicitud, escrito a medida que se generan los reportes
+     */
+    @Operation(summary = "Generar un lote de reportes de pago", description = "Recibe solicitudes en NDJSON, como secuencia CBOR (application/cbor-seq) o como flujo Smile (application/x-jackson-smile) y devuelve un ZIP con un PDF por solicitud, en el mismo orden")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lote generado; las solicitudes fallidas se incluyen como archivos .error.txt"),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @PostMapping(value = "/payment/bulk", consumes = {"application/x-ndjson", RequestEncoding.CBOR_SEQ_VALUE, RequestEncoding.SMILE_VALUE},
+            produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> generateBulkPaymentReports(InputStream requests,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, HttpServletRequest servletRequest) {
+        RequestEncoding encoding = RequestEncoding.forStream(contentType);
+        extendAsyncTimeout(servletRequest);
+        StreamingResponseBody body = outputStream -> bulkReportService.writeBulkZip(requests, encoding, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payment-reports.zip\"")
+                .body(body);
+    }
+    
+    /**
+     * Endpoint para reunir varios recibos de pago en un único PDF
+     * 
+     * @param requests Flujo de solicitudes de reporte: NDJSON, secuencia CBOR o flujo Smile
+     * @param contentType Codificación del flujo
+     * @param servletRequest La solicitud, cuyo tiempo máximo de respuesta se amplía para el paquete
+     * @return Un PDF con las páginas de cada recibo en el orden de entrada, escrito a medida que se copian
+     */
+    @Operation(summary = "Reunir recibos de pago en un PDF", description = "Recibe las mismas solicitudes que un reporte suelto y devuelve un único PDF con todos los recibos. Los recibos reproducibles (con generatedAt o sin hora) que ya están en la caché o en el archivo se copian sin volver a renderizarlos; solo se renderizan los que faltan")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Paquete generado exitosamente"),
+        @ApiResponse(responseCode = "400", description = "La solicitud no se puede leer o no contiene ningún recibo"),
+        @ApiResponse(responseCode = "429", description = "Demasiadas solicitudes en espera; reintentar tras Retry-After"),
+        @ApiResponse(responseCode = "503", description = "No hay hilos disponibles para renderizar; reintentar tras Retry-After"),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @PostMapping(value = "/payment/bundle", consumes = {"application/x-ndjson", RequestEncoding.CBOR_SEQ_VALUE, RequestEncoding.SMILE_VALUE},
+            produces = MediaType.APPLICATION_PDF_VALUE)
+    public ResponseEntity<StreamingResponseBody> generateReceiptBundle(InputStream requests,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, HttpServletRequest servletRequest) {
+        RequestEncoding encoding = RequestEncoding.forStream(contentType);
+        renderBulkhead.checkAdmission(RenderPriority.BULK);
+        extendAsyncTimeout(servletRequest);
+        StreamingResponseBody body = outputStream -> receiptBundleService.writeBundle(requests, encoding, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payment-receipts.pdf\"")
+                .body(body);
+    }
+    
+    /**
+     * Endpoint para generar el estado de cuenta de un cliente con todos sus pagos
+     * 
+     * @param payments Flujo NDJSON: la primera línea es la cabecera del estado de cuenta y cada línea siguiente un pago
+     * @return Un único PDF de varias páginas, escrito a medida que se leen los pagos
+     */
+    @Operation(summary = "Generar un estado de cuenta en PDF", description = "Recibe la cabecera y los pagos de un cliente en formato NDJSON y devuelve un PDF con la tabla de pagos y su total")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Estado de cuenta generado exitosamente"),
+        @ApiResponse(responseCode = "429", description = "Demasiadas solicitudes en espera; reintentar tras Retry-After"),
+        @ApiResponse(responseCode = "503", description = "Espera para renderizar por encima del límite; reintentar tras Retry-After"),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    @PostMapping(value = "/statement", consumes = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> generateStatementReport(InputStream payments) {
+        renderBulkhead.checkAdmission(RenderPriority.STANDARD);
+        StreamingResponseBody body = outputStream -> statementReportService.writeStatement(payments, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"statement-report.pdf\"")
+                .body(body);
     }
     
     @RestController
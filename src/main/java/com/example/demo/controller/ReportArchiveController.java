@@ -0,0 +1,187 @@
+package com.example.demo.controller;
+
+import com.example.demo.archive.ArchiveEntry;
+import com.example.demo.archive.ArchiveRegion;
+import com.example.demo.archive.ReportArchive;
+import com.example.demo.exception.ReportArchiveNotFoundException;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+
+/**
+ * Controlador REST para consultar y descargar los reportes archivados. Los reportes
+ * archivados no cambian, de modo que admiten descargas parciales con Range y se envían
+ * directamente desde el archivo del segmento. Como los reportes contienen datos de pago
+ * de los clientes, solo se publica con {@code report.archive.endpoints-enabled=true},
+ * detrás de un acceso autenticado.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "report.archive", name = "endpoints-enabled", havingValue = "true")
+@RequestMapping("/api/reports/archive")
+public class ReportArchiveController {
+
+    /**
+     * Atributos de Tomcat para enviar un archivo con sendfile, sin copiarlo por la JVM
+     */
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final ReportArchive archive;
+
+    public ReportArchiveController(ReportArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Endpoint para buscar reportes archivados
+     *
+     * @param transactionId Identificador de la transacción
+     * @param customer Nombre del cliente, sin distinguir mayúsculas
+     * @param from Primer día de archivo incluido
+     * @param to Último día de archivo incluido
+     * @param limit Número máximo de resultados
+     * @return Los reportes encontrados, del más reciente al más antiguo
+     */
+    @Operation(summary = "Buscar reportes archivados", description = "Filtra por transacción, cliente y rango de fechas de archivo")
+    @GetMapping
+    public List<ArchiveEntry> findArchivedReports(@RequestParam(required = false) String transactionId,
+            @RequestParam(required = false) String customer,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "100") int limit) {
+        return archive.find(transactionId, customer, from, to, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    /**
+     * Endpoint para descargar un reporte archivado
+     *
+     * @param id Identificador del reporte en el archivo
+     * @param request La solicitud, con las cabeceras Range e If-Range
+     * @param response La respuesta, en la que se escribe el PDF o la parte solicitada
+     */
+    @Operation(summary = "Descargar un reporte archivado", description = "Envía el PDF tal como se generó, sin volver a renderizarlo. Admite un único rango de bytes con Range")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Reporte completo"),
+        @ApiResponse(responseCode = "206", description = "Parte solicitada del reporte"),
+        @ApiResponse(responseCode = "304", description = "El cliente ya tiene este reporte"),
+        @ApiResponse(responseCode = "404", description = "El reporte no existe o expiró"),
+        @ApiResponse(responseCode = "416", description = "El rango está fuera del reporte")
+    })
+    @GetMapping("/{id}")
+    public void getArchivedReport(@PathVariable String id, HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        ArchiveRegion region = archive.region(id);
+        if (region == null) {
+            throw new ReportArchiveNotFoundException(id);
+        }
+        serve(region, request, response);
+    }
+
+    /**
+     * Endpoint para descargar el último reporte archivado de una transacción
+     *
+     * @param transactionId Identificador de la transacción
+     * @param request La solicitud, con las cabeceras Range e If-Range
+     * @param response La respuesta, en la que se escribe el PDF o la parte solicitada
+     */
+    @Operation(summary = "Descargar el último reporte archivado de una transacción")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Reporte completo"),
+        @ApiResponse(responseCode = "206", description = "Parte solicitada del reporte"),
+        @ApiResponse(responseCode = "404", description = "La transacción no tiene reportes archivados")
+    })
+    @GetMapping("/transactions/{transactionId}")
+    public void getLatestArchivedReport(@PathVariable String transactionId, HttpServletRequest request,
+                                        HttpServletResponse response) throws IOException {
+        ArchiveRegion region = archive.latestRegion(transactionId);
+        if (region == null) {
+            throw new ReportArchiveNotFoundException("transacción " + transactionId);
+        }
+        serve(region, request, response);
+    }
+
+    private void serve(ArchiveRegion region, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = region.getLength();
+        String eTag = "\"" + region.getEntry().id() + "\"";
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"payment-report-" + region.getEntry().transactionId() + ".pdf\"");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(eTag))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = singleRange(request, eTag);
+        if (range != null) {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            if (start >= length || end < start) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setContentLengthLong(count);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat envía la región del segmento con sendfile al terminar la solicitud
+            request.setAttribute(SENDFILE_FILENAME, region.getFile().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, region.getOffset() + start);
+            request.setAttribute(SENDFILE_END, region.getOffset() + end + 1);
+        } else {
+            region.writeTo(response.getOutputStream(), start, count);
+        }
+    }
+
+    /**
+     * @return el rango solicitado, o null si se pide el reporte completo. Varios rangos, un
+     *         rango mal formado o un If-Range que no coincide con el ETag se responden con el
+     *         reporte completo
+     */
+    private static HttpRange singleRange(HttpServletRequest request, String eTag) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.trim().equals(eTag)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.controller;
+
+import com.example.demo.config.RequestEncoding;
+import com.example.demo.dto.PaymentReportRequest;
+import com.example.demo.dto.ReportJobResponse;
+import com.example.demo.job.ReportJobService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.InputStream;
+import java.net.URI;
+
+
+/**
+ * Controlador REST para los trabajos asíncronos de reportes: la solicitud se responde de
+ * inmediato con el identificador del trabajo y el resultado se descarga cuando está listo
+ */
+@RestController
+@RequestMapping("/api/reports/jobs")
+public class ReportJobController {
+
+    private final ReportJobService jobService;
+
+    public ReportJobController(ReportJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * Endpoint para encolar un reporte de pago
+     *
+     * @param request DTO con la configuración del reporte y los datos del pago
+     * @param deadlineSeconds Plazo del trabajo en segundos desde su recepción
+     * @return El estado inicial del trabajo
+     */
+    @Operation(summary = "Encolar un reporte de pago", description = "Devuelve el identificador del trabajo sin esperar a que el PDF se genere. Acepta la solicitud en JSON, CBOR o Smile")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Trabajo encolado"),
+        @ApiResponse(responseCode = "503", description = "Cola de trabajos llena; reintentar tras Retry-After")
+    })
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, RequestEncoding.SMILE_VALUE})
+    public ResponseEntity<ReportJobResponse> submitPaymentJob(@RequestBody PaymentReportRequest request,
+                                                              @RequestParam(required = false) Long deadlineSeconds) {
+        return accepted(jobService.submitPayment(request, deadlineSeconds));
+    }
+
+    /**
+     * Endpoint para encolar un estado de cuenta
+     *
+     * @param payments Flujo NDJSON con la cabecera del estado de cuenta y un pago por línea
+     * @param deadlineSeconds Plazo del trabajo en segundos desde su recepción
+     * @return El estado inicial del trabajo
+     */
+    @Operation(summary = "Encolar un estado de cuenta", description = "Recibe la cabecera y los pagos en formato NDJSON y devuelve el identificador del trabajo")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Trabajo encolado"),
+        @ApiResponse(responseCode = "503", description = "Cola de trabajos llena; reintentar tras Retry-After")
+    })
+    @PostMapping(value = "/statement", consumes = "application/x-ndjson")
+    public ResponseEntity<ReportJobResponse> submitStatementJob(InputStream payments,
+                                                                @RequestParam(required = false) Long deadlineSeconds) {
+        return accepted(jobService.submitStatement(payments, deadlineSeconds));
+    }
+
+    /**
+     * Endpoint para encolar un lote de reportes
+     *
+     * @param requests Flujo de solicitudes: NDJSON, secuencia CBOR o flujo Smile
+     * @param contentType Codificación del flujo
+     * @param deadlineSeconds Plazo del trabajo en segundos desde su recepción
+     * @return El estado inicial del trabajo
+     */
+    @Operation(summary = "Encolar un lote de reportes", description = "Recibe solicitudes en NDJSON, como secuencia CBOR (application/cbor-seq) o como flujo Smile (application/x-jackson-smile) y devuelve el identificador del trabajo que genera el ZIP")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Trabajo encolado"),
+        @ApiResponse(responseCode = "503", description = "Cola de trabajos llena; reintentar tras Retry-After")
+    })
+    @PostMapping(value = "/bulk", consumes = {"application/x-ndjson", RequestEncoding.CBOR_SEQ_VALUE, RequestEncoding.SMILE_VALUE})
+    public ResponseEntity<ReportJobResponse> submitBulkJob(InputStream requests,
+                                                           @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                           @RequestParam(required = false) Long deadlineSeconds) {
+        return accepted(jobService.submitBulk(requests, RequestEncoding.forStream(contentType), deadlineSeconds));
+    }
+
+    /**
+     * Endpoint para consultar el estado y el avance de un trabajo
+     *
+     * @param jobId Identificador del trabajo
+     * @return El estado actual del trabajo
+     */
+    @Operation(summary = "Consultar un trabajo", description = "Devuelve el estado, el avance y, si terminó, la ruta de descarga")
+    @GetMapping("/{jobId}")
+    public ReportJobResponse getJob(@PathVariable String jobId) {
+        return jobService.getJob(jobId);
+    }
+
+    /**
+     * Endpoint para seguir el avance de un trabajo mediante Server-Sent Events
+     *
+     * @param jobId Identificador del trabajo
+     * @return Eventos progress periódicos y un evento finished al terminar
+     */
+    @Operation(summary = "Seguir el avance de un trabajo", description = "Envía eventos progress periódicos y un evento finished cuando el trabajo termina")
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJobEvents(@PathVariable String jobId) {
+        return jobService.subscribe(jobId);
+    }
+
+    /**
+     * Endpoint para descargar el resultado de un trabajo terminado
+     *
+     * @param jobId Identificador del trabajo
+     * @return El PDF o ZIP generado
+     */
+    @Operation(summary = "Descargar el resultado de un trabajo")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Resultado del trabajo"),
+        @ApiResponse(responseCode = "404", description = "El trabajo no existe o expiró"),
+        @ApiResponse(responseCode = "409", description = "El trabajo no terminó correctamente")
+    })
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<Resource> downloadResult(@PathVariable String jobId) {
+        Resource result = jobService.getResult(jobId);
+        return ResponseEntity.ok()
+                .contentType(MediaTypeFactory.getMediaType(result).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + result.getFilename() + "\"")
+                .body(result);
+    }
+
+    /**
+     * Endpoint para cancelar un trabajo en cola o en ejecución
+     *
+     * @param jobId Identificador del trabajo
+     * @return El estado del trabajo tras la cancelación
+     */
+    @Operation(summary = "Cancelar un trabajo")
+    @DeleteMapping("/{jobId}")
+    public ReportJobResponse cancelJob(@PathVariable String jobId) {
+        return jobService.cancel(jobId);
+    }
+
+    private ResponseEntity<ReportJobResponse> accepted(ReportJobResponse job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reports/jobs/" + job.getId()))
+                .body(job);
+    }
+}
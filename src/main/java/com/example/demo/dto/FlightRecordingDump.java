@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * DTO con el archivo en el que se volcó la grabación de JFR. Solo lleva el nombre del archivo,
+ * que se encuentra en el directorio de volcados ({@code report.jfr.dump-directory})
+ */
+@Getter
+@Builder
+public class FlightRecordingDump {
+    private final String file;
+    private final long size;
+
+    // Intervalo que cubren los datos volcados
+    private final Instant startTime;
+    private final Instant endTime;
+}
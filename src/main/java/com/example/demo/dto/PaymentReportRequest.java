@@ -1,18 +1,30 @@
 package com.example.demo.dto;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
 
 /**
  * DTO (Data Transfer Object) para recibir las solicitudes de generación de reportes
- * desde la API REST
+ * desde la API REST. Se admite en JSON, CBOR y Smile con los mismos nombres de campo; el
+ * orden de los campos es fijo para que los clientes de los formatos binarios puedan
+ * codificar siempre igual. Los campos nuevos se añaden al final.
  */
+@JsonPropertyOrder({"profile", "includeLogo", "title", "includePaymentDetails", "includeUserInfo", "theme",
+        "includeTimestamp", "footerMessage", "format", "brand", "renderMode", "template", "outputProfile",
+        "generatedAt", "transactionId", "amount", "paymentMethod", "customerName"})
 @Getter
 @Setter
 public class PaymentReportRequest {
     
+    // Perfil de reporte definido en el servidor; si se indica, sustituye a las opciones de configuración
+    private String profile;
+    
     // Opciones de configuración del reporte
     private boolean includeLogo = false;
     
@@ -31,6 +43,23 @@ public class PaymentReportRequest {
     @NotBlank(message = "El formato es obligatorio")
     private String format = "A4";
     
+    // Marca (tenant) cuyo logo se incluye; si se omite se usa la marca por defecto
+    private String brand;
+    
+    // Modo de renderizado: SKELETON estampa los datos sobre una página precalculada, DIRECT los
+    // escribe con el resto de la página en coordenadas precalculadas y FLOW maqueta todo el documento
+    private String renderMode = "SKELETON";
+    
+    // Plantilla con las secciones y el estilo del reporte; si se omite se usa la plantilla por defecto
+    private String template;
+    
+    // Perfil de salida (fast, balanced o smallest): CPU frente a bytes; si se omite se usa el del perfil o balanced
+    private String outputProfile;
+    
+    // Fecha de generación que se muestra en el reporte; al indicarla el PDF es reproducible y se guarda en caché
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime generatedAt;
+    
     // Datos del pago
     @NotBlank(message = "El ID de transacción es obligatorio")
     private String transactionId;
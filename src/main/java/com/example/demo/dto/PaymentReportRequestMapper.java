@@ -0,0 +1,111 @@
+package com.example.demo.dto;
+
+import com.example.demo.config.Format;
+import com.example.demo.config.OutputProfile;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.ReportProfileRegistry;
+import com.example.demo.config.RenderMode;
+import com.example.demo.config.Theme;
+import com.example.demo.model.PaymentData;
+import org.springframework.stereotype.Component;
+
+/**
+ * Convierte las solicitudes recibidas por la API en la configuración del reporte
+ * y los datos del pago que utiliza el generador
+ */
+@Component
+public class PaymentReportRequestMapper {
+
+    private final ReportProfileRegistry profileRegistry;
+
+    public PaymentReportRequestMapper(ReportProfileRegistry profileRegistry) {
+        this.profileRegistry = profileRegistry;
+    }
+
+    /**
+     * Obtiene la configuración del perfil indicado en la solicitud o, si no indica ninguno,
+     * la construye con el patrón Builder a partir de sus opciones. El perfil de salida de la
+     * solicitud, si lo indica, sustituye al del perfil.
+     *
+     * @param request la solicitud recibida
+     * @return la configuración inmutable del reporte
+     * @throws com.example.demo.exception.ReportProfileNotFoundException si el perfil no existe
+     * @throws IllegalArgumentException si el perfil de salida no existe
+     */
+    public PaymentReportConfig toConfig(PaymentReportRequest request) {
+        if (request.getProfile() != null && !request.getProfile().isBlank()) {
+            if (request.getOutputProfile() == null || request.getOutputProfile().isBlank()) {
+                return profileRegistry.get(request.getProfile());
+            }
+            return profileRegistry.get(request.getProfile(), OutputProfile.of(request.getOutputProfile()));
+        }
+        return new PaymentReportConfig.Builder()
+                .withLogo(request.isIncludeLogo())
+                .withTitle(request.getTitle())
+                .withPaymentDetails(request.isIncludePaymentDetails())
+                .withUserInfo(request.isIncludeUserInfo())
+                .withTheme(Theme.valueOf(request.getTheme()))
+                .withTimestamp(request.isIncludeTimestamp())
+                .withFooterMessage(request.getFooterMessage())
+                .withFormat(Format.valueOf(request.getFormat()))
+                .withBrand(request.getBrand())
+                .withRenderMode(RenderMode.valueOf(request.getRenderMode()))
+                .withTemplate(request.getTemplate())
+                .withOutputProfile(OutputProfile.of(request.getOutputProfile()))
+                .build();
+    }
+
+    /**
+     * Construye la configuración de un estado de cuenta a partir de su cabecera
+     *
+     * @param request la cabecera de la solicitud
+     * @return la configuración inmutable del reporte
+     */
+    public PaymentReportConfig toConfig(StatementReportRequest request) {
+        return new PaymentReportConfig.Builder()
+                .withLogo(request.isIncludeLogo())
+                .withTitle(request.getTitle())
+                .withPaymentDetails(request.isIncludePaymentDetails())
+                .withUserInfo(request.isIncludeUserInfo())
+                .withTheme(Theme.valueOf(request.getTheme()))
+                .withTimestamp(request.isIncludeTimestamp())
+                .withFooterMessage(request.getFooterMessage())
+                .withFormat(Format.valueOf(request.getFormat()))
+                .withBrand(request.getBrand())
+                .withRenderMode(RenderMode.FLOW)
+                .withOutputProfile(OutputProfile.of(request.getOutputProfile()))
+                .build();
+    }
+
+    /**
+     * Crea el objeto PaymentData de un pago de un estado de cuenta
+     *
+     * @param request el pago recibido
+     * @param customerName el nombre del cliente del estado de cuenta
+     * @return los datos del pago
+     */
+    public PaymentData toPaymentData(StatementPaymentRequest request, String customerName) {
+        if (request.getAmount() == null) {
+            throw new IllegalArgumentException("El monto es obligatorio en el pago " + request.getTransactionId());
+        }
+        return new PaymentData(request.getTransactionId(), request.getAmount(), request.getPaymentMethod(), customerName);
+    }
+
+    /**
+     * Crea el objeto PaymentData a partir de la solicitud
+     *
+     * @param request la solicitud recibida
+     * @return los datos del pago
+     */
+    public PaymentData toPaymentData(PaymentReportRequest request) {
+        if (request.getAmount() == null) {
+            throw new IllegalArgumentException("El monto es obligatorio");
+        }
+        return new PaymentData(
+                request.getTransactionId(),
+                request.getAmount(),
+                request.getPaymentMethod(),
+                request.getCustomerName()
+        );
+    }
+}
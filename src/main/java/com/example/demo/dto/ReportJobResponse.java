@@ -0,0 +1,34 @@
+package com.example.demo.dto;
+
+import com.example.demo.job.ReportJobState;
+import com.example.demo.job.ReportJobType;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * DTO con el estado y el avance de un trabajo asíncrono de reportes
+ */
+@Getter
+@Builder
+public class ReportJobResponse {
+    private final String id;
+    private final ReportJobType type;
+    private final ReportJobState state;
+
+    // Elementos procesados y total esperado (pagos o solicitudes); el total es 0 si no se conoce
+    private final int processed;
+    private final int total;
+    private final Double percentage;
+
+    private final Instant createdAt;
+    private final Instant startedAt;
+    private final Instant finishedAt;
+    private final Instant deadline;
+    private final Instant expiresAt;
+    private final String error;
+
+    // Ruta de descarga, disponible cuando el trabajo terminó correctamente
+    private final String resultUrl;
+}
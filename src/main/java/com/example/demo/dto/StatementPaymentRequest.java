@@ -0,0 +1,24 @@
+package com.example.demo.dto;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * DTO para cada pago incluido en una solicitud de estado de cuenta
+ */
+@Getter
+@Setter
+public class StatementPaymentRequest {
+    
+    @NotBlank(message = "El ID de transacción es obligatorio")
+    private String transactionId;
+    
+    @NotNull(message = "El monto es obligatorio")
+    @Positive(message = "El monto debe ser positivo")
+    private Double amount;
+    
+    @NotBlank(message = "El método de pago es obligatorio")
+    private String paymentMethod;
+}
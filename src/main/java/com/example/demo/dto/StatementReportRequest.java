@@ -0,0 +1,44 @@
+package com.example.demo.dto;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * DTO para la cabecera de una solicitud de estado de cuenta. Es la primera línea
+ * del flujo NDJSON; cada línea siguiente es un {@link StatementPaymentRequest}.
+ */
+@Getter
+@Setter
+public class StatementReportRequest {
+    
+    // Opciones de configuración del reporte
+    private boolean includeLogo = false;
+    
+    @NotBlank(message = "El título del reporte es obligatorio")
+    private String title = "Estado de Cuenta";
+    
+    private boolean includePaymentDetails = true;
+    private boolean includeUserInfo = true;
+    
+    @NotBlank(message = "El tema es obligatorio")
+    private String theme = "LIGHT";
+    
+    private boolean includeTimestamp = true;
+    private String footerMessage = "";
+    
+    @NotBlank(message = "El formato es obligatorio")
+    private String format = "A4";
+    
+    // Marca (tenant) cuyo logo se incluye; si se omite se usa la marca por defecto
+    private String brand;
+    
+    // Perfil de salida (fast, balanced o smallest): CPU frente a bytes; si se omite se usa balanced
+    private String outputProfile;
+    
+    // Memoria máxima en KB para filas pendientes de escribir; si se omite se usa la del servidor
+    private Integer memoryBudgetKb;
+    
+    // Datos del cliente
+    @NotBlank(message = "El nombre del cliente es obligatorio")
+    private String customerName;
+}
@@ -0,0 +1,20 @@
+package com.example.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción lanzada cuando se pide un volcado de JFR y no hay ninguna grabación en curso
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class FlightRecordingUnavailableException extends RuntimeException {
+
+    /**
+     * Constructor con el motivo
+     *
+     * @param message Descripción del motivo
+     */
+    public FlightRecordingUnavailableException(String message) {
+        super(message);
+    }
+}
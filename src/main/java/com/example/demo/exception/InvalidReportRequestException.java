@@ -0,0 +1,31 @@
+package com.example.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción lanzada cuando el contenido de una solicitud de reportes no es válido, por
+ * ejemplo porque no se puede leer o no contiene ningún elemento
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidReportRequestException extends RuntimeException {
+
+    /**
+     * Constructor con mensaje de error
+     *
+     * @param message Mensaje descriptivo del error
+     */
+    public InvalidReportRequestException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructor con mensaje de error y causa
+     *
+     * @param message Mensaje descriptivo del error
+     * @param cause Causa original del error
+     */
+    public InvalidReportRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
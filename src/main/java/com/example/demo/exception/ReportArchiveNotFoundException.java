@@ -0,0 +1,20 @@
+package com.example.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción lanzada cuando un reporte archivado no existe o ya expiró
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ReportArchiveNotFoundException extends RuntimeException {
+
+    /**
+     * Constructor con la descripción del reporte buscado
+     *
+     * @param description Identificador del reporte o de la transacción solicitada
+     */
+    public ReportArchiveNotFoundException(String description) {
+        super("No existe el reporte archivado: " + description);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.exception;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.io.IOException;
+
+/**
+ * Traduce los rechazos por sobrecarga a respuestas HTTP con la cabecera Retry-After.
+ * El cuerpo lo genera el manejo de errores estándar, igual que para el resto de excepciones.
+ */
+@RestControllerAdvice
+public class ReportExceptionHandler {
+
+    @ExceptionHandler(ReportRejectedException.class)
+    public void handleRejected(ReportRejectedException e, HttpServletResponse response) throws IOException {
+        long seconds = Math.max(1, e.getRetryAfter().toSeconds());
+        discardPresetHeaders(response);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.sendError(e.getStatus().value(), e.getMessage());
+    }
+
+    /**
+     * El ejecutor de respuestas asíncronas está saturado
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public void handleTaskRejected(TaskRejectedException e, HttpServletResponse response) throws IOException {
+        discardPresetHeaders(response);
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "No hay hilos disponibles para enviar la respuesta");
+    }
+
+    /**
+     * Las respuestas en streaming ya fijaron el tipo de contenido del reporte; si todavía no se
+     * envió nada se descartan esas cabeceras para que el error se pueda responder como JSON
+     */
+    private void discardPresetHeaders(HttpServletResponse response) {
+        if (!response.isCommitted()) {
+            response.reset();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción lanzada cuando un trabajo de reporte no existe o ya expiró
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ReportJobNotFoundException extends RuntimeException {
+
+    /**
+     * Constructor con el identificador del trabajo
+     *
+     * @param jobId Identificador del trabajo solicitado
+     */
+    public ReportJobNotFoundException(String jobId) {
+        super("No existe el trabajo de reporte: " + jobId);
+    }
+}
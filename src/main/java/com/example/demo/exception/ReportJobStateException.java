@@ -0,0 +1,21 @@
+package com.example.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción lanzada cuando se solicita una operación que el estado actual del trabajo no permite,
+ * por ejemplo descargar el resultado de un trabajo que todavía no terminó
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ReportJobStateException extends RuntimeException {
+
+    /**
+     * Constructor con mensaje de error
+     *
+     * @param message Mensaje descriptivo del error
+     */
+    public ReportJobStateException(String message) {
+        super(message);
+    }
+}
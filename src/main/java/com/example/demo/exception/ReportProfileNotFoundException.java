@@ -0,0 +1,20 @@
+package com.example.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción lanzada cuando una solicitud indica un perfil de reporte que no está definido
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class ReportProfileNotFoundException extends RuntimeException {
+
+    /**
+     * Constructor con el nombre del perfil
+     *
+     * @param profile Nombre del perfil solicitado
+     */
+    public ReportProfileNotFoundException(String profile) {
+        super("No existe el perfil de reporte: " + profile);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+/**
+ * Excepción lanzada cuando el servidor no admite más trabajo de generación de reportes
+ * en este momento. Se responde con el estado indicado y la cabecera Retry-After.
+ */
+public class ReportRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    /**
+     * Constructor con mensaje de error, estado HTTP y tiempo sugerido para reintentar
+     *
+     * @param message Mensaje descriptivo del rechazo
+     * @param status Estado HTTP de la respuesta (429 o 503)
+     * @param retryAfter Tiempo tras el que el cliente puede reintentar
+     */
+    public ReportRejectedException(String message, HttpStatus status, Duration retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción lanzada cuando una plantilla de reporte no puede leerse o no es válida
+ */
+@ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+public class ReportTemplateException extends RuntimeException {
+
+    /**
+     * Constructor con mensaje de error
+     *
+     * @param message Mensaje descriptivo del error
+     */
+    public ReportTemplateException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructor con mensaje de error y causa
+     *
+     * @param message Mensaje descriptivo del error
+     * @param cause Excepción que causó el error
+     */
+    public ReportTemplateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
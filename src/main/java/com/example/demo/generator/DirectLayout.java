@@ -0,0 +1,407 @@
+package com.example.demo.generator;
+
+import com.example.demo.config.OutputProfile;
+import com.lowagie.text.Chunk;
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.Image;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PRTokeniser;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfContentParser;
+import com.lowagie.text.pdf.PdfNumber;
+import com.lowagie.text.pdf.PdfObject;
+import com.lowagie.text.pdf.PdfPageEventHelper;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.draw.DrawInterface;
+import com.lowagie.text.pdf.draw.LineSeparator;
+import com.lowagie.text.pdf.draw.VerticalPositionMark;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Página de reporte con coordenadas precalculadas. Se obtiene maquetando la configuración una
+ * vez con iText y registrando dónde quedó cada texto fijo, cada línea, el logo y cada campo
+ * variable; en cada renderizado se escribe todo directamente en el contenido de la página, sin
+ * {@code Paragraph}, {@code PdfPTable} ni el esqueleto importado. Es inmutable y se comparte
+ * entre renderizados concurrentes.
+ */
+final class DirectLayout {
+
+    /**
+     * Marcador para las configuraciones cuya maquetación no puede reproducirse directamente
+     */
+    static final DirectLayout UNSUPPORTED = new DirectLayout(null, null, List.of(), List.of(), List.of(), List.of());
+
+    /**
+     * Inclinación con que iText simula la cursiva
+     */
+    private static final float ITALIC_SKEW = 0.21256f;
+
+    /**
+     * Diferencia máxima en puntos entre el ancho medido de un texto y el registrado por iText
+     */
+    private static final float WIDTH_TOLERANCE = 0.01f;
+
+    private final Rectangle pageSize;
+    private final FontPalette palette;
+    private final List<ImageRun> images;
+    private final List<RuleRun> rules;
+    private final List<TextRun> texts;
+    private final List<FieldRun> fields;
+
+    private DirectLayout(Rectangle pageSize, FontPalette palette, List<ImageRun> images, List<RuleRun> rules,
+                         List<TextRun> texts, List<FieldRun> fields) {
+        this.pageSize = pageSize;
+        this.palette = palette;
+        this.images = images;
+        this.rules = rules;
+        this.texts = texts;
+        this.fields = fields;
+    }
+
+    /**
+     * @return true si la maquetación puede utilizarse para escribir reportes
+     */
+    boolean isUsable() {
+        return this != UNSUPPORTED;
+    }
+
+    /**
+     * @return el peso aproximado en bytes de la maquetación, para la caché
+     */
+    long getWeight() {
+        long weight = 64L * (images.size() + rules.size() + fields.size());
+        for (TextRun text : texts) {
+            weight += 64 + 2L * text.text().length();
+        }
+        return weight;
+    }
+
+    /**
+     * Comprueba que cada valor cabe en una sola línea en su posición
+     *
+     * @param values los valores de los campos variables
+     * @return true si todos los valores caben en su posición
+     */
+    boolean fits(Map<ReportField, String> values) {
+        for (FieldRun field : fields) {
+            String value = values.get(field.field());
+            if (value != null && !field.position().fits(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Escribe un reporte completo en las coordenadas precalculadas
+     *
+     * @param values los valores de los campos variables
+     * @param documentDate la fecha que se escribe en los metadatos del PDF
+     * @param outputProfile el perfil de salida, que fija la compresión del documento
+     * @param outputStream el destino del PDF; no se cierra al terminar
+     * @throws DocumentException si ocurre un error al componer el documento
+     */
+    void write(Map<ReportField, String> values, DocumentDate documentDate, OutputProfile outputProfile,
+               OutputStream outputStream) throws DocumentException {
+        Document document = new Document(pageSize);
+        PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+        writer.setCloseStream(false);
+        PaymentReportGenerator.applyOutputProfile(writer, outputProfile);
+        document.open();
+
+        PaymentReportGenerator.applyTheme(document, writer, palette);
+        PdfContentByte canvas = writer.getDirectContent();
+        for (ImageRun image : images) {
+            float[] m = image.matrix();
+            canvas.addImage(image.image(), m[0], m[1], m[2], m[3], m[4], m[5]);
+        }
+        for (RuleRun rule : rules) {
+            rule.separator().draw(canvas, rule.llx(), rule.lly(), rule.urx(), rule.ury(), rule.y());
+        }
+        canvas.beginText();
+        for (TextRun text : texts) {
+            text.style().show(canvas, text.text(), text.x(), text.y());
+        }
+        for (FieldRun field : fields) {
+            String value = values.get(field.field());
+            if (value != null && !value.isEmpty()) {
+                field.show(canvas, value);
+            }
+        }
+        canvas.endText();
+
+        documentDate.apply(writer);
+        document.close();
+    }
+
+    /**
+     * Registra, además de los campos variables, la posición de cada texto fijo, línea y logo
+     * mientras se maqueta la configuración. Los textos se marcan como etiquetas genéricas de
+     * iText, que no alteran la maquetación y reportan el inicio, el ancho y la línea base de
+     * cada tramo escrito; las líneas y el logo se registran al dibujarse.
+     */
+    static class Recorder extends PageSkeleton.Recorder {
+
+        private final List<PendingText> pendingTexts = new ArrayList<>();
+        private final List<RuleRun> rules = new ArrayList<>();
+        private final List<Image> logos = new ArrayList<>();
+        private boolean unsupported;
+
+        private final PdfPageEventHelper events = new PdfPageEventHelper() {
+            @Override
+            public void onGenericTag(PdfWriter writer, Document document, Rectangle rect, String tag) {
+                pendingTexts.get(Integer.parseInt(tag)).pieces().add(rect);
+            }
+        };
+
+        @Override
+        Phrase text(String text, Font font) {
+            Phrase phrase = new Phrase(text, font);
+            if (font.isUnderlined() || font.isStrikethru()) {
+                // El subrayado no se reproduce: la configuración se maqueta completa
+                unsupported = true;
+            } else if (!phrase.isEmpty()) {
+                ((Chunk) phrase.get(0)).setGenericTag(Integer.toString(pendingTexts.size()));
+                pendingTexts.add(new PendingText(text, TextStyle.of(font), new ArrayList<>(1)));
+            }
+            return phrase;
+        }
+
+        @Override
+        Element rule(LineSeparator separator) {
+            DrawInterface recorder = (canvas, llx, lly, urx, ury, y) -> {
+                rules.add(new RuleRun(separator, llx, lly, urx, ury, y));
+                separator.draw(canvas, llx, lly, urx, ury, y);
+            };
+            return new VerticalPositionMark(recorder, 0);
+        }
+
+        @Override
+        Image logo(Image logo) {
+            logos.add(logo);
+            return logo;
+        }
+
+        @Override
+        void attach(PdfWriter writer) {
+            writer.setPageEvent(events);
+        }
+
+        /**
+         * @param pdf la configuración maquetada con este registrador
+         * @param pageSize el tamaño de la página
+         * @param palette las fuentes y colores del tema
+         * @return la maquetación directa, o {@link #UNSUPPORTED} si el documento no ocupa
+         * exactamente una página o alguno de sus elementos no puede ubicarse
+         * @throws IOException si no se puede leer el documento maquetado
+         */
+        DirectLayout build(byte[] pdf, Rectangle pageSize, FontPalette palette) throws IOException {
+            if (unsupported) {
+                return UNSUPPORTED;
+            }
+            PdfReader reader = new PdfReader(pdf);
+            List<float[]> matrices;
+            try {
+                if (reader.getNumberOfPages() != 1) {
+                    return UNSUPPORTED;
+                }
+                matrices = imageMatrices(reader.getPageContent(1));
+            } finally {
+                reader.close();
+            }
+            if (matrices.size() != logos.size() || matrices.contains(null)) {
+                return UNSUPPORTED;
+            }
+            List<ImageRun> images = new ArrayList<>(logos.size());
+            for (int i = 0; i < logos.size(); i++) {
+                images.add(new ImageRun(logos.get(i), matrices.get(i)));
+            }
+
+            List<TextRun> texts = new ArrayList<>();
+            for (PendingText pending : pendingTexts) {
+                if (!pending.split(texts)) {
+                    return UNSUPPORTED;
+                }
+            }
+
+            List<FieldRun> fields = new ArrayList<>();
+            positions().forEach((field, position) ->
+                    fields.add(new FieldRun(field, position, TextStyle.of(position.getFont()))));
+            return new DirectLayout(pageSize, palette, List.copyOf(images), List.copyOf(rules),
+                    List.copyOf(texts), List.copyOf(fields));
+        }
+
+        /**
+         * Matrices con que se dibujó cada imagen de la página, en el orden en que se dibujaron:
+         * el operador {@code cm} que precede a cada {@code Do}
+         */
+        private static List<float[]> imageMatrices(byte[] content) throws IOException {
+            List<float[]> matrices = new ArrayList<>(1);
+            PdfContentParser parser = new PdfContentParser(new PRTokeniser(content));
+            ArrayList<PdfObject> operands = new ArrayList<>();
+            float[] matrix = null;
+            while (!parser.parse(operands).isEmpty()) {
+                String operator = operands.get(operands.size() - 1).toString();
+                if ("cm".equals(operator) && operands.size() == 7) {
+                    matrix = new float[6];
+                    for (int i = 0; i < matrix.length; i++) {
+                        matrix[i] = ((PdfNumber) operands.get(i)).floatValue();
+                    }
+                } else if ("Do".equals(operator)) {
+                    matrices.add(matrix);
+                    matrix = null;
+                }
+            }
+            return matrices;
+        }
+    }
+
+    /**
+     * Texto fijo marcado durante la maquetación y los tramos en que iText lo escribió
+     */
+    private record PendingText(String text, TextStyle style, List<Rectangle> pieces) {
+
+        /**
+         * Reparte el texto entre los tramos registrados. iText corta las líneas entre
+         * palabras, así que cada tramo termina en un espacio o un salto de línea y se reconoce
+         * por su ancho.
+         *
+         * @return false si el texto no se escribió o algún tramo no coincide
+         */
+        boolean split(List<TextRun> runs) {
+            if (pieces.isEmpty()) {
+                return false;
+            }
+            String remaining = text;
+            for (int i = 0; i < pieces.size(); i++) {
+                Rectangle piece = pieces.get(i);
+                float width = piece.getWidth();
+                boolean last = i == pieces.size() - 1;
+                int end = last ? lastLineEnd(remaining, width) : lineEnd(remaining, width);
+                if (end < 0) {
+                    return false;
+                }
+                runs.add(new TextRun(remaining.substring(0, end).stripTrailing(), piece.getLeft(), piece.getBottom(),
+                        style));
+                remaining = last ? "" : remaining.substring(end + 1);
+            }
+            return true;
+        }
+
+        private int lineEnd(String remaining, float width) {
+            for (int end = 0; end < remaining.length(); end++) {
+                char c = remaining.charAt(end);
+                if (c != ' ' && c != '\n') {
+                    continue;
+                }
+                String line = remaining.substring(0, end);
+                if (matches(line, width) || c == ' ' && matches(line + c, width)) {
+                    return end;
+                }
+            }
+            return -1;
+        }
+
+        private int lastLineEnd(String remaining, float width) {
+            return matches(remaining, width) || matches(remaining.stripTrailing(), width) ? remaining.length() : -1;
+        }
+
+        private boolean matches(String line, float width) {
+            return Math.abs(style.width(line) - width) < WIDTH_TOLERANCE;
+        }
+    }
+
+    /**
+     * Tipo de letra, tamaño y color de un texto, con la negrita y la cursiva que iText simula
+     * cuando la fuente no tiene esas variantes
+     */
+    private record TextStyle(BaseFont baseFont, float size, Color color, boolean simulatedBold,
+                             boolean simulatedItalic) {
+
+        static TextStyle of(Font font) {
+            float size = font.getSize() == Font.UNDEFINED ? 12 : font.getSize();
+            int style = font.getStyle() == Font.UNDEFINED ? Font.NORMAL : font.getStyle();
+            BaseFont baseFont = font.getBaseFont();
+            // iText solo simula los estilos de las fuentes indicadas como BaseFont
+            boolean simulated = baseFont != null;
+            if (baseFont == null) {
+                baseFont = font.getCalculatedBaseFont(false);
+            }
+            return new TextStyle(baseFont, size, font.getColor(),
+                    simulated && (style & Font.BOLD) != 0, simulated && (style & Font.ITALIC) != 0);
+        }
+
+        float width(String text) {
+            return baseFont.getWidthPoint(text, size);
+        }
+
+        /**
+         * Escribe el texto con los mismos operadores que iText usa al maquetar una línea
+         */
+        void show(PdfContentByte canvas, String text, float x, float y) {
+            canvas.setFontAndSize(baseFont, size);
+            if (color != null) {
+                canvas.setColorFill(color);
+            }
+            if (simulatedBold) {
+                canvas.setTextRenderingMode(PdfContentByte.TEXT_RENDER_MODE_FILL_STROKE);
+                canvas.setLineWidth(size / 30f);
+                if (color != null) {
+                    canvas.setColorStroke(color);
+                }
+            }
+            if (simulatedItalic) {
+                canvas.setTextMatrix(1, 0, ITALIC_SKEW, 1, x, y);
+            } else {
+                canvas.setTextMatrix(x, y);
+            }
+            canvas.showText(text);
+            if (color != null) {
+                canvas.resetRGBColorFill();
+            }
+            if (simulatedBold) {
+                canvas.setTextRenderingMode(PdfContentByte.TEXT_RENDER_MODE_FILL);
+                if (color != null) {
+                    canvas.resetRGBColorStroke();
+                }
+                canvas.setLineWidth(1);
+            }
+        }
+    }
+
+    private record TextRun(String text, float x, float y, TextStyle style) {
+    }
+
+    private record RuleRun(DrawInterface separator, float llx, float lly, float urx, float ury, float y) {
+    }
+
+    private record ImageRun(Image image, float[] matrix) {
+    }
+
+    /**
+     * Campo variable: su posición y el estilo ya resuelto de su fuente
+     */
+    private record FieldRun(ReportField field, PageSkeleton.FieldPosition position, TextStyle style) {
+
+        void show(PdfContentByte canvas, String value) {
+            float x = position.getLeft();
+            if (position.getAlignment() == Element.ALIGN_RIGHT || position.getAlignment() == Element.ALIGN_CENTER) {
+                float space = position.getRight() - position.getLeft() - style.width(value);
+                x += position.getAlignment() == Element.ALIGN_RIGHT ? space : space / 2;
+            }
+            style.show(canvas, value, x, position.getBaseline());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.generator;
+
+import com.lowagie.text.pdf.PdfDate;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfWriter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.GregorianCalendar;
+
+/**
+ * Fecha de creación que se escribe en los metadatos del PDF. Para que dos renderizados
+ * de la misma solicitud produzcan los mismos bytes la fecha debe fijarse u omitirse.
+ */
+final class DocumentDate {
+
+    /**
+     * Fecha actual, el comportamiento por defecto de iText
+     */
+    static final DocumentDate CURRENT = new DocumentDate(null, false);
+
+    /**
+     * Sin fecha de creación ni de modificación
+     */
+    static final DocumentDate NONE = new DocumentDate(null, true);
+
+    private final LocalDateTime pinned;
+    private final boolean omitted;
+
+    private DocumentDate(LocalDateTime pinned, boolean omitted) {
+        this.pinned = pinned;
+        this.omitted = omitted;
+    }
+
+    /**
+     * @param date la fecha que se escribe en los metadatos
+     * @return una fecha fija
+     */
+    static DocumentDate pinned(LocalDateTime date) {
+        return new DocumentDate(date, false);
+    }
+
+    /**
+     * Aplica la fecha a los metadatos del documento; debe invocarse antes de cerrarlo
+     */
+    void apply(PdfWriter writer) {
+        if (omitted) {
+            writer.getInfo().remove(PdfName.CREATIONDATE);
+            writer.getInfo().remove(PdfName.MODDATE);
+        } else if (pinned != null) {
+            PdfDate date = new PdfDate(GregorianCalendar.from(pinned.atZone(ZoneId.systemDefault())));
+            writer.getInfo().put(PdfName.CREATIONDATE, date);
+            writer.getInfo().put(PdfName.MODDATE, date);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.generator;
+
+import com.lowagie.text.Font;
+import com.lowagie.text.pdf.BaseFont;
+import lombok.Getter;
+
+import java.awt.Color;
+
+/**
+ * Conjunto inmutable de fuentes y colores de un tema. Las fuentes se comparten
+ * entre renderizados concurrentes, por lo que nunca deben modificarse.
+ */
+@Getter
+public class FontPalette {
+
+    private final Color backgroundColor;
+    private final Color textColor;
+    private final Font titleFont;
+    private final Font headerFont;
+    private final Font contentFont;
+    private final Font smallFont;
+
+    FontPalette(Color backgroundColor, Color textColor, BaseFont regular, BaseFont bold, BaseFont italic) {
+        this.backgroundColor = backgroundColor;
+        this.textColor = textColor;
+        this.titleFont = new Font(bold, 18, styleFor(regular, bold, Font.BOLD), textColor);
+        this.headerFont = new Font(bold, 14, styleFor(regular, bold, Font.BOLD), textColor);
+        this.contentFont = new Font(regular, 12, Font.NORMAL, textColor);
+        this.smallFont = new Font(italic, 10, styleFor(regular, italic, Font.ITALIC), textColor);
+    }
+
+    /**
+     * Si no existe una variante específica del tipo de letra, el estilo se simula
+     */
+    private static int styleFor(BaseFont regular, BaseFont variant, int style) {
+        return variant == regular ? style : Font.NORMAL;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.generator;
+
+import com.example.demo.config.FontProperties;
+import com.example.demo.config.OutputProfile;
+import com.example.demo.config.Theme;
+import com.example.demo.exception.ReportGenerationException;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.pdf.BaseFont;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Registro de fuentes compartido. Cada {@link BaseFont} se crea una sola vez al iniciar
+ * la aplicación y se entrega a los renderizados a través de paletas inmutables por tema.
+ * La fuente personalizada se carga dos veces, con y sin subconjunto de glifos, porque
+ * el perfil de salida de cada reporte decide cómo se incrusta y las fuentes no se modifican.
+ */
+@Component
+public class FontRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontRegistry.class);
+
+    private static final Color LIGHT_THEME_COLOR = new Color(255, 255, 255);
+    private static final Color DARK_THEME_COLOR = new Color(50, 50, 50);
+    private static final Color LIGHT_TEXT_COLOR = new Color(0, 0, 0);
+    private static final Color DARK_TEXT_COLOR = new Color(255, 255, 255);
+
+    private final boolean subsetByDefault;
+    private final Map<Theme, FontPalette> subsetPalettes = new EnumMap<>(Theme.class);
+    private final Map<Theme, FontPalette> fullPalettes = new EnumMap<>(Theme.class);
+
+    public FontRegistry(FontProperties properties, ResourceLoader resourceLoader) {
+        this.subsetByDefault = properties.isSubset();
+        byte[] customFont = properties.isUseCustomFont() ? readCustomFont(properties, resourceLoader) : null;
+        BaseFont subset = customFont != null ? createCustomFont(properties, resourceLoader, customFont, true) : null;
+        BaseFont full = subset != null ? createCustomFont(properties, resourceLoader, customFont, false) : null;
+        if (subset != null && full != null) {
+            // Una sola fuente TrueType: negrita y cursiva se simulan
+            putPalettes(subsetPalettes, subset, subset, subset);
+            putPalettes(fullPalettes, full, full, full);
+            logger.info("Fuente personalizada cargada desde {} (subconjunto por defecto: {})",
+                    properties.getCustomFont(), subsetByDefault);
+        } else {
+            // Helvetica no se incrusta: el subconjunto no cambia nada
+            putPalettes(subsetPalettes, createBuiltIn(BaseFont.HELVETICA), createBuiltIn(BaseFont.HELVETICA_BOLD),
+                    createBuiltIn(BaseFont.HELVETICA_OBLIQUE));
+            fullPalettes.putAll(subsetPalettes);
+        }
+    }
+
+    /**
+     * @param theme el tema del reporte
+     * @param outputProfile el perfil de salida, que decide si las fuentes incrustadas se reducen
+     *                      a los glifos utilizados
+     * @return la paleta de fuentes y colores del tema
+     */
+    public FontPalette palette(Theme theme, OutputProfile outputProfile) {
+        return (outputProfile.isSubsetFonts(subsetByDefault) ? subsetPalettes : fullPalettes).get(theme);
+    }
+
+    private static void putPalettes(Map<Theme, FontPalette> palettes, BaseFont regular, BaseFont bold, BaseFont italic) {
+        palettes.put(Theme.LIGHT, new FontPalette(LIGHT_THEME_COLOR, LIGHT_TEXT_COLOR, regular, bold, italic));
+        palettes.put(Theme.DARK, new FontPalette(DARK_THEME_COLOR, DARK_TEXT_COLOR, regular, bold, italic));
+    }
+
+    private BaseFont createBuiltIn(String name) {
+        try {
+            return BaseFont.createFont(name, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+        } catch (DocumentException | IOException e) {
+            throw new ReportGenerationException("No se pudo crear la fuente " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] readCustomFont(FontProperties properties, ResourceLoader resourceLoader) {
+        try (InputStream inputStream = resourceLoader.getResource(properties.getCustomFont()).getInputStream()) {
+            byte[] bytes = inputStream.readAllBytes();
+            if (bytes.length == 0) {
+                logger.warn("La fuente {} está vacía; se utilizará Helvetica", properties.getCustomFont());
+                return null;
+            }
+            return bytes;
+        } catch (IOException e) {
+            logger.warn("No se pudo cargar la fuente {}; se utilizará Helvetica: {}",
+                    properties.getCustomFont(), e.getMessage());
+            return null;
+        }
+    }
+
+    private BaseFont createCustomFont(FontProperties properties, ResourceLoader resourceLoader, byte[] bytes,
+                                      boolean subset) {
+        // El nombre solo identifica el tipo de fuente; los datos se leen del arreglo de bytes
+        String filename = resourceLoader.getResource(properties.getCustomFont()).getFilename();
+        String name = filename != null ? filename : "custom-font.ttf";
+        try {
+            // Sin la caché de iText: cada variante necesita su propia instancia
+            BaseFont font = BaseFont.createFont(name, BaseFont.IDENTITY_H, BaseFont.EMBEDDED,
+                    BaseFont.NOT_CACHED, bytes, null);
+            font.setSubset(subset);
+            return font;
+        } catch (DocumentException | IOException e) {
+            logger.warn("No se pudo cargar la fuente {}; se utilizará Helvetica: {}",
+                    properties.getCustomFont(), e.getMessage());
+            return null;
+        }
+    }
+}
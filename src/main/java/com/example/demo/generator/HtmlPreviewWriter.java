@@ -0,0 +1,127 @@
+package com.example.demo.generator;
+
+import com.lowagie.text.Element;
+import org.springframework.web.util.HtmlUtils;
+
+import java.awt.Color;
+import java.util.function.Function;
+
+/**
+ * Vista previa como fragmento HTML estático: un único {@code div} con estilos en línea y
+ * medidas en puntos, de modo que se puede insertar en cualquier página sin hojas de estilo
+ */
+final class HtmlPreviewWriter implements PreviewWriter {
+
+    private final StringBuilder html = new StringBuilder(2048);
+    private final FontPalette palette;
+    private final Function<String, PreviewLogo> logos;
+
+    /**
+     * @param palette las fuentes y colores del tema
+     * @param pageWidth el ancho de la página en puntos
+     * @param pageHeight el alto de la página en puntos
+     * @param logos el logo de cada marca
+     */
+    HtmlPreviewWriter(FontPalette palette, float pageWidth, float pageHeight, Function<String, PreviewLogo> logos) {
+        this.palette = palette;
+        this.logos = logos;
+        html.append("<div class=\"report-preview\" style=\"box-sizing:border-box;width:").append(number(pageWidth))
+                .append("pt;min-height:").append(number(pageHeight))
+                .append("pt;padding:").append(number(MARGIN))
+                .append("pt;background:").append(color(palette.getBackgroundColor()))
+                .append(";color:").append(color(palette.getTextColor()))
+                .append(";font-family:Helvetica,Arial,sans-serif;line-height:").append(number(LEADING_FACTOR))
+                .append("\">");
+    }
+
+    @Override
+    public void paragraph(String text, TemplateBlocks.FontRole font, TemplateBlocks.Style style) {
+        html.append("<p style=\"margin:").append(number(style.spacingBefore())).append("pt 0 ")
+                .append(number(style.spacingAfter())).append("pt;");
+        fontStyle(font);
+        if (style.alignment() != null) {
+            html.append("text-align:").append(alignment(style.alignment())).append(';');
+        }
+        html.append("\">").append(HtmlUtils.htmlEscape(text)).append("</p>");
+    }
+
+    @Override
+    public void table(String[][] cells, TemplateBlocks.FontRole font, TemplateBlocks.Style style) {
+        // Igual que PdfPTable: centrada y con columnas del mismo ancho
+        html.append("<table style=\"border-collapse:collapse;table-layout:fixed;width:")
+                .append(number(style.widthPercentage())).append("%;margin:")
+                .append(number(style.spacingBefore())).append("pt auto ")
+                .append(number(style.spacingAfter())).append("pt;");
+        fontStyle(font);
+        html.append("\">");
+        for (String[] row : cells) {
+            html.append("<tr>");
+            for (String cell : row) {
+                html.append("<td style=\"padding:").append(number(style.padding())).append("pt\">")
+                        .append(HtmlUtils.htmlEscape(cell)).append("</td>");
+            }
+            html.append("</tr>");
+        }
+        html.append("</table>");
+    }
+
+    @Override
+    public boolean logo(String brand) {
+        PreviewLogo logo = logos.apply(brand);
+        if (!logo.exists()) {
+            paragraph("Logo no encontrado para la marca: " + logo.brand(), TemplateBlocks.FontRole.CONTENT,
+                    TemplateBlocks.Style.DEFAULT);
+            return false;
+        }
+        html.append("<img alt=\"\" src=\"").append(logo.dataUri())
+                .append("\" style=\"display:block;margin:0 auto;width:").append(number(logo.width()))
+                .append("pt;height:").append(number(logo.height())).append("pt\">");
+        return true;
+    }
+
+    @Override
+    public void lineBreak() {
+        html.append("<div style=\"height:").append(number(DEFAULT_FONT_SIZE * LEADING_FACTOR)).append("pt\"></div>");
+    }
+
+    @Override
+    public void rule() {
+        float half = DEFAULT_FONT_SIZE * LEADING_FACTOR / 2;
+        html.append("<hr style=\"border:0;border-top:1pt solid;margin:").append(number(half))
+                .append("pt 0 ").append(number(half - 1)).append("pt\">");
+    }
+
+    /**
+     * @return el fragmento HTML completo
+     */
+    String finish() {
+        return html.append("</div>").toString();
+    }
+
+    private void fontStyle(TemplateBlocks.FontRole font) {
+        html.append("font-size:").append(number(font.of(palette).getSize())).append("pt;");
+        if ((font.previewStyle() & java.awt.Font.BOLD) != 0) {
+            html.append("font-weight:bold;");
+        }
+        if ((font.previewStyle() & java.awt.Font.ITALIC) != 0) {
+            html.append("font-style:italic;");
+        }
+    }
+
+    private static String alignment(int alignment) {
+        return switch (alignment) {
+            case Element.ALIGN_CENTER -> "center";
+            case Element.ALIGN_RIGHT -> "right";
+            case Element.ALIGN_JUSTIFIED -> "justify";
+            default -> "left";
+        };
+    }
+
+    private static String color(Color color) {
+        return String.format("#%02x%02x%02x", color.getRed(), color.getGreen(), color.getBlue());
+    }
+
+    private static String number(float value) {
+        return value == (int) value ? Integer.toString((int) value) : Float.toString(value);
+    }
+}
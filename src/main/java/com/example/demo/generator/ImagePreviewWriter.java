@@ -0,0 +1,166 @@
+package com.example.demo.generator;
+
+import com.lowagie.text.Element;
+
+import java.awt.BasicStroke;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Vista previa dibujada con Java2D sobre una miniatura de la página. El lienzo se escala
+ * para trabajar en puntos, de modo que las medidas son las mismas del PDF; el texto se
+ * reparte en líneas con una aproximación de la maquetación de iText.
+ */
+final class ImagePreviewWriter implements PreviewWriter {
+
+    private final Graphics2D graphics;
+    private final FontPalette palette;
+    private final Function<String, PreviewLogo> logos;
+    private final float pageWidth;
+    private final float pageHeight;
+    private final float contentWidth;
+    private final FontRenderContext fontContext;
+    private float y = MARGIN;
+
+    /**
+     * @param graphics el lienzo, ya escalado de puntos a píxeles
+     * @param palette las fuentes y colores del tema
+     * @param pageWidth el ancho de la página en puntos
+     * @param pageHeight el alto de la página en puntos
+     * @param logos el logo de cada marca, escalado a los píxeles de la miniatura
+     */
+    ImagePreviewWriter(Graphics2D graphics, FontPalette palette, float pageWidth, float pageHeight,
+                       Function<String, PreviewLogo> logos) {
+        this.graphics = graphics;
+        this.palette = palette;
+        this.logos = logos;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.contentWidth = pageWidth - 2 * MARGIN;
+        this.fontContext = graphics.getFontRenderContext();
+        graphics.setColor(palette.getBackgroundColor());
+        graphics.fill(new Rectangle2D.Float(0, 0, pageWidth, pageHeight));
+        graphics.setColor(palette.getTextColor());
+    }
+
+    @Override
+    public void paragraph(String text, TemplateBlocks.FontRole font, TemplateBlocks.Style style) {
+        Font awtFont = awtFont(font);
+        float leading = LEADING_FACTOR * awtFont.getSize2D();
+        y += style.spacingBefore();
+        for (String line : lines(text, awtFont, contentWidth)) {
+            y += leading;
+            drawLine(line, awtFont, MARGIN, contentWidth, style.alignmentOr(Element.ALIGN_LEFT));
+        }
+        y += style.spacingAfter();
+    }
+
+    @Override
+    public void table(String[][] cells, TemplateBlocks.FontRole font, TemplateBlocks.Style style) {
+        Font awtFont = awtFont(font);
+        float size = awtFont.getSize2D();
+        float leading = LEADING_FACTOR * size;
+        float width = contentWidth * style.widthPercentage() / 100;
+        float left = MARGIN + (contentWidth - width) / 2;
+        float padding = style.padding();
+        y += style.spacingBefore();
+        for (String[] row : cells) {
+            float columnWidth = width / row.length;
+            List<List<String>> columns = new ArrayList<>(row.length);
+            int lineCount = 1;
+            for (String cell : row) {
+                List<String> lines = lines(cell, awtFont, columnWidth - 2 * padding);
+                columns.add(lines);
+                lineCount = Math.max(lineCount, lines.size());
+            }
+            float top = y;
+            for (int column = 0; column < columns.size(); column++) {
+                List<String> lines = columns.get(column);
+                for (int i = 0; i < lines.size(); i++) {
+                    y = top + padding + size + i * leading;
+                    drawLine(lines.get(i), awtFont, left + column * columnWidth + padding,
+                            columnWidth - 2 * padding, Element.ALIGN_LEFT);
+                }
+            }
+            y = top + 2 * padding + size + (lineCount - 1) * leading + size / 4;
+        }
+        y += style.spacingAfter();
+    }
+
+    @Override
+    public boolean logo(String brand) {
+        PreviewLogo logo = logos.apply(brand);
+        if (!logo.exists()) {
+            paragraph("Logo no encontrado para la marca: " + logo.brand(), TemplateBlocks.FontRole.CONTENT,
+                    TemplateBlocks.Style.DEFAULT);
+            return false;
+        }
+        float x = MARGIN + (contentWidth - logo.width()) / 2;
+        // La imagen ya tiene los píxeles en que se dibuja: la transformación solo deshace la escala del lienzo
+        graphics.drawImage(logo.image(), new AffineTransform(logo.width() / logo.image().getWidth(), 0, 0,
+                logo.height() / logo.image().getHeight(), x, y), null);
+        y += logo.height();
+        return true;
+    }
+
+    @Override
+    public void lineBreak() {
+        y += DEFAULT_FONT_SIZE * LEADING_FACTOR;
+    }
+
+    @Override
+    public void rule() {
+        float leading = DEFAULT_FONT_SIZE * LEADING_FACTOR;
+        y += leading;
+        graphics.setStroke(new BasicStroke(1));
+        graphics.draw(new Line2D.Float(MARGIN, y - leading / 3, pageWidth - MARGIN, y - leading / 3));
+    }
+
+    private void drawLine(String line, Font font, float left, float width, int alignment) {
+        if (y > pageHeight) {
+            // Solo se dibuja la primera página
+            return;
+        }
+        float x = left;
+        if (alignment == Element.ALIGN_CENTER || alignment == Element.ALIGN_RIGHT) {
+            float lineWidth = (float) font.getStringBounds(line, fontContext).getWidth();
+            x += alignment == Element.ALIGN_CENTER ? (width - lineWidth) / 2 : width - lineWidth;
+        }
+        graphics.setFont(font);
+        graphics.drawString(line, x, y);
+    }
+
+    /**
+     * Reparte el texto en líneas que caben en el ancho, cortando entre palabras
+     */
+    private List<String> lines(String text, Font font, float width) {
+        List<String> lines = new ArrayList<>(1);
+        for (String paragraph : text.split("\n", -1)) {
+            StringBuilder line = new StringBuilder();
+            for (String word : paragraph.split(" ")) {
+                String candidate = line.isEmpty() ? word : line + " " + word;
+                if (!line.isEmpty() && font.getStringBounds(candidate, fontContext).getWidth() > width) {
+                    lines.add(line.toString());
+                    line.setLength(0);
+                    line.append(word);
+                } else {
+                    line.setLength(0);
+                    line.append(candidate);
+                }
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    private Font awtFont(TemplateBlocks.FontRole font) {
+        return new Font(Font.SANS_SERIF, font.previewStyle(), 1).deriveFont(font.of(palette).getSize());
+    }
+}
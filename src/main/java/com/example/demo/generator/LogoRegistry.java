@@ -0,0 +1,279 @@
+package com.example.demo.generator;
+
+import com.example.demo.cache.CacheStats;
+import com.example.demo.cache.WeightedLruCache;
+import com.example.demo.config.LogoProperties;
+import com.example.demo.config.OutputProfile;
+import com.lowagie.text.BadElementException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Image;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Registro de logos por marca. Cada logo se lee y decodifica una sola vez, se reduce a la
+ * resolución con que se imprime en el reporte y se conserva en una caché LRU acotada por la
+ * memoria que retiene, de modo que varias marcas pueden compartir la misma instancia. Los
+ * perfiles de salida que lo piden reciben una versión recomprimida del logo, con la resolución
+ * con que se muestra en pantalla, que se guarda en la caché por separado. Un logo configurado
+ * que no se puede leer también queda en la caché, como ausente, para no volver a intentarlo
+ * en cada reporte.
+ */
+@Component
+public class LogoRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogoRegistry.class);
+    static final float LOGO_MAX_SIZE = 150;
+
+    /**
+     * Entrada de la caché para un logo configurado que no se pudo cargar
+     */
+    private static final LogoAsset MISSING = new LogoAsset(null, null, null, 1);
+
+    private final LogoProperties properties;
+    private final ResourceLoader resourceLoader;
+    private final WeightedLruCache<LogoKey, LogoAsset> cache;
+
+    public LogoRegistry(LogoProperties properties, ResourceLoader resourceLoader) {
+        this.properties = properties;
+        this.resourceLoader = resourceLoader;
+        this.cache = new WeightedLruCache<>(properties.getMaxWeightBytes(), LogoAsset::getWeight);
+    }
+
+    /**
+     * Carga los logos configurados al iniciar la aplicación si la precarga está habilitada
+     */
+    @PostConstruct
+    void preload() {
+        if (!properties.isPreload()) {
+            return;
+        }
+        for (String brand : properties.getLocations().keySet()) {
+            cache.computeIfAbsent(new LogoKey(brand, false), this::load);
+        }
+        logger.info("Logos precargados: {}", cache.stats().getSize());
+    }
+
+    /**
+     * Obtiene el logo de una marca, ya escalado y alineado para el reporte.
+     * Cada llamada devuelve una copia ligera que comparte los datos de la imagen.
+     *
+     * @param brand la marca solicitada; si es null se usa la marca por defecto
+     * @return el logo de la marca o null si no está configurado o no se pudo cargar
+     */
+    public Image getLogo(String brand) {
+        return getLogo(brand, OutputProfile.BALANCED);
+    }
+
+    /**
+     * Obtiene el logo de una marca preparado para el perfil de salida del reporte
+     *
+     * @param brand la marca solicitada; si es null se usa la marca por defecto
+     * @param outputProfile el perfil de salida, que decide si el logo se recomprime
+     * @return el logo de la marca o null si no está configurado o no se pudo cargar
+     */
+    public Image getLogo(String brand, OutputProfile outputProfile) {
+        LogoAsset asset = asset(brand, outputProfile);
+        return asset == null ? null : Image.getInstance(asset.getImage());
+    }
+
+    /**
+     * Obtiene los bytes codificados del logo de una marca, tal como se incrustan en el reporte
+     * con el perfil de salida indicado; las vistas previas los usan sin pasar por iText
+     *
+     * @param brand la marca solicitada; si es null se usa la marca por defecto
+     * @param outputProfile el perfil de salida, que decide si el logo se recomprime
+     * @return una copia de los bytes del logo o null si no está configurado o no se pudo cargar
+     */
+    public byte[] getLogoData(String brand, OutputProfile outputProfile) {
+        LogoAsset asset = asset(brand, outputProfile);
+        return asset == null ? null : asset.getData().clone();
+    }
+
+    /**
+     * Obtiene el resumen SHA-256 del archivo del logo de una marca tal como está cargado. Forma
+     * parte de la huella de los reportes con logo: si el archivo se sustituye, los reportes que
+     * se generen con el nuevo logo tienen otra huella y otro ETag.
+     *
+     * @param brand la marca solicitada; si es null se usa la marca por defecto
+     * @param outputProfile el perfil de salida, que decide si el logo se recomprime
+     * @return el resumen en hexadecimal o null si el logo no está configurado o no se pudo cargar
+     */
+    public String contentHash(String brand, OutputProfile outputProfile) {
+        LogoAsset asset = asset(brand, outputProfile);
+        return asset == null ? null : asset.getContentHash();
+    }
+
+    /**
+     * @param brand la marca solicitada
+     * @return la marca efectiva, aplicando la marca por defecto si es necesario
+     */
+    public String resolveBrand(String brand) {
+        return brand == null || brand.isBlank() ? properties.getDefaultBrand() : brand;
+    }
+
+    /**
+     * @return las estadísticas de la caché de logos
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return el logo de la marca, o null si no está configurado o no se pudo cargar
+     */
+    private LogoAsset asset(String brand, OutputProfile outputProfile) {
+        String resolved = resolveBrand(brand);
+        if (!properties.getLocations().containsKey(resolved)) {
+            return null;
+        }
+        LogoAsset asset = cache.computeIfAbsent(new LogoKey(resolved, outputProfile.isRecompressLogo()), this::load);
+        return asset == MISSING ? null : asset;
+    }
+
+    private LogoAsset load(LogoKey key) {
+        String brand = key.brand();
+        String location = properties.getLocations().get(brand);
+        if (location == null) {
+            return null;
+        }
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream inputStream = resource.getInputStream()) {
+            byte[] bytes = inputStream.readAllBytes();
+            String contentHash = sha256(bytes);
+            bytes = prepare(brand, bytes, key.recompressed());
+            Image image = Image.getInstance(bytes);
+            image.scaleToFit(LOGO_MAX_SIZE, LOGO_MAX_SIZE);
+            image.setAlignment(Element.ALIGN_CENTER);
+            logger.debug("Logo cargado para la marca {} desde {}", brand, location);
+            return new LogoAsset(image, bytes, contentHash, retainedBytes(image, bytes));
+        } catch (IOException | BadElementException e) {
+            logger.warn("No se pudo cargar el logo de la marca {} desde {}: {}", brand, location, e.getMessage());
+            return MISSING;
+        }
+    }
+
+    /**
+     * Memoria que retiene el logo: los bytes codificados, que iText conserva como datos
+     * originales (y en los JPEG también como datos de la imagen, sin decodificar), más los
+     * datos propios de la imagen de iText y de su máscara de transparencia, si los tiene
+     */
+    private static long retainedBytes(Image image, byte[] bytes) {
+        long retained = bytes.length;
+        for (Image part = image; part != null; part = part.getImageMask()) {
+            byte[] rawData = part.getRawData();
+            if (rawData != null && rawData != bytes) {
+                retained += rawData.length;
+            }
+        }
+        return retained;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible", e);
+        }
+    }
+
+    /**
+     * Reduce el logo a la resolución máxima que corresponde a su uso y lo vuelve a codificar:
+     * como PNG si tiene transparencia y como JPEG en otro caso. La versión recomprimida se
+     * codifica siempre en JPEG con la calidad configurada, salvo que tenga transparencia o que
+     * no ocupe menos. Los logos que no superan la resolución ni se recomprimen se dejan como están.
+     */
+    private byte[] prepare(String brand, byte[] bytes, boolean recompressed) throws IOException {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (source == null) {
+            return bytes;
+        }
+        int maxPixels = recompressed ? properties.getRecompressedMaxPixels() : properties.getMaxPixels();
+        boolean alpha = source.getColorModel().hasAlpha();
+        boolean oversized = Math.max(source.getWidth(), source.getHeight()) > maxPixels;
+        if (!oversized && (!recompressed || alpha)) {
+            return bytes;
+        }
+        float scale = Math.min(1f, maxPixels / (float) Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, Math.round(source.getWidth() * scale));
+        int height = Math.max(1, Math.round(source.getHeight() * scale));
+        BufferedImage target = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length);
+        if (alpha) {
+            ImageIO.write(target, "png", outputStream);
+        } else {
+            writeJpeg(target, recompressed ? properties.getRecompressedQuality() : properties.getScaledQuality(),
+                    outputStream);
+        }
+        if (!oversized && outputStream.size() >= bytes.length) {
+            return bytes;
+        }
+        logger.debug("Logo de la marca {} reducido: {}x{} ({} bytes) -> {}x{} ({} bytes)", brand,
+                source.getWidth(), source.getHeight(), bytes.length, width, height, outputStream.size());
+        return outputStream.toByteArray();
+    }
+
+    private static void writeJpeg(BufferedImage image, float quality, ByteArrayOutputStream outputStream)
+            throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream imageStream = ImageIO.createImageOutputStream(outputStream)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(imageStream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Clave de la caché: la marca y si el logo está recomprimido
+     */
+    private record LogoKey(String brand, boolean recompressed) {
+    }
+
+    /**
+     * Logo ya reducido junto con sus bytes codificados y el resumen del archivo de origen. Su
+     * peso en la caché es la memoria que retiene la entrada.
+     */
+    @Getter
+    @AllArgsConstructor
+    static class LogoAsset {
+        private final Image image;
+        private final byte[] data;
+        private final String contentHash;
+        private final long weight;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.demo.generator;
+
+import com.example.demo.config.OutputProfile;
+import com.lowagie.text.Chunk;
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.Image;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.ColumnText;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.draw.DrawInterface;
+import com.lowagie.text.pdf.draw.LineSeparator;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Página de reporte precalculada: contiene lo que no cambia entre reportes de una misma forma
+ * de configuración (fondo, logo, encabezados, etiquetas y líneas) y la posición de cada campo
+ * variable, incluidos el título y el pie.
+ * Es inmutable y se comparte entre renderizados concurrentes.
+ */
+class PageSkeleton {
+
+    /**
+     * Marcador para las configuraciones que no caben en una sola página
+     */
+    static final PageSkeleton UNSUPPORTED = new PageSkeleton(new byte[0], Collections.emptyMap());
+
+    private final byte[] pdf;
+    private final Map<ReportField, FieldPosition> positions;
+
+    private PageSkeleton(byte[] pdf, Map<ReportField, FieldPosition> positions) {
+        this.pdf = pdf;
+        this.positions = positions;
+    }
+
+    /**
+     * @return true si el esqueleto puede utilizarse para estampar reportes
+     */
+    boolean isUsable() {
+        return this != UNSUPPORTED;
+    }
+
+    /**
+     * @return el peso aproximado en bytes del esqueleto, para la caché
+     */
+    long getWeight() {
+        return pdf.length + 64L * positions.size();
+    }
+
+    /**
+     * Comprueba que cada valor cabe en una sola línea en su posición. Si un valor
+     * necesitara varias líneas el reporte debe maquetarse completo.
+     *
+     * @param values los valores de los campos variables
+     * @return true si todos los valores caben en su posición
+     */
+    boolean fits(Map<ReportField, String> values) {
+        for (Map.Entry<ReportField, FieldPosition> entry : positions.entrySet()) {
+            String value = values.get(entry.getKey());
+            if (value == null) {
+                continue;
+            }
+            if (!entry.getValue().fits(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Escribe un reporte completo estampando los valores sobre el esqueleto
+     *
+     * @param values los valores de los campos variables
+     * @param documentDate la fecha que se escribe en los metadatos del PDF
+     * @param outputProfile el perfil de salida, que fija la compresión del documento
+     * @param outputStream el destino del PDF; no se cierra al terminar
+     * @throws DocumentException si ocurre un error al componer el documento
+     * @throws IOException si no se puede leer el esqueleto
+     */
+    void stamp(Map<ReportField, String> values, DocumentDate documentDate, OutputProfile outputProfile,
+               OutputStream outputStream) throws DocumentException, IOException {
+        PdfReader reader = new PdfReader(pdf);
+        Document document = new Document(reader.getPageSizeWithRotation(1));
+        PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+        writer.setCloseStream(false);
+        PaymentReportGenerator.applyOutputProfile(writer, outputProfile);
+        document.open();
+
+        PdfContentByte canvas = writer.getDirectContent();
+        canvas.addTemplate(writer.getImportedPage(reader, 1), 0, 0);
+        for (Map.Entry<ReportField, FieldPosition> entry : positions.entrySet()) {
+            FieldPosition position = entry.getValue();
+            float x = switch (position.getAlignment()) {
+                case Element.ALIGN_RIGHT -> position.getRight();
+                case Element.ALIGN_CENTER -> (position.getLeft() + position.getRight()) / 2;
+                default -> position.getLeft();
+            };
+            ColumnText.showTextAligned(canvas, position.getAlignment(),
+                    new Phrase(values.get(entry.getKey()), position.getFont()), x, position.getBaseline(), 0);
+        }
+
+        documentDate.apply(writer);
+        document.close();
+        reader.close();
+    }
+
+    /**
+     * Registra las posiciones de los campos variables mientras se maqueta el esqueleto. El
+     * texto fijo, las líneas y el logo se maquetan tal cual; {@link DirectLayout.Recorder}
+     * los intercepta para registrar también sus posiciones.
+     */
+    static class Recorder {
+
+        private final Map<ReportField, FieldPosition> positions = new EnumMap<>(ReportField.class);
+
+        /**
+         * Crea un marcador invisible que ocupa el lugar de un campo variable.
+         * Al ser un separador vertical no tiene ancho ni dibuja nada; solo recibe
+         * el inicio, el final y la línea base de la línea donde se ubica. Lleva la
+         * fuente del valor para que la línea tenga la misma altura que con el valor.
+         *
+         * @param field el campo que ocupa la posición
+         * @param font la fuente con la que se estampará el valor
+         * @param alignment la alineación del valor dentro de la línea
+         * @return el marcador a insertar en lugar del valor
+         */
+        Chunk marker(ReportField field, Font font, int alignment) {
+            DrawInterface recorder = (canvas, llx, lly, urx, ury, y) ->
+                    positions.put(field, new FieldPosition(llx, urx, y, font, alignment));
+            Chunk marker = new Chunk(recorder, true);
+            marker.setFont(font);
+            return marker;
+        }
+
+        /**
+         * @return el texto fijo que se agrega al documento
+         */
+        Phrase text(String text, Font font) {
+            return new Phrase(text, font);
+        }
+
+        /**
+         * @return la línea de separación que se agrega al documento
+         */
+        Element rule(LineSeparator separator) {
+            return separator;
+        }
+
+        /**
+         * @return el logo que se agrega al documento
+         */
+        Image logo(Image logo) {
+            return logo;
+        }
+
+        /**
+         * Se invoca con el escritor del documento antes de abrirlo
+         */
+        void attach(PdfWriter writer) {
+        }
+
+        Map<ReportField, FieldPosition> positions() {
+            return Collections.unmodifiableMap(new EnumMap<>(positions));
+        }
+
+        /**
+         * @param pdf el esqueleto maquetado
+         * @return el esqueleto, o {@link #UNSUPPORTED} si no ocupa exactamente una página
+         * @throws IOException si no se puede leer el esqueleto generado
+         */
+        PageSkeleton build(byte[] pdf) throws IOException {
+            PdfReader reader = new PdfReader(pdf);
+            int pages = reader.getNumberOfPages();
+            reader.close();
+            if (pages != 1) {
+                return UNSUPPORTED;
+            }
+            return new PageSkeleton(pdf, positions());
+        }
+    }
+
+    /**
+     * Posición de un campo variable dentro de la página
+     */
+    @Getter
+    @AllArgsConstructor
+    static class FieldPosition {
+        private final float left;
+        private final float right;
+        private final float baseline;
+        private final Font font;
+        private final int alignment;
+
+        float width(String value) {
+            BaseFont baseFont = font.getCalculatedBaseFont(false);
+            return baseFont.getWidthPoint(value, font.getCalculatedSize());
+        }
+
+        /**
+         * @return true si el valor cabe en una sola línea en la posición
+         */
+        boolean fits(String value) {
+            return value.indexOf('\n') < 0 && width(value) <= right - left;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.generator;
+
+import com.example.demo.cache.CacheStats;
+import com.example.demo.cache.WeightedLruCache;
+import com.example.demo.config.Format;
+import com.example.demo.config.OutputProfile;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.Theme;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Caché de esqueletos de página y de maquetaciones directas por forma de configuración (tema,
+ * formato, perfil de salida, secciones incluidas y logo). Los textos libres de la configuración
+ * se estampan como campos variables, así que no multiplican las entradas: como la mayor parte
+ * del tráfico usa pocas formas distintas, cada página se maqueta una sola vez.
+ */
+@Component
+public class PageSkeletonCache {
+
+    private final WeightedLruCache<SkeletonKey, PageSkeleton> cache;
+    private final WeightedLruCache<SkeletonKey, DirectLayout> directLayouts;
+
+    /**
+     * @param maxWeightBytes peso máximo en bytes de los esqueletos, y por separado de las
+     *                       maquetaciones directas, retenidos
+     */
+    public PageSkeletonCache(@Value("${report.skeleton.max-weight-bytes:16777216}") long maxWeightBytes) {
+        this.cache = new WeightedLruCache<>(maxWeightBytes, PageSkeleton::getWeight);
+        this.directLayouts = new WeightedLruCache<>(maxWeightBytes, DirectLayout::getWeight);
+    }
+
+    /**
+     * Obtiene el esqueleto de una configuración, maquetándolo si aún no existe
+     *
+     * @param plan el plan de renderizado de la configuración
+     * @param config la configuración del reporte
+     * @param builder función que maqueta el esqueleto
+     * @return el esqueleto de la configuración
+     */
+    PageSkeleton get(RenderPlan plan, PaymentReportConfig config, Function<PaymentReportConfig, PageSkeleton> builder) {
+        return cache.computeIfAbsent(key(plan, config), key -> builder.apply(config));
+    }
+
+    /**
+     * Obtiene la maquetación directa de una configuración, maquetándola si aún no existe
+     *
+     * @param plan el plan de renderizado de la configuración
+     * @param config la configuración del reporte
+     * @param builder función que maqueta la configuración y registra sus coordenadas
+     * @return la maquetación directa de la configuración
+     */
+    DirectLayout getDirect(RenderPlan plan, PaymentReportConfig config, Function<PaymentReportConfig, DirectLayout> builder) {
+        return directLayouts.computeIfAbsent(key(plan, config), key -> builder.apply(config));
+    }
+
+    private static SkeletonKey key(RenderPlan plan, PaymentReportConfig config) {
+        return new SkeletonKey(plan, config.isIncludeLogo() ? config.getBrand() : null, config.getTheme(),
+                config.getFormat(), config.getOutputProfile());
+    }
+
+    /**
+     * Descarta todos los esqueletos y maquetaciones directas, por ejemplo porque sus planes
+     * pertenecen a una versión anterior de la plantilla
+     */
+    void clear() {
+        cache.clear();
+        directLayouts.clear();
+    }
+
+    /**
+     * @return las estadísticas de la caché de esqueletos
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Clave con lo que determina la parte fija de la página: el plan de renderizado, que ya
+     * refleja las secciones incluidas, la marca cuyo logo se dibuja, el tema, el formato del
+     * papel y el perfil de salida, del que dependen el logo y las fuentes incrustadas.
+     * El plan se compara por identidad; al recargar una plantilla el motor vacía la caché.
+     */
+    record SkeletonKey(RenderPlan plan, String brand, Theme theme, Format format, OutputProfile outputProfile) {
+    }
+}
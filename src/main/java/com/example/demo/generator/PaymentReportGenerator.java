@@ -1,24 +1,29 @@
 package com.example.demo.generator;
 
 import com.example.demo.config.Format;
+import com.example.demo.config.OutputProfile;
 import com.example.demo.config.PaymentReportConfig;
-import com.example.demo.config.Theme;
+import com.example.demo.config.RenderMode;
 import com.example.demo.model.PaymentData;
 import com.example.demo.exception.ReportGenerationException;
+import com.example.demo.io.CountingOutputStream;
+import com.example.demo.metrics.RenderStage;
+import com.example.demo.metrics.ReportRenderEvent;
+import com.example.demo.metrics.ReportMetrics;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
-import com.lowagie.text.pdf.draw.LineSeparator;
 
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
 
-import java.awt.Color;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Clase encargada de generar los reportes PDF según la configuración
@@ -27,11 +32,34 @@ import java.util.Locale;
 @Component
 public class PaymentReportGenerator {
 
-    private static final String COMPANY_LOGO_PATH = "/workspaces/notification-pattern/src/main/utils/test-image.jpg";
-    private static final Color LIGHT_THEME_COLOR = new Color(255, 255, 255);
-    private static final Color DARK_THEME_COLOR = new Color(50, 50, 50);
-    private static final Color LIGHT_TEXT_COLOR = new Color(0, 0, 0);
-    private static final Color DARK_TEXT_COLOR = new Color(255, 255, 255);
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    
+    private final LogoRegistry logoRegistry;
+    private final PageSkeletonCache skeletonCache;
+    private final FontRegistry fontRegistry;
+    private final ReportMetrics metrics;
+    private final ReportTemplateEngine templateEngine;
+    
+    /**
+     * Constructor con inyección de dependencias
+     * 
+     * @param logoRegistry El registro de logos por marca
+     * @param skeletonCache La caché de esqueletos de página
+     * @param fontRegistry El registro compartido de fuentes
+     * @param metrics Las métricas de generación de reportes
+     * @param templateEngine El motor de plantillas que define las secciones de cada reporte
+     */
+    public PaymentReportGenerator(LogoRegistry logoRegistry, PageSkeletonCache skeletonCache,
+                                  FontRegistry fontRegistry, ReportMetrics metrics,
+                                  ReportTemplateEngine templateEngine) {
+        this.logoRegistry = logoRegistry;
+        this.skeletonCache = skeletonCache;
+        this.fontRegistry = fontRegistry;
+        this.metrics = metrics;
+        this.templateEngine = templateEngine;
+        // Los esqueletos se asocian a los planes: al recargar una plantilla dejan de alcanzarse
+        templateEngine.addReloadListener(skeletonCache::clear);
+    }
     
     /**
      * Genera un PDF según la configuración y los datos de pago proporcionados
@@ -42,172 +70,194 @@ public class PaymentReportGenerator {
      */
     public ByteArrayOutputStream generatePDF(PaymentReportConfig config, PaymentData paymentData) {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        
+        generatePDF(config, paymentData, outputStream);
+        return outputStream;
+    }
+    
+    /**
+     * Genera un PDF escribiéndolo directamente en el flujo indicado, sin almacenarlo
+     * completo en memoria. El flujo no se cierra al terminar.
+     * 
+     * @param config La configuración del reporte
+     * @param paymentData Los datos del pago
+     * @param outputStream El flujo donde se escribe el PDF
+     */
+    public void generatePDF(PaymentReportConfig config, PaymentData paymentData, OutputStream outputStream) {
+        render(config, fieldValues(config, paymentData, LocalDateTime.now()), DocumentDate.CURRENT, outputStream);
+    }
+    
+    /**
+     * Genera un PDF reproducible: la misma configuración, los mismos datos y la misma fecha
+     * producen el mismo contenido. La fecha del timestamp y de los metadatos es la indicada;
+     * si no se indica, el reporte no puede incluir timestamp y los metadatos no llevan fecha.
+     * 
+     * @param config La configuración del reporte
+     * @param paymentData Los datos del pago
+     * @param generatedAt La fecha que se muestra como fecha de generación, o null
+     * @param outputStream El flujo donde se escribe el PDF; no se cierra al terminar
+     */
+    public void generatePDF(PaymentReportConfig config, PaymentData paymentData, LocalDateTime generatedAt,
+                            OutputStream outputStream) {
+        if (generatedAt == null && config.isIncludeTimestamp()) {
+            throw new IllegalArgumentException("Un reporte reproducible con timestamp necesita una fecha de generación");
+        }
+        DocumentDate documentDate = generatedAt != null ? DocumentDate.pinned(generatedAt) : DocumentDate.NONE;
+        render(config, fieldValues(config, paymentData, generatedAt), documentDate, outputStream);
+    }
+    
+    private void render(PaymentReportConfig config, Map<ReportField, String> values, DocumentDate documentDate,
+                        OutputStream outputStream) {
+        CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+        ReportRenderEvent event = metrics.renderStarted(config, values.get(ReportField.TRANSACTION_ID),
+                countingStream::getCount);
+        RenderMode path;
         try {
-            // Configurar el documento según el formato especificado
-            Rectangle pageSize = getPageSize(config.getFormat());
-            Document document = new Document(pageSize, 50, 50, 50, 50);
-            PdfWriter writer = PdfWriter.getInstance(document, outputStream);
-            
-            document.open();
-            
-            // Aplicar tema (colores de fondo y texto)
-            applyTheme(document, writer, config.getTheme());
-            
-            // Agregar logo si está habilitado
-            if (config.isIncludeLogo()) {
-                addLogo(document);
-            }
-            
-            // Agregar título
-            addTitle(document, config.getTitle(), config.getTheme());
-            
-            // Agregar información de pago
-            if (config.isIncludePaymentDetails()) {
-                addPaymentDetails(document, paymentData, config.getTheme());
-            }
-            
-            // Agregar información del usuario
-            if (config.isIncludeUserInfo()) {
-                addUserInfo(document, paymentData, config.getTheme());
-            }
+            path = renderTo(config, values, documentDate, countingStream);
+        } catch (RuntimeException e) {
+            metrics.renderFailed(event, e);
+            throw e;
+        }
+        metrics.renderCompleted(event, path, countingStream.getCount());
+    }
+    
+    /**
+     * @return el camino con el que se generó el PDF: el modo pedido o, si los valores no caben
+     *         en las posiciones precalculadas, la maquetación completa
+     */
+    private RenderMode renderTo(PaymentReportConfig config, Map<ReportField, String> values, DocumentDate documentDate,
+                                OutputStream outputStream) {
+        try {
+            RenderPlan plan = templateEngine.plan(config);
             
-            // Agregar timestamp si está habilitado
-            if (config.isIncludeTimestamp()) {
-                addTimestamp(document, config.getTheme());
+            // Estampar sobre el esqueleto precalculado si todos los valores caben en su lugar
+            if (config.getRenderMode() == RenderMode.SKELETON) {
+                PageSkeleton skeleton = skeletonCache.get(plan, config, skeletonConfig -> buildSkeleton(skeletonConfig, plan));
+                if (skeleton.isUsable() && skeleton.fits(values)) {
+                    ReportMetrics.Stage stage = metrics.startStage(RenderStage.SKELETON_STAMP);
+                    try {
+                        skeleton.stamp(values, documentDate, config.getOutputProfile(), outputStream);
+                    } finally {
+                        stage.end();
+                    }
+                    return RenderMode.SKELETON;
+                }
             }
             
-            // Agregar mensaje de pie de página si existe
-            if (config.getFooterMessage() != null && !config.getFooterMessage().isEmpty()) {
-                addFooterMessage(document, config.getFooterMessage(), config.getTheme());
+            // Escribir directamente en las coordenadas precalculadas si todos los valores caben en su lugar
+            if (config.getRenderMode() == RenderMode.DIRECT) {
+                DirectLayout layout = skeletonCache.getDirect(plan, config, layoutConfig -> buildDirectLayout(layoutConfig, plan));
+                if (layout.isUsable() && layout.fits(values)) {
+                    ReportMetrics.Stage stage = metrics.startStage(RenderStage.DIRECT_WRITE);
+                    try {
+                        layout.write(values, documentDate, config.getOutputProfile(), outputStream);
+                    } finally {
+                        stage.end();
+                    }
+                    return RenderMode.DIRECT;
+                }
             }
             
-            document.close();
-            return outputStream;
+            renderFlow(config, plan, values, documentDate, null, outputStream);
+            return RenderMode.FLOW;
             
         } catch (DocumentException | IOException e) {
             throw new ReportGenerationException("Error al generar el PDF: " + e.getMessage(), e);
         }
     }
     
-    private Rectangle getPageSize(Format format) {
-        return format == Format.A4 ? PageSize.A4 : PageSize.LETTER;
-    }
-    
-    private void applyTheme(Document document, PdfWriter writer, Theme theme) {
-        // Aplicar color de fondo según el tema
-        PdfContentByte canvas = writer.getDirectContentUnder();
-        canvas.saveState();
-        canvas.setColorFill(theme == Theme.LIGHT ? LIGHT_THEME_COLOR : DARK_THEME_COLOR);
-        canvas.rectangle(0, 0, document.getPageSize().getWidth(), document.getPageSize().getHeight());
-        canvas.fill();
-        canvas.restoreState();
+    /**
+     * Maqueta el documento completo ejecutando el plan de su plantilla. Si se recibe un
+     * registrador, los campos variables se sustituyen por marcadores invisibles y se
+     * registran sus posiciones, junto con las de los elementos que el registrador intercepte.
+     */
+    private void renderFlow(PaymentReportConfig config, RenderPlan plan, Map<ReportField, String> values,
+                            DocumentDate documentDate, PageSkeleton.Recorder recorder,
+                            OutputStream outputStream) throws DocumentException {
+        // Configurar el documento según el formato especificado
+        Rectangle pageSize = getPageSize(config.getFormat());
+        Document document = new Document(pageSize, 50, 50, 50, 50);
+        PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+        writer.setCloseStream(false);
+        applyOutputProfile(writer, config.getOutputProfile());
+        FontPalette palette = fontRegistry.palette(config.getTheme(), config.getOutputProfile());
+        if (recorder != null) {
+            recorder.attach(writer);
+        }
+        
+        document.open();
+        
+        // Aplicar tema (colores de fondo y texto)
+        metrics.recordStage(RenderStage.APPLY_THEME, () -> applyTheme(document, writer, palette));
+        
+        // Agregar las secciones de la plantilla que aplican a la configuración
+        plan.render(new RenderContext(document, palette, values, recorder, logoRegistry, config.getBrand(),
+                config.getOutputProfile()), metrics);
+        
+        documentDate.apply(writer);
+        metrics.recordStage(RenderStage.DOCUMENT_CLOSE, document::close);
     }
     
-    private void addLogo(Document document) throws DocumentException, IOException {
+    private PageSkeleton buildSkeleton(PaymentReportConfig config, RenderPlan plan) {
         try {
-            // Usar FileSystemResource en lugar de ClassPathResource para acceder al logo
-            File logoFile = new File(COMPANY_LOGO_PATH);
-            if (!logoFile.exists()) {
-                document.add(new Paragraph("Logo no encontrado en: " + COMPANY_LOGO_PATH));
-                return;
-            }
-            
-            Image logo = Image.getInstance(logoFile.getAbsolutePath());
-            logo.scaleToFit(150, 150);
-            logo.setAlignment(Element.ALIGN_CENTER);
-            document.add(logo);
-            document.add(Chunk.NEWLINE);
-        } catch (IOException e) {
-            // Si no se puede cargar el logo, agregar un mensaje explicativo
-            document.add(new Paragraph("No se pudo cargar el logo: " + e.getMessage()));
+            PageSkeleton.Recorder recorder = new PageSkeleton.Recorder();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            renderFlow(config, plan, Collections.emptyMap(), DocumentDate.CURRENT, recorder, outputStream);
+            return recorder.build(outputStream.toByteArray());
+        } catch (DocumentException | IOException e) {
+            throw new ReportGenerationException("Error al precalcular el esqueleto del reporte: " + e.getMessage(), e);
         }
     }
     
-    private void addTitle(Document document, String title, Theme theme) throws DocumentException {
-        Font titleFont = new Font(Font.HELVETICA, 18, Font.BOLD, 
-                theme == Theme.LIGHT ? LIGHT_TEXT_COLOR : DARK_TEXT_COLOR);
-        Paragraph titleParagraph = new Paragraph(title, titleFont);
-        titleParagraph.setAlignment(Element.ALIGN_CENTER);
-        titleParagraph.setSpacingAfter(20);
-        document.add(titleParagraph);
-    }
-    
-    private void addPaymentDetails(Document document, PaymentData paymentData, Theme theme) throws DocumentException {
-        Font headerFont = new Font(Font.HELVETICA, 14, Font.BOLD, 
-                theme == Theme.LIGHT ? LIGHT_TEXT_COLOR : DARK_TEXT_COLOR);
-        Font contentFont = new Font(Font.HELVETICA, 12, Font.NORMAL, 
-                theme == Theme.LIGHT ? LIGHT_TEXT_COLOR : DARK_TEXT_COLOR);
-        
-        Paragraph header = new Paragraph("Detalles del Pago", headerFont);
-        header.setSpacingBefore(15);
-        header.setSpacingAfter(10);
-        document.add(header);
-        
-        PdfPTable table = new PdfPTable(2);
-        table.setWidthPercentage(90);
-        table.setSpacingBefore(10);
-        table.setSpacingAfter(10);
-        
-        // Añadir filas a la tabla
-        addTableRow(table, "ID de Transacción:", paymentData.getTransactionId(), contentFont);
-        addTableRow(table, "Monto:", String.format(Locale.US, "%.2f", paymentData.getAmount()), contentFont);
-        addTableRow(table, "Método de Pago:", paymentData.getPaymentMethod(), contentFont);
-        
-        document.add(table);
+    private DirectLayout buildDirectLayout(PaymentReportConfig config, RenderPlan plan) {
+        try {
+            DirectLayout.Recorder recorder = new DirectLayout.Recorder();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            renderFlow(config, plan, Collections.emptyMap(), DocumentDate.CURRENT, recorder, outputStream);
+            return recorder.build(outputStream.toByteArray(), getPageSize(config.getFormat()),
+                    fontRegistry.palette(config.getTheme(), config.getOutputProfile()));
+        } catch (DocumentException | IOException e) {
+            throw new ReportGenerationException("Error al precalcular la maquetación directa del reporte: " + e.getMessage(), e);
+        }
     }
     
-    private void addUserInfo(Document document, PaymentData paymentData, Theme theme) throws DocumentException {
-        Font headerFont = new Font(Font.HELVETICA, 14, Font.BOLD, 
-                theme == Theme.LIGHT ? LIGHT_TEXT_COLOR : DARK_TEXT_COLOR);
-        Font contentFont = new Font(Font.HELVETICA, 12, Font.NORMAL, 
-                theme == Theme.LIGHT ? LIGHT_TEXT_COLOR : DARK_TEXT_COLOR);
-        
-        Paragraph header = new Paragraph("Información del Cliente", headerFont);
-        header.setSpacingBefore(15);
-        header.setSpacingAfter(10);
-        document.add(header);
-        
-        Paragraph customerInfo = new Paragraph("Cliente: " + paymentData.getCustomerName(), contentFont);
-        document.add(customerInfo);
+    static Map<ReportField, String> fieldValues(PaymentReportConfig config, PaymentData paymentData,
+                                                LocalDateTime generatedAt) {
+        Map<ReportField, String> values = new EnumMap<>(ReportField.class);
+        values.put(ReportField.TITLE, config.getTitle());
+        values.put(ReportField.FOOTER_MESSAGE, config.getFooterMessage());
+        values.put(ReportField.BRAND, config.getBrand());
+        values.put(ReportField.TRANSACTION_ID, paymentData.getTransactionId());
+        values.put(ReportField.AMOUNT, String.format(Locale.US, "%.2f", paymentData.getAmount()));
+        values.put(ReportField.PAYMENT_METHOD, paymentData.getPaymentMethod());
+        values.put(ReportField.CUSTOMER, "Cliente: " + paymentData.getCustomerName());
+        if (generatedAt != null) {
+            values.put(ReportField.TIMESTAMP, "Generado el: " + generatedAt.format(TIMESTAMP_FORMAT));
+        }
+        return values;
     }
     
-    private void addTimestamp(Document document, Theme theme) throws DocumentException {
-        Font timestampFont = new Font(Font.HELVETICA, 10, Font.ITALIC, 
-                theme == Theme.LIGHT ? LIGHT_TEXT_COLOR : DARK_TEXT_COLOR);
-        
-        String timestamp = "Generado el: " + 
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"));
-        
-        Paragraph timestampParagraph = new Paragraph(timestamp, timestampFont);
-        timestampParagraph.setAlignment(Element.ALIGN_RIGHT);
-        timestampParagraph.setSpacingBefore(20);
-        document.add(timestampParagraph);
+    static Rectangle getPageSize(Format format) {
+        return format == Format.A4 ? PageSize.A4 : PageSize.LETTER;
     }
     
-    private void addFooterMessage(Document document, String message, Theme theme) throws DocumentException {
-        Font footerFont = new Font(Font.HELVETICA, 10, Font.ITALIC, 
-                theme == Theme.LIGHT ? LIGHT_TEXT_COLOR : DARK_TEXT_COLOR);
-        
-        document.add(Chunk.NEWLINE);
-        document.add(new LineSeparator());
-        
-        Paragraph footer = new Paragraph(message, footerFont);
-        footer.setAlignment(Element.ALIGN_CENTER);
-        footer.setSpacingBefore(10);
-        document.add(footer);
+    /**
+     * Aplica la compresión del perfil de salida; debe llamarse antes de abrir el documento
+     */
+    static void applyOutputProfile(PdfWriter writer, OutputProfile outputProfile) {
+        writer.setCompressionLevel(outputProfile.getCompressionLevel());
+        if (outputProfile.isFullCompression()) {
+            // Tabla de referencias y objetos en flujos comprimidos; eleva la versión a PDF 1.5
+            writer.setFullCompression();
+        }
     }
     
-    private void addTableRow(PdfPTable table, String label, String value, Font font) {
-        PdfPCell labelCell = new PdfPCell(new Phrase(label, font));
-        labelCell.setBorder(Rectangle.NO_BORDER);
-        labelCell.setPadding(5);
-        
-        PdfPCell valueCell = new PdfPCell(new Phrase(value, font));
-        valueCell.setBorder(Rectangle.NO_BORDER);
-        valueCell.setPadding(5);
-        
-        table.addCell(labelCell);
-        table.addCell(valueCell);
+    static void applyTheme(Document document, PdfWriter writer, FontPalette palette) {
+        // Aplicar color de fondo según el tema
+        PdfContentByte canvas = writer.getDirectContentUnder();
+        canvas.saveState();
+        canvas.setColorFill(palette.getBackgroundColor());
+        canvas.rectangle(0, 0, document.getPageSize().getWidth(), document.getPageSize().getHeight());
+        canvas.fill();
+        canvas.restoreState();
     }
-}
\ No newline at end of file
+}
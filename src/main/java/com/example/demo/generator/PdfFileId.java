@@ -0,0 +1,75 @@
+package com.example.demo.generator;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fija el identificador de archivo (/ID) del trailer de un PDF generado. iText lo calcula a
+ * partir de la hora y de la memoria libre, por lo que dos renderizados idénticos difieren
+ * en esos bytes. El nuevo identificador tiene la misma longitud: las posiciones de la tabla
+ * de referencias cruzadas siguen siendo válidas.
+ */
+public final class PdfFileId {
+
+    private static final byte[] MARKER = "/ID [<".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEX_LENGTH = 32;
+    private static final int TRAILER_SEARCH_BYTES = 4096;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private PdfFileId() {
+    }
+
+    /**
+     * Sustituye las dos partes del identificador por los primeros 16 bytes de la semilla
+     *
+     * @param pdf el contenido del PDF
+     * @param length los bytes válidos del contenido
+     * @param seed al menos 16 bytes, por ejemplo un resumen SHA-256 de la solicitud
+     * @return false si el trailer no tiene el formato esperado y el contenido no se modificó
+     */
+    public static boolean pin(byte[] pdf, int length, byte[] seed) {
+        int start = findMarker(pdf, length);
+        if (start < 0) {
+            return false;
+        }
+        int first = start + MARKER.length;
+        int second = first + HEX_LENGTH + 2;
+        if (second + HEX_LENGTH > length || pdf[first + HEX_LENGTH] != '>' || pdf[first + HEX_LENGTH + 1] != '<'
+                || !isHex(pdf, first) || !isHex(pdf, second)) {
+            return false;
+        }
+        writeHex(pdf, first, seed);
+        writeHex(pdf, second, seed);
+        return true;
+    }
+
+    private static int findMarker(byte[] pdf, int length) {
+        int lowest = Math.max(0, length - TRAILER_SEARCH_BYTES);
+        for (int i = length - MARKER.length; i >= lowest; i--) {
+            int j = 0;
+            while (j < MARKER.length && pdf[i + j] == MARKER[j]) {
+                j++;
+            }
+            if (j == MARKER.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isHex(byte[] pdf, int offset) {
+        for (int i = offset; i < offset + HEX_LENGTH; i++) {
+            byte b = pdf[i];
+            if (!(b >= '0' && b <= '9') && !(b >= 'a' && b <= 'f') && !(b >= 'A' && b <= 'F')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeHex(byte[] pdf, int offset, byte[] seed) {
+        for (int i = 0; i < HEX_LENGTH / 2; i++) {
+            pdf[offset + 2 * i] = HEX_DIGITS[(seed[i] >> 4) & 0x0f];
+            pdf[offset + 2 * i + 1] = HEX_DIGITS[seed[i] & 0x0f];
+        }
+    }
+}
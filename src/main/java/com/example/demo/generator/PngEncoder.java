@@ -0,0 +1,269 @@
+package com.example.demo.generator;
+
+import com.example.demo.cache.CacheStats;
+import com.example.demo.cache.WeightedLruCache;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Codificador PNG para las miniaturas de las vistas previas. Comprimir la imagen completa
+ * cuesta más que dibujarla, pero de una vista previa a otra casi toda la página es igual:
+ * márgenes, logo, títulos y etiquetas. Por eso la imagen se comprime por franjas de filas,
+ * cada una como un segmento de deflate independiente, y los segmentos se guardan en una
+ * caché por su contenido; en cada miniatura solo se comprimen las franjas que contienen los
+ * valores del pago. Los segmentos se concatenan en un único flujo zlib válido y la suma
+ * Adler-32 del flujo se combina a partir de la de cada franja.
+ */
+public final class PngEncoder {
+
+    /**
+     * Filas por franja: cuanto más estrechas, menos bytes se vuelven a comprimir por cada
+     * línea de texto que cambia, a cambio de más entradas en la caché
+     */
+    public static final int BAND_ROWS = 4;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int FILTER_SUB = 1;
+    private static final byte[] ZLIB_HEADER = {0x78, 0x01};
+    /**
+     * Bloque final vacío con códigos de Huffman fijos, que cierra el flujo de deflate
+     */
+    private static final byte[] FINAL_BLOCK = {0x03, 0x00};
+    private static final int ADLER_BASE = 65521;
+
+    private final WeightedLruCache<BandKey, Band> bands;
+    /**
+     * Compresores libres: crear y liberar el estado nativo de zlib cuesta más que comprimir una franja
+     */
+    private final BlockingQueue<Deflater> deflaters =
+            new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * @param maxBandWeightBytes peso máximo en bytes de las franjas comprimidas retenidas
+     */
+    public PngEncoder(long maxBandWeightBytes) {
+        this.bands = new WeightedLruCache<>(maxBandWeightBytes, Band::weight);
+    }
+
+    /**
+     * @param image una imagen de tipo {@link BufferedImage#TYPE_INT_RGB}
+     * @return la imagen codificada como PNG de 8 bits por canal, sin transparencia
+     * @throws IllegalArgumentException si la imagen no es de tipo TYPE_INT_RGB
+     */
+    public byte[] encode(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            throw new IllegalArgumentException("Tipo de imagen no soportado: " + image.getType());
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream(width * height / 8 + 64);
+        data.writeBytes(ZLIB_HEADER);
+        long adler = 1;
+        Deflater deflater = null;
+        byte[] filtered = null;
+        try {
+            for (int top = 0; top < height; top += BAND_ROWS) {
+                int rows = Math.min(BAND_ROWS, height - top);
+                BandKey probe = new BandKey(width, pixels, top * width, rows * width);
+                Band band = bands.get(probe);
+                if (band == null) {
+                    if (deflater == null) {
+                        deflater = acquireDeflater();
+                        filtered = new byte[BAND_ROWS * (1 + 3 * width)];
+                    }
+                    band = compress(deflater, filtered, pixels, width, top, rows);
+                    bands.put(probe.copy(), band);
+                }
+                data.writeBytes(band.data());
+                adler = combineAdler(adler, band.adler(), band.length());
+            }
+        } finally {
+            if (deflater != null) {
+                releaseDeflater(deflater);
+            }
+        }
+        data.writeBytes(FINAL_BLOCK);
+        byte[] number = new byte[4];
+        putInt(number, 0, (int) adler);
+        data.writeBytes(number);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.size() + 64);
+        out.writeBytes(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8; // bits por canal
+        header[9] = 2; // color RGB
+        writeChunk(out, "IHDR", header, header.length);
+        writeChunk(out, "IDAT", data.toByteArray(), data.size());
+        writeChunk(out, "IEND", new byte[0], 0);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return los aciertos, fallos y ocupación de la caché de franjas comprimidas
+     */
+    public CacheStats bandStats() {
+        return bands.stats();
+    }
+
+    /**
+     * Aplica el filtro Sub a las filas de la franja (el fondo liso queda en ceros) y las
+     * comprime como un segmento de deflate que termina alineado a byte y sin bloque final
+     */
+    private static Band compress(Deflater deflater, byte[] filtered, int[] pixels, int width, int top, int rows) {
+        int length = 0;
+        for (int y = top; y < top + rows; y++) {
+            filtered[length++] = FILTER_SUB;
+            int previous = 0;
+            for (int x = y * width, end = x + width; x < end; x++) {
+                int pixel = pixels[x];
+                filtered[length++] = (byte) ((pixel >> 16) - (previous >> 16));
+                filtered[length++] = (byte) ((pixel >> 8) - (previous >> 8));
+                filtered[length++] = (byte) (pixel - previous);
+                previous = pixel;
+            }
+        }
+        Adler32 adler = new Adler32();
+        adler.update(filtered, 0, length);
+
+        deflater.reset();
+        deflater.setInput(filtered, 0, length);
+        ByteArrayOutputStream segment = new ByteArrayOutputStream(256);
+        byte[] buffer = new byte[4096];
+        int count;
+        do {
+            count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            segment.write(buffer, 0, count);
+        } while (count == buffer.length);
+        return new Band(segment.toByteArray(), adler.getValue(), length);
+    }
+
+    private Deflater acquireDeflater() {
+        Deflater deflater = deflaters.poll();
+        return deflater != null ? deflater : new Deflater(Deflater.BEST_SPEED, true);
+    }
+
+    private void releaseDeflater(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Suma Adler-32 de la concatenación de dos bloques a partir de la de cada uno
+     * (equivalente a adler32_combine de zlib)
+     */
+    public static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= 2L * ADLER_BASE) {
+            sum2 -= 2L * ADLER_BASE;
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    private static void writeChunk(ByteArrayOutputStream out, String type, byte[] data, int length) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] number = new byte[4];
+        putInt(number, 0, length);
+        out.writeBytes(number);
+        out.writeBytes(typeBytes);
+        out.write(data, 0, length);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        putInt(number, 0, (int) crc.getValue());
+        out.writeBytes(number);
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Franja comprimida: el segmento de deflate, la suma Adler-32 y la longitud de los bytes filtrados
+     */
+    private record Band(byte[] data, long adler, int length) {
+
+        long weight() {
+            return data.length + 4L * length / 3;
+        }
+    }
+
+    /**
+     * Clave de la caché de franjas: los píxeles de la franja y el ancho de la imagen. Para
+     * consultar la caché se usa una vista sobre los píxeles de la imagen, sin copiarlos;
+     * solo se copian al guardar una franja nueva.
+     */
+    private static final class BandKey {
+
+        private final int width;
+        private final int[] pixels;
+        private final int offset;
+        private final int length;
+        private final int hash;
+
+        BandKey(int width, int[] pixels, int offset, int length) {
+            this.width = width;
+            this.pixels = pixels;
+            this.offset = offset;
+            this.length = length;
+            int hash = width;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                hash = 31 * hash + pixels[i];
+            }
+            this.hash = hash;
+        }
+
+        private BandKey(BandKey view) {
+            this.width = view.width;
+            this.pixels = Arrays.copyOfRange(view.pixels, view.offset, view.offset + view.length);
+            this.offset = 0;
+            this.length = view.length;
+            this.hash = view.hash;
+        }
+
+        BandKey copy() {
+            return new BandKey(this);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof BandKey key && width == key.width && length == key.length && hash == key.hash
+                    && Arrays.equals(pixels, offset, offset + length, key.pixels, key.offset, key.offset + key.length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.generator;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Logo preparado para las vistas previas: su tamaño en la página, en puntos, y la imagen
+ * ya codificada para HTML o ya escalada a los píxeles de una miniatura
+ *
+ * @param brand la marca efectiva
+ * @param width ancho en puntos
+ * @param height alto en puntos
+ * @param dataUri la imagen como URI data:, o null si es para una miniatura o la marca no tiene logo
+ * @param image la imagen escalada, o null si es para HTML o la marca no tiene logo
+ */
+record PreviewLogo(String brand, float width, float height, String dataUri, BufferedImage image) {
+
+    /**
+     * @param brand la marca efectiva
+     * @return el marcador de una marca sin logo
+     */
+    static PreviewLogo missing(String brand) {
+        return new PreviewLogo(brand, 0, 0, null, null);
+    }
+
+    boolean exists() {
+        return dataUri != null || image != null;
+    }
+
+    /**
+     * @return el peso aproximado en bytes, para la caché de logos de las vistas previas
+     */
+    long weight() {
+        if (image != null) {
+            return 4L * image.getWidth() * image.getHeight();
+        }
+        return dataUri != null ? 2L * dataUri.length() : 0;
+    }
+}
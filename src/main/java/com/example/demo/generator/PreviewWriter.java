@@ -0,0 +1,50 @@
+package com.example.demo.generator;
+
+/**
+ * Destino de una vista previa: recibe los bloques de un plan ya resueltos, con los textos
+ * fijos y los valores del pago, y los dibuja con la misma maquetación que el PDF
+ */
+interface PreviewWriter {
+
+    /**
+     * Margen de la página en puntos, el mismo del documento PDF
+     */
+    float MARGIN = 50;
+
+    /**
+     * Interlineado relativo al tamaño de la fuente, el de iText por defecto
+     */
+    float LEADING_FACTOR = 1.5f;
+
+    /**
+     * Tamaño de la fuente por defecto de iText, que fija la altura de los saltos de línea
+     */
+    float DEFAULT_FONT_SIZE = 12;
+
+    /**
+     * Párrafo de texto
+     */
+    void paragraph(String text, TemplateBlocks.FontRole font, TemplateBlocks.Style style);
+
+    /**
+     * Tabla sin bordes; todas las filas tienen el mismo número de celdas
+     */
+    void table(String[][] cells, TemplateBlocks.FontRole font, TemplateBlocks.Style style);
+
+    /**
+     * Logo de una marca, o un aviso si la marca no tiene logo
+     *
+     * @return true si se dibujó el logo
+     */
+    boolean logo(String brand);
+
+    /**
+     * Salto de línea
+     */
+    void lineBreak();
+
+    /**
+     * Línea horizontal de separación
+     */
+    void rule();
+}
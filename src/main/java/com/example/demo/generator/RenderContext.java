@@ -0,0 +1,51 @@
+package com.example.demo.generator;
+
+import com.example.demo.config.OutputProfile;
+import com.lowagie.text.Document;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.Image;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.draw.LineSeparator;
+
+import java.util.Map;
+
+/**
+ * Estado de un renderizado concreto sobre el que se ejecuta un plan: el documento, las
+ * fuentes del tema, los valores de los campos variables, la marca, el perfil de salida y, si
+ * se maqueta un esqueleto, su registrador
+ */
+record RenderContext(Document document, FontPalette palette, Map<ReportField, String> values,
+                     PageSkeleton.Recorder recorder, LogoRegistry logoRegistry, String brand,
+                     OutputProfile outputProfile) {
+
+    /**
+     * Devuelve el valor de un campo variable, o su marcador si se está maquetando un esqueleto
+     */
+    Phrase field(ReportField field, Font font, int alignment) {
+        if (recorder != null) {
+            return new Phrase(recorder.marker(field, font, alignment));
+        }
+        return new Phrase(values.get(field), font);
+    }
+
+    /**
+     * Devuelve un texto fijo; si se está maquetando, el registrador puede marcarlo para
+     * conocer su posición
+     */
+    Phrase text(String text, Font font) {
+        return recorder != null ? recorder.text(text, font) : new Phrase(text, font);
+    }
+
+    Element rule(LineSeparator separator) {
+        return recorder != null ? recorder.rule(separator) : separator;
+    }
+
+    Image logo(Image logo) {
+        return recorder != null ? recorder.logo(logo) : logo;
+    }
+
+    boolean isRecording() {
+        return recorder != null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.generator;
+
+import com.example.demo.metrics.RenderStage;
+import com.example.demo.metrics.ReportMetrics;
+import com.lowagie.text.DocumentException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plan de renderizado inmutable: las secciones de una plantilla que aplican a una forma de
+ * configuración. Se compila una vez por plantilla y combinación de opciones, y se ejecuta en
+ * cada renderizado sin analizar nada. Su identidad sirve de clave para los
+ * esqueletos de página, por lo que no redefine equals.
+ */
+final class RenderPlan {
+
+    private final String templateName;
+    private final List<Section> sections;
+
+    RenderPlan(String templateName, List<Section> sections) {
+        this.templateName = templateName;
+        this.sections = List.copyOf(sections);
+    }
+
+    /**
+     * Escribe las secciones del plan en el documento, midiendo cada una como una etapa
+     */
+    void render(RenderContext context, ReportMetrics metrics) throws DocumentException {
+        for (Section section : sections) {
+            metrics.recordStage(section.stage(), () -> {
+                for (TemplateBlocks.Block block : section.blocks()) {
+                    block.render(context);
+                }
+            });
+        }
+    }
+
+    /**
+     * Describe las secciones del plan a un escritor de vistas previas
+     */
+    void preview(PreviewWriter writer, String brand, Map<ReportField, String> values) {
+        for (Section section : sections) {
+            for (TemplateBlocks.Block block : section.blocks()) {
+                block.preview(writer, brand, values);
+            }
+        }
+    }
+
+    String getTemplateName() {
+        return templateName;
+    }
+
+    /**
+     * Sección de la plantilla incluida en el plan
+     */
+    record Section(RenderStage stage, List<TemplateBlocks.Block> blocks) {
+    }
+}
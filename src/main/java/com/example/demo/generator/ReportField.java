@@ -0,0 +1,17 @@
+package com.example.demo.generator;
+
+/**
+ * Campos variables de un reporte: los que dependen del pago o del momento de generación, y
+ * los textos libres de la configuración, que se estampan igual que ellos para que los planes
+ * y los esqueletos no dependan de cada título o pie distinto
+ */
+enum ReportField {
+    TRANSACTION_ID,
+    AMOUNT,
+    PAYMENT_METHOD,
+    CUSTOMER,
+    TIMESTAMP,
+    TITLE,
+    FOOTER_MESSAGE,
+    BRAND
+}
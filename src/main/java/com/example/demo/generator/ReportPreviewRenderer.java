@@ -0,0 +1,226 @@
+package com.example.demo.generator;
+
+import com.example.demo.cache.WeightedLruCache;
+import com.example.demo.config.OutputProfile;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.PreviewProperties;
+import com.example.demo.model.PaymentData;
+import com.lowagie.text.Image;
+import com.lowagie.text.Rectangle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Genera vistas previas ligeras de los reportes: una miniatura PNG de la primera página o un
+ * fragmento HTML estático. Ejecutan el mismo plan compilado de la plantilla que el PDF, con
+ * las mismas fuentes, colores, márgenes y logo, pero sin construir el documento de iText ni
+ * escribir ningún PDF, por lo que cuestan una fracción de un renderizado real. El resultado
+ * es una aproximación visual: el corte de líneas y las métricas de las fuentes son las de
+ * Java2D y del navegador, no las de iText.
+ */
+@Component
+public class ReportPreviewRenderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportPreviewRenderer.class);
+
+    /**
+     * Las vistas previas usan el logo recomprimido, que basta para el tamaño con que se muestra
+     */
+    private static final OutputProfile LOGO_PROFILE = OutputProfile.SMALLEST;
+
+    private final ReportTemplateEngine templateEngine;
+    private final FontRegistry fontRegistry;
+    private final LogoRegistry logoRegistry;
+    private final PreviewProperties properties;
+    private final WeightedLruCache<LogoKey, PreviewLogo> logos;
+    private final PngEncoder pngEncoder;
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param templateEngine El motor de plantillas que define las secciones de cada reporte
+     * @param fontRegistry El registro compartido de fuentes
+     * @param logoRegistry El registro de logos por marca
+     * @param properties La configuración de las vistas previas
+     */
+    public ReportPreviewRenderer(ReportTemplateEngine templateEngine, FontRegistry fontRegistry,
+                                 LogoRegistry logoRegistry, PreviewProperties properties) {
+        this.templateEngine = templateEngine;
+        this.fontRegistry = fontRegistry;
+        this.logoRegistry = logoRegistry;
+        this.properties = properties;
+        this.logos = new WeightedLruCache<>(properties.getMaxLogoWeightBytes(), PreviewLogo::weight);
+        this.pngEncoder = new PngEncoder(properties.getMaxBandWeightBytes());
+    }
+
+    /**
+     * Genera la vista previa como fragmento HTML con estilos en línea
+     *
+     * @param config La configuración del reporte
+     * @param paymentData Los datos del pago
+     * @return un único elemento {@code div} con el reporte; el logo va incrustado como URI data:
+     * @throws IllegalArgumentException si la plantilla de la configuración no existe
+     */
+    public String renderHtml(PaymentReportConfig config, PaymentData paymentData) {
+        Rectangle pageSize = PaymentReportGenerator.getPageSize(config.getFormat());
+        HtmlPreviewWriter writer = new HtmlPreviewWriter(palette(config), pageSize.getWidth(), pageSize.getHeight(),
+                brand -> logos.computeIfAbsent(new LogoKey(logoRegistry.resolveBrand(brand), 0), this::loadHtmlLogo));
+        templateEngine.plan(config).preview(writer, config.getBrand(), values(config, paymentData));
+        return writer.finish();
+    }
+
+    /**
+     * Genera la vista previa como miniatura PNG de la primera página
+     *
+     * @param config La configuración del reporte
+     * @param paymentData Los datos del pago
+     * @param width El ancho de la miniatura en píxeles; si es null se usa el ancho por defecto y
+     *              si excede los límites se ajusta a ellos
+     * @return la imagen PNG, con la proporción de la página del formato del reporte
+     * @throws IllegalArgumentException si la plantilla de la configuración no existe
+     */
+    public byte[] renderPng(PaymentReportConfig config, PaymentData paymentData, Integer width) {
+        Rectangle pageSize = PaymentReportGenerator.getPageSize(config.getFormat());
+        int pixelWidth = thumbnailWidth(width);
+        float scale = pixelWidth / pageSize.getWidth();
+        int pixelHeight = Math.max(1, Math.round(pageSize.getHeight() * scale));
+
+        BufferedImage image = new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            graphics.scale(scale, scale);
+            ImagePreviewWriter writer = new ImagePreviewWriter(graphics, palette(config),
+                    pageSize.getWidth(), pageSize.getHeight(),
+                    brand -> logos.computeIfAbsent(new LogoKey(logoRegistry.resolveBrand(brand), scale),
+                            this::loadImageLogo));
+            templateEngine.plan(config).preview(writer, config.getBrand(), values(config, paymentData));
+        } finally {
+            graphics.dispose();
+        }
+        return pngEncoder.encode(image);
+    }
+
+    /**
+     * @param width el ancho solicitado, o null
+     * @return el ancho de la miniatura ajustado a los límites configurados
+     */
+    public int thumbnailWidth(Integer width) {
+        if (width == null) {
+            return properties.getDefaultWidth();
+        }
+        return Math.max(1, Math.min(width, properties.getMaxWidth()));
+    }
+
+    private FontPalette palette(PaymentReportConfig config) {
+        return fontRegistry.palette(config.getTheme(), OutputProfile.BALANCED);
+    }
+
+    private static Map<ReportField, String> values(PaymentReportConfig config, PaymentData paymentData) {
+        return PaymentReportGenerator.fieldValues(config, paymentData, LocalDateTime.now());
+    }
+
+    private PreviewLogo loadHtmlLogo(LogoKey key) {
+        Image logo = logoRegistry.getLogo(key.brand(), LOGO_PROFILE);
+        byte[] data = logoRegistry.getLogoData(key.brand(), LOGO_PROFILE);
+        if (logo == null || data == null) {
+            return PreviewLogo.missing(key.brand());
+        }
+        String mimeType = mimeType(data);
+        if (mimeType == null) {
+            // Formatos que los navegadores no muestran (BMP, TIFF...): se convierten a PNG
+            BufferedImage decoded = decode(key.brand(), data);
+            data = decoded == null ? null : encodePng(key.brand(), decoded);
+            if (data == null) {
+                return PreviewLogo.missing(key.brand());
+            }
+            mimeType = "image/png";
+        }
+        String dataUri = "data:" + mimeType + ";base64," + Base64.getEncoder().encodeToString(data);
+        return new PreviewLogo(key.brand(), logo.getScaledWidth(), logo.getScaledHeight(), dataUri, null);
+    }
+
+    /**
+     * Decodifica el logo una vez por marca y escala de miniatura, ya reducido a los píxeles
+     * en que se dibuja
+     */
+    private PreviewLogo loadImageLogo(LogoKey key) {
+        Image logo = logoRegistry.getLogo(key.brand(), LOGO_PROFILE);
+        byte[] data = logoRegistry.getLogoData(key.brand(), LOGO_PROFILE);
+        BufferedImage source = logo == null || data == null ? null : decode(key.brand(), data);
+        if (source == null) {
+            return PreviewLogo.missing(key.brand());
+        }
+        int width = Math.max(1, Math.round(logo.getScaledWidth() * key.scale()));
+        int height = Math.max(1, Math.round(logo.getScaledHeight() * key.scale()));
+        BufferedImage scaled = new BufferedImage(width, height,
+                source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return new PreviewLogo(key.brand(), logo.getScaledWidth(), logo.getScaledHeight(), null, scaled);
+    }
+
+    private static BufferedImage decode(String brand, byte[] data) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+            if (image == null) {
+                logger.warn("Formato de logo no soportado por las vistas previas para la marca {}", brand);
+            }
+            return image;
+        } catch (IOException e) {
+            logger.warn("No se pudo decodificar el logo de la marca {} para la vista previa: {}", brand, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Tipo MIME de los formatos que los navegadores muestran, según su firma
+     */
+    private static String mimeType(byte[] data) {
+        if (data.length >= 8 && (data[0] & 0xFF) == 0x89 && data[1] == 'P' && data[2] == 'N' && data[3] == 'G') {
+            return "image/png";
+        }
+        if (data.length >= 3 && (data[0] & 0xFF) == 0xFF && (data[1] & 0xFF) == 0xD8 && (data[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (data.length >= 6 && data[0] == 'G' && data[1] == 'I' && data[2] == 'F') {
+            return "image/gif";
+        }
+        return null;
+    }
+
+    private static byte[] encodePng(String brand, BufferedImage image) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            return ImageIO.write(image, "png", outputStream) ? outputStream.toByteArray() : null;
+        } catch (IOException e) {
+            logger.warn("No se pudo convertir el logo de la marca {} para la vista previa: {}", brand, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Clave de la caché de logos: la marca y la escala de la miniatura, o 0 para HTML
+     */
+    private record LogoKey(String brand, float scale) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.generator;
+
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.metrics.RenderStage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Plantilla de reporte ya analizada. Es inmutable: al cambiar el archivo se crea una
+ * plantilla nueva, y los planes compilados a partir de la anterior dejan de utilizarse.
+ */
+final class ReportTemplate {
+
+    private final String name;
+    private final String version;
+    private final List<Section> sections;
+
+    ReportTemplate(String name, String version, List<Section> sections) {
+        this.name = name;
+        this.version = version;
+        this.sections = List.copyOf(sections);
+    }
+
+    /**
+     * Compila el plan de una configuración: conserva las secciones cuya condición se cumple.
+     * El plan solo depende de las opciones que evalúan las condiciones, no de los textos.
+     */
+    RenderPlan compile(PaymentReportConfig config) {
+        List<RenderPlan.Section> planSections = new ArrayList<>(sections.size());
+        for (Section section : sections) {
+            if (section.condition().test(config)) {
+                planSections.add(new RenderPlan.Section(section.stage(), section.blocks()));
+            }
+        }
+        return new RenderPlan(name, planSections);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return el resumen del contenido del archivo, que cambia con cada modificación
+     */
+    String getVersion() {
+        return version;
+    }
+
+    /**
+     * Sección de la plantilla con la condición que la incluye en el reporte
+     */
+    record Section(String id, RenderStage stage, Predicate<PaymentReportConfig> condition,
+                   List<TemplateBlocks.Block> blocks) {
+
+        Section {
+            blocks = List.copyOf(blocks);
+        }
+    }
+}
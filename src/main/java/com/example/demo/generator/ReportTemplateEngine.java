@@ -0,0 +1,224 @@
+package com.example.demo.generator;
+
+import com.example.demo.cache.CacheStats;
+import com.example.demo.cache.WeightedLruCache;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.TemplateProperties;
+import com.example.demo.exception.ReportTemplateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Motor de plantillas de reportes. Carga las plantillas del directorio configurado al
+ * iniciar, compila un plan de renderizado por plantilla y combinación de opciones, y vuelve
+ * a cargar las plantillas que cambian en disco sin reiniciar la aplicación. Si una plantilla
+ * modificada no es válida se mantiene la versión anterior.
+ */
+@Component
+public class ReportTemplateEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportTemplateEngine.class);
+    private static final String TEMPLATE_SUFFIX = ".html";
+
+    private final ResourcePatternResolver resourceResolver;
+    private final String location;
+    private final String defaultTemplate;
+    private final boolean hotReload;
+    private final Map<String, LoadedTemplate> templates = new ConcurrentHashMap<>();
+    private final WeightedLruCache<PlanKey, RenderPlan> plans;
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor con inyección de dependencias. Las plantillas se cargan aquí para que un
+     * error en ellas impida arrancar la aplicación.
+     *
+     * @param properties La configuración de las plantillas
+     * @param resourceLoader El cargador de recursos de la aplicación
+     * @throws ReportTemplateException si alguna plantilla no es válida o falta la plantilla por defecto
+     */
+    public ReportTemplateEngine(TemplateProperties properties, ResourceLoader resourceLoader) {
+        this.resourceResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+        this.location = properties.getLocation().endsWith("/") ? properties.getLocation() : properties.getLocation() + "/";
+        this.defaultTemplate = properties.getDefaultTemplate();
+        this.hotReload = properties.isHotReload();
+        this.plans = new WeightedLruCache<>(properties.getMaxPlans(), plan -> 1);
+        reload(true);
+        if (!templates.containsKey(defaultTemplate)) {
+            throw new ReportTemplateException("No se encontró la plantilla por defecto " + defaultTemplate + " en " + location);
+        }
+        logger.info("Plantillas de reportes cargadas desde {}: {}", location, getTemplateNames());
+        if (hotReload && location.startsWith(ResourceLoader.CLASSPATH_URL_PREFIX)) {
+            logger.warn("La recarga en caliente de plantillas está activa con {}; los recursos del classpath "
+                    + "no cambian dentro del jar, use una ubicación file:", location);
+        }
+    }
+
+    /**
+     * Obtiene el plan de renderizado de una configuración, compilándolo si aún no existe
+     *
+     * @param config la configuración del reporte
+     * @return el plan de la plantilla de la configuración
+     * @throws IllegalArgumentException si la plantilla no existe
+     */
+    RenderPlan plan(PaymentReportConfig config) {
+        ReportTemplate template = template(config);
+        return plans.computeIfAbsent(PlanKey.of(template, config), key -> template.compile(config));
+    }
+
+    /**
+     * @param config la configuración del reporte
+     * @return la versión de la plantilla de la configuración, que cambia con cada modificación del archivo
+     * @throws IllegalArgumentException si la plantilla no existe
+     */
+    public String version(PaymentReportConfig config) {
+        return template(config).getVersion();
+    }
+
+    /**
+     * @return los nombres de las plantillas disponibles
+     */
+    public Set<String> getTemplateNames() {
+        return new TreeSet<>(templates.keySet());
+    }
+
+    /**
+     * @return las estadísticas de la caché de planes compilados
+     */
+    public CacheStats planStats() {
+        return plans.stats();
+    }
+
+    /**
+     * Registra una acción que se ejecuta cada vez que se descartan los planes compilados por
+     * haber cambiado alguna plantilla, para liberar lo que se derivó de ellos
+     */
+    void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Vuelve a cargar las plantillas modificadas, añadidas o eliminadas desde la última revisión
+     */
+    @Scheduled(fixedDelayString = "${report.templates.reload-interval-ms:2000}")
+    public void reloadChanged() {
+        if (hotReload) {
+            reload(false);
+        }
+    }
+
+    private synchronized void reload(boolean startup) {
+        Resource[] resources;
+        try {
+            resources = resourceResolver.getResources(location + "*" + TEMPLATE_SUFFIX);
+        } catch (IOException e) {
+            if (startup) {
+                throw new ReportTemplateException("No se pudieron listar las plantillas de " + location, e);
+            }
+            logger.warn("No se pudieron listar las plantillas de {}: {}", location, e.getMessage());
+            return;
+        }
+
+        boolean changed = false;
+        Set<String> present = new HashSet<>();
+        for (Resource resource : resources) {
+            String filename = resource.getFilename();
+            if (filename == null) {
+                continue;
+            }
+            String name = filename.substring(0, filename.length() - TEMPLATE_SUFFIX.length());
+            present.add(name);
+            long lastModified = lastModified(resource);
+            LoadedTemplate current = templates.get(name);
+            if (current != null && current.lastModified() == lastModified) {
+                continue;
+            }
+            try (InputStream in = resource.getInputStream()) {
+                ReportTemplate template = TemplateParser.parse(name, in.readAllBytes());
+                templates.put(name, new LoadedTemplate(template, lastModified));
+                changed = true;
+                if (!startup) {
+                    logger.info("Plantilla {} recargada (versión {})", name, template.getVersion());
+                }
+            } catch (IOException | ReportTemplateException e) {
+                if (startup) {
+                    throw e instanceof ReportTemplateException templateError ? templateError
+                            : new ReportTemplateException("No se pudo leer la plantilla " + name, e);
+                }
+                // No volver a intentarlo hasta que el archivo cambie otra vez
+                if (current != null) {
+                    templates.put(name, new LoadedTemplate(current.template(), lastModified));
+                }
+                logger.error("No se pudo recargar la plantilla {}; se mantiene la versión anterior: {}", name, e.getMessage());
+            }
+        }
+
+        for (String name : templates.keySet()) {
+            if (!present.contains(name) && !name.equals(defaultTemplate)) {
+                templates.remove(name);
+                changed = true;
+                logger.info("Plantilla {} eliminada", name);
+            }
+        }
+        if (changed && !startup) {
+            // Los planes de las versiones anteriores ya no se alcanzan: liberar su memoria
+            plans.clear();
+            reloadListeners.forEach(Runnable::run);
+        }
+    }
+
+    private ReportTemplate template(PaymentReportConfig config) {
+        String name = config.getTemplate() != null ? config.getTemplate() : defaultTemplate;
+        LoadedTemplate loaded = templates.get(name);
+        if (loaded == null) {
+            throw new IllegalArgumentException("No existe la plantilla de reporte: " + name);
+        }
+        return loaded.template();
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private record LoadedTemplate(ReportTemplate template, long lastModified) {
+    }
+
+    /**
+     * Clave de un plan: la plantilla (por identidad, de modo que cada versión tiene sus
+     * propios planes) y las opciones que evalúan las condiciones de sus secciones. De los
+     * textos libres solo cuenta si están presentes; su contenido se estampa en cada renderizado.
+     */
+    private record PlanKey(ReportTemplate template, boolean includeLogo, boolean includePaymentDetails,
+                           boolean includeUserInfo, boolean includeTimestamp, boolean hasTitle,
+                           boolean hasFooterMessage, boolean hasBrand) {
+
+        static PlanKey of(ReportTemplate template, PaymentReportConfig config) {
+            return new PlanKey(template, config.isIncludeLogo(), config.isIncludePaymentDetails(),
+                    config.isIncludeUserInfo(), config.isIncludeTimestamp(), hasText(config.getTitle()),
+                    hasText(config.getFooterMessage()), hasText(config.getBrand()));
+        }
+
+        private static boolean hasText(String value) {
+            return value != null && !value.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.generator;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.Element;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.ColumnText;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfPageEventHelper;
+import com.lowagie.text.pdf.PdfWriter;
+
+/**
+ * Eventos de página de un estado de cuenta: pinta el fondo del tema en todas las páginas,
+ * repite el encabezado a partir de la segunda y numera las páginas
+ */
+class StatementPageEvent extends PdfPageEventHelper {
+
+    private final FontPalette palette;
+    private final String runningHeader;
+
+    StatementPageEvent(FontPalette palette, String title, String customerName) {
+        this.palette = palette;
+        this.runningHeader = title + " - " + customerName;
+    }
+
+    @Override
+    public void onEndPage(PdfWriter writer, Document document) {
+        Rectangle page = document.getPageSize();
+
+        PdfContentByte under = writer.getDirectContentUnder();
+        under.saveState();
+        under.setColorFill(palette.getBackgroundColor());
+        under.rectangle(0, 0, page.getWidth(), page.getHeight());
+        under.fill();
+        under.restoreState();
+
+        PdfContentByte canvas = writer.getDirectContent();
+        if (writer.getPageNumber() > 1) {
+            ColumnText.showTextAligned(canvas, Element.ALIGN_LEFT,
+                    new Phrase(runningHeader, palette.getSmallFont()),
+                    document.left(), page.getHeight() - document.topMargin() / 2, 0);
+        }
+        ColumnText.showTextAligned(canvas, Element.ALIGN_RIGHT,
+                new Phrase("Página " + writer.getPageNumber(), palette.getSmallFont()),
+                document.right(), document.bottomMargin() / 2, 0);
+    }
+}
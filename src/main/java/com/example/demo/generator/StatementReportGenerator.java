@@ -0,0 +1,208 @@
+package com.example.demo.generator;
+
+import com.example.demo.config.OutputProfile;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.exception.ReportGenerationException;
+import com.example.demo.model.PaymentData;
+import com.lowagie.text.Chunk;
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.Image;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.draw.LineSeparator;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Clase encargada de generar estados de cuenta: un único PDF de varias páginas con
+ * todos los pagos de un cliente. La tabla de pagos se escribe por bloques, de modo que
+ * la memoria utilizada no depende del número de pagos.
+ */
+@Component
+public class StatementReportGenerator {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    /**
+     * Memoria aproximada que ocupa una fila de la tabla hasta que se escribe en el documento
+     */
+    static final long ESTIMATED_ROW_BYTES = 4 * 1024;
+    private static final int MIN_ROWS_PER_CHUNK = 16;
+    private static final int MAX_ROWS_PER_CHUNK = 10_000;
+
+    private final LogoRegistry logoRegistry;
+    private final FontRegistry fontRegistry;
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param logoRegistry El registro de logos por marca
+     * @param fontRegistry El registro compartido de fuentes
+     */
+    public StatementReportGenerator(LogoRegistry logoRegistry, FontRegistry fontRegistry) {
+        this.logoRegistry = logoRegistry;
+        this.fontRegistry = fontRegistry;
+    }
+
+    /**
+     * Genera un estado de cuenta escribiéndolo en el flujo indicado a medida que se leen los pagos
+     *
+     * @param config La configuración del reporte
+     * @param customerName El nombre del cliente
+     * @param payments Los pagos del cliente; se recorren una sola vez
+     * @param outputStream El flujo donde se escribe el PDF; no se cierra al terminar
+     * @param memoryBudgetBytes Memoria máxima destinada a filas pendientes de escribir
+     * @return el número de pagos incluidos en el estado de cuenta
+     */
+    public int generateStatement(PaymentReportConfig config, String customerName, Iterator<PaymentData> payments,
+                                 OutputStream outputStream, long memoryBudgetBytes) {
+        try {
+            Rectangle pageSize = PaymentReportGenerator.getPageSize(config.getFormat());
+            Document document = new Document(pageSize, 50, 50, 50, 50);
+            PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+            writer.setCloseStream(false);
+            PaymentReportGenerator.applyOutputProfile(writer, config.getOutputProfile());
+            FontPalette palette = fontRegistry.palette(config.getTheme(), config.getOutputProfile());
+            writer.setPageEvent(new StatementPageEvent(palette, config.getTitle(), customerName));
+
+            document.open();
+
+            if (config.isIncludeLogo()) {
+                addLogo(document, config.getBrand(), config.getOutputProfile());
+            }
+
+            Paragraph titleParagraph = new Paragraph(config.getTitle(), palette.getTitleFont());
+            titleParagraph.setAlignment(Element.ALIGN_CENTER);
+            titleParagraph.setSpacingAfter(20);
+            document.add(titleParagraph);
+
+            if (config.isIncludeUserInfo()) {
+                document.add(header("Información del Cliente", palette));
+                document.add(new Paragraph("Cliente: " + customerName, palette.getContentFont()));
+            }
+
+            document.add(header("Detalles de los Pagos", palette));
+            int count = addPaymentsTable(document, payments, palette, config.isIncludePaymentDetails(),
+                    rowsPerChunk(memoryBudgetBytes));
+
+            if (config.isIncludeTimestamp()) {
+                Paragraph timestamp = new Paragraph("Generado el: " + LocalDateTime.now().format(TIMESTAMP_FORMAT),
+                        palette.getSmallFont());
+                timestamp.setAlignment(Element.ALIGN_RIGHT);
+                timestamp.setSpacingBefore(20);
+                document.add(timestamp);
+            }
+
+            if (config.getFooterMessage() != null && !config.getFooterMessage().isEmpty()) {
+                document.add(Chunk.NEWLINE);
+                document.add(new LineSeparator());
+                Paragraph footer = new Paragraph(config.getFooterMessage(), palette.getSmallFont());
+                footer.setAlignment(Element.ALIGN_CENTER);
+                footer.setSpacingBefore(10);
+                document.add(footer);
+            }
+
+            document.close();
+            return count;
+
+        } catch (DocumentException e) {
+            throw new ReportGenerationException("Error al generar el estado de cuenta: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param memoryBudgetBytes memoria destinada a filas pendientes de escribir
+     * @return el número de filas que se acumulan antes de escribirlas en el documento
+     */
+    static int rowsPerChunk(long memoryBudgetBytes) {
+        long rows = memoryBudgetBytes / ESTIMATED_ROW_BYTES;
+        return (int) Math.max(MIN_ROWS_PER_CHUNK, Math.min(MAX_ROWS_PER_CHUNK, rows));
+    }
+
+    /**
+     * Escribe la tabla de pagos por bloques. La tabla se marca como incompleta para que
+     * iText escriba las filas de cada bloque y las libere, repitiendo la fila de
+     * encabezado en cada página. Si no se incluyen los detalles solo se escribe el resumen.
+     */
+    private int addPaymentsTable(Document document, Iterator<PaymentData> payments, FontPalette palette,
+                                 boolean includeDetails, int rowsPerChunk) throws DocumentException {
+        Font headerFont = palette.getHeaderFont();
+        Font contentFont = palette.getContentFont();
+
+        PdfPTable table = new PdfPTable(new float[] {3, 2, 2});
+        table.setWidthPercentage(90);
+        table.setSpacingBefore(10);
+        table.setSpacingAfter(10);
+        table.setHeaderRows(1);
+        table.setComplete(false);
+        addRow(table, headerFont, "ID de Transacción", "Método de Pago", "Monto");
+
+        int count = 0;
+        int pendingRows = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        while (payments.hasNext()) {
+            PaymentData payment = payments.next();
+            count++;
+            total = total.add(BigDecimal.valueOf(payment.getAmount()));
+            if (!includeDetails) {
+                continue;
+            }
+
+            addRow(table, contentFont, payment.getTransactionId(), payment.getPaymentMethod(),
+                    String.format(Locale.US, "%.2f", payment.getAmount()));
+            if (++pendingRows >= rowsPerChunk) {
+                document.add(table);
+                pendingRows = 0;
+            }
+        }
+
+        addRow(table, headerFont, "Total (" + count + " pagos)", "", String.format(Locale.US, "%.2f", total));
+        table.setComplete(true);
+        document.add(table);
+        return count;
+    }
+
+    private void addRow(PdfPTable table, Font font, String first, String second, String amount) {
+        table.addCell(cell(first, font, Element.ALIGN_LEFT));
+        table.addCell(cell(second, font, Element.ALIGN_LEFT));
+        table.addCell(cell(amount, font, Element.ALIGN_RIGHT));
+    }
+
+    private PdfPCell cell(String text, Font font, int alignment) {
+        PdfPCell cell = new PdfPCell(new Phrase(text, font));
+        cell.setBorder(Rectangle.NO_BORDER);
+        cell.setPadding(5);
+        cell.setHorizontalAlignment(alignment);
+        return cell;
+    }
+
+    private Paragraph header(String text, FontPalette palette) {
+        Paragraph header = new Paragraph(text, palette.getHeaderFont());
+        header.setSpacingBefore(15);
+        header.setSpacingAfter(10);
+        return header;
+    }
+
+    private void addLogo(Document document, String brand, OutputProfile outputProfile) throws DocumentException {
+        Image logo = logoRegistry.getLogo(brand, outputProfile);
+        if (logo == null) {
+            document.add(new Paragraph("Logo no encontrado para la marca: " + logoRegistry.resolveBrand(brand)));
+            return;
+        }
+        document.add(logo);
+        document.add(Chunk.NEWLINE);
+    }
+}
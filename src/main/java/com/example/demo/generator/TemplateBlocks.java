@@ -0,0 +1,240 @@
+package com.example.demo.generator;
+
+import com.lowagie.text.Chunk;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.Image;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.draw.LineSeparator;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bloques que componen las secciones de una plantilla. Un bloque se analiza una vez al cargar
+ * la plantilla y no depende de la configuración: los textos libres de la configuración se
+ * tratan como campos variables, de modo que un mismo plan sirve para cualquier título o pie.
+ * Cada bloque sabe escribirse en el documento y describir la misma maquetación a un
+ * {@link PreviewWriter} sin construir ningún objeto de iText.
+ */
+final class TemplateBlocks {
+
+    private static final float LEADING_FACTOR = 1.5f;
+
+    private TemplateBlocks() {
+    }
+
+    /**
+     * Bloque de una plantilla tal como se analizó
+     */
+    interface Block {
+        void render(RenderContext context) throws DocumentException;
+
+        /**
+         * @param writer el escritor de la vista previa
+         * @param brand la marca de la configuración
+         * @param values los valores de los campos variables
+         */
+        void preview(PreviewWriter writer, String brand, Map<ReportField, String> values);
+    }
+
+    /**
+     * Fuente de la paleta del tema con la que se escribe un bloque
+     */
+    enum FontRole {
+        TITLE(java.awt.Font.BOLD), HEADER(java.awt.Font.BOLD), CONTENT(java.awt.Font.PLAIN), SMALL(java.awt.Font.ITALIC);
+
+        private final int previewStyle;
+
+        FontRole(int previewStyle) {
+            this.previewStyle = previewStyle;
+        }
+
+        /**
+         * @return el estilo de AWT con que las vistas previas imitan la variante del tipo de letra
+         */
+        int previewStyle() {
+            return previewStyle;
+        }
+
+        Font of(FontPalette palette) {
+            return switch (this) {
+                case TITLE -> palette.getTitleFont();
+                case HEADER -> palette.getHeaderFont();
+                case CONTENT -> palette.getContentFont();
+                case SMALL -> palette.getSmallFont();
+            };
+        }
+    }
+
+    /**
+     * Estilo de un bloque. La alineación es null si la plantilla no la indica.
+     */
+    record Style(Integer alignment, float spacingBefore, float spacingAfter, float widthPercentage, float padding) {
+
+        static final Style DEFAULT = new Style(null, 0, 0, 100, 0);
+
+        int alignmentOr(int fallback) {
+            return alignment != null ? alignment : fallback;
+        }
+
+        void applySpacing(Paragraph paragraph) {
+            paragraph.setSpacingBefore(spacingBefore);
+            paragraph.setSpacingAfter(spacingAfter);
+        }
+    }
+
+    /**
+     * Párrafo de texto fijo
+     */
+    record TextParagraph(String text, FontRole font, Style style) implements Block {
+
+        @Override
+        public void render(RenderContext context) throws DocumentException {
+            Paragraph paragraph = new Paragraph(context.text(text, font.of(context.palette())));
+            if (style.alignment() != null) {
+                paragraph.setAlignment(style.alignment());
+            }
+            style.applySpacing(paragraph);
+            context.document().add(paragraph);
+        }
+
+        @Override
+        public void preview(PreviewWriter writer, String brand, Map<ReportField, String> values) {
+            writer.paragraph(text, font, style);
+        }
+    }
+
+    /**
+     * Párrafo con el valor de un campo variable. Al maquetar un esqueleto el marcador se
+     * alinea a la izquierda para registrar el ancho completo de la línea.
+     */
+    record FieldParagraph(ReportField field, FontRole font, Style style) implements Block {
+
+        @Override
+        public void render(RenderContext context) throws DocumentException {
+            Font resolvedFont = font.of(context.palette());
+            Paragraph paragraph = new Paragraph(context.field(field, resolvedFont, style.alignmentOr(Element.ALIGN_LEFT)));
+            paragraph.setLeading(LEADING_FACTOR * resolvedFont.getSize());
+            if (style.alignment() != null) {
+                paragraph.setAlignment(context.isRecording() ? Element.ALIGN_LEFT : style.alignment());
+            }
+            style.applySpacing(paragraph);
+            context.document().add(paragraph);
+        }
+
+        @Override
+        public void preview(PreviewWriter writer, String brand, Map<ReportField, String> values) {
+            writer.paragraph(values.getOrDefault(field, ""), font, style);
+        }
+    }
+
+    /**
+     * Celda de una tabla: un texto fijo o un campo variable
+     */
+    record Cell(String text, ReportField field) {
+    }
+
+    /**
+     * Tabla sin bordes; todas las filas tienen el mismo número de celdas
+     */
+    record Table(List<List<Cell>> rows, FontRole font, Style style) implements Block {
+
+        @Override
+        public void render(RenderContext context) throws DocumentException {
+            Font resolvedFont = font.of(context.palette());
+            PdfPTable table = new PdfPTable(rows.get(0).size());
+            table.setWidthPercentage(style.widthPercentage());
+            table.setSpacingBefore(style.spacingBefore());
+            table.setSpacingAfter(style.spacingAfter());
+            for (List<Cell> row : rows) {
+                for (Cell cell : row) {
+                    Phrase phrase = cell.field() == null
+                            ? context.text(cell.text(), resolvedFont)
+                            : context.field(cell.field(), resolvedFont, Element.ALIGN_LEFT);
+                    PdfPCell pdfCell = new PdfPCell(phrase);
+                    pdfCell.setBorder(Rectangle.NO_BORDER);
+                    pdfCell.setPadding(style.padding());
+                    table.addCell(pdfCell);
+                }
+            }
+            context.document().add(table);
+        }
+
+        @Override
+        public void preview(PreviewWriter writer, String brand, Map<ReportField, String> values) {
+            String[][] cells = new String[rows.size()][];
+            for (int i = 0; i < rows.size(); i++) {
+                List<Cell> row = rows.get(i);
+                cells[i] = new String[row.size()];
+                for (int j = 0; j < row.size(); j++) {
+                    Cell cell = row.get(j);
+                    cells[i][j] = cell.field() == null ? cell.text() : values.getOrDefault(cell.field(), "");
+                }
+            }
+            writer.table(cells, font, style);
+        }
+    }
+
+    /**
+     * Logo de la marca de la configuración, ya decodificado y escalado por el registro de marcas
+     */
+    record Logo() implements Block {
+
+        @Override
+        public void render(RenderContext context) throws DocumentException {
+            Image logo = context.logoRegistry().getLogo(context.brand(), context.outputProfile());
+            if (logo == null) {
+                context.document().add(new Paragraph(context.text("Logo no encontrado para la marca: "
+                        + context.logoRegistry().resolveBrand(context.brand()), new Font())));
+                return;
+            }
+            context.document().add(context.logo(logo));
+            context.document().add(Chunk.NEWLINE);
+        }
+
+        @Override
+        public void preview(PreviewWriter writer, String brand, Map<ReportField, String> values) {
+            if (writer.logo(brand)) {
+                writer.lineBreak();
+            }
+        }
+    }
+
+    /**
+     * Salto de línea
+     */
+    record LineBreak() implements Block {
+
+        @Override
+        public void render(RenderContext context) throws DocumentException {
+            context.document().add(Chunk.NEWLINE);
+        }
+
+        @Override
+        public void preview(PreviewWriter writer, String brand, Map<ReportField, String> values) {
+            writer.lineBreak();
+        }
+    }
+
+    /**
+     * Línea horizontal de separación
+     */
+    record Rule() implements Block {
+
+        @Override
+        public void render(RenderContext context) throws DocumentException {
+            context.document().add(context.rule(new LineSeparator()));
+        }
+
+        @Override
+        public void preview(PreviewWriter writer, String brand, Map<ReportField, String> values) {
+            writer.rule();
+        }
+    }
+}
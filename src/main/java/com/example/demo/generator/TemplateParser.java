@@ -0,0 +1,334 @@
+package com.example.demo.generator;
+
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.exception.ReportTemplateException;
+import com.example.demo.metrics.RenderStage;
+import com.lowagie.text.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Analiza una plantilla de reporte escrita en XHTML. El cuerpo se compone de elementos
+ * {@code <section id="...">}, opcionalmente condicionados con {@code data-if} a una opción de
+ * la configuración; dentro de cada sección se admiten {@code h1}-{@code h3}, {@code p},
+ * {@code table}, {@code img data-logo}, {@code br} y {@code hr}. Los campos del pago se
+ * enlazan con {@code data-field} y los textos de la configuración con {@code {{nombre}}}, que
+ * debe ser todo el texto del elemento: se estampan como un campo variable más. Todos los
+ * nombres se resuelven aquí, de modo que el plan no necesita reflexión.
+ */
+final class TemplateParser {
+
+    private static final Pattern BINDING = Pattern.compile("\\{\\{\\s*([A-Za-z]+)\\s*}}");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Map<String, Predicate<PaymentReportConfig>> CONDITIONS = Map.of(
+            "includeLogo", PaymentReportConfig::isIncludeLogo,
+            "includePaymentDetails", PaymentReportConfig::isIncludePaymentDetails,
+            "includeUserInfo", PaymentReportConfig::isIncludeUserInfo,
+            "includeTimestamp", PaymentReportConfig::isIncludeTimestamp,
+            "title", config -> hasText(config.getTitle()),
+            "footerMessage", config -> hasText(config.getFooterMessage()),
+            "brand", config -> hasText(config.getBrand()));
+
+    private static final Map<String, ReportField> CONFIG_VALUES = Map.of(
+            "title", ReportField.TITLE,
+            "footerMessage", ReportField.FOOTER_MESSAGE,
+            "brand", ReportField.BRAND);
+
+    private static final Map<String, ReportField> FIELDS = Map.of(
+            "transactionId", ReportField.TRANSACTION_ID,
+            "amount", ReportField.AMOUNT,
+            "paymentMethod", ReportField.PAYMENT_METHOD,
+            "customer", ReportField.CUSTOMER,
+            "timestamp", ReportField.TIMESTAMP);
+
+    private static final Map<String, Integer> ALIGNMENTS = Map.of(
+            "left", Element.ALIGN_LEFT,
+            "center", Element.ALIGN_CENTER,
+            "right", Element.ALIGN_RIGHT,
+            "justify", Element.ALIGN_JUSTIFIED);
+
+    private static final Map<String, TemplateBlocks.FontRole> FONT_CLASSES = Map.of(
+            "title", TemplateBlocks.FontRole.TITLE,
+            "header", TemplateBlocks.FontRole.HEADER,
+            "content", TemplateBlocks.FontRole.CONTENT,
+            "small", TemplateBlocks.FontRole.SMALL);
+
+    private final String name;
+
+    private TemplateParser(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param name el nombre de la plantilla
+     * @param content el contenido del archivo
+     * @return la plantilla analizada
+     * @throws ReportTemplateException si el archivo no es una plantilla válida
+     */
+    static ReportTemplate parse(String name, byte[] content) {
+        return new TemplateParser(name).parse(content);
+    }
+
+    private ReportTemplate parse(byte[] content) {
+        org.w3c.dom.Document document = readXml(content);
+        NodeList bodies = document.getElementsByTagName("body");
+        if (bodies.getLength() != 1) {
+            throw error("debe tener exactamente un elemento <body>");
+        }
+
+        List<ReportTemplate.Section> sections = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        for (org.w3c.dom.Element section : children(bodies.item(0))) {
+            if (!section.getTagName().equals("section")) {
+                throw error("el cuerpo solo admite elementos <section>, no <" + section.getTagName() + ">");
+            }
+            String id = section.getAttribute("id");
+            if (id.isEmpty() || !ids.add(id)) {
+                throw error("cada <section> necesita un id único");
+            }
+            sections.add(new ReportTemplate.Section(id, RenderStage.forSection(id),
+                    condition(section.getAttribute("data-if")), blocks(id, section)));
+        }
+        if (sections.isEmpty()) {
+            throw error("no tiene secciones");
+        }
+        return new ReportTemplate(name, version(content), sections);
+    }
+
+    private List<TemplateBlocks.Block> blocks(String sectionId, org.w3c.dom.Element section) {
+        List<TemplateBlocks.Block> blocks = new ArrayList<>();
+        for (org.w3c.dom.Element element : children(section)) {
+            blocks.add(switch (element.getTagName()) {
+                case "h1" -> paragraph(element, TemplateBlocks.FontRole.TITLE);
+                case "h2", "h3" -> paragraph(element, TemplateBlocks.FontRole.HEADER);
+                case "p" -> paragraph(element, TemplateBlocks.FontRole.CONTENT);
+                case "table" -> table(element);
+                case "img" -> logo(element);
+                case "br" -> new TemplateBlocks.LineBreak();
+                case "hr" -> new TemplateBlocks.Rule();
+                default -> throw error("elemento no admitido <" + element.getTagName() + "> en la sección " + sectionId);
+            });
+        }
+        return blocks;
+    }
+
+    private TemplateBlocks.Block paragraph(org.w3c.dom.Element element, TemplateBlocks.FontRole defaultFont) {
+        TemplateBlocks.FontRole font = font(element, defaultFont);
+        TemplateBlocks.Style style = style(element);
+        if (element.hasAttribute("data-field")) {
+            return new TemplateBlocks.FieldParagraph(field(element), font, style);
+        }
+        String text = text(element);
+        ReportField binding = binding(text);
+        return binding != null ? new TemplateBlocks.FieldParagraph(binding, font, style)
+                : new TemplateBlocks.TextParagraph(text, font, style);
+    }
+
+    private TemplateBlocks.Block table(org.w3c.dom.Element element) {
+        List<List<TemplateBlocks.Cell>> rows = new ArrayList<>();
+        for (org.w3c.dom.Element row : children(element)) {
+            if (!row.getTagName().equals("tr")) {
+                throw error("una tabla solo admite filas <tr>");
+            }
+            List<TemplateBlocks.Cell> cells = new ArrayList<>();
+            for (org.w3c.dom.Element cell : children(row)) {
+                if (!cell.getTagName().equals("th") && !cell.getTagName().equals("td")) {
+                    throw error("una fila solo admite celdas <th> y <td>");
+                }
+                cells.add(cell(cell));
+            }
+            if (cells.isEmpty() || (!rows.isEmpty() && rows.get(0).size() != cells.size())) {
+                throw error("todas las filas de una tabla deben tener el mismo número de celdas");
+            }
+            rows.add(List.copyOf(cells));
+        }
+        if (rows.isEmpty()) {
+            throw error("una tabla necesita al menos una fila");
+        }
+        return new TemplateBlocks.Table(List.copyOf(rows), font(element, TemplateBlocks.FontRole.CONTENT),
+                style(element));
+    }
+
+    private TemplateBlocks.Cell cell(org.w3c.dom.Element element) {
+        if (element.hasAttribute("data-field")) {
+            return new TemplateBlocks.Cell(null, field(element));
+        }
+        String text = text(element);
+        ReportField binding = binding(text);
+        return binding != null ? new TemplateBlocks.Cell(null, binding) : new TemplateBlocks.Cell(text, null);
+    }
+
+    private TemplateBlocks.Block logo(org.w3c.dom.Element element) {
+        if (!element.hasAttribute("data-logo")) {
+            throw error("las imágenes solo admiten el logo de la marca (<img data-logo=\"\"/>)");
+        }
+        return new TemplateBlocks.Logo();
+    }
+
+    private Predicate<PaymentReportConfig> condition(String expression) {
+        if (expression.isBlank()) {
+            return config -> true;
+        }
+        boolean negated = expression.startsWith("!");
+        String optionName = (negated ? expression.substring(1) : expression).trim();
+        Predicate<PaymentReportConfig> condition = CONDITIONS.get(optionName);
+        if (condition == null) {
+            throw error("condición desconocida: " + expression);
+        }
+        return negated ? condition.negate() : condition;
+    }
+
+    private ReportField field(org.w3c.dom.Element element) {
+        ReportField field = FIELDS.get(element.getAttribute("data-field"));
+        if (field == null) {
+            throw error("campo desconocido: " + element.getAttribute("data-field"));
+        }
+        return field;
+    }
+
+    private String text(org.w3c.dom.Element element) {
+        return WHITESPACE.matcher(element.getTextContent()).replaceAll(" ").trim();
+    }
+
+    /**
+     * @return el campo del texto de la configuración que ocupa todo el texto, o null si el
+     * texto es fijo
+     * @throws ReportTemplateException si el enlace es desconocido o comparte el elemento con otro texto
+     */
+    private ReportField binding(String text) {
+        Matcher matcher = BINDING.matcher(text);
+        if (!matcher.find()) {
+            return null;
+        }
+        if (matcher.start() != 0 || matcher.end() != text.length()) {
+            throw error("el valor de configuración " + matcher.group() + " debe ser el único texto de su elemento");
+        }
+        ReportField field = CONFIG_VALUES.get(matcher.group(1));
+        if (field == null) {
+            throw error("valor de configuración desconocido: " + matcher.group());
+        }
+        return field;
+    }
+
+    private TemplateBlocks.FontRole font(org.w3c.dom.Element element, TemplateBlocks.FontRole defaultFont) {
+        String className = element.getAttribute("class").trim();
+        if (className.isEmpty()) {
+            return defaultFont;
+        }
+        TemplateBlocks.FontRole font = FONT_CLASSES.get(className);
+        if (font == null) {
+            throw error("clase de fuente desconocida: " + className);
+        }
+        return font;
+    }
+
+    /**
+     * Interpreta las propiedades de estilo admitidas: text-align, margin-top, margin-bottom,
+     * width (en porcentaje) y padding. Las medidas se expresan en puntos.
+     */
+    private TemplateBlocks.Style style(org.w3c.dom.Element element) {
+        TemplateBlocks.Style defaults = TemplateBlocks.Style.DEFAULT;
+        Integer alignment = defaults.alignment();
+        float spacingBefore = defaults.spacingBefore();
+        float spacingAfter = defaults.spacingAfter();
+        float widthPercentage = defaults.widthPercentage();
+        float padding = defaults.padding();
+        for (String declaration : element.getAttribute("style").split(";")) {
+            if (declaration.isBlank()) {
+                continue;
+            }
+            int colon = declaration.indexOf(':');
+            if (colon < 0) {
+                throw error("declaración de estilo inválida: " + declaration.trim());
+            }
+            String property = declaration.substring(0, colon).trim();
+            String value = declaration.substring(colon + 1).trim();
+            switch (property) {
+                case "text-align" -> {
+                    alignment = ALIGNMENTS.get(value);
+                    if (alignment == null) {
+                        throw error("alineación desconocida: " + value);
+                    }
+                }
+                case "margin-top" -> spacingBefore = number(property, value);
+                case "margin-bottom" -> spacingAfter = number(property, value);
+                case "width" -> widthPercentage = number(property, value.endsWith("%")
+                        ? value.substring(0, value.length() - 1) : value);
+                case "padding" -> padding = number(property, value);
+                default -> throw error("propiedad de estilo no admitida: " + property);
+            }
+        }
+        return new TemplateBlocks.Style(alignment, spacingBefore, spacingAfter, widthPercentage, padding);
+    }
+
+    private float number(String property, String value) {
+        try {
+            return Float.parseFloat(value.endsWith("pt") ? value.substring(0, value.length() - 2) : value);
+        } catch (NumberFormatException e) {
+            throw error("valor inválido para " + property + ": " + value);
+        }
+    }
+
+    private org.w3c.dom.Document readXml(byte[] content) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            factory.setExpandEntityReferences(false);
+            factory.setIgnoringComments(true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            builder.setErrorHandler(null);
+            return builder.parse(new ByteArrayInputStream(content));
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new ReportTemplateException("La plantilla " + name + " no es XHTML válido: " + e.getMessage(), e);
+        }
+    }
+
+    private static List<org.w3c.dom.Element> children(Node parent) {
+        List<org.w3c.dom.Element> elements = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i) instanceof org.w3c.dom.Element element) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+
+    private static String version(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible", e);
+        }
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    private ReportTemplateException error(String message) {
+        return new ReportTemplateException("Plantilla " + name + " inválida: " + message);
+    }
+}
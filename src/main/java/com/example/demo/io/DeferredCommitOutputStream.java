@@ -0,0 +1,102 @@
+package com.example.demo.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.IntConsumer;
+
+/**
+ * Flujo que retiene los primeros bytes escritos en un búfer de tamaño fijo y no los
+ * envía al destino hasta que el búfer se llena o se cierra el flujo. Mientras no se
+ * haya enviado nada, un error todavía puede convertirse en una respuesta de error
+ * completa en lugar de un documento truncado. Si el contenido completo cabe en el búfer,
+ * su tamaño se conoce antes de enviar nada y puede anunciarse en las cabeceras.
+ */
+public class DeferredCommitOutputStream extends FilterOutputStream {
+
+    private final byte[] buffer;
+    private final IntConsumer completeSizeListener;
+    private int count;
+    private boolean committed;
+
+    /**
+     * @param out el flujo de destino
+     * @param threshold número de bytes que se retienen antes de empezar a enviar
+     */
+    public DeferredCommitOutputStream(OutputStream out, int threshold) {
+        this(out, threshold, size -> {
+        });
+    }
+
+    /**
+     * @param out el flujo de destino
+     * @param threshold número de bytes que se retienen antes de empezar a enviar
+     * @param completeSizeListener recibe el tamaño total al cerrar el flujo si todo el contenido
+     *                             cupo en el búfer, antes de enviarlo
+     */
+    public DeferredCommitOutputStream(OutputStream out, int threshold, IntConsumer completeSizeListener) {
+        super(out);
+        this.buffer = new byte[threshold];
+        this.completeSizeListener = completeSizeListener;
+    }
+
+    /**
+     * @return true si ya se envió algún byte al flujo de destino
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!committed && count < buffer.length) {
+            buffer[count++] = (byte) b;
+            return;
+        }
+        commit();
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (!committed && count + len <= buffer.length) {
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+            return;
+        }
+        commit();
+        out.write(b, off, len);
+    }
+
+    /**
+     * Las descargas intermedias se ignoran hasta que el flujo se haya comprometido
+     */
+    @Override
+    public void flush() throws IOException {
+        if (committed) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Envía el contenido retenido y descarga el destino sin cerrarlo;
+     * el contenedor de servlets es quien cierra la respuesta.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            completeSizeListener.accept(count);
+        }
+        commit();
+        out.flush();
+    }
+
+    private void commit() throws IOException {
+        if (committed) {
+            return;
+        }
+        committed = true;
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.demo.io;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de arreglos para búferes de salida. Aprende el tamaño habitual del contenido de cada
+ * forma de documento y entrega búferes con ese tamaño de antemano, de modo que no crecen por
+ * duplicación durante la escritura. Los arreglos se agrupan en clases de potencias de dos y el
+ * total retenido está acotado; los que no caben se dejan al recolector de basura.
+ */
+public class OutputBufferPool {
+
+    private static final int MIN_CLASS_SHIFT = 12;
+    private static final int MIN_CAPACITY = 1 << MIN_CLASS_SHIFT;
+    private static final int DEFAULT_PREDICTION = 16 * 1024;
+
+    /**
+     * Formas distintas de las que se aprende el tamaño; las demás usan el tamaño por defecto
+     */
+    private static final int MAX_SHAPES = 1024;
+
+    /**
+     * Peso de cada nueva medida en la media móvil del tamaño
+     */
+    private static final double SIZE_EWMA_WEIGHT = 0.2;
+
+    private final long maxRetainedBytes;
+    private final int maxPooledCapacity;
+    private final ConcurrentLinkedDeque<byte[]>[] classes;
+    private final Map<Object, SizeEstimate> estimates = new ConcurrentHashMap<>();
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder allocated = new LongAdder();
+
+    /**
+     * @param maxRetainedBytes bytes que el pool puede retener en total; 0 desactiva la reutilización
+     * @param maxBufferBytes capacidad máxima de un arreglo reutilizable
+     */
+    @SuppressWarnings("unchecked")
+    public OutputBufferPool(long maxRetainedBytes, int maxBufferBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+        int maxShift = Math.max(MIN_CLASS_SHIFT, 31 - Integer.numberOfLeadingZeros(Math.max(maxBufferBytes, 1)));
+        this.maxPooledCapacity = 1 << maxShift;
+        this.classes = new ConcurrentLinkedDeque[maxShift - MIN_CLASS_SHIFT + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new ConcurrentLinkedDeque<>();
+        }
+    }
+
+    /**
+     * Entrega un búfer con la capacidad prevista para la forma indicada
+     *
+     * @param shape la forma del documento; debe implementar equals y hashCode
+     * @return un búfer vacío que debe liberarse con {@link PooledOutputBuffer#release()}
+     */
+    public PooledOutputBuffer acquire(Object shape) {
+        return new PooledOutputBuffer(this, shape, allocate(predictedSize(shape)));
+    }
+
+    /**
+     * @param shape la forma del documento
+     * @return el tamaño previsto del contenido, con un margen sobre la media observada
+     */
+    public int predictedSize(Object shape) {
+        SizeEstimate estimate = estimates.get(shape);
+        if (estimate == null) {
+            return DEFAULT_PREDICTION;
+        }
+        long average = estimate.average;
+        return (int) Math.min(Integer.MAX_VALUE - 8, average + average / 4);
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    public long getReused() {
+        return reused.sum();
+    }
+
+    public long getAllocated() {
+        return allocated.sum();
+    }
+
+    public int getShapes() {
+        return estimates.size();
+    }
+
+    byte[] allocate(int minCapacity) {
+        int capacity = capacityFor(minCapacity);
+        if (capacity <= maxPooledCapacity) {
+            byte[] pooled = classes[classIndex(capacity)].pollFirst();
+            if (pooled != null) {
+                retainedBytes.addAndGet(-pooled.length);
+                reused.increment();
+                return pooled;
+            }
+        }
+        allocated.increment();
+        return new byte[capacity];
+    }
+
+    void release(Object shape, byte[] buffer, int size) {
+        learn(shape, size);
+        recycle(buffer);
+    }
+
+    void recycle(byte[] buffer) {
+        int capacity = buffer.length;
+        if (capacity > maxPooledCapacity || Integer.bitCount(capacity) != 1 || capacity < MIN_CAPACITY) {
+            return;
+        }
+        if (retainedBytes.addAndGet(capacity) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-capacity);
+            return;
+        }
+        // Último en entrar, primero en salir: el arreglo más reciente es el que más
+        // probablemente siga en la caché del procesador
+        classes[classIndex(capacity)].offerFirst(buffer);
+    }
+
+    private void learn(Object shape, int size) {
+        SizeEstimate estimate = estimates.get(shape);
+        if (estimate == null) {
+            if (estimates.size() >= MAX_SHAPES) {
+                return;
+            }
+            estimate = estimates.computeIfAbsent(shape, key -> new SizeEstimate(size));
+        }
+        estimate.update(size);
+    }
+
+    /**
+     * Redondea a la siguiente potencia de dos para que el arreglo pertenezca a una clase;
+     * los tamaños por encima del máximo reutilizable se asignan exactos
+     */
+    private int capacityFor(int minCapacity) {
+        if (minCapacity <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+        if (minCapacity > maxPooledCapacity) {
+            return minCapacity;
+        }
+        return Integer.highestOneBit(minCapacity - 1) << 1;
+    }
+
+    private static int classIndex(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - MIN_CLASS_SHIFT;
+    }
+
+    /**
+     * Media móvil del tamaño de una forma. Las actualizaciones concurrentes pueden perder
+     * alguna medida, lo que es aceptable para una estimación.
+     */
+    private static final class SizeEstimate {
+
+        private volatile long average;
+
+        SizeEstimate(int size) {
+            this.average = size;
+        }
+
+        void update(int size) {
+            long current = average;
+            average = current + (long) (SIZE_EWMA_WEIGHT * (size - current));
+        }
+    }
+}
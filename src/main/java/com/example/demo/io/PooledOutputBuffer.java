@@ -0,0 +1,118 @@
+package com.example.demo.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Búfer de salida en memoria que se obtiene de un {@link OutputBufferPool} con el tamaño
+ * previsto para su contenido. A diferencia de {@code ByteArrayOutputStream} permite leer el
+ * contenido sin copiarlo mientras el búfer no se libera, como hace el lote al escribir sus
+ * entradas en el ZIP, y devolver el arreglo al pool cuando ya no se necesita. El contenido que
+ * debe conservarse después de liberarlo, como el de los reportes que se guardan en caché,
+ * necesita una copia con {@link #toByteArray()}. No es seguro para uso concurrente.
+ */
+public class PooledOutputBuffer extends OutputStream {
+
+    /**
+     * Tamaño máximo de arreglo que admiten todas las JVM
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final OutputBufferPool pool;
+    private final Object shape;
+    private byte[] buffer;
+    private int count;
+    private boolean released;
+
+    PooledOutputBuffer(OutputBufferPool pool, Object shape, byte[] buffer) {
+        this.pool = pool;
+        this.shape = shape;
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * @return los bytes escritos
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Devuelve el arreglo interno, cuyos primeros {@link #size()} bytes son el contenido.
+     * Solo es válido hasta que el búfer se libera.
+     *
+     * @return el arreglo interno
+     */
+    public byte[] array() {
+        checkNotReleased();
+        return buffer;
+    }
+
+    /**
+     * @return una copia del contenido con su tamaño exacto
+     */
+    public byte[] toByteArray() {
+        checkNotReleased();
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Escribe el contenido en otro flujo sin copiarlo
+     *
+     * @param out el flujo de destino
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        checkNotReleased();
+        out.write(buffer, 0, count);
+    }
+
+    /**
+     * Devuelve el arreglo al pool y registra el tamaño del contenido para prever el de los
+     * siguientes búferes de la misma forma. Después de liberarlo el búfer no puede usarse.
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        pool.release(shape, buffer, count);
+        buffer = null;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        checkNotReleased();
+        if (minCapacity < 0 || minCapacity > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("El contenido supera el tamaño máximo de un arreglo");
+        }
+        if (minCapacity <= buffer.length) {
+            return;
+        }
+        // El tamaño previsto se quedó corto: se crece a la siguiente clase y el arreglo
+        // anterior vuelve al pool en lugar de descartarse. Desde 1 GiB el doble no cabe en un int.
+        int doubled = buffer.length > MAX_ARRAY_SIZE / 2 ? MAX_ARRAY_SIZE : buffer.length * 2;
+        byte[] grown = pool.allocate(Math.max(minCapacity, doubled));
+        System.arraycopy(buffer, 0, grown, 0, count);
+        pool.recycle(buffer);
+        buffer = grown;
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("El búfer ya se devolvió al pool");
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.demo.job;
+
+import com.example.demo.dto.ReportJobResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+
+/**
+ * Estado de un trabajo asíncrono. Las transiciones de estado están sincronizadas;
+ * el avance se actualiza sin bloqueo desde el hilo que ejecuta el trabajo.
+ */
+class ReportJob {
+
+    private final String id;
+    private final ReportJobType type;
+    private final Instant createdAt;
+    private final Instant deadline;
+    private final int total;
+    private final Path inputFile;
+    private final Path resultFile;
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private volatile int processed;
+    private volatile ReportJobState stopReason;
+
+    private ReportJobState state = ReportJobState.QUEUED;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private Instant expiresAt;
+    private String error;
+    private Future<?> future;
+
+    ReportJob(String id, ReportJobType type, Instant createdAt, Instant deadline, int total,
+              Path inputFile, Path resultFile) {
+        this.id = id;
+        this.type = type;
+        this.createdAt = createdAt;
+        this.deadline = deadline;
+        this.total = total;
+        this.inputFile = inputFile;
+        this.resultFile = resultFile;
+    }
+
+    synchronized void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Marca el trabajo como en ejecución si todavía estaba en cola
+     *
+     * @return false si el trabajo se canceló o expiró mientras esperaba
+     */
+    synchronized boolean start(Instant now) {
+        if (state != ReportJobState.QUEUED) {
+            return false;
+        }
+        state = ReportJobState.RUNNING;
+        startedAt = now;
+        return true;
+    }
+
+    /**
+     * Registra el estado final del trabajo; no tiene efecto si ya había terminado
+     *
+     * @return true si el trabajo pasó a este estado final
+     */
+    synchronized boolean finish(ReportJobState finalState, String error, Instant now, Duration resultTtl) {
+        if (state.isFinished()) {
+            return false;
+        }
+        this.state = finalState;
+        this.error = error;
+        this.finishedAt = now;
+        this.expiresAt = now.plus(resultTtl);
+        return true;
+    }
+
+    /**
+     * Solicita detener el trabajo. Si está en cola termina inmediatamente; si está en
+     * ejecución se interrumpe y termina en el siguiente punto de avance.
+     *
+     * @param reason CANCELLED o TIMED_OUT
+     * @return true si el trabajo terminó inmediatamente
+     */
+    synchronized boolean requestStop(ReportJobState reason, Instant now, Duration resultTtl) {
+        if (state.isFinished() || stopReason != null) {
+            return false;
+        }
+        stopReason = reason;
+        if (future != null) {
+            future.cancel(state == ReportJobState.RUNNING);
+        }
+        if (state == ReportJobState.QUEUED) {
+            return finish(reason, null, now, resultTtl);
+        }
+        return false;
+    }
+
+    /**
+     * Punto de avance del trabajo: actualiza el contador y detiene la ejecución si se solicitó
+     */
+    void progress(int processed) {
+        this.processed = processed;
+        if (stopReason != null) {
+            throw new JobStoppedException(stopReason);
+        }
+    }
+
+    synchronized ReportJobResponse toResponse() {
+        Double percentage = null;
+        if (state == ReportJobState.COMPLETED) {
+            percentage = 100.0;
+        } else if (total > 0) {
+            percentage = Math.min(100.0, processed * 100.0 / total);
+        }
+        return ReportJobResponse.builder()
+                .id(id)
+                .type(type)
+                .state(state)
+                .processed(processed)
+                .total(total)
+                .percentage(percentage)
+                .createdAt(createdAt)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .deadline(deadline)
+                .expiresAt(expiresAt)
+                .error(error)
+                .resultUrl(state == ReportJobState.COMPLETED ? "/api/reports/jobs/" + id + "/result" : null)
+                .build();
+    }
+
+    String getId() {
+        return id;
+    }
+
+    ReportJobType getType() {
+        return type;
+    }
+
+    Instant getDeadline() {
+        return deadline;
+    }
+
+    Path getInputFile() {
+        return inputFile;
+    }
+
+    Path getResultFile() {
+        return resultFile;
+    }
+
+    List<SseEmitter> getEmitters() {
+        return emitters;
+    }
+
+    ReportJobState getStopReason() {
+        return stopReason;
+    }
+
+    synchronized ReportJobState getState() {
+        return state;
+    }
+
+    synchronized Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Excepción con la que se abandona la ejecución de un trabajo detenido
+     */
+    static class JobStoppedException extends RuntimeException {
+
+        JobStoppedException(ReportJobState reason) {
+            super(reason == ReportJobState.TIMED_OUT ? "El trabajo superó su plazo" : "El trabajo fue cancelado");
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.demo.job;
+
+import com.example.demo.concurrent.RenderPriority;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.ReportJobProperties;
+import com.example.demo.config.RequestEncoding;
+import com.example.demo.dto.PaymentReportRequest;
+import com.example.demo.dto.PaymentReportRequestMapper;
+import com.example.demo.dto.ReportJobResponse;
+import com.example.demo.exception.ReportGenerationException;
+import com.example.demo.exception.ReportJobNotFoundException;
+import com.example.demo.exception.ReportJobStateException;
+import com.example.demo.exception.ReportRejectedException;
+import com.example.demo.model.PaymentData;
+import com.example.demo.service.BulkReportService;
+import com.example.demo.service.PaymentReportService;
+import com.example.demo.service.StatementReportService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Servicio de trabajos asíncronos: recibe la solicitud, la guarda en disco y devuelve
+ * un identificador de inmediato. Los trabajos se ejecutan en una cola acotada; al llenarse
+ * se rechazan nuevas solicitudes. Cada trabajo tiene un plazo, puede cancelarse y su
+ * resultado se elimina automáticamente pasado un tiempo desde que termina.
+ */
+@Service
+public class ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+    private static final String FILE_PREFIX = "job-";
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final PaymentReportService paymentReportService;
+    private final StatementReportService statementReportService;
+    private final BulkReportService bulkReportService;
+    private final PaymentReportRequestMapper requestMapper;
+    private final ThreadPoolExecutor jobExecutor;
+    private final ReportJobProperties properties;
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param paymentReportService El servicio de reportes de un pago
+     * @param statementReportService El servicio de estados de cuenta
+     * @param bulkReportService El servicio de lotes de reportes
+     * @param requestMapper El conversor de solicitudes
+     * @param jobExecutor El ejecutor con la cola acotada de trabajos
+     * @param properties La configuración de los trabajos
+     */
+    public ReportJobService(PaymentReportService paymentReportService,
+                            StatementReportService statementReportService,
+                            BulkReportService bulkReportService,
+                            PaymentReportRequestMapper requestMapper,
+                            @Qualifier("reportJobExecutor") ThreadPoolExecutor jobExecutor,
+                            ReportJobProperties properties) {
+        this.paymentReportService = paymentReportService;
+        this.statementReportService = statementReportService;
+        this.bulkReportService = bulkReportService;
+        this.requestMapper = requestMapper;
+        this.jobExecutor = jobExecutor;
+        this.properties = properties;
+    }
+
+    /**
+     * Prepara el directorio de trabajo y elimina los archivos de ejecuciones anteriores,
+     * ya que los trabajos no sobreviven a un reinicio
+     */
+    @PostConstruct
+    void prepareDirectory() throws IOException {
+        Files.createDirectories(properties.getDirectory());
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(properties.getDirectory(), FILE_PREFIX + "*")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+    }
+
+    /**
+     * Encola la generación del reporte de un pago
+     *
+     * @param request la solicitud del reporte
+     * @param deadlineSeconds plazo solicitado en segundos; null para el plazo por defecto
+     * @return el estado inicial del trabajo
+     */
+    public ReportJobResponse submitPayment(PaymentReportRequest request, Long deadlineSeconds) {
+        ensureCapacity();
+        PaymentReportConfig config = requestMapper.toConfig(request);
+        PaymentData paymentData = requestMapper.toPaymentData(request);
+        return submit(ReportJobType.PAYMENT, deadlineSeconds, null, 1, (outputStream, progress) -> {
+            paymentReportService.writePdfReport(config, paymentData, outputStream, RenderPriority.BULK);
+            progress.accept(1);
+        });
+    }
+
+    /**
+     * Encola la generación de un estado de cuenta a partir de un flujo NDJSON
+     *
+     * @param ndjson la cabecera y los pagos, uno por línea
+     * @param deadlineSeconds plazo solicitado en segundos; null para el plazo por defecto
+     * @return el estado inicial del trabajo
+     */
+    public ReportJobResponse submitStatement(InputStream ndjson, Long deadlineSeconds) {
+        ensureCapacity();
+        String id = UUID.randomUUID().toString();
+        Path input = properties.getDirectory().resolve(FILE_PREFIX + id + ".ndjson");
+        int lines = spool(ndjson, input, true);
+        return submit(id, ReportJobType.STATEMENT, deadlineSeconds, input, Math.max(0, lines - 1),
+                (outputStream, progress) ->
+                        statementReportService.writeStatement(input, outputStream, RenderPriority.BULK, progress));
+    }
+
+    /**
+     * Encola la generación de un lote de reportes a partir de un flujo NDJSON
+     *
+     * @param ndjson las solicitudes, una por línea
+     * @param deadlineSeconds plazo solicitado en segundos; null para el plazo por defecto
+     * @return el estado inicial del trabajo
+     */
+    public ReportJobResponse submitBulk(InputStream ndjson, Long deadlineSeconds) {
+        return submitBulk(ndjson, RequestEncoding.JSON, deadlineSeconds);
+    }
+
+    /**
+     * Encola la generación de un lote de reportes a partir de un flujo en la codificación
+     * indicada. Solo en NDJSON se conoce de antemano el número de solicitudes
+     *
+     * @param requests las solicitudes
+     * @param encoding la codificación del flujo: NDJSON, secuencia CBOR o flujo Smile
+     * @param deadlineSeconds plazo solicitado en segundos; null para el plazo por defecto
+     * @return el estado inicial del trabajo
+     */
+    public ReportJobResponse submitBulk(InputStream requests, RequestEncoding encoding, Long deadlineSeconds) {
+        ensureCapacity();
+        String id = UUID.randomUUID().toString();
+        String extension = encoding == RequestEncoding.JSON ? "ndjson" : encoding.name().toLowerCase();
+        Path input = properties.getDirectory().resolve(FILE_PREFIX + id + "." + extension);
+        int lines = spool(requests, input, encoding == RequestEncoding.JSON);
+        return submit(id, ReportJobType.BULK, deadlineSeconds, input, lines, (outputStream, progress) -> {
+            try (InputStream in = Files.newInputStream(input)) {
+                bulkReportService.writeBulkZip(in, encoding, outputStream, progress);
+            }
+        });
+    }
+
+    /**
+     * @param jobId el identificador del trabajo
+     * @return el estado actual del trabajo
+     * @throws ReportJobNotFoundException si el trabajo no existe o ya expiró
+     */
+    public ReportJobResponse getJob(String jobId) {
+        return find(jobId).toResponse();
+    }
+
+    /**
+     * Cancela un trabajo en cola o en ejecución. Cancelar un trabajo terminado no tiene efecto.
+     *
+     * @param jobId el identificador del trabajo
+     * @return el estado del trabajo tras la cancelación
+     */
+    public ReportJobResponse cancel(String jobId) {
+        ReportJob job = find(jobId);
+        stop(job, ReportJobState.CANCELLED);
+        return job.toResponse();
+    }
+
+    /**
+     * @param jobId el identificador del trabajo
+     * @return el resultado del trabajo
+     * @throws ReportJobStateException si el trabajo no terminó correctamente
+     */
+    public Resource getResult(String jobId) {
+        ReportJob job = find(jobId);
+        if (job.getState() != ReportJobState.COMPLETED) {
+            throw new ReportJobStateException("El resultado del trabajo no está disponible, estado: " + job.getState());
+        }
+        String filename = job.getType().name().toLowerCase() + "-report-" + jobId + "." + job.getType().getExtension();
+        return new FileSystemResource(job.getResultFile()) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+
+    /**
+     * Suscribe un cliente a los eventos de avance del trabajo. Se envía el estado actual de
+     * inmediato, eventos {@code progress} periódicos y un evento {@code finished} al terminar.
+     *
+     * @param jobId el identificador del trabajo
+     * @return el emisor de eventos del cliente
+     */
+    public SseEmitter subscribe(String jobId) {
+        ReportJob job = find(jobId);
+        Duration timeout = Duration.between(Instant.now(), job.getDeadline()).plus(properties.getRetryAfter());
+        SseEmitter emitter = new SseEmitter(Math.max(1000, timeout.toMillis()));
+        emitter.onCompletion(() -> job.getEmitters().remove(emitter));
+        emitter.onTimeout(() -> job.getEmitters().remove(emitter));
+        emitter.onError(e -> job.getEmitters().remove(emitter));
+
+        job.getEmitters().add(emitter);
+        ReportJobResponse status = job.toResponse();
+        if (status.getState().isFinished()) {
+            publishFinished(job, status);
+        } else {
+            send(job, emitter, "progress", status);
+        }
+        return emitter;
+    }
+
+    /**
+     * Envía el avance de los trabajos pendientes a los clientes suscritos
+     */
+    @Scheduled(fixedDelayString = "${report.jobs.progress-interval-ms:1000}")
+    void publishProgress() {
+        for (ReportJob job : jobs.values()) {
+            if (job.getEmitters().isEmpty() || job.getState().isFinished()) {
+                continue;
+            }
+            ReportJobResponse status = job.toResponse();
+            for (SseEmitter emitter : job.getEmitters()) {
+                send(job, emitter, "progress", status);
+            }
+        }
+    }
+
+    /**
+     * Detiene los trabajos que superaron su plazo y elimina los trabajos terminados que expiraron
+     */
+    @Scheduled(fixedDelayString = "${report.jobs.sweep-interval-ms:1000}")
+    void sweep() {
+        Instant now = Instant.now();
+        for (ReportJob job : jobs.values()) {
+            if (!job.getState().isFinished()) {
+                if (now.isAfter(job.getDeadline())) {
+                    logger.warn("El trabajo {} superó su plazo, deteniéndolo", job.getId());
+                    stop(job, ReportJobState.TIMED_OUT);
+                }
+            } else if (now.isAfter(job.getExpiresAt())) {
+                jobs.remove(job.getId());
+                job.getEmitters().forEach(SseEmitter::complete);
+                deleteQuietly(job.getResultFile());
+                logger.debug("Trabajo {} expirado y eliminado", job.getId());
+            }
+        }
+    }
+
+    private ReportJobResponse submit(ReportJobType type, Long deadlineSeconds, Path input, int total,
+                                     ReportJobTask task) {
+        return submit(UUID.randomUUID().toString(), type, deadlineSeconds, input, total, task);
+    }
+
+    private ReportJobResponse submit(String id, ReportJobType type, Long deadlineSeconds, Path input, int total,
+                                     ReportJobTask task) {
+        Instant now = Instant.now();
+        Path result = properties.getDirectory().resolve(FILE_PREFIX + id + "." + type.getExtension());
+        ReportJob job = new ReportJob(id, type, now, now.plus(deadline(deadlineSeconds)), total, input, result);
+        jobs.put(id, job);
+        try {
+            job.setFuture(jobExecutor.submit(() -> execute(job, task)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(id);
+            deleteQuietly(input);
+            throw rejected();
+        }
+        logger.info("Trabajo {} de tipo {} encolado con {} elementos", id, type, total);
+        return job.toResponse();
+    }
+
+    private void execute(ReportJob job, ReportJobTask task) {
+        if (!job.start(Instant.now())) {
+            cleanUp(job);
+            return;
+        }
+        if (Instant.now().isAfter(job.getDeadline())) {
+            finish(job, ReportJobState.TIMED_OUT, "El plazo venció mientras el trabajo esperaba en la cola");
+            return;
+        }
+
+        logger.info("Iniciando trabajo {} de tipo {}", job.getId(), job.getType());
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(job.getResultFile()))) {
+            task.run(outputStream, job::progress);
+        } catch (Exception e) {
+            if (job.getStopReason() != null) {
+                finish(job, job.getStopReason(), null);
+            } else {
+                logger.error("Error en el trabajo {}", job.getId(), e);
+                finish(job, ReportJobState.FAILED, rootMessage(e));
+            }
+            return;
+        }
+        if (job.getStopReason() != null) {
+            finish(job, job.getStopReason(), null);
+        } else {
+            finish(job, ReportJobState.COMPLETED, null);
+        }
+    }
+
+    private void finish(ReportJob job, ReportJobState state, String error) {
+        if (job.finish(state, error, Instant.now(), properties.getResultTtl())) {
+            logger.info("Trabajo {} terminado con estado {}", job.getId(), state);
+        }
+        cleanUp(job);
+        publishFinished(job, job.toResponse());
+    }
+
+    private void stop(ReportJob job, ReportJobState reason) {
+        if (job.requestStop(reason, Instant.now(), properties.getResultTtl())) {
+            // El trabajo seguía en cola: se retira y se notifica ya, sin esperar a un hilo de trabajo
+            jobExecutor.purge();
+            cleanUp(job);
+            publishFinished(job, job.toResponse());
+        }
+    }
+
+    private void cleanUp(ReportJob job) {
+        deleteQuietly(job.getInputFile());
+        if (job.getState() != ReportJobState.COMPLETED) {
+            deleteQuietly(job.getResultFile());
+        }
+    }
+
+    private void publishFinished(ReportJob job, ReportJobResponse status) {
+        for (SseEmitter emitter : job.getEmitters()) {
+            if (send(job, emitter, "finished", status)) {
+                emitter.complete();
+            }
+        }
+    }
+
+    private boolean send(ReportJob job, SseEmitter emitter, String event, ReportJobResponse status) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(status, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // El cliente se desconectó
+            job.getEmitters().remove(emitter);
+            return false;
+        }
+    }
+
+    private ReportJob find(String jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ReportJobNotFoundException(jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Rechaza la solicitud antes de leer su cuerpo si la cola ya está llena
+     */
+    private void ensureCapacity() {
+        if (jobExecutor.getQueue().remainingCapacity() == 0) {
+            throw rejected();
+        }
+    }
+
+    private ReportRejectedException rejected() {
+        logger.warn("Cola de trabajos llena, solicitud rechazada");
+        return new ReportRejectedException("La cola de trabajos de reportes está llena",
+                HttpStatus.SERVICE_UNAVAILABLE, properties.getRetryAfter());
+    }
+
+    private Duration deadline(Long deadlineSeconds) {
+        if (deadlineSeconds == null || deadlineSeconds <= 0) {
+            return properties.getDefaultDeadline();
+        }
+        Duration requested = Duration.ofSeconds(deadlineSeconds);
+        return requested.compareTo(properties.getMaxDeadline()) > 0 ? properties.getMaxDeadline() : requested;
+    }
+
+    /**
+     * Copia la entrada a disco, ya que la conexión se libera antes de ejecutar el trabajo
+     *
+     * @param countLines si la entrada es texto por líneas y se cuentan
+     * @return el número de líneas no vacías de la entrada, o 0 si no se cuentan
+     */
+    private int spool(InputStream ndjson, Path target, boolean countLines) {
+        int lines = 0;
+        boolean lineHasContent = false;
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = ndjson.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                for (int i = 0; countLines && i < read; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n') {
+                        if (lineHasContent) {
+                            lines++;
+                        }
+                        lineHasContent = false;
+                    } else if (!Character.isWhitespace(b)) {
+                        lineHasContent = true;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            deleteQuietly(target);
+            throw new ReportGenerationException("Error al guardar la solicitud del trabajo: " + e.getMessage(), e);
+        }
+        return lineHasContent ? lines + 1 : lines;
+    }
+
+    private String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("No se pudo eliminar el archivo {}: {}", path, e.getMessage());
+        }
+    }
+}
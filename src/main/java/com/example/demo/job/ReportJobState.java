@@ -0,0 +1,23 @@
+package com.example.demo.job;
+
+/**
+ * Estados por los que pasa un trabajo asíncrono
+ */
+public enum ReportJobState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED,
+    /**
+     * El trabajo superó su plazo antes de terminar
+     */
+    TIMED_OUT;
+
+    /**
+     * @return true si el trabajo ya no va a cambiar de estado
+     */
+    public boolean isFinished() {
+        return this != QUEUED && this != RUNNING;
+    }
+}
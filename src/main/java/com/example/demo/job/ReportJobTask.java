@@ -0,0 +1,17 @@
+package com.example.demo.job;
+
+import java.io.OutputStream;
+import java.util.function.IntConsumer;
+
+/**
+ * Trabajo de generación que escribe su resultado en un flujo e informa de su avance
+ */
+@FunctionalInterface
+interface ReportJobTask {
+
+    /**
+     * @param outputStream el flujo donde se escribe el resultado
+     * @param progress recibe el número de elementos procesados; lanza una excepción si el trabajo debe detenerse
+     */
+    void run(OutputStream outputStream, IntConsumer progress) throws Exception;
+}
@@ -0,0 +1,29 @@
+package com.example.demo.job;
+
+/**
+ * Tipos de trabajo asíncrono y el formato de su resultado
+ */
+public enum ReportJobType {
+    /**
+     * Reporte de un único pago
+     */
+    PAYMENT("pdf"),
+    /**
+     * Estado de cuenta con todos los pagos de un cliente
+     */
+    STATEMENT("pdf"),
+    /**
+     * Lote de reportes empaquetados en un ZIP
+     */
+    BULK("zip");
+
+    private final String extension;
+
+    ReportJobType(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
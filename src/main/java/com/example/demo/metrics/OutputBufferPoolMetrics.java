@@ -0,0 +1,39 @@
+package com.example.demo.metrics;
+
+import com.example.demo.io.OutputBufferPool;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publica el estado del pool de búferes de salida: bytes retenidos, arreglos reutilizados
+ * frente a asignados y formas de documento aprendidas
+ */
+@Component
+public class OutputBufferPoolMetrics implements MeterBinder {
+
+    private final OutputBufferPool bufferPool;
+
+    public OutputBufferPoolMetrics(OutputBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("report.buffers.retained", bufferPool, OutputBufferPool::getRetainedBytes)
+                .description("Bytes retenidos por el pool entre usos")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("report.buffers.shapes", bufferPool, OutputBufferPool::getShapes)
+                .description("Formas de documento con tamaño aprendido")
+                .register(registry);
+        FunctionCounter.builder("report.buffers.reused", bufferPool, OutputBufferPool::getReused)
+                .description("Búferes servidos con un arreglo reutilizado")
+                .register(registry);
+        FunctionCounter.builder("report.buffers.allocated", bufferPool, OutputBufferPool::getAllocated)
+                .description("Arreglos nuevos asignados por el pool")
+                .register(registry);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.metrics;
+
+import com.example.demo.concurrent.RenderBulkhead;
+import com.example.demo.concurrent.RenderPriority;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publica el estado del limitador de renderizados por carril de prioridad (etiqueta
+ * {@code lane}): turnos ocupados y concedidos, solicitudes en espera, rechazos, turnos
+ * adelantados por superar la espera objetivo, esperas por encima del objetivo y la espera media
+ */
+@Component
+public class RenderBulkheadMetrics implements MeterBinder {
+
+    private final RenderBulkhead renderBulkhead;
+
+    public RenderBulkheadMetrics(RenderBulkhead renderBulkhead) {
+        this.renderBulkhead = renderBulkhead;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("report.bulkhead.max.concurrent", renderBulkhead, RenderBulkhead::getMaxConcurrent)
+                .description("Turnos de renderizado disponibles en total")
+                .register(registry);
+        for (RenderPriority priority : RenderPriority.values()) {
+            String lane = priority.name().toLowerCase();
+            Gauge.builder("report.bulkhead.active", renderBulkhead, bulkhead -> bulkhead.getActive(priority))
+                    .description("Turnos de renderizado ocupados")
+                    .tag("lane", lane)
+                    .register(registry);
+            Gauge.builder("report.bulkhead.waiting", renderBulkhead, bulkhead -> bulkhead.getWaiting(priority))
+                    .description("Solicitudes esperando turno para renderizar")
+                    .tag("lane", lane)
+                    .register(registry);
+            Gauge.builder("report.bulkhead.wait.average", renderBulkhead,
+                            bulkhead -> bulkhead.getAverageWait(priority).toNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1))
+                    .description("Media móvil de la espera por un turno")
+                    .baseUnit("milliseconds")
+                    .tag("lane", lane)
+                    .register(registry);
+            FunctionCounter.builder("report.bulkhead.granted", renderBulkhead, bulkhead -> bulkhead.getGranted(priority))
+                    .description("Turnos de renderizado concedidos")
+                    .tag("lane", lane)
+                    .register(registry);
+            FunctionCounter.builder("report.bulkhead.rejected", renderBulkhead, bulkhead -> bulkhead.getRejected(priority))
+                    .description("Solicitudes rechazadas por falta de turno")
+                    .tag("lane", lane)
+                    .register(registry);
+            FunctionCounter.builder("report.bulkhead.promoted", renderBulkhead, bulkhead -> bulkhead.getPromoted(priority))
+                    .description("Turnos adelantados al reparto por pesos porque la espera superaba el objetivo")
+                    .tag("lane", lane)
+                    .register(registry);
+            FunctionCounter.builder("report.bulkhead.slo.missed", renderBulkhead, bulkhead -> bulkhead.getSloMissed(priority))
+                    .description("Turnos concedidos después de la espera objetivo del carril")
+                    .tag("lane", lane)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo.metrics;
+
+/**
+ * Etapas de la generación de un reporte que se miden por separado
+ */
+public enum RenderStage {
+    APPLY_THEME("applyTheme", null),
+    ADD_LOGO("addLogo", "logo"),
+    ADD_TITLE("addTitle", "title"),
+    ADD_PAYMENT_DETAILS("addPaymentDetails", "payment-details"),
+    ADD_USER_INFO("addUserInfo", "user-info"),
+    ADD_TIMESTAMP("addTimestamp", "timestamp"),
+    ADD_FOOTER_MESSAGE("addFooterMessage", "footer"),
+    /**
+     * Secciones de una plantilla que no corresponden a ninguna de las etapas anteriores
+     */
+    ADD_SECTION("addSection", null),
+    /**
+     * Cierre del documento: escritura de la página, las fuentes y la tabla de referencias
+     */
+    DOCUMENT_CLOSE("document.close", null),
+    /**
+     * Estampado de los valores sobre un esqueleto precalculado, incluida la escritura del PDF
+     */
+    SKELETON_STAMP("skeleton.stamp", null),
+    /**
+     * Escritura directa de un reporte en coordenadas precalculadas, incluida la escritura del PDF
+     */
+    DIRECT_WRITE("direct.write", null);
+
+    private final String tagValue;
+    private final String sectionId;
+
+    RenderStage(String tagValue, String sectionId) {
+        this.tagValue = tagValue;
+        this.sectionId = sectionId;
+    }
+
+    public String getTagValue() {
+        return tagValue;
+    }
+
+    /**
+     * @param sectionId el identificador de una sección de plantilla
+     * @return la etapa con la que se mide la sección
+     */
+    public static RenderStage forSection(String sectionId) {
+        for (RenderStage stage : values()) {
+            if (sectionId.equals(stage.sectionId)) {
+                return stage;
+            }
+        }
+        return ADD_SECTION;
+    }
+}
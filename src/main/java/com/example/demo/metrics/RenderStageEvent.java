@@ -0,0 +1,35 @@
+package com.example.demo.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento de JFR de una etapa del generador, con la transacción y la forma del renderizado al
+ * que pertenece y los bytes del PDF que se escribieron durante la etapa
+ */
+@Name("com.example.demo.RenderStage")
+@Label("Etapa de renderizado")
+@Description("Etapa del generador de reportes de pago")
+@Category({"Reportes", "Generador"})
+@Threshold("20 ms")
+@StackTrace(false)
+public class RenderStageEvent extends jdk.jfr.Event {
+
+    @Label("Etapa")
+    String stage;
+
+    @Label("Transacción")
+    String transactionId;
+
+    @Label("Forma")
+    String shape;
+
+    @Label("Bytes escritos")
+    @DataAmount
+    long bytes;
+}
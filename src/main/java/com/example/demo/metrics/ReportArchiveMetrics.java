@@ -0,0 +1,46 @@
+package com.example.demo.metrics;
+
+import com.example.demo.archive.ReportArchive;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publica el estado del archivo de reportes: reportes y bytes vigentes, segmentos abiertos,
+ * reportes archivados y servidos desde el archivo y bytes copiados al compactar
+ */
+@Component
+public class ReportArchiveMetrics implements MeterBinder {
+
+    private final ReportArchive archive;
+
+    public ReportArchiveMetrics(ReportArchive archive) {
+        this.archive = archive;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("report.archive.entries", archive, ReportArchive::getEntries)
+                .description("Reportes vigentes en el archivo")
+                .register(registry);
+        Gauge.builder("report.archive.live", archive, ReportArchive::getLiveBytes)
+                .description("Bytes de los reportes vigentes en el archivo")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("report.archive.segments", archive, ReportArchive::getSegments)
+                .description("Segmentos del archivo")
+                .register(registry);
+        FunctionCounter.builder("report.archive.stored", archive, ReportArchive::getStored)
+                .description("Reportes guardados en el archivo")
+                .register(registry);
+        FunctionCounter.builder("report.archive.served", archive, ReportArchive::getServed)
+                .description("Reportes enviados desde el archivo")
+                .register(registry);
+        FunctionCounter.builder("report.archive.compacted", archive, ReportArchive::getCompactedBytes)
+                .description("Bytes copiados al reescribir segmentos")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.demo.metrics;
+
+import com.example.demo.config.FlightRecorderProperties;
+import com.example.demo.dto.FlightRecordingDump;
+import com.example.demo.exception.FlightRecordingUnavailableException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Grabación continua de JFR con los eventos de los reportes, acotada por antigüedad y tamaño,
+ * para diagnosticar reportes lentos esporádicos sin adjuntar un perfilador. Los eventos de
+ * renderizado, etapa y servicio solo se graban si superan su umbral.
+ * <p>
+ * El volcado toma una instantánea de todas las grabaciones en curso, de modo que también
+ * funciona con una grabación iniciada con {@code -XX:StartFlightRecording}. Solo se conservan
+ * los últimos volcados para que las llamadas repetidas no llenen el disco.
+ */
+@Component
+public class ReportFlightRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportFlightRecorder.class);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS");
+    private static final String DUMP_PREFIX = "report-";
+    private static final String DUMP_SUFFIX = ".jfr";
+
+    private final FlightRecorderProperties properties;
+    private Recording recording;
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param properties La configuración de la grabación
+     */
+    public ReportFlightRecorder(FlightRecorderProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    void start() throws IOException, ParseException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            logger.warn("JFR no está disponible en esta JVM; no se inicia la grabación continua");
+            return;
+        }
+        recording = new Recording(Configuration.getConfiguration(properties.getSettings()));
+        recording.setName("report-continuous");
+        recording.setToDisk(true);
+        recording.setMaxAge(properties.getMaxAge());
+        recording.setMaxSize(properties.getMaxSizeBytes());
+        recording.enable(ReportRenderEvent.class).withThreshold(properties.getRenderThreshold());
+        recording.enable(RenderStageEvent.class).withThreshold(properties.getStageThreshold());
+        recording.enable(ReportServiceEvent.class).withThreshold(properties.getServiceThreshold());
+        recording.start();
+        logger.info("Grabación continua de JFR iniciada (configuración {}, últimos {})",
+                properties.getSettings(), properties.getMaxAge());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    /**
+     * Vuelca en un archivo los datos de las grabaciones en curso y elimina los volcados
+     * anteriores que superan el número que se conserva
+     *
+     * @return el nombre del archivo escrito y el intervalo que cubre
+     * @throws FlightRecordingUnavailableException si no hay ninguna grabación en curso
+     */
+    public synchronized FlightRecordingDump dump() throws IOException {
+        if (!FlightRecorder.isAvailable()) {
+            throw new FlightRecordingUnavailableException("JFR no está disponible en esta JVM");
+        }
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            if (snapshot.getSize() == 0) {
+                throw new FlightRecordingUnavailableException("No hay ninguna grabación de JFR en curso");
+            }
+            Files.createDirectories(properties.getDumpDirectory());
+            Path file = properties.getDumpDirectory()
+                    .resolve(DUMP_PREFIX + LocalDateTime.now().format(FILE_TIMESTAMP) + DUMP_SUFFIX)
+                    .toAbsolutePath();
+            snapshot.dump(file);
+            logger.info("Grabación de JFR volcada en {}", file);
+            deleteOldDumps();
+            return FlightRecordingDump.builder()
+                    .file(file.getFileName().toString())
+                    .size(Files.size(file))
+                    .startTime(snapshot.getStartTime())
+                    .endTime(snapshot.getStopTime())
+                    .build();
+        }
+    }
+
+    /**
+     * Conserva los volcados más recientes; el nombre lleva la fecha, así que el orden
+     * alfabético es el cronológico. Un fallo al eliminar no impide entregar el volcado.
+     */
+    private void deleteOldDumps() {
+        int maxDumps = Math.max(1, properties.getMaxDumps());
+        try (Stream<Path> files = Files.list(properties.getDumpDirectory())) {
+            List<Path> dumps = files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(DUMP_PREFIX) && name.endsWith(DUMP_SUFFIX);
+                    })
+                    .sorted(Comparator.comparing(Path::getFileName).reversed())
+                    .toList();
+            for (Path old : dumps.subList(Math.min(maxDumps, dumps.size()), dumps.size())) {
+                Files.deleteIfExists(old);
+                logger.debug("Volcado de JFR antiguo eliminado: {}", old);
+            }
+        } catch (IOException e) {
+            logger.warn("No se pudieron eliminar los volcados de JFR antiguos: {}", e.getMessage());
+        }
+    }
+}
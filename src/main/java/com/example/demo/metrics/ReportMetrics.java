@@ -0,0 +1,340 @@
+package com.example.demo.metrics;
+
+import com.example.demo.concurrent.SingleFlight;
+import com.example.demo.config.OutputProfile;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.RenderMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Métricas de la generación de reportes: duración de cada etapa del generador, tamaño de los
+ * PDF, renderizados en curso, fallos por causa, latencia de los servicios y renderizados
+ * compartidos por solicitudes idénticas. Se publican en
+ * {@code /actuator/metrics} con el prefijo {@code report.}
+ * <p>
+ * Los renderizados, sus etapas y las operaciones de los servicios emiten además eventos de JFR
+ * con la transacción y la forma del reporte ({@link ReportRenderEvent}, {@link RenderStageEvent}
+ * y {@link ReportServiceEvent}). Los datos de un evento solo se completan si supera su umbral
+ * en la grabación en curso.
+ */
+@Component
+public class ReportMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry registry;
+    private final Map<RenderStage, Timer> stageTimers = new EnumMap<>(RenderStage.class);
+    private final Map<OutputProfile, DistributionSummary> outputBytes = new EnumMap<>(OutputProfile.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /**
+     * Renderizado en curso en cada hilo, del que toman la transacción y la forma los eventos de etapa
+     */
+    private final ThreadLocal<ActiveRender> activeRender = new ThreadLocal<>();
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param registry El registro de métricas de la aplicación
+     */
+    public ReportMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (RenderStage stage : RenderStage.values()) {
+            stageTimers.put(stage, Timer.builder("report.render.stage")
+                    .description("Duración de cada etapa de la generación de un reporte")
+                    .tag("stage", stage.getTagValue())
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        for (OutputProfile outputProfile : OutputProfile.values()) {
+            outputBytes.put(outputProfile, DistributionSummary.builder("report.render.output")
+                    .description("Tamaño de los PDF generados por perfil de salida")
+                    .baseUnit("bytes")
+                    .tag("output", outputProfile.name().toLowerCase())
+                    .publishPercentiles(PERCENTILES)
+                    .register(registry));
+        }
+        Gauge.builder("report.render.in.flight", inFlight, AtomicInteger::get)
+                .description("Reportes que se están generando en este momento")
+                .register(registry);
+    }
+
+    /**
+     * Ejecuta y mide una etapa del generador
+     *
+     * @param stage la etapa
+     * @param action el trabajo de la etapa
+     */
+    public <E extends Exception> void recordStage(RenderStage stage, StageAction<E> action) throws E {
+        Stage measurement = startStage(stage);
+        try {
+            action.run();
+        } finally {
+            measurement.end();
+        }
+    }
+
+    /**
+     * Empieza a medir una etapa cuyo trabajo no cabe en un {@link StageAction}
+     *
+     * @param stage la etapa
+     * @return la medición, que se termina con {@link Stage#end()}
+     */
+    public Stage startStage(RenderStage stage) {
+        return new Stage(stage, activeRender.get());
+    }
+
+    /**
+     * Registra el inicio de un renderizado
+     *
+     * @param config la configuración del reporte
+     * @param transactionId la transacción del pago
+     * @param bytesWritten los bytes del PDF escritos hasta el momento
+     * @return el evento del renderizado, que se entrega al registrar su fin
+     */
+    public ReportRenderEvent renderStarted(PaymentReportConfig config, String transactionId, LongSupplier bytesWritten) {
+        inFlight.incrementAndGet();
+        ReportRenderEvent event = new ReportRenderEvent();
+        event.begin();
+        activeRender.set(new ActiveRender(config, transactionId, bytesWritten, activeRender.get()));
+        return event;
+    }
+
+    /**
+     * Registra el fin de un renderizado correcto y el tamaño del PDF
+     *
+     * @param event el evento devuelto al iniciar el renderizado
+     * @param path el camino con el que se generó el PDF
+     * @param bytes los bytes escritos
+     */
+    public void renderCompleted(ReportRenderEvent event, RenderMode path, long bytes) {
+        inFlight.decrementAndGet();
+        ActiveRender render = endRender();
+        outputBytes.get(render.config().getOutputProfile()).record(bytes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.transactionId = render.transactionId();
+            event.shape = shape(render.config());
+            event.path = path.name();
+            event.bytes = bytes;
+            event.outcome = "success";
+            event.commit();
+        }
+    }
+
+    /**
+     * Registra el fin de un renderizado fallido, etiquetado con la causa original del error
+     *
+     * @param event el evento devuelto al iniciar el renderizado
+     * @param error la excepción con la que terminó el renderizado
+     */
+    public void renderFailed(ReportRenderEvent event, Throwable error) {
+        inFlight.decrementAndGet();
+        ActiveRender render = endRender();
+        event.end();
+        if (event.shouldCommit()) {
+            event.transactionId = render.transactionId();
+            event.shape = shape(render.config());
+            event.bytes = render.bytesWritten().getAsLong();
+            event.outcome = rootCause(error).getClass().getSimpleName();
+            event.commit();
+        }
+        Counter.builder("report.render.failures")
+                .description("Renderizados fallidos por causa")
+                .tag("exception", error.getClass().getSimpleName())
+                .tag("cause", rootCause(error).getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Registra la duración de una operación de un servicio de reportes
+     *
+     * @param operation la operación, por ejemplo {@code write} o {@code generate}
+     * @param profile el perfil de la configuración, o null si la solicitud no indicó ninguno
+     * @param outcome el resultado: {@code success}, {@code rejected} o {@code error}
+     * @param nanos la duración en nanosegundos
+     */
+    public void recordServiceLatency(String operation, String profile, String outcome, long nanos) {
+        Timer.builder("report.service.latency")
+                .description("Latencia de las operaciones de los servicios de reportes")
+                .tag("operation", operation)
+                .tag("profile", profile != null ? profile : "none")
+                .tag("outcome", outcome)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Empieza el evento de JFR de una operación de un servicio
+     *
+     * @return el evento, que se entrega a {@link #serviceCompleted}
+     */
+    public ReportServiceEvent serviceStarted() {
+        ReportServiceEvent event = new ReportServiceEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Termina el evento de JFR de una operación de un servicio; sus datos solo se completan si
+     * la operación superó el umbral
+     *
+     * @param event el evento devuelto por {@link #serviceStarted()}
+     * @param operation la operación
+     * @param config la configuración del reporte
+     * @param transactionId la transacción del pago
+     * @param outcome el resultado de la operación
+     * @param bytes el tamaño del PDF, o -1 si no se conoce
+     */
+    public void serviceCompleted(ReportServiceEvent event, String operation, PaymentReportConfig config,
+                                 String transactionId, String outcome, long bytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.transactionId = transactionId;
+            event.profile = config.getProfile();
+            event.shape = shape(config);
+            event.outcome = outcome;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Cuenta un recibo incluido en un paquete según de dónde se obtuvo
+     *
+     * @param source {@code cache}, {@code archive} o {@code render}
+     */
+    public void recordBundleReceipt(String source) {
+        Counter.builder("report.bundle.receipts")
+                .description("Recibos incluidos en paquetes según su origen")
+                .tag("source", source)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Publica la actividad de los renderizados compartidos por solicitudes idénticas simultáneas
+     *
+     * @param flights los renderizados compartidos
+     */
+    public void registerCoalescing(SingleFlight<?, ?> flights) {
+        FunctionCounter.builder("report.coalescing.executed", flights, SingleFlight::getExecuted)
+                .description("Renderizados iniciados por una solicitud sin otra igual en curso")
+                .register(registry);
+        FunctionCounter.builder("report.coalescing.joined", flights, SingleFlight::getJoined)
+                .description("Solicitudes que recibieron el PDF de un renderizado igual en curso")
+                .register(registry);
+        FunctionCounter.builder("report.coalescing.cancelled", flights, SingleFlight::getCancelled)
+                .description("Renderizados cancelados porque todas sus solicitudes se desconectaron")
+                .register(registry);
+        Gauge.builder("report.coalescing.in.flight", flights, SingleFlight::getInFlight)
+                .description("Renderizados compartidos en curso")
+                .register(registry);
+    }
+
+    private ActiveRender endRender() {
+        ActiveRender render = activeRender.get();
+        if (render.previous() != null) {
+            activeRender.set(render.previous());
+        } else {
+            activeRender.remove();
+        }
+        return render;
+    }
+
+    /**
+     * Describe las propiedades de la configuración que determinan el coste del renderizado
+     */
+    private static String shape(PaymentReportConfig config) {
+        return "template=" + (config.getTemplate() != null ? config.getTemplate() : "default")
+                + " theme=" + config.getTheme()
+                + " format=" + config.getFormat()
+                + " mode=" + config.getRenderMode()
+                + " output=" + config.getOutputProfile()
+                + " logo=" + config.isIncludeLogo()
+                + " title=" + length(config.getTitle())
+                + " footer=" + length(config.getFooterMessage());
+    }
+
+    private static int length(String text) {
+        return text != null ? text.length() : 0;
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Medición de una etapa en curso: su duración va al temporizador de la etapa y, si supera
+     * el umbral, a un evento de JFR
+     */
+    public final class Stage {
+
+        private final RenderStage stage;
+        private final ActiveRender render;
+        private final RenderStageEvent event = new RenderStageEvent();
+        private final long bytesBefore;
+        private final long start;
+
+        private Stage(RenderStage stage, ActiveRender render) {
+            this.stage = stage;
+            this.render = render;
+            this.bytesBefore = render != null ? render.bytesWritten().getAsLong() : 0;
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Termina la medición de la etapa
+         */
+        public void end() {
+            stageTimers.get(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage.getTagValue();
+                if (render != null) {
+                    event.transactionId = render.transactionId();
+                    event.shape = shape(render.config());
+                    event.bytes = render.bytesWritten().getAsLong() - bytesBefore;
+                }
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Un renderizado en curso; {@code previous} es el renderizado que estaba en curso en el
+     * mismo hilo al empezar este, si lo había
+     */
+    private record ActiveRender(PaymentReportConfig config, String transactionId, LongSupplier bytesWritten,
+                                ActiveRender previous) {
+    }
+
+    /**
+     * Trabajo de una etapa, que puede lanzar las excepciones de iText
+     */
+    @FunctionalInterface
+    public interface StageAction<E extends Exception> {
+        void run() throws E;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento de JFR de un renderizado completo del generador. Solo se graban los renderizados que
+ * superan el umbral, de modo que con una grabación continua quedan registrados los lentos sin
+ * coste apreciable para el resto.
+ */
+@Name("com.example.demo.ReportRender")
+@Label("Renderizado de reporte")
+@Description("Renderizado de un reporte de pago por el generador")
+@Category({"Reportes", "Generador"})
+@Threshold("50 ms")
+@StackTrace(false)
+public class ReportRenderEvent extends jdk.jfr.Event {
+
+    @Label("Transacción")
+    String transactionId;
+
+    @Label("Forma")
+    @Description("Plantilla, tema, formato, modo de renderizado, perfil de salida, logo y longitud de los textos")
+    String shape;
+
+    @Label("Camino")
+    @Description("Cómo se generó el PDF: estampado sobre el esqueleto, escritura directa o maquetación completa")
+    String path;
+
+    @Label("Tamaño")
+    @DataAmount
+    long bytes;
+
+    @Label("Resultado")
+    String outcome;
+}
@@ -0,0 +1,41 @@
+package com.example.demo.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento de JFR de una operación de un servicio de reportes. A diferencia del renderizado,
+ * incluye la espera por un turno y por un renderizado compartido.
+ */
+@Name("com.example.demo.ReportService")
+@Label("Operación de reporte")
+@Description("Operación de un servicio de reportes, desde la solicitud hasta el PDF")
+@Category({"Reportes", "Servicio"})
+@Threshold("100 ms")
+@StackTrace(false)
+public class ReportServiceEvent extends jdk.jfr.Event {
+
+    @Label("Operación")
+    String operation;
+
+    @Label("Transacción")
+    String transactionId;
+
+    @Label("Perfil")
+    String profile;
+
+    @Label("Forma")
+    String shape;
+
+    @Label("Tamaño")
+    @DataAmount
+    long bytes;
+
+    @Label("Resultado")
+    String outcome;
+}
@@ -0,0 +1,237 @@
+package com.example.demo.service;
+
+import com.example.demo.concurrent.RenderBulkhead;
+import com.example.demo.concurrent.RenderPriority;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.RequestEncoding;
+import com.example.demo.config.RequestMappers;
+import com.example.demo.dto.PaymentReportRequest;
+import com.example.demo.dto.PaymentReportRequestMapper;
+import com.example.demo.exception.ReportGenerationException;
+import com.example.demo.generator.PaymentReportGenerator;
+import com.example.demo.io.OutputBufferPool;
+import com.example.demo.io.PooledOutputBuffer;
+import com.example.demo.model.PaymentData;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Servicio encargado de generar lotes de reportes: lee las solicitudes en NDJSON, como
+ * secuencia CBOR o como flujo Smile de forma incremental, las renderiza en paralelo y escribe cada PDF en un ZIP en cuanto
+ * está listo, respetando el orden de entrada.
+ */
+@Service
+public class BulkReportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkReportService.class);
+
+    private final PaymentReportGenerator reportGenerator;
+    private final RenderBulkhead renderBulkhead;
+    private final PaymentReportRequestMapper requestMapper;
+    private final Map<RequestEncoding, ObjectReader> requestReaders = new EnumMap<>(RequestEncoding.class);
+    private final ExecutorService renderExecutor;
+    private final OutputBufferPool bufferPool;
+    private final int maxInFlight;
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param reportGenerator El generador de reportes PDF
+     * @param renderBulkhead El limitador de renderizados simultáneos
+     * @param requestMapper El conversor de solicitudes
+     * @param requestMappers Los mapeadores de cada codificación de solicitud
+     * @param renderExecutor El ejecutor dedicado al renderizado
+     * @param bufferPool El pool de búferes en los que se renderizan las entradas
+     * @param maxInFlight Reportes renderizados o pendientes de escribir como máximo por lote; 0 para el doble de núcleos
+     */
+    public BulkReportService(PaymentReportGenerator reportGenerator,
+                             RenderBulkhead renderBulkhead,
+                             PaymentReportRequestMapper requestMapper,
+                             RequestMappers requestMappers,
+                             @Qualifier("reportRenderExecutor") ExecutorService renderExecutor,
+                             OutputBufferPool bufferPool,
+                             @Value("${report.bulk.max-in-flight:0}") int maxInFlight) {
+        this.reportGenerator = reportGenerator;
+        this.renderBulkhead = renderBulkhead;
+        this.requestMapper = requestMapper;
+        for (RequestEncoding encoding : RequestEncoding.values()) {
+            requestReaders.put(encoding, requestMappers.get(encoding).readerFor(PaymentReportRequest.class));
+        }
+        this.renderExecutor = renderExecutor;
+        this.bufferPool = bufferPool;
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Genera un ZIP con un PDF por cada solicitud del flujo NDJSON. Como máximo hay
+     * {@code maxInFlight} reportes en memoria a la vez, independientemente del tamaño del lote.
+     * Las solicitudes que fallan se registran como una entrada de texto con el error.
+     *
+     * @param ndjson el flujo de solicitudes, una por línea
+     * @param outputStream el flujo donde se escribe el ZIP; no se cierra al terminar
+     * @return el número de solicitudes procesadas
+     * @throws ReportGenerationException si no se puede leer la entrada o escribir el ZIP
+     */
+    public int writeBulkZip(InputStream ndjson, OutputStream outputStream) {
+        return writeBulkZip(ndjson, RequestEncoding.JSON, outputStream);
+    }
+
+    /**
+     * Genera un ZIP con un PDF por cada solicitud del flujo en la codificación indicada
+     *
+     * @param requests el flujo de solicitudes
+     * @param encoding la codificación del flujo: NDJSON, secuencia CBOR o flujo Smile
+     * @param outputStream el flujo donde se escribe el ZIP; no se cierra al terminar
+     * @return el número de solicitudes procesadas
+     * @throws ReportGenerationException si no se puede leer la entrada o escribir el ZIP
+     */
+    public int writeBulkZip(InputStream requests, RequestEncoding encoding, OutputStream outputStream) {
+        return writeBulkZip(requests, encoding, outputStream, written -> { });
+    }
+
+    /**
+     * Genera un ZIP con un PDF por solicitud informando del avance a medida que se escriben las entradas
+     *
+     * @param ndjson el flujo de solicitudes, una por línea
+     * @param outputStream el flujo donde se escribe el ZIP; no se cierra al terminar
+     * @param progress recibe el número de entradas escritas hasta el momento; puede lanzar
+     *                 una excepción para interrumpir el lote
+     * @return el número de solicitudes procesadas
+     * @throws ReportGenerationException si no se puede leer la entrada o escribir el ZIP
+     */
+    public int writeBulkZip(InputStream ndjson, OutputStream outputStream, IntConsumer progress) {
+        return writeBulkZip(ndjson, RequestEncoding.JSON, outputStream, progress);
+    }
+
+    /**
+     * Genera un ZIP con un PDF por solicitud del flujo en la codificación indicada, informando del avance
+     *
+     * @param input el flujo de solicitudes
+     * @param encoding la codificación del flujo: NDJSON, secuencia CBOR o flujo Smile
+     * @param outputStream el flujo donde se escribe el ZIP; no se cierra al terminar
+     * @param progress recibe el número de entradas escritas hasta el momento; puede lanzar
+     *                 una excepción para interrumpir el lote
+     * @return el número de solicitudes procesadas
+     * @throws ReportGenerationException si no se puede leer la entrada o escribir el ZIP
+     */
+    public int writeBulkZip(InputStream input, RequestEncoding encoding, OutputStream outputStream,
+                            IntConsumer progress) {
+        Deque<Future<BulkEntry>> pending = new ArrayDeque<>();
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        int index = 0;
+        int written = 0;
+        try (MappingIterator<PaymentReportRequest> requests = requestReaders.get(encoding).readValues(input)) {
+            logger.info("Generando lote de reportes PDF ({})", encoding);
+
+            while (requests.hasNextValue()) {
+                PaymentReportRequest request = requests.nextValue();
+                int position = ++index;
+                pending.addLast(renderExecutor.submit(() -> render(position, request)));
+
+                // Escribir en orden las entradas listas para mantener acotada la memoria
+                if (pending.size() >= maxInFlight) {
+                    writeEntry(zip, pending.removeFirst());
+                    progress.accept(++written);
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeEntry(zip, pending.removeFirst());
+                progress.accept(++written);
+            }
+            zip.finish();
+            zip.flush();
+
+            logger.info("Lote de reportes PDF generado exitosamente: {} solicitudes", index);
+            return index;
+
+        } catch (Exception e) {
+            // Los búferes de las entradas pendientes no vuelven al pool: los recoge el recolector de basura
+            pending.forEach(future -> future.cancel(true));
+            logger.error("Error al generar el lote de reportes en la solicitud {}", index, e);
+            throw new ReportGenerationException("Error al generar el lote de reportes: " + e.getMessage(), e);
+        }
+    }
+
+    private BulkEntry render(int position, PaymentReportRequest request) {
+        String name = String.format("%06d-%s", position, safeName(request.getTransactionId()));
+        try {
+            PaymentReportConfig config = requestMapper.toConfig(request);
+            PaymentData paymentData = requestMapper.toPaymentData(request);
+            PooledOutputBuffer buffer = bufferPool.acquire(ReportShape.of(config));
+            try {
+                // Los lotes esperan turno sin límite de tiempo en lugar de descartarse
+                renderBulkhead.run(RenderPriority.BULK,
+                        () -> reportGenerator.generatePDF(config, paymentData, buffer));
+            } catch (RuntimeException e) {
+                buffer.release();
+                throw e;
+            }
+            return new BulkEntry(name + ".pdf", buffer);
+        } catch (RuntimeException e) {
+            logger.warn("Error al generar el reporte {} del lote: {}", position, e.getMessage());
+            return new BulkEntry(name + ".error.txt", errorEntry(e));
+        }
+    }
+
+    private PooledOutputBuffer errorEntry(RuntimeException error) {
+        byte[] message = ("Error al generar el reporte: " + error.getMessage()).getBytes(StandardCharsets.UTF_8);
+        PooledOutputBuffer buffer = bufferPool.acquire(BulkEntry.class);
+        buffer.write(message, 0, message.length);
+        return buffer;
+    }
+
+    private void writeEntry(ZipOutputStream zip, Future<BulkEntry> future)
+            throws IOException, InterruptedException, ExecutionException {
+        BulkEntry entry = future.get();
+        PooledOutputBuffer content = entry.content();
+        try {
+            // Los PDF ya están comprimidos: se almacenan sin volver a comprimir
+            CRC32 crc = new CRC32();
+            crc.update(content.array(), 0, content.size());
+            ZipEntry zipEntry = new ZipEntry(entry.name());
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setSize(content.size());
+            zipEntry.setCrc(crc.getValue());
+
+            zip.putNextEntry(zipEntry);
+            content.writeTo(zip);
+            zip.closeEntry();
+        } finally {
+            content.release();
+        }
+    }
+
+    private String safeName(String transactionId) {
+        if (transactionId == null || transactionId.isBlank()) {
+            return "sin-id";
+        }
+        return transactionId.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Entrada del ZIP ya renderizada; su búfer vuelve al pool al escribirse
+     */
+    private record BulkEntry(String name, PooledOutputBuffer content) {
+    }
+}
@@ -1,18 +1,38 @@
 package com.example.demo.service;
 
+import com.example.demo.archive.ReportArchive;
+import com.example.demo.concurrent.RenderBulkhead;
+import com.example.demo.concurrent.RenderPriority;
+import com.example.demo.concurrent.SingleFlight;
+import com.example.demo.config.CoalescingProperties;
 import com.example.demo.config.PaymentReportConfig;
 import com.example.demo.model.PaymentData;
 import com.example.demo.generator.PaymentReportGenerator;
+import com.example.demo.generator.PdfFileId;
+import com.example.demo.generator.ReportPreviewRenderer;
 import com.example.demo.exception.ReportGenerationException;
+import com.example.demo.exception.ReportRejectedException;
+import com.example.demo.io.CountingOutputStream;
+import com.example.demo.io.DeferredCommitOutputStream;
+import com.example.demo.io.OutputBufferPool;
+import com.example.demo.io.PooledOutputBuffer;
+import com.example.demo.metrics.ReportMetrics;
+import com.example.demo.metrics.ReportServiceEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 /**
  * Servicio encargado de coordinar la generación de reportes PDF
@@ -22,14 +42,51 @@ public class PaymentReportService {
     
     private static final Logger logger = LoggerFactory.getLogger(PaymentReportService.class);
     private final PaymentReportGenerator reportGenerator;
+    private final ReportPreviewRenderer previewRenderer;
+    private final RenderBulkhead renderBulkhead;
+    private final ReportResultCache reportCache;
+    private final ReportMetrics metrics;
+    private final OutputBufferPool bufferPool;
+    private final int commitThreshold;
+    private final boolean coalescing;
+    private final SingleFlight<FlightKey, byte[]> flights;
+    private final ReportArchive archive;
     
     /**
      * Constructor con inyección de dependencias
      * 
      * @param reportGenerator El generador de reportes PDF
+     * @param previewRenderer El generador de vistas previas ligeras
+     * @param renderBulkhead El limitador de renderizados simultáneos
+     * @param reportCache La caché de reportes reproducibles
+     * @param metrics Las métricas de generación de reportes
+     * @param bufferPool El pool de búferes para los reportes que se generan en memoria
+     * @param commitThreshold Bytes que se retienen antes de comprometer una respuesta en streaming
+     * @param coalescingProperties La configuración de la agrupación de solicitudes idénticas
+     * @param flightExecutor El ejecutor de los renderizados compartidos por solicitudes idénticas
+     * @param archive El archivo en disco de los reportes generados
      */
-    public PaymentReportService(PaymentReportGenerator reportGenerator) {
+    public PaymentReportService(PaymentReportGenerator reportGenerator,
+                                ReportPreviewRenderer previewRenderer,
+                                RenderBulkhead renderBulkhead,
+                                ReportResultCache reportCache,
+                                ReportMetrics metrics,
+                                OutputBufferPool bufferPool,
+                                @Value("${report.streaming.commit-threshold-bytes:16384}") int commitThreshold,
+                                CoalescingProperties coalescingProperties,
+                                @Qualifier("reportFlightExecutor") ExecutorService flightExecutor,
+                                ReportArchive archive) {
         this.reportGenerator = reportGenerator;
+        this.previewRenderer = previewRenderer;
+        this.renderBulkhead = renderBulkhead;
+        this.reportCache = reportCache;
+        this.metrics = metrics;
+        this.bufferPool = bufferPool;
+        this.commitThreshold = commitThreshold;
+        this.coalescing = coalescingProperties.isEnabled();
+        this.flights = new SingleFlight<>(flightExecutor);
+        this.archive = archive;
+        metrics.registerCoalescing(flights);
     }
     
     /**
@@ -41,32 +98,184 @@ public class PaymentReportService {
      * @throws ReportGenerationException Si ocurre algún error durante la generación
      */
     public Resource generatePdfReport(PaymentReportConfig config, PaymentData paymentData) {
+        long start = System.nanoTime();
+        ReportServiceEvent event = metrics.serviceStarted();
+        String outcome = "error";
+        long bytes = -1;
         try {
             logger.info("Generando reporte PDF para el pago con ID: {}", paymentData.getTransactionId());
             
-            // Registrar las opciones de configuración utilizadas
-            logger.debug("Configuración del reporte: {}", config);
-            
             // Generar el PDF utilizando la configuración del Builder
-            ByteArrayOutputStream outputStream = reportGenerator.generatePDF(config, paymentData);
+            byte[] pdf = renderShared(config, paymentData, RenderPriority.STANDARD);
             
             // Crear un nombre de archivo con timestamp
             String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
             String filename = "payment_report_" + paymentData.getTransactionId() + "_" + timestamp + ".pdf";
             
             logger.info("Reporte PDF generado exitosamente: {}", filename);
+            outcome = "success";
+            bytes = pdf.length;
             
             // Devolver el PDF como un recurso
-            return new ByteArrayResource(outputStream.toByteArray()) {
+            return new ByteArrayResource(pdf) {
                 @Override
                 public String getFilename() {
                     return filename;
                 }
             };
             
+        } catch (ReportRejectedException e) {
+            outcome = "rejected";
+            throw e;
         } catch (Exception e) {
             logger.error("Error al generar el reporte PDF", e);
             throw new ReportGenerationException("Error al generar el reporte PDF: " + e.getMessage(), e);
+        } finally {
+            metrics.recordServiceLatency("generate", config.getProfile(), outcome, System.nanoTime() - start);
+            metrics.serviceCompleted(event, "generate", config, paymentData.getTransactionId(), outcome, bytes);
+        }
+    }
+    
+    /**
+     * Genera un reporte PDF escribiéndolo directamente en el flujo de la respuesta.
+     * Los primeros bytes se retienen en un búfer pequeño: si la generación falla antes
+     * de que se envíe algo, el error todavía puede responderse como un error HTTP. Con la
+     * agrupación activada todas las solicitudes, también la primera, pasan por el renderizado
+     * compartido en memoria: las iguales simultáneas cuestan un solo renderizado y este se
+     * cancela si todas se desconectan. Con el archivo activado el PDF se renderiza siempre
+     * en memoria para poder archivarlo. Solo los lotes y las solicitudes con la agrupación
+     * desactivada se renderizan directamente en el flujo de la respuesta.
+     * 
+     * @param config La configuración del reporte construida con el patrón Builder
+     * @param paymentData Los datos del pago para incluir en el reporte
+     * @param outputStream El flujo de la respuesta; no se cierra al terminar
+     * @param completeSizeListener Recibe el tamaño del PDF antes de enviarlo si el reporte completo
+     *                             cabe en el búfer retenido o si se renderizó en memoria para
+     *                             compartirlo; si no, no se invoca
+     * @throws ReportGenerationException Si ocurre algún error durante la generación
+     */
+    public void writePdfReport(PaymentReportConfig config, PaymentData paymentData, OutputStream outputStream,
+                               IntConsumer completeSizeListener) {
+        writePdfReport(config, paymentData, outputStream, RenderPriority.STANDARD, completeSizeListener);
+    }
+    
+    /**
+     * Genera un reporte PDF en streaming con la prioridad indicada
+     * 
+     * @param config La configuración del reporte construida con el patrón Builder
+     * @param paymentData Los datos del pago para incluir en el reporte
+     * @param outputStream El flujo de la respuesta; no se cierra al terminar
+     * @param priority La prioridad con la que se espera turno para renderizar
+     * @throws ReportRejectedException Si no hay turno para renderizar dentro del límite de espera
+     * @throws ReportGenerationException Si ocurre algún error durante la generación
+     */
+    public void writePdfReport(PaymentReportConfig config, PaymentData paymentData, OutputStream outputStream,
+                               RenderPriority priority) {
+        writePdfReport(config, paymentData, outputStream, priority, size -> {
+        });
+    }
+    
+    private void writePdfReport(PaymentReportConfig config, PaymentData paymentData, OutputStream outputStream,
+                                RenderPriority priority, IntConsumer completeSizeListener) {
+        CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+        DeferredCommitOutputStream responseStream =
+                new DeferredCommitOutputStream(countingStream, commitThreshold, completeSizeListener);
+        long start = System.nanoTime();
+        ReportServiceEvent event = metrics.serviceStarted();
+        String outcome = "error";
+        try {
+            logger.info("Generando reporte PDF en streaming para el pago con ID: {}", paymentData.getTransactionId());
+            
+            FlightKey key = coalescing && priority != RenderPriority.BULK
+                    ? new FlightKey(reportCache.requestFingerprint(config, paymentData, null), false, priority)
+                    : null;
+            if (key != null || (archive.isEnabled() && priority != RenderPriority.BULK)) {
+                // Las solicitudes iguales comparten el renderizado en memoria, y el archivo
+                // necesita el PDF completo
+                writeBuffered(renderShared(config, paymentData, priority, key), responseStream, completeSizeListener);
+            } else {
+                renderBulkhead.run(priority, () -> reportGenerator.generatePDF(config, paymentData, responseStream));
+            }
+            responseStream.close();
+            
+            logger.info("Reporte PDF enviado exitosamente para el pago con ID: {}", paymentData.getTransactionId());
+            outcome = "success";
+            
+        } catch (ReportRejectedException e) {
+            outcome = "rejected";
+            throw e;
+        } catch (Exception e) {
+            if (responseStream.isCommitted()) {
+                // La respuesta ya empezó a enviarse: solo queda interrumpirla
+                logger.error("Error al enviar el reporte PDF después de iniciar la respuesta", e);
+            } else {
+                logger.error("Error al generar el reporte PDF", e);
+            }
+            throw new ReportGenerationException("Error al generar el reporte PDF: " + e.getMessage(), e);
+        } finally {
+            metrics.recordServiceLatency("write", config.getProfile(), outcome, System.nanoTime() - start);
+            metrics.serviceCompleted(event, "write", config, paymentData.getTransactionId(), outcome,
+                    countingStream.getCount());
+        }
+    }
+    
+    /**
+     * Renderiza un reporte reproducible y lo guarda en la caché. El identificador del
+     * archivo se deriva de la huella para que cada renderizado de la misma solicitud
+     * produzca los mismos bytes. Las solicitudes con la misma huella que llegan mientras se
+     * renderiza reciben el resultado de ese renderizado.
+     * 
+     * @param config La configuración del reporte
+     * @param paymentData Los datos del pago
+     * @param generatedAt La fecha de generación fijada, o null si el reporte no la muestra
+     * @param fingerprint La huella de la solicitud
+     * @return El contenido del PDF
+     * @throws ReportGenerationException Si ocurre algún error durante la generación
+     */
+    public byte[] renderReproduciblePdf(PaymentReportConfig config, PaymentData paymentData,
+                                        LocalDateTime generatedAt, ReportFingerprint fingerprint) {
+        return renderReproduciblePdf(config, paymentData, generatedAt, fingerprint, RenderPriority.STANDARD);
+    }
+    
+    /**
+     * Renderiza un reporte reproducible con la prioridad indicada y lo guarda en la caché
+     * 
+     * @param config La configuración del reporte
+     * @param paymentData Los datos del pago
+     * @param generatedAt La fecha de generación fijada, o null si el reporte no la muestra
+     * @param fingerprint La huella de la solicitud
+     * @param priority La prioridad con la que se espera turno para renderizar
+     * @return El contenido del PDF
+     * @throws ReportRejectedException Si no hay turno para renderizar dentro del límite de espera
+     * @throws ReportGenerationException Si ocurre algún error durante la generación
+     */
+    public byte[] renderReproduciblePdf(PaymentReportConfig config, PaymentData paymentData,
+                                        LocalDateTime generatedAt, ReportFingerprint fingerprint,
+                                        RenderPriority priority) {
+        long start = System.nanoTime();
+        ReportServiceEvent event = metrics.serviceStarted();
+        String outcome = "error";
+        long bytes = -1;
+        try {
+            logger.info("Generando reporte PDF reproducible para el pago con ID: {}", paymentData.getTransactionId());
+            
+            byte[] pdf = coalescing
+                    ? flights.execute(new FlightKey(fingerprint, true, priority),
+                            () -> renderReproducible(config, paymentData, generatedAt, fingerprint, priority))
+                    : renderReproducible(config, paymentData, generatedAt, fingerprint, priority);
+            outcome = "success";
+            bytes = pdf.length;
+            return pdf;
+            
+        } catch (ReportRejectedException e) {
+            outcome = "rejected";
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error al generar el reporte PDF reproducible", e);
+            throw new ReportGenerationException("Error al generar el reporte PDF: " + e.getMessage(), e);
+        } finally {
+            metrics.recordServiceLatency("reproducible", config.getProfile(), outcome, System.nanoTime() - start);
+            metrics.serviceCompleted(event, "reproducible", config, paymentData.getTransactionId(), outcome, bytes);
         }
     }
     
@@ -78,23 +287,180 @@ public class PaymentReportService {
      * @return El recurso con el PDF generado
      */
     public Resource previewPdfReport(PaymentReportConfig config, PaymentData paymentData) {
+        long start = System.nanoTime();
+        ReportServiceEvent event = metrics.serviceStarted();
+        String outcome = "error";
+        long bytes = -1;
         try {
             logger.info("Generando vista previa de reporte para pago ID: {}", paymentData.getTransactionId());
             
-            // Generar el PDF de vista previa
-            ByteArrayOutputStream outputStream = reportGenerator.generatePDF(config, paymentData);
+            // Generar el PDF de vista previa en el carril interactivo, por delante de descargas y lotes
+            byte[] pdf = renderShared(config, paymentData, RenderPriority.INTERACTIVE);
+            
+            outcome = "success";
+            bytes = pdf.length;
             
             // Devolver el PDF como recurso temporal
-            return new ByteArrayResource(outputStream.toByteArray()) {
+            return new ByteArrayResource(pdf) {
                 @Override
                 public String getFilename() {
                     return "preview_payment_pdf";
                 }
             };
             
+        } catch (ReportRejectedException e) {
+            outcome = "rejected";
+            throw e;
         } catch (Exception e) {
             logger.error("Error al generar la vista previa del reporte", e);
             throw new ReportGenerationException("Error al generar vista previa: " + e.getMessage(), e);
+        } finally {
+            metrics.recordServiceLatency("preview", config.getProfile(), outcome, System.nanoTime() - start);
+            metrics.serviceCompleted(event, "preview", config, paymentData.getTransactionId(), outcome, bytes);
+        }
+    }
+    
+    /**
+     * Genera una vista previa ligera del reporte como miniatura PNG de la primera página, sin
+     * construir el PDF. No espera turno en el limitador de renderizados: cuesta una fracción
+     * de un renderizado y no debe quedar detrás de los reportes completos.
+     * 
+     * @param config La configuración del reporte
+     * @param paymentData Los datos del pago
+     * @param width El ancho de la miniatura en píxeles, o null para el ancho por defecto
+     * @return La imagen PNG
+     * @throws ReportGenerationException Si ocurre algún error durante la generación
+     */
+    public byte[] previewImage(PaymentReportConfig config, PaymentData paymentData, Integer width) {
+        return preview("preview.png", config, paymentData, () -> previewRenderer.renderPng(config, paymentData, width));
+    }
+    
+    /**
+     * Genera una vista previa ligera del reporte como fragmento HTML estático, sin construir el PDF
+     * 
+     * @param config La configuración del reporte
+     * @param paymentData Los datos del pago
+     * @return El fragmento HTML
+     * @throws ReportGenerationException Si ocurre algún error durante la generación
+     */
+    public String previewHtml(PaymentReportConfig config, PaymentData paymentData) {
+        return preview("preview.html", config, paymentData, () -> previewRenderer.renderHtml(config, paymentData));
+    }
+    
+    private <T> T preview(String operation, PaymentReportConfig config, PaymentData paymentData, Supplier<T> renderer) {
+        long start = System.nanoTime();
+        ReportServiceEvent event = metrics.serviceStarted();
+        String outcome = "error";
+        long bytes = -1;
+        try {
+            logger.debug("Generando vista previa ligera ({}) para el pago con ID: {}", operation, paymentData.getTransactionId());
+            T preview = renderer.get();
+            outcome = "success";
+            return preview;
+        } catch (Exception e) {
+            logger.error("Error al generar la vista previa ligera del reporte", e);
+            throw new ReportGenerationException("Error al generar vista previa: " + e.getMessage(), e);
+        } finally {
+            metrics.recordServiceLatency(operation, config.getProfile(), outcome, System.nanoTime() - start);
+            metrics.serviceCompleted(event, operation, config, paymentData.getTransactionId(), outcome, bytes);
+        }
+    }
+    
+    private byte[] renderReproducible(PaymentReportConfig config, PaymentData paymentData,
+                                      LocalDateTime generatedAt, ReportFingerprint fingerprint,
+                                      RenderPriority priority) {
+        PooledOutputBuffer buffer = bufferPool.acquire(ReportShape.of(config));
+        try {
+            renderBulkhead.run(priority,
+                    () -> reportGenerator.generatePDF(config, paymentData, generatedAt, buffer));
+            boolean pinned = PdfFileId.pin(buffer.array(), buffer.size(), fingerprint.getDigest());
+            // El PDF se guarda en caché y se comparte entre solicitudes, así que sobrevive al
+            // búfer: se copia una sola vez con su tamaño exacto
+            byte[] pdf = buffer.toByteArray();
+            if (!pinned) {
+                logger.warn("No se encontró el identificador del PDF; el reporte {} no se guarda en caché", fingerprint);
+                return pdf;
+            }
+            reportCache.put(fingerprint, pdf);
+            archive(fingerprint.getHex(), paymentData, pdf);
+            return pdf;
+        } finally {
+            buffer.release();
+        }
+    }
+    
+    /**
+     * Renderiza en memoria el PDF de una solicitud que un cliente espera. Las solicitudes
+     * simultáneas del mismo carril con la misma configuración y los mismos datos del pago
+     * comparten un único renderizado y reciben los mismos bytes; un fallo llega a todas y, si
+     * todas se desconectan, el renderizado se cancela. Las descargas del carril estándar se
+     * guardan en el archivo, una vez por renderizado.
+     */
+    private byte[] renderShared(PaymentReportConfig config, PaymentData paymentData, RenderPriority priority) {
+        FlightKey key = coalescing
+                ? new FlightKey(reportCache.requestFingerprint(config, paymentData, null), false, priority)
+                : null;
+        return renderShared(config, paymentData, priority, key);
+    }
+    
+    /**
+     * @param key la clave del renderizado compartido, o null si la agrupación está desactivada
+     */
+    private byte[] renderShared(PaymentReportConfig config, PaymentData paymentData, RenderPriority priority,
+                                FlightKey key) {
+        Supplier<byte[]> render = () -> {
+            byte[] pdf = renderBulkhead.execute(priority, () -> renderToArray(config, paymentData));
+            if (priority == RenderPriority.STANDARD) {
+                archive(null, paymentData, pdf);
+            }
+            return pdf;
+        };
+        return key == null ? render.get() : flights.execute(key, render);
+    }
+    
+    /**
+     * Escribe un PDF ya renderizado en memoria; su tamaño se anuncia aunque no quepa en el búfer retenido
+     */
+    private static void writeBuffered(byte[] pdf, OutputStream responseStream, IntConsumer completeSizeListener)
+            throws IOException {
+        completeSizeListener.accept(pdf.length);
+        responseStream.write(pdf);
+    }
+    
+    /**
+     * Guarda el reporte en el archivo; un fallo al archivar no impide entregar el reporte
+     */
+    private void archive(String fingerprint, PaymentData paymentData, byte[] pdf) {
+        if (!archive.isEnabled()) {
+            return;
+        }
+        try {
+            archive.store(fingerprint, paymentData, pdf);
+        } catch (RuntimeException e) {
+            logger.warn("No se pudo archivar el reporte del pago con ID {}: {}", paymentData.getTransactionId(), e.getMessage());
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Renderiza el PDF en un búfer del pool con el tamaño previsto para su forma y devuelve
+     * una única copia con el tamaño exacto, ya que el resultado se comparte entre las
+     * solicitudes agrupadas y se archiva después; el búfer vuelve al pool al terminar
+     */
+    private byte[] renderToArray(PaymentReportConfig config, PaymentData paymentData) {
+        PooledOutputBuffer buffer = bufferPool.acquire(ReportShape.of(config));
+        try {
+            reportGenerator.generatePDF(config, paymentData, buffer);
+            return buffer.toByteArray();
+        } finally {
+            buffer.release();
+        }
+    }
+    
+    /**
+     * Clave de los renderizados compartidos: la huella de la solicitud, si el PDF es
+     * reproducible, ya que sus bytes llevan el identificador derivado de la huella, y el carril
+     * en el que espera turno
+     */
+    private record FlightKey(ReportFingerprint fingerprint, boolean reproducible, RenderPriority priority) {
+    }
+}
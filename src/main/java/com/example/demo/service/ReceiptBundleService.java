@@ -0,0 +1,260 @@
+package com.example.demo.service;
+
+import com.example.demo.archive.ArchiveRegion;
+import com.example.demo.archive.ReportArchive;
+import com.example.demo.concurrent.RenderPriority;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.RequestEncoding;
+import com.example.demo.config.RequestMappers;
+import com.example.demo.dto.PaymentReportRequest;
+import com.example.demo.dto.PaymentReportRequestMapper;
+import com.example.demo.exception.InvalidReportRequestException;
+import com.example.demo.exception.ReportGenerationException;
+import com.example.demo.exception.ReportProfileNotFoundException;
+import com.example.demo.exception.ReportRejectedException;
+import com.example.demo.io.DeferredCommitOutputStream;
+import com.example.demo.metrics.ReportMetrics;
+import com.example.demo.model.PaymentData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Servicio encargado de reunir varios recibos de pago en un único PDF. Los recibos que ya
+ * se generaron se toman de la caché de reportes o del archivo y sus páginas se copian tal
+ * cual con {@link PdfCopy}, sin volver a maquetarlas; solo se renderizan los que faltan.
+ * El documento combinado se escribe en la respuesta a medida que se copia cada recibo.
+ * <p>
+ * Un recibo solo se reutiliza si es reproducible: la solicitud indica {@code generatedAt} (la
+ * fecha con la que se emitió) o el reporte no muestra la hora. Los demás se renderizan siempre.
+ * Los recibos que faltan esperan turno en el carril de lotes, que no descarta por tiempo de
+ * espera, para que un paquete grande no falle a mitad de la respuesta.
+ */
+@Service
+public class ReceiptBundleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptBundleService.class);
+
+    private final PaymentReportService paymentReportService;
+    private final ReportResultCache reportCache;
+    private final ReportArchive archive;
+    private final PaymentReportRequestMapper requestMapper;
+    private final Map<RequestEncoding, ObjectReader> requestReaders = new EnumMap<>(RequestEncoding.class);
+    private final ExecutorService renderExecutor;
+    private final ReportMetrics metrics;
+    private final int commitThreshold;
+    private final int maxInFlight;
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param paymentReportService El servicio que renderiza los recibos que faltan
+     * @param reportCache La caché de reportes reproducibles
+     * @param archive El archivo en disco de los reportes generados
+     * @param requestMapper El conversor de solicitudes
+     * @param requestMappers Los mapeadores de cada codificación de solicitud
+     * @param renderExecutor El ejecutor dedicado al renderizado
+     * @param metrics Las métricas de generación de reportes
+     * @param commitThreshold Bytes que se retienen antes de comprometer la respuesta
+     * @param maxInFlight Recibos resueltos o pendientes de copiar como máximo por paquete; 0 para el doble de núcleos
+     */
+    public ReceiptBundleService(PaymentReportService paymentReportService,
+                                ReportResultCache reportCache,
+                                ReportArchive archive,
+                                PaymentReportRequestMapper requestMapper,
+                                RequestMappers requestMappers,
+                                @Qualifier("reportRenderExecutor") ExecutorService renderExecutor,
+                                ReportMetrics metrics,
+                                @Value("${report.streaming.commit-threshold-bytes:16384}") int commitThreshold,
+                                @Value("${report.bundle.max-in-flight:0}") int maxInFlight) {
+        this.paymentReportService = paymentReportService;
+        this.reportCache = reportCache;
+        this.archive = archive;
+        this.requestMapper = requestMapper;
+        for (RequestEncoding encoding : RequestEncoding.values()) {
+            requestReaders.put(encoding, requestMappers.get(encoding).readerFor(PaymentReportRequest.class));
+        }
+        this.renderExecutor = renderExecutor;
+        this.metrics = metrics;
+        this.commitThreshold = commitThreshold;
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Escribe un PDF con las páginas de los recibos de cada solicitud, en el orden de entrada.
+     * Como máximo hay {@code maxInFlight} recibos en memoria a la vez: mientras se copia uno,
+     * los siguientes se buscan o se renderizan en paralelo.
+     *
+     * @param input el flujo de solicitudes, con la misma forma que las de un reporte suelto
+     * @param encoding la codificación del flujo: NDJSON, secuencia CBOR o flujo Smile
+     * @param outputStream el flujo de la respuesta; no se cierra al terminar
+     * @return el número de recibos incluidos
+     * @throws InvalidReportRequestException si la entrada no se puede leer, no contiene ningún
+     *                                       recibo o alguna solicitud no es válida
+     * @throws ReportRejectedException si no hay turno para renderizar los recibos que faltan
+     * @throws ReportGenerationException si falla algún recibo o no se puede escribir el PDF
+     */
+    public int writeBundle(InputStream input, RequestEncoding encoding, OutputStream outputStream) {
+        Deque<Future<Receipt>> pending = new ArrayDeque<>();
+        DeferredCommitOutputStream responseStream = new DeferredCommitOutputStream(outputStream, commitThreshold);
+        Document document = new Document();
+        int count = 0;
+        int reused = 0;
+        try (MappingIterator<PaymentReportRequest> requests = requestReaders.get(encoding).readValues(input)) {
+            PdfCopy copy = new PdfCopy(document, responseStream);
+            copy.setCloseStream(false);
+            document.open();
+            logger.info("Generando paquete de recibos ({})", encoding);
+
+            while (requests.hasNextValue()) {
+                pending.addLast(resolve(requests.nextValue()));
+                if (pending.size() >= maxInFlight) {
+                    reused += copyPages(copy, pending.removeFirst());
+                    count++;
+                }
+            }
+            while (!pending.isEmpty()) {
+                reused += copyPages(copy, pending.removeFirst());
+                count++;
+            }
+            if (count == 0) {
+                throw new InvalidReportRequestException("La solicitud no contiene ningún recibo");
+            }
+            document.close();
+            responseStream.close();
+
+            logger.info("Paquete de recibos generado exitosamente: {} recibos, {} reutilizados", count, reused);
+            return count;
+
+        } catch (ReportRejectedException | InvalidReportRequestException | ReportProfileNotFoundException e) {
+            pending.forEach(future -> future.cancel(true));
+            throw e;
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            pending.forEach(future -> future.cancel(true));
+            throw new InvalidReportRequestException("Solicitud de recibo inválida: " + rootMessage(e), e);
+        } catch (Exception e) {
+            pending.forEach(future -> future.cancel(true));
+            logger.error("Error al generar el paquete de recibos en el recibo {}", count + 1, e);
+            throw new ReportGenerationException("Error al generar el paquete de recibos: " + rootMessage(e), e);
+        }
+    }
+
+    /**
+     * Busca el recibo en la caché y en el archivo en el hilo que lee la entrada, que solo
+     * copia bytes; los recibos que faltan se renderizan en el ejecutor de renderizado
+     */
+    private Future<Receipt> resolve(PaymentReportRequest request) throws IOException {
+        PaymentReportConfig config = requestMapper.toConfig(request);
+        PaymentData paymentData = requestMapper.toPaymentData(request);
+        LocalDateTime generatedAt = request.getGeneratedAt();
+
+        ReportFingerprint fingerprint = reportCache.fingerprint(config, paymentData, generatedAt);
+        if (fingerprint != null) {
+            byte[] cached = reportCache.get(fingerprint);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(new Receipt(cached, "cache"));
+            }
+            ArchiveRegion archived = archive.isEnabled() ? archive.regionByFingerprint(fingerprint.getHex()) : null;
+            if (archived != null) {
+                return CompletableFuture.completedFuture(new Receipt(archived.toByteArray(), "archive"));
+            }
+            return render(() -> new Receipt(paymentReportService.renderReproduciblePdf(
+                    config, paymentData, generatedAt, fingerprint, RenderPriority.BULK), "render"));
+        }
+        return render(() -> {
+            ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+            paymentReportService.writePdfReport(config, paymentData, pdf, RenderPriority.BULK);
+            return new Receipt(pdf.toByteArray(), "render");
+        });
+    }
+
+    /**
+     * Envía el renderizado al ejecutor; si no lo acepta la solicitud se rechaza como las
+     * demás por falta de turno, en lugar de fallar con un error interno
+     */
+    private Future<Receipt> render(Callable<Receipt> task) {
+        try {
+            return renderExecutor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new ReportRejectedException("No hay hilos disponibles para renderizar los recibos",
+                    HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(1));
+        }
+    }
+
+    /**
+     * Copia las páginas del recibo al documento combinado y libera su lector, de modo que sus
+     * objetos se escriben en la respuesta y no se retienen hasta el final
+     *
+     * @return 1 si el recibo se reutilizó, 0 si se renderizó
+     */
+    private int copyPages(PdfCopy copy, Future<Receipt> future)
+            throws IOException, DocumentException, InterruptedException {
+        Receipt receipt = await(future);
+        PdfReader reader = new PdfReader(receipt.pdf());
+        try {
+            for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                copy.addPage(copy.getImportedPage(reader, page));
+            }
+            copy.freeReader(reader);
+        } finally {
+            reader.close();
+        }
+        metrics.recordBundleReceipt(receipt.source());
+        return "render".equals(receipt.source()) ? 0 : 1;
+    }
+
+    /**
+     * Espera el recibo y relanza tal cual los errores del renderizado, como el rechazo por falta de turno
+     */
+    private static Receipt await(Future<Receipt> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new ReportGenerationException("Error al obtener el recibo: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    /**
+     * Recibo listo para copiar y su origen: {@code cache}, {@code archive} o {@code render}
+     */
+    private record Receipt(byte[] pdf, String source) {
+    }
+}
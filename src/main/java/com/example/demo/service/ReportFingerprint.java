@@ -0,0 +1,108 @@
+package com.example.demo.service;
+
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.model.PaymentData;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Huella SHA-256 de una solicitud de reporte reproducible: la configuración, los datos del pago,
+ * la fecha de generación y la firma de los recursos con los que se renderiza. Dos solicitudes
+ * con la misma huella producen el mismo PDF.
+ */
+public final class ReportFingerprint {
+
+    private final byte[] digest;
+    private final String hex;
+
+    private ReportFingerprint(byte[] digest) {
+        this.digest = digest;
+        this.hex = HexFormat.of().formatHex(digest);
+    }
+
+    /**
+     * Calcula la huella de una solicitud. Cada campo se escribe precedido de su longitud
+     * para que ninguna combinación de valores pueda producir la misma entrada.
+     *
+     * @param renderSignature la versión del diseño y de los recursos (fuentes, logos)
+     * @param config la configuración del reporte
+     * @param paymentData los datos del pago
+     * @param generatedAt la fecha de generación fijada, o null si el reporte no la muestra
+     * @return la huella de la solicitud
+     */
+    public static ReportFingerprint of(String renderSignature, PaymentReportConfig config, PaymentData paymentData,
+                                       LocalDateTime generatedAt) {
+        StringBuilder canonical = new StringBuilder(256);
+        field(canonical, renderSignature);
+        field(canonical, config.isIncludeLogo());
+        field(canonical, config.getTitle());
+        field(canonical, config.isIncludePaymentDetails());
+        field(canonical, config.isIncludeUserInfo());
+        field(canonical, config.getTheme());
+        field(canonical, config.isIncludeTimestamp());
+        field(canonical, config.getFooterMessage());
+        field(canonical, config.getFormat());
+        field(canonical, config.getBrand());
+        field(canonical, config.getRenderMode());
+        field(canonical, config.getTemplate());
+        field(canonical, config.getOutputProfile());
+        field(canonical, paymentData.getTransactionId());
+        field(canonical, paymentData.getAmount());
+        field(canonical, paymentData.getPaymentMethod());
+        field(canonical, paymentData.getCustomerName());
+        field(canonical, generatedAt != null ? generatedAt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : null);
+        return new ReportFingerprint(sha256(canonical.toString()));
+    }
+
+    private static void field(StringBuilder canonical, Object value) {
+        if (value == null) {
+            canonical.append("-;");
+            return;
+        }
+        String text = value.toString();
+        canonical.append(text.length()).append(':').append(text).append(';');
+    }
+
+    private static byte[] sha256(String canonical) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible", e);
+        }
+    }
+
+    /**
+     * @return una copia del resumen SHA-256
+     */
+    public byte[] getDigest() {
+        return digest.clone();
+    }
+
+    /**
+     * @return el resumen en hexadecimal
+     */
+    public String getHex() {
+        return hex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ReportFingerprint other && Arrays.equals(digest, other.digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(digest);
+    }
+
+    @Override
+    public String toString() {
+        return hex;
+    }
+}
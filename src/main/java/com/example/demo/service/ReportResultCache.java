@@ -0,0 +1,154 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.CacheStats;
+import com.example.demo.cache.WeightedLruCache;
+import com.example.demo.config.FontProperties;
+import com.example.demo.config.LogoProperties;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.ReportCacheProperties;
+import com.example.demo.generator.LogoRegistry;
+import com.example.demo.generator.ReportTemplateEngine;
+import com.example.demo.model.PaymentData;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.TreeMap;
+
+/**
+ * Caché de reportes reproducibles indexada por la huella de la solicitud. La huella también
+ * es el ETag del reporte, de modo que una solicitud condicional puede responderse sin
+ * renderizar aunque el reporte ya no esté en memoria.
+ */
+@Component
+public class ReportResultCache {
+
+    private final WeightedLruCache<ReportFingerprint, byte[]> cache;
+    private final boolean enabled;
+    private final String renderSignature;
+    private final boolean strongETags;
+    private final ReportTemplateEngine templateEngine;
+    private final LogoRegistry logoRegistry;
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param properties La configuración de la caché
+     * @param fontProperties La configuración de las fuentes, que forma parte de la firma de renderizado
+     * @param logoProperties La configuración de los logos, que forma parte de la firma de renderizado
+     * @param templateEngine El motor de plantillas; la versión de la plantilla forma parte de la firma
+     * @param logoRegistry El registro de logos; el contenido del logo forma parte de la firma
+     */
+    public ReportResultCache(ReportCacheProperties properties, FontProperties fontProperties,
+                             LogoProperties logoProperties, ReportTemplateEngine templateEngine,
+                             LogoRegistry logoRegistry) {
+        this.cache = new WeightedLruCache<>(properties.getMaxWeightBytes(), pdf -> pdf.length);
+        this.enabled = properties.isEnabled();
+        this.renderSignature = properties.getRenderVersion()
+                + "|" + fontProperties.isUseCustomFont() + "|" + fontProperties.getCustomFont()
+                + "|" + fontProperties.isSubset() + "|" + new TreeMap<>(logoProperties.getLocations())
+                // La huella del logo cubre el archivo de origen; la reducción al cargarlo también cambia los bytes
+                + "|" + logoProperties.getMaxPixels() + "|" + logoProperties.getScaledQuality()
+                + "|" + logoProperties.getRecompressedMaxPixels() + "|" + logoProperties.getRecompressedQuality();
+        // iText nombra los subconjuntos de fuentes incrustadas con un prefijo aleatorio: el
+        // contenido es el mismo en cada renderizado pero los bytes no, así que el ETag es débil
+        this.strongETags = !(fontProperties.isUseCustomFont() && fontProperties.isSubset());
+        this.templateEngine = templateEngine;
+        this.logoRegistry = logoRegistry;
+    }
+
+    /**
+     * Calcula la huella de una solicitud si su reporte es reproducible
+     *
+     * @param config la configuración del reporte
+     * @param paymentData los datos del pago
+     * @param generatedAt la fecha de generación indicada por el cliente, o null
+     * @return la huella, o null si la caché está desactivada o el reporte muestra la hora actual
+     */
+    public ReportFingerprint fingerprint(PaymentReportConfig config, PaymentData paymentData,
+                                         LocalDateTime generatedAt) {
+        if (!enabled || (config.isIncludeTimestamp() && generatedAt == null)) {
+            return null;
+        }
+        return requestFingerprint(config, paymentData, generatedAt);
+    }
+
+    /**
+     * Calcula la huella de una solicitud aunque su reporte no sea reproducible; identifica a
+     * las solicitudes iguales que llegan a la vez
+     *
+     * @param config la configuración del reporte
+     * @param paymentData los datos del pago
+     * @param generatedAt la fecha de generación indicada por el cliente, o null
+     * @return la huella de la solicitud
+     */
+    public ReportFingerprint requestFingerprint(PaymentReportConfig config, PaymentData paymentData,
+                                                LocalDateTime generatedAt) {
+        // Al editar la plantilla cambia su versión y con ella la huella de sus reportes; lo mismo
+        // ocurre al sustituir el archivo del logo
+        String signature = renderSignature + "|" + templateEngine.version(config);
+        if (config.isIncludeLogo()) {
+            signature += "|" + logoRegistry.contentHash(config.getBrand(), config.getOutputProfile());
+        }
+        return ReportFingerprint.of(signature, config, paymentData, generatedAt);
+    }
+
+    /**
+     * @param fingerprint la huella del reporte
+     * @return el valor de la cabecera ETag del reporte
+     */
+    public String eTag(ReportFingerprint fingerprint) {
+        String tag = "\"" + fingerprint.getHex() + "\"";
+        return strongETags ? tag : "W/" + tag;
+    }
+
+    /**
+     * @param fingerprint la huella del reporte
+     * @return el PDF guardado, o null si no está en la caché
+     */
+    public byte[] get(ReportFingerprint fingerprint) {
+        return cache.get(fingerprint);
+    }
+
+    /**
+     * Guarda un PDF renderizado; los que superan el peso máximo de la caché no se guardan
+     *
+     * @param fingerprint la huella del reporte
+     * @param pdf el contenido del PDF
+     */
+    public void put(ReportFingerprint fingerprint, byte[] pdf) {
+        cache.put(fingerprint, pdf);
+    }
+
+    /**
+     * @return las estadísticas de aciertos y fallos de la caché
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Evalúa una cabecera If-None-Match. Como indica HTTP, la comparación es débil: un
+     * ETag débil y uno fuerte con el mismo valor se consideran iguales.
+     *
+     * @param ifNoneMatch el valor de la cabecera, o null
+     * @param eTag el ETag actual del reporte
+     * @return true si el cliente ya tiene esta versión del reporte
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String opaqueTag = stripWeak(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.service;
+
+import com.example.demo.config.Format;
+import com.example.demo.config.OutputProfile;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.RenderMode;
+import com.example.demo.config.Theme;
+
+/**
+ * Forma de un reporte: las propiedades de la configuración que determinan el tamaño del PDF.
+ * Los textos libres se agrupan por longitud para que la cantidad de formas siga acotada.
+ */
+record ReportShape(String template, Theme theme, Format format, RenderMode renderMode, OutputProfile outputProfile,
+                   boolean includeLogo, String brand, boolean includePaymentDetails, boolean includeUserInfo,
+                   boolean includeTimestamp, int titleLengthBucket, int footerLengthBucket) {
+
+    private static final int TEXT_BUCKET = 64;
+
+    static ReportShape of(PaymentReportConfig config) {
+        return new ReportShape(config.getTemplate(), config.getTheme(), config.getFormat(), config.getRenderMode(),
+                config.getOutputProfile(), config.isIncludeLogo(), config.isIncludeLogo() ? config.getBrand() : null,
+                config.isIncludePaymentDetails(), config.isIncludeUserInfo(), config.isIncludeTimestamp(),
+                lengthBucket(config.getTitle()), lengthBucket(config.getFooterMessage()));
+    }
+
+    private static int lengthBucket(String text) {
+        return text == null ? 0 : text.length() / TEXT_BUCKET;
+    }
+}
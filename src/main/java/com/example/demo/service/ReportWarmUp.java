@@ -0,0 +1,146 @@
+package com.example.demo.service;
+
+import com.example.demo.config.Format;
+import com.example.demo.config.OutputProfile;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.RenderMode;
+import com.example.demo.config.ReportProfileRegistry;
+import com.example.demo.config.Theme;
+import com.example.demo.config.WarmUpProperties;
+import com.example.demo.generator.PaymentReportGenerator;
+import com.example.demo.generator.ReportPreviewRenderer;
+import com.example.demo.generator.StatementReportGenerator;
+import com.example.demo.model.PaymentData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Calienta los generadores al iniciar: carga las clases de iText y renderiza reportes de
+ * muestra, y sus vistas previas ligeras, para compilar los planes, maquetar los esqueletos,
+ * cargar los logos y las fuentes de Java2D y dar tiempo al JIT a compilar el camino habitual. Se ejecuta cuando todos los beans están creados y
+ * antes de que arranque el servidor web, de modo que la primera solicitud ya encuentra los
+ * generadores calientes. También se ejecuta durante el entrenamiento del archivo CDS, que
+ * termina al refrescar el contexto, para que las clases del renderizado queden archivadas.
+ */
+@Component
+public class ReportWarmUp implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportWarmUp.class);
+
+    private static final PaymentData SAMPLE_PAYMENT =
+            new PaymentData("WARMUP-0001", 1250.75, "Tarjeta de Crédito", "Cliente de Prueba");
+
+    private final ReportProfileRegistry profileRegistry;
+    private final PaymentReportGenerator reportGenerator;
+    private final ReportPreviewRenderer previewRenderer;
+    private final StatementReportGenerator statementGenerator;
+    private final WarmUpProperties properties;
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param profileRegistry El registro de perfiles de reporte
+     * @param reportGenerator El generador de reportes PDF
+     * @param previewRenderer El generador de vistas previas ligeras
+     * @param statementGenerator El generador de estados de cuenta
+     * @param properties La configuración del calentamiento
+     */
+    public ReportWarmUp(ReportProfileRegistry profileRegistry, PaymentReportGenerator reportGenerator,
+                        ReportPreviewRenderer previewRenderer, StatementReportGenerator statementGenerator,
+                        WarmUpProperties properties) {
+        this.profileRegistry = profileRegistry;
+        this.reportGenerator = reportGenerator;
+        this.previewRenderer = previewRenderer;
+        this.statementGenerator = statementGenerator;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int iterations = Math.max(1, properties.getIterations());
+        Map<String, PaymentReportConfig> configs = sampleConfigs();
+        configs.forEach((name, config) -> {
+            try {
+                for (int i = 0; i < iterations; i++) {
+                    reportGenerator.generatePDF(config, SAMPLE_PAYMENT, OutputStream.nullOutputStream());
+                    previewRenderer.renderPng(config, SAMPLE_PAYMENT, null);
+                    previewRenderer.renderHtml(config, SAMPLE_PAYMENT);
+                }
+            } catch (RuntimeException e) {
+                // Un fallo del calentamiento no impide arrancar: la solicitud real informará del error
+                logger.warn("No se pudo calentar la configuración de reporte {}: {}", name, e.getMessage());
+            }
+        });
+        warmUpStatement();
+        logger.info("Generadores calentados en {} ms ({} configuraciones, {} renderizados por configuración)",
+                (System.nanoTime() - start) / 1_000_000, configs.size(), iterations);
+    }
+
+    /**
+     * Los perfiles definidos y, si se pide, una configuración con todas las secciones por
+     * cada combinación de tema, formato y modo de renderizado, más una por cada perfil de
+     * salida distinto del habitual y modo de renderizado
+     */
+    private Map<String, PaymentReportConfig> sampleConfigs() {
+        Map<String, PaymentReportConfig> configs = new LinkedHashMap<>(profileRegistry.getProfiles());
+        if (properties.isRepresentative()) {
+            for (Theme theme : Theme.values()) {
+                for (Format format : Format.values()) {
+                    for (RenderMode renderMode : RenderMode.values()) {
+                        configs.put(theme + "-" + format + "-" + renderMode, new PaymentReportConfig.Builder()
+                                .withLogo(true)
+                                .withTheme(theme)
+                                .withFormat(format)
+                                .withRenderMode(renderMode)
+                                .withFooterMessage("Gracias por su pago")
+                                .build());
+                    }
+                }
+            }
+            for (OutputProfile outputProfile : OutputProfile.values()) {
+                if (outputProfile == OutputProfile.BALANCED) {
+                    // Ya cubierto por las combinaciones anteriores
+                    continue;
+                }
+                for (RenderMode renderMode : RenderMode.values()) {
+                    configs.put(outputProfile + "-" + renderMode, new PaymentReportConfig.Builder()
+                            .withLogo(true)
+                            .withRenderMode(renderMode)
+                            .withOutputProfile(outputProfile)
+                            .withFooterMessage("Gracias por su pago")
+                            .build());
+                }
+            }
+        }
+        return configs;
+    }
+
+    private void warmUpStatement() {
+        int rows = properties.getStatementRows();
+        if (rows <= 0) {
+            return;
+        }
+        try {
+            PaymentReportConfig config = new PaymentReportConfig.Builder()
+                    .withTitle("Estado de Cuenta")
+                    .withRenderMode(RenderMode.FLOW)
+                    .build();
+            statementGenerator.generateStatement(config, SAMPLE_PAYMENT.getCustomerName(),
+                    IntStream.range(0, rows).mapToObj(i -> SAMPLE_PAYMENT).iterator(),
+                    OutputStream.nullOutputStream(), 256 * 1024);
+        } catch (RuntimeException e) {
+            logger.warn("No se pudo calentar el generador de estados de cuenta: {}", e.getMessage());
+        }
+    }
+}
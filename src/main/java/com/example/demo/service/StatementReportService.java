@@ -0,0 +1,190 @@
+package com.example.demo.service;
+
+import com.example.demo.concurrent.RenderBulkhead;
+import com.example.demo.concurrent.RenderPriority;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.dto.PaymentReportRequestMapper;
+import com.example.demo.dto.StatementPaymentRequest;
+import com.example.demo.dto.StatementReportRequest;
+import com.example.demo.exception.ReportGenerationException;
+import com.example.demo.exception.ReportRejectedException;
+import com.example.demo.generator.StatementReportGenerator;
+import com.example.demo.io.DeferredCommitOutputStream;
+import com.example.demo.model.PaymentData;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Servicio encargado de generar estados de cuenta a partir de un flujo NDJSON:
+ * la primera línea es la cabecera y cada línea siguiente un pago del cliente.
+ * El turno de renderizado solo se pide con la solicitud completa en disco, para
+ * que un cliente lento no lo ocupe mientras envía los pagos.
+ */
+@Service
+public class StatementReportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementReportService.class);
+
+    private final StatementReportGenerator statementGenerator;
+    private final RenderBulkhead renderBulkhead;
+    private final PaymentReportRequestMapper requestMapper;
+    private final ObjectMapper objectMapper;
+    private final int commitThreshold;
+    private final long defaultMemoryBudgetKb;
+    private final long maxMemoryBudgetKb;
+    private final Path spoolDirectory;
+
+    /**
+     * Constructor con inyección de dependencias
+     *
+     * @param statementGenerator El generador de estados de cuenta
+     * @param renderBulkhead El limitador de renderizados simultáneos
+     * @param requestMapper El conversor de solicitudes
+     * @param objectMapper El mapeador JSON de la aplicación
+     * @param commitThreshold Bytes que se retienen antes de comprometer la respuesta
+     * @param defaultMemoryBudgetKb Memoria por solicitud cuando la cabecera no indica ninguna
+     * @param maxMemoryBudgetKb Memoria máxima que puede solicitar un estado de cuenta
+     * @param spoolDirectory Directorio donde se guardan las solicitudes mientras se reciben
+     */
+    public StatementReportService(StatementReportGenerator statementGenerator,
+                                  RenderBulkhead renderBulkhead,
+                                  PaymentReportRequestMapper requestMapper,
+                                  ObjectMapper objectMapper,
+                                  @Value("${report.streaming.commit-threshold-bytes:16384}") int commitThreshold,
+                                  @Value("${report.statement.default-memory-budget-kb:1024}") long defaultMemoryBudgetKb,
+                                  @Value("${report.statement.max-memory-budget-kb:8192}") long maxMemoryBudgetKb,
+                                  @Value("${report.statement.spool-directory:${java.io.tmpdir}/report-statements}") Path spoolDirectory) {
+        this.statementGenerator = statementGenerator;
+        this.renderBulkhead = renderBulkhead;
+        this.requestMapper = requestMapper;
+        this.objectMapper = objectMapper;
+        this.commitThreshold = commitThreshold;
+        this.defaultMemoryBudgetKb = defaultMemoryBudgetKb;
+        this.maxMemoryBudgetKb = maxMemoryBudgetKb;
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    /**
+     * Genera un estado de cuenta a partir del cuerpo de una solicitud. El flujo se guarda
+     * primero en disco y después se leen los pagos de forma incremental, escribiendo el PDF
+     * en el flujo de la respuesta a medida que se completan las páginas
+     *
+     * @param ndjson el flujo con la cabecera y los pagos, uno por línea
+     * @param outputStream el flujo de la respuesta; no se cierra al terminar
+     * @return el número de pagos incluidos
+     * @throws ReportGenerationException si la entrada no es válida o falla la generación
+     */
+    public int writeStatement(InputStream ndjson, OutputStream outputStream) {
+        Path spooled = spool(ndjson);
+        try {
+            return writeStatement(spooled, outputStream, RenderPriority.STANDARD, read -> { });
+        } finally {
+            deleteQuietly(spooled);
+        }
+    }
+
+    /**
+     * Genera un estado de cuenta a partir de un archivo local, informando del avance a
+     * medida que se leen los pagos
+     *
+     * @param ndjson el archivo con la cabecera y los pagos, uno por línea
+     * @param outputStream el flujo de la respuesta; no se cierra al terminar
+     * @param priority la prioridad con la que se espera turno para renderizar
+     * @param progress recibe el número de pagos leídos hasta el momento; puede lanzar
+     *                 una excepción para interrumpir la generación
+     * @return el número de pagos incluidos
+     * @throws ReportGenerationException si la entrada no es válida o falla la generación
+     */
+    public int writeStatement(Path ndjson, OutputStream outputStream, RenderPriority priority,
+                              IntConsumer progress) {
+        DeferredCommitOutputStream responseStream = new DeferredCommitOutputStream(outputStream, commitThreshold);
+        try (JsonParser parser = objectMapper.getFactory().createParser(ndjson.toFile())) {
+            if (parser.nextToken() == null) {
+                throw new IllegalArgumentException("La solicitud no contiene la cabecera del estado de cuenta");
+            }
+            StatementReportRequest header = objectMapper.readValue(parser, StatementReportRequest.class);
+            PaymentReportConfig config = requestMapper.toConfig(header);
+            long memoryBudgetBytes = memoryBudgetKb(header) * 1024;
+
+            logger.info("Generando estado de cuenta para el cliente: {}", header.getCustomerName());
+
+            parser.nextToken();
+            MappingIterator<StatementPaymentRequest> lines =
+                    objectMapper.readerFor(StatementPaymentRequest.class).readValues(parser);
+            Iterator<PaymentData> payments = new Iterator<>() {
+                private int read;
+
+                @Override
+                public boolean hasNext() {
+                    return lines.hasNext();
+                }
+
+                @Override
+                public PaymentData next() {
+                    PaymentData payment = requestMapper.toPaymentData(lines.next(), header.getCustomerName());
+                    progress.accept(++read);
+                    return payment;
+                }
+            };
+
+            int count = renderBulkhead.execute(priority, () -> statementGenerator.generateStatement(config,
+                    header.getCustomerName(), payments, responseStream, memoryBudgetBytes));
+            responseStream.close();
+
+            logger.info("Estado de cuenta generado exitosamente: {} pagos", count);
+            return count;
+
+        } catch (ReportRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error al generar el estado de cuenta", e);
+            throw new ReportGenerationException("Error al generar el estado de cuenta: " + e.getMessage(), e);
+        }
+    }
+
+    private Path spool(InputStream ndjson) {
+        Path target = null;
+        try {
+            Files.createDirectories(spoolDirectory);
+            target = Files.createTempFile(spoolDirectory, "statement-", ".ndjson");
+            Files.copy(ndjson, target, StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        } catch (IOException e) {
+            deleteQuietly(target);
+            logger.error("Error al recibir el estado de cuenta", e);
+            throw new ReportGenerationException("Error al recibir el estado de cuenta: " + e.getMessage(), e);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("No se pudo eliminar el archivo {}: {}", path, e.getMessage());
+        }
+    }
+
+    private long memoryBudgetKb(StatementReportRequest header) {
+        if (header.getMemoryBudgetKb() == null || header.getMemoryBudgetKb() <= 0) {
+            return defaultMemoryBudgetKb;
+        }
+        return Math.min(header.getMemoryBudgetKb(), maxMemoryBudgetKb);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.report.archive;
+
+import com.example.demo.archive.ArchiveEntry;
+import com.example.demo.archive.ArchiveRegion;
+import com.example.demo.archive.ReportArchive;
+import com.example.demo.config.ArchiveProperties;
+import com.example.demo.model.PaymentData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private ReportArchive archive;
+
+    @AfterEach
+    void closeArchive() {
+        if (archive != null) {
+            archive.close();
+        }
+    }
+
+    @Test
+    void storedReportIsFoundAndServedByteForByte() throws Exception {
+        archive = open(properties());
+        byte[] pdf = pdf(3000, 1);
+        ArchiveEntry entry = archive.store(null, new PaymentData("TX-1", 10, "Efectivo", "Ana Pérez"), pdf);
+        archive.store(null, new PaymentData("TX-2", 20, "Efectivo", "Luis"), pdf(500, 2));
+
+        ArchiveRegion region = archive.region(entry.id());
+        assertArrayEquals(pdf, region.toByteArray());
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        region.writeTo(part, 100, 50);
+        assertArrayEquals(Arrays.copyOfRange(pdf, 100, 150), part.toByteArray());
+
+        assertEquals(List.of(entry), archive.find(null, "ana pérez", null, null, 10));
+        assertEquals(List.of(entry), archive.find("TX-1", null, null, null, 10));
+        assertEquals(2, archive.find(null, null, LocalDate.now().minusDays(1), null, 10).size());
+        assertEquals(entry.id(), archive.latestRegion("TX-1").getEntry().id());
+    }
+
+    @Test
+    void indexIsRebuiltOnReopenAndFingerprintsAreNotStoredTwice() throws Exception {
+        ArchiveProperties properties = properties();
+        properties.setSegmentSizeBytes(4096);
+        archive = open(properties);
+        PaymentData payment = new PaymentData("TX-1", 10, "Efectivo", "Ana");
+        ArchiveEntry first = archive.store("abc", payment, pdf(3000, 1));
+        archive.store(null, payment, pdf(3000, 2));
+        archive.close();
+
+        archive = open(properties);
+        assertEquals(2, archive.getEntries());
+        assertEquals(2, archive.getSegments());
+        assertEquals(first, archive.store("abc", payment, pdf(3000, 3)));
+        assertArrayEquals(pdf(3000, 1), archive.regionByFingerprint("abc").toByteArray());
+        assertEquals(2, archive.getEntries());
+    }
+
+    @Test
+    void expiredReportsAreCompactedAway() throws Exception {
+        ArchiveProperties properties = properties();
+        properties.setSegmentSizeBytes(1);
+        archive = open(properties);
+        for (int i = 0; i < 3; i++) {
+            archive.store(null, new PaymentData("TX-" + i, 10, "Efectivo", "Ana"), pdf(1000, i));
+        }
+        assertEquals(3, archive.getSegments());
+
+        properties.setRetention(Duration.ZERO);
+        Thread.sleep(5);
+        archive.compact();
+        assertEquals(0, archive.getEntries());
+        assertEquals(1, archive.getSegments());
+        assertEquals(3, segmentFiles().size());
+
+        // Los archivos retirados se borran en la compactación siguiente
+        archive.compact();
+        assertEquals(1, segmentFiles().size());
+    }
+
+    @Test
+    void tornTailIsDiscardedOnReopen() throws Exception {
+        ArchiveProperties properties = properties();
+        archive = open(properties);
+        ArchiveEntry entry = archive.store(null, new PaymentData("TX-1", 10, "Efectivo", "Ana"), pdf(2000, 1));
+        archive.close();
+
+        Path segment = segmentFiles().get(0);
+        long size = Files.size(segment);
+        Files.write(segment, Arrays.copyOf(Files.readAllBytes(segment), 700), StandardOpenOption.APPEND);
+
+        archive = open(properties);
+        assertEquals(1, archive.getEntries());
+        assertEquals(size, Files.size(segment));
+        assertArrayEquals(pdf(2000, 1), archive.region(entry.id()).toByteArray());
+    }
+
+    private ArchiveProperties properties() {
+        ArchiveProperties properties = new ArchiveProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory);
+        return properties;
+    }
+
+    private static ReportArchive open(ArchiveProperties properties) throws Exception {
+        ReportArchive archive = new ReportArchive(properties);
+        archive.open();
+        return archive;
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static byte[] pdf(int size, int seed) {
+        byte[] pdf = new byte[size];
+        for (int i = 0; i < size; i++) {
+            pdf[i] = (byte) (i * 31 + seed);
+        }
+        return pdf;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.demo.report.cache;
+
+import com.example.demo.cache.WeightedLruCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Desalojo por peso en orden LRU y carga única de cada clave con accesos concurrentes
+ */
+class WeightedLruCacheTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedByWeight() {
+        WeightedLruCache<String, byte[]> cache = new WeightedLruCache<>(100, value -> value.length);
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        assertNotNull(cache.get("a"), "a pasa a ser la más reciente");
+
+        cache.put("c", new byte[40]);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(80, cache.stats().getWeight());
+        assertEquals(1, cache.stats().getEvictions());
+
+        cache.put("d", new byte[90]);
+
+        assertEquals(1, cache.stats().getSize(), "una entrada pesada desaloja a varias ligeras");
+        assertEquals(90, cache.stats().getWeight());
+        assertEquals(3, cache.stats().getEvictions());
+    }
+
+    @Test
+    void entriesHeavierThanTheLimitAreNotRetained() {
+        WeightedLruCache<String, byte[]> cache = new WeightedLruCache<>(100, value -> value.length);
+        cache.put("a", new byte[40]);
+
+        byte[] loaded = cache.computeIfAbsent("b", key -> new byte[101]);
+
+        assertEquals(101, loaded.length);
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"), "la entrada rechazada no desaloja a las demás");
+    }
+
+    @Test
+    void concurrentRequestsLoadEachKeyOnce() throws Exception {
+        WeightedLruCache<String, Object> cache = new WeightedLruCache<>(100, value -> 1);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Object> values = runConcurrently(() -> cache.computeIfAbsent("logo", key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return new Object();
+        }), () -> {
+            await(loading);
+            awaitMisses(cache);
+            release.countDown();
+        });
+
+        assertEquals(1, loads.get());
+        assertTrue(values.stream().allMatch(value -> value == values.get(0)), "todos reciben el mismo valor");
+        assertEquals(1, cache.stats().getSize());
+    }
+
+    @Test
+    void failedLoadReachesEveryWaiterAndIsRetried() throws Exception {
+        WeightedLruCache<String, Object> cache = new WeightedLruCache<>(100, value -> 1);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Object> outcomes = runConcurrently(() -> {
+            try {
+                return cache.computeIfAbsent("logo", key -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    throw new IllegalStateException("logo ilegible");
+                });
+            } catch (IllegalStateException e) {
+                return e.getMessage();
+            }
+        }, () -> {
+            await(loading);
+            awaitMisses(cache);
+            release.countDown();
+        });
+
+        assertEquals(1, loads.get());
+        assertTrue(outcomes.stream().allMatch("logo ilegible"::equals), outcomes.toString());
+        assertEquals(0, cache.stats().getSize());
+
+        assertNotNull(cache.computeIfAbsent("logo", key -> {
+            loads.incrementAndGet();
+            return new Object();
+        }));
+        assertEquals(2, loads.get(), "tras un fallo la siguiente solicitud vuelve a cargar");
+    }
+
+    /**
+     * Ejecuta la tarea en varios hilos a la vez mientras el coordinador decide cuándo termina la carga
+     */
+    private static List<Object> runConcurrently(CheckedSupplier task, CheckedRunnable coordinator) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.get();
+                }));
+            }
+            start.countDown();
+            coordinator.run();
+            List<Object> results = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Espera a que todos los hilos hayan pedido la clave: cada consulta sin valor cuenta como fallo
+     */
+    private static void awaitMisses(WeightedLruCache<String, Object> cache) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (cache.stats().getMisses() < THREADS) {
+            assertTrue(System.currentTimeMillis() < deadline, "los hilos no llegaron a pedir la clave");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface CheckedSupplier {
+        Object get() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface CheckedRunnable {
+        void run() throws Exception;
+    }
+}
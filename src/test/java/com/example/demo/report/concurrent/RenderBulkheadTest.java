@@ -0,0 +1,130 @@
+package com.example.demo.report.concurrent;
+
+import com.example.demo.concurrent.RenderBulkhead;
+import com.example.demo.concurrent.RenderPriority;
+import com.example.demo.config.RenderProperties;
+import com.example.demo.exception.ReportRejectedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderBulkheadTest {
+
+    @Test
+    void turnsAreSharedByLaneWeight() throws Exception {
+        RenderBulkhead bulkhead = new RenderBulkhead(properties(Duration.ofSeconds(30)));
+        List<RenderPriority> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = holdOnlyTurn(bulkhead);
+
+        List<Thread> threads = new ArrayList<>();
+        for (RenderPriority priority : List.of(RenderPriority.STANDARD, RenderPriority.INTERACTIVE)) {
+            for (int i = 0; i < 4; i++) {
+                threads.add(enqueue(bulkhead, priority, order));
+            }
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        // Peso 8 frente a 4: dos turnos interactivos por cada turno de descarga
+        assertEquals(List.of(RenderPriority.INTERACTIVE, RenderPriority.STANDARD, RenderPriority.INTERACTIVE,
+                RenderPriority.INTERACTIVE, RenderPriority.STANDARD, RenderPriority.INTERACTIVE,
+                RenderPriority.STANDARD, RenderPriority.STANDARD), order);
+        assertEquals(0, bulkhead.getPromoted(RenderPriority.STANDARD));
+    }
+
+    @Test
+    void overdueLaneIsServedFirst() throws Exception {
+        RenderProperties properties = properties(Duration.ofSeconds(30));
+        properties.getBulk().setWaitSlo(Duration.ofMillis(1));
+        RenderBulkhead bulkhead = new RenderBulkhead(properties);
+        List<RenderPriority> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = holdOnlyTurn(bulkhead);
+
+        Thread bulk = enqueue(bulkhead, RenderPriority.BULK, order);
+        Thread.sleep(20);
+        List<Thread> threads = new ArrayList<>(List.of(bulk));
+        for (int i = 0; i < 3; i++) {
+            threads.add(enqueue(bulkhead, RenderPriority.INTERACTIVE, order));
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        assertEquals(RenderPriority.BULK, order.get(0));
+        assertEquals(1, bulkhead.getPromoted(RenderPriority.BULK));
+        assertEquals(1, bulkhead.getSloMissed(RenderPriority.BULK));
+    }
+
+    @Test
+    void boundedLaneIsRejectedAfterMaxQueueWait() throws Exception {
+        RenderBulkhead bulkhead = new RenderBulkhead(properties(Duration.ofMillis(50)));
+        CountDownLatch release = holdOnlyTurn(bulkhead);
+        try {
+            ReportRejectedException e = assertThrows(ReportRejectedException.class,
+                    () -> bulkhead.run(RenderPriority.STANDARD, () -> fail("no debía obtener turno")));
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+            assertEquals(1, bulkhead.getRejected(RenderPriority.STANDARD));
+            assertEquals(0, bulkhead.getWaiting(RenderPriority.STANDARD));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static RenderProperties properties(Duration maxQueueWait) {
+        RenderProperties properties = new RenderProperties();
+        properties.setMaxConcurrent(1);
+        properties.getInteractive().setMaxQueueWait(maxQueueWait);
+        properties.getInteractive().setWaitSlo(Duration.ofSeconds(30));
+        properties.getStandard().setMaxQueueWait(maxQueueWait);
+        properties.getStandard().setWaitSlo(Duration.ofSeconds(30));
+        return properties;
+    }
+
+    /**
+     * Ocupa el único turno hasta que se libera el cerrojo devuelto
+     */
+    private static CountDownLatch holdOnlyTurn(RenderBulkhead bulkhead) throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        new Thread(() -> bulkhead.run(RenderPriority.BULK, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })).start();
+        waitUntil(() -> bulkhead.getActive(RenderPriority.BULK) == 1);
+        return release;
+    }
+
+    /**
+     * Pone en cola una solicitud y espera a que esté esperando turno, para fijar el orden de llegada
+     */
+    private static Thread enqueue(RenderBulkhead bulkhead, RenderPriority priority, List<RenderPriority> order)
+            throws InterruptedException {
+        int waiting = bulkhead.getWaiting(priority);
+        Thread thread = new Thread(() -> bulkhead.run(priority, () -> order.add(priority)));
+        thread.start();
+        waitUntil(() -> bulkhead.getWaiting(priority) == waiting + 1);
+        return thread;
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "la condición no se cumplió a tiempo");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.demo.report.concurrent;
+
+import com.example.demo.concurrent.SingleFlight;
+import com.example.demo.config.RenderProperties;
+import com.example.demo.config.ReportExecutorConfig;
+import com.example.demo.exception.ReportGenerationException;
+import com.example.demo.exception.ReportRejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final SingleFlight<String, byte[]> flights = new SingleFlight<>(executor);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentRequestsShareOneRender() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger renders = new AtomicInteger();
+        List<CompletableFuture<byte[]>> waiters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            waiters.add(request("TX-1", () -> {
+                renders.incrementAndGet();
+                await(release);
+                return new byte[]{1, 2, 3};
+            }));
+        }
+        waitUntil(() -> flights.getExecuted() + flights.getJoined() == 4);
+        release.countDown();
+
+        byte[] first = waiters.get(0).get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<byte[]> waiter : waiters) {
+            assertSame(first, waiter.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, renders.get());
+        assertEquals(3, flights.getJoined());
+        waitUntil(() -> flights.getInFlight() == 0);
+    }
+
+    @Test
+    void failureReachesEveryWaiter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("fallo de renderizado");
+        CompletableFuture<byte[]> first = request("TX-2", () -> {
+            await(release);
+            throw failure;
+        });
+        waitUntil(() -> flights.getInFlight() == 1);
+        CompletableFuture<byte[]> second = request("TX-2", () -> new byte[0]);
+        waitUntil(() -> flights.getJoined() == 1);
+        release.countDown();
+
+        for (CompletableFuture<byte[]> waiter : List.of(first, second)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+        // Tras el fallo la clave queda libre y la siguiente solicitud renderiza de nuevo
+        waitUntil(() -> flights.getInFlight() == 0);
+        assertArrayEquals(new byte[]{7}, flights.execute("TX-2", () -> new byte[]{7}));
+    }
+
+    @Test
+    void renderIsCancelledWhenEveryWaiterLeaves() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    flights.execute("TX-3", () -> {
+                        started.countDown();
+                        try {
+                            new CountDownLatch(1).await();
+                        } catch (InterruptedException e) {
+                            interrupted.countDown();
+                        }
+                        return new byte[0];
+                    });
+                } catch (ReportGenerationException e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        waitUntil(() -> flights.getExecuted() + flights.getJoined() == 2);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        threads.get(0).interrupt();
+        threads.get(0).join(5000);
+        assertEquals(0, flights.getCancelled(), "queda una solicitud esperando");
+
+        threads.get(1).interrupt();
+        threads.get(1).join(5000);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "el renderizado debe interrumpirse");
+        assertEquals(1, flights.getCancelled());
+        assertEquals(2, errors.size());
+        assertEquals(0, flights.getInFlight());
+    }
+
+    @Test
+    void fullFlightExecutorRejectsInsteadOfQueueing() throws Exception {
+        RenderProperties properties = new RenderProperties();
+        properties.setMaxConcurrent(1);
+        properties.setMaxWaiting(1);
+        ExecutorService bounded = new ReportExecutorConfig().reportFlightExecutor(properties);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Tres hilos ocupados y tres tareas en cola llenan el ejecutor
+            for (int i = 0; i < 6; i++) {
+                bounded.submit(() -> await(release));
+            }
+            SingleFlight<String, byte[]> boundedFlights = new SingleFlight<>(bounded);
+
+            ReportRejectedException e = assertThrows(ReportRejectedException.class,
+                    () -> boundedFlights.execute("TX-4", () -> new byte[0]));
+            assertEquals(503, e.getStatus().value());
+            assertEquals(0, boundedFlights.getInFlight(), "la clave rechazada no debe quedar ocupada");
+        } finally {
+            release.countDown();
+            bounded.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<byte[]> request(String key, Supplier<byte[]> task) {
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(flights.execute(key, task));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        thread.start();
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "la condición no se cumplió a tiempo");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.demo.report.config;
+
+import com.example.demo.config.Format;
+import com.example.demo.config.OutputProfile;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.RenderMode;
+import com.example.demo.config.ReportProfileProperties;
+import com.example.demo.config.ReportProfileRegistry;
+import com.example.demo.config.TemplateProperties;
+import com.example.demo.config.Theme;
+import com.example.demo.exception.ReportProfileNotFoundException;
+import com.example.demo.generator.ReportTemplateEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentReportConfigTest {
+
+    @Test
+    void builderUsesDefaults() {
+        PaymentReportConfig config = new PaymentReportConfig.Builder().build();
+
+        assertFalse(config.isIncludeLogo());
+        assertEquals("Reporte de Pago", config.getTitle());
+        assertTrue(config.isIncludePaymentDetails());
+        assertTrue(config.isIncludeUserInfo());
+        assertEquals(Theme.LIGHT, config.getTheme());
+        assertTrue(config.isIncludeTimestamp());
+        assertEquals("", config.getFooterMessage());
+        assertEquals(Format.A4, config.getFormat());
+        assertEquals(RenderMode.SKELETON, config.getRenderMode());
+        assertNull(config.getTemplate());
+        assertNull(config.getProfile());
+        assertEquals(OutputProfile.BALANCED, config.getOutputProfile());
+    }
+
+    @Test
+    void equalConfigsShareHash() {
+        PaymentReportConfig first = new PaymentReportConfig.Builder()
+                .withTheme(Theme.DARK).withFooterMessage("Gracias").build();
+        PaymentReportConfig second = new PaymentReportConfig.Builder()
+                .withTheme(Theme.DARK).withFooterMessage("Gracias").build();
+        PaymentReportConfig other = new PaymentReportConfig.Builder()
+                .withTheme(Theme.DARK).withFooterMessage("Hasta pronto").build();
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, other);
+    }
+
+    @Test
+    void profilesAreBuiltOnceAndShared() {
+        ReportProfileProperties properties = new ReportProfileProperties();
+        ReportProfileProperties.Profile profile = new ReportProfileProperties.Profile();
+        profile.setTheme(Theme.DARK);
+        profile.setFormat(Format.LETTER);
+        properties.getDefinitions().put("receipt-dark-letter", profile);
+        ReportProfileRegistry registry = new ReportProfileRegistry(properties, templateEngine());
+
+        PaymentReportConfig config = registry.get("receipt-dark-letter");
+
+        assertSame(config, registry.get("receipt-dark-letter"));
+        assertEquals("receipt-dark-letter", config.getProfile());
+        assertEquals(Theme.DARK, config.getTheme());
+        assertEquals(Format.LETTER, config.getFormat());
+        assertThrows(ReportProfileNotFoundException.class, () -> registry.get("desconocido"));
+    }
+
+    @Test
+    void outputProfileVariantsAreShared() {
+        ReportProfileProperties properties = new ReportProfileProperties();
+        ReportProfileProperties.Profile profile = new ReportProfileProperties.Profile();
+        profile.setOutputProfile(OutputProfile.SMALLEST);
+        properties.getDefinitions().put("mobile", profile);
+        ReportProfileRegistry registry = new ReportProfileRegistry(properties, templateEngine());
+
+        PaymentReportConfig fast = registry.get("mobile", OutputProfile.FAST);
+
+        assertSame(registry.get("mobile"), registry.get("mobile", OutputProfile.SMALLEST));
+        assertSame(fast, registry.get("mobile", OutputProfile.FAST));
+        assertEquals(OutputProfile.FAST, fast.getOutputProfile());
+        assertEquals("mobile", fast.getProfile());
+        assertEquals(OutputProfile.SMALLEST, OutputProfile.of("smallest"));
+        assertThrows(IllegalArgumentException.class, () -> OutputProfile.of("diminuto"));
+    }
+
+    @Test
+    void profileWithUnknownTemplateIsRejected() {
+        ReportProfileProperties properties = new ReportProfileProperties();
+        ReportProfileProperties.Profile profile = new ReportProfileProperties.Profile();
+        profile.setTemplate("no-existe");
+        properties.getDefinitions().put("roto", profile);
+
+        assertThrows(IllegalStateException.class, () -> new ReportProfileRegistry(properties, templateEngine()));
+    }
+
+    private static ReportTemplateEngine templateEngine() {
+        TemplateProperties properties = new TemplateProperties();
+        properties.setHotReload(false);
+        return new ReportTemplateEngine(properties, new DefaultResourceLoader());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.report.config;
+
+import com.example.demo.config.RequestEncoding;
+import com.example.demo.config.RequestMappers;
+import com.example.demo.dto.PaymentReportRequest;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestMappersTest {
+
+    private final RequestMappers mappers = new RequestMappers(Jackson2ObjectMapperBuilder.json().build(),
+            Jackson2ObjectMapperBuilder.json());
+
+    @Test
+    void binaryEncodingsReadTheSameRequestAsJson() throws Exception {
+        PaymentReportRequest original = request("TX-1");
+        byte[] json = mappers.get(RequestEncoding.JSON).writeValueAsBytes(original);
+
+        for (RequestEncoding encoding : RequestEncoding.values()) {
+            ObjectMapper mapper = mappers.get(encoding);
+            byte[] encoded = mapper.writeValueAsBytes(original);
+            PaymentReportRequest read = mapper.readValue(encoded, PaymentReportRequest.class);
+
+            assertArrayEquals(json, mappers.get(RequestEncoding.JSON).writeValueAsBytes(read), encoding.name());
+            if (encoding != RequestEncoding.JSON) {
+                assertTrue(encoded.length < json.length, encoding + " debería ser más compacto que JSON");
+            }
+        }
+    }
+
+    @Test
+    void streamsOfConcatenatedDocumentsAreReadInOrder() throws Exception {
+        for (RequestEncoding encoding : RequestEncoding.values()) {
+            ObjectMapper mapper = mappers.get(encoding);
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            for (int i = 1; i <= 3; i++) {
+                stream.write(mapper.writeValueAsBytes(request("TX-" + i)));
+                if (encoding == RequestEncoding.JSON) {
+                    stream.write('\n');
+                }
+            }
+
+            List<String> ids = new ArrayList<>();
+            try (MappingIterator<PaymentReportRequest> requests = mapper.readerFor(PaymentReportRequest.class)
+                    .readValues(new ByteArrayInputStream(stream.toByteArray()))) {
+                requests.forEachRemaining(request -> ids.add(request.getTransactionId()));
+            }
+            assertEquals(List.of("TX-1", "TX-2", "TX-3"), ids, encoding.name());
+        }
+    }
+
+    @Test
+    void streamEncodingFollowsContentType() {
+        assertEquals(RequestEncoding.JSON, RequestEncoding.forStream("application/x-ndjson"));
+        assertEquals(RequestEncoding.JSON, RequestEncoding.forStream(null));
+        assertEquals(RequestEncoding.CBOR, RequestEncoding.forStream("application/cbor-seq"));
+        assertEquals(RequestEncoding.SMILE, RequestEncoding.forStream("application/x-jackson-smile"));
+        assertThrows(IllegalArgumentException.class, () -> RequestEncoding.forStream("text/csv"));
+    }
+
+    private static PaymentReportRequest request(String transactionId) {
+        PaymentReportRequest request = new PaymentReportRequest();
+        request.setTransactionId(transactionId);
+        request.setAmount(1234.5);
+        request.setPaymentMethod("Tarjeta de Crédito");
+        request.setCustomerName("María García");
+        request.setTheme("DARK");
+        request.setIncludeLogo(true);
+        request.setFooterMessage("Gracias por su pago");
+        request.setGeneratedAt(LocalDateTime.of(2024, 5, 1, 10, 30));
+        return request;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.report.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.util.HtmlUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PaymentReportPreviewControllerTest {
+
+    private static final String REQUEST = """
+            {"transactionId":"TX-PREVIEW-1","amount":1250.75,"paymentMethod":"Tarjeta de Crédito",
+             "customerName":"María García","includeLogo":true,"footerMessage":"Gracias por su pago"}""";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void pngPreviewIsADecodableImageOfTheRequestedWidth() throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/reports/payment/preview/png").param("width", "240")
+                        .contentType(MediaType.APPLICATION_JSON).content(REQUEST))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andReturn();
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertNotNull(image, "la vista previa debe ser un PNG válido");
+        assertEquals(240, image.getWidth());
+        assertTrue(image.getHeight() > image.getWidth(), "la miniatura conserva la proporción de la página");
+    }
+
+    @Test
+    void htmlPreviewContainsThePaymentValues() throws Exception {
+        String html = html(REQUEST);
+
+        assertTrue(html.startsWith("<div"));
+        assertTrue(html.contains("TX-PREVIEW-1"));
+        assertTrue(html.contains(HtmlUtils.htmlEscape("María García")));
+        assertTrue(html.contains("Gracias por su pago"));
+    }
+
+    @Test
+    void htmlPreviewEscapesRequestText() throws Exception {
+        String html = html("""
+                {"transactionId":"TX-<b>2</b>","amount":10,"paymentMethod":"Efectivo",
+                 "customerName":"<script>alert('x')</script>","footerMessage":"Pagos & \\"devoluciones\\""}""");
+
+        assertFalse(html.contains("<script>"), html);
+        assertFalse(html.contains("<b>"), html);
+        assertTrue(html.contains("&lt;script&gt;"));
+        assertTrue(html.contains("Pagos &amp; &quot;devoluciones&quot;"));
+    }
+
+    private String html(String request) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/reports/payment/preview/html")
+                        .contentType(MediaType.APPLICATION_JSON).content(request))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_HTML))
+                .andReturn();
+        return result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+}
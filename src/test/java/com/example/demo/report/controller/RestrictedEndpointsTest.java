@@ -0,0 +1,36 @@
+package com.example.demo.report.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Los endpoints que no deben quedar abiertos sin un acceso autenticado no se publican por defecto
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class RestrictedEndpointsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void flightRecordingDumpIsNotPublishedByDefault() throws Exception {
+        mockMvc.perform(post("/api/admin/jfr/dump"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void archivedReportsAreNotPublishedByDefault() throws Exception {
+        mockMvc.perform(get("/api/reports/archive").param("customer", "Ana"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/reports/archive/transactions/TX-1"))
+                .andExpect(status().isNotFound());
+    }
+}
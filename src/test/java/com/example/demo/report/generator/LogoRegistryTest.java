@@ -0,0 +1,197 @@
+package com.example.demo.report.generator;
+
+import com.example.demo.config.LogoProperties;
+import com.example.demo.config.OutputProfile;
+import com.example.demo.generator.LogoRegistry;
+import com.lowagie.text.Image;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Carga de los logos: reducción a la resolución de impresión, peso por la memoria retenida,
+ * desalojo LRU, carga única con accesos concurrentes y logos que no se pueden leer
+ */
+class LogoRegistryTest {
+
+    private static final String BUNDLED_LOGO = "classpath:report/images/company-logo.jpg";
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * Cuenta las lecturas de los logos; cada una tarda lo suficiente para que las demás
+     * solicitudes lleguen mientras sigue en curso
+     */
+    private final ResourceLoader countingLoader = new DefaultResourceLoader() {
+        @Override
+        public Resource getResource(String location) {
+            loads.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getResource(location);
+        }
+    };
+
+    @Test
+    void largeLogosAreScaledOnLoadAndWeighedByRetainedBytes() throws IOException {
+        LogoRegistry registry = registry(Long.MAX_VALUE, "default", write("grande.jpg", 2000, 1000, false));
+
+        byte[] data = registry.getLogoData("default", OutputProfile.BALANCED);
+        BufferedImage stored = ImageIO.read(new ByteArrayInputStream(data));
+
+        assertEquals(625, stored.getWidth());
+        assertEquals(313, stored.getHeight());
+        assertEquals(data.length, registry.stats().getWeight(), "iText conserva los JPEG sin decodificar");
+        Image logo = registry.getLogo("default");
+        assertEquals(150, logo.getScaledWidth(), 0.01);
+        assertEquals(75, logo.getScaledHeight(), 0.5);
+    }
+
+    @Test
+    void transparentLogosKeepTheirAlphaChannel() throws IOException {
+        LogoRegistry registry = registry(Long.MAX_VALUE, "default", write("grande.png", 1000, 1000, true));
+
+        BufferedImage stored = ImageIO.read(new ByteArrayInputStream(
+                registry.getLogoData("default", OutputProfile.BALANCED)));
+
+        assertEquals(625, stored.getWidth());
+        assertTrue(stored.getColorModel().hasAlpha());
+        assertTrue(registry.stats().getWeight() > 625L * 625 * 4,
+                "iText decodifica los PNG con transparencia en la imagen y su máscara");
+    }
+
+    @Test
+    void logosWithinThePrintResolutionAreKeptAsTheyAre() throws IOException {
+        LogoRegistry registry = registry(Long.MAX_VALUE, "default", BUNDLED_LOGO);
+
+        byte[] data = registry.getLogoData("default", OutputProfile.BALANCED);
+
+        try (InputStream bundled = new DefaultResourceLoader().getResource(BUNDLED_LOGO).getInputStream()) {
+            assertArrayEquals(bundled.readAllBytes(), data);
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedLogosAreEvictedByWeight() throws IOException {
+        LogoProperties properties = properties(0);
+        for (String brand : List.of("a", "b", "c")) {
+            properties.getLocations().put(brand, write(brand + ".jpg", 400, 400, false));
+        }
+        // Los tres logos son iguales y pesan lo que ocupa el JPEG: caben dos
+        long weight = Files.size(directory.resolve("a.jpg"));
+        properties.setMaxWeightBytes(weight * 5 / 2);
+        LogoRegistry registry = new LogoRegistry(properties, countingLoader);
+
+        registry.getLogo("a");
+        registry.getLogo("b");
+        registry.getLogo("a");
+        registry.getLogo("c");
+
+        assertEquals(2, registry.stats().getSize());
+        assertEquals(1, registry.stats().getEvictions());
+        assertEquals(3, loads.get());
+
+        registry.getLogo("a");
+        assertEquals(3, loads.get(), "el logo usado recientemente sigue en la caché");
+        registry.getLogo("b");
+        assertEquals(4, loads.get(), "el logo desalojado se vuelve a leer");
+    }
+
+    @Test
+    void concurrentRequestsLoadTheLogoOnce() throws Exception {
+        LogoRegistry registry = registry(Long.MAX_VALUE, "default", BUNDLED_LOGO);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Image>> logos = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                logos.add(executor.submit(() -> registry.getLogo("default")));
+            }
+            for (Future<Image> logo : logos) {
+                assertNotNull(logo.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, registry.stats().getSize());
+    }
+
+    @Test
+    void unreadableLogosAreNotReadAgainOnEveryRequest() {
+        LogoRegistry registry = registry(Long.MAX_VALUE, "default", directory.resolve("no-existe.png").toUri().toString());
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(registry.getLogo("default"));
+            assertNull(registry.getLogoData("default", OutputProfile.BALANCED));
+            assertNull(registry.contentHash("default", OutputProfile.BALANCED));
+        }
+
+        assertEquals(1, loads.get());
+        assertNull(registry.getLogo("otra"), "una marca sin configurar no tiene logo");
+        assertEquals(1, loads.get());
+        assertEquals(1, registry.stats().getSize(), "las marcas sin configurar no ocupan la caché");
+    }
+
+    private LogoRegistry registry(long maxWeightBytes, String brand, String location) {
+        LogoProperties properties = properties(maxWeightBytes);
+        properties.getLocations().put(brand, location);
+        return new LogoRegistry(properties, countingLoader);
+    }
+
+    private static LogoProperties properties(long maxWeightBytes) {
+        LogoProperties properties = new LogoProperties();
+        properties.setMaxWeightBytes(maxWeightBytes);
+        return properties;
+    }
+
+    /**
+     * Escribe un logo de prueba con un degradado, para que la compresión no lo reduzca a nada
+     *
+     * @return la ubicación del archivo
+     */
+    private String write(String name, int width, int height, boolean alpha) throws IOException {
+        BufferedImage image = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            for (int x = 0; x < width; x += 10) {
+                graphics.setColor(new Color(x % 256, (x / 2) % 256, 128, alpha ? 128 : 255));
+                graphics.fillRect(x, 0, 10, height);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        Path file = directory.resolve(name);
+        ImageIO.write(image, alpha ? "png" : "jpeg", file.toFile());
+        assertTrue(Files.size(file) > 0);
+        return file.toUri().toString();
+    }
+}
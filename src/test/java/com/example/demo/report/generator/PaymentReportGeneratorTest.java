@@ -0,0 +1,238 @@
+package com.example.demo.report.generator;
+
+import com.example.demo.config.FontProperties;
+import com.example.demo.config.Format;
+import com.example.demo.config.LogoProperties;
+import com.example.demo.config.OutputProfile;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.RenderMode;
+import com.example.demo.config.TemplateProperties;
+import com.example.demo.config.Theme;
+import com.example.demo.generator.FontRegistry;
+import com.example.demo.generator.LogoRegistry;
+import com.example.demo.generator.PageSkeletonCache;
+import com.example.demo.generator.PaymentReportGenerator;
+import com.example.demo.generator.ReportTemplateEngine;
+import com.example.demo.metrics.RenderStageEvent;
+import com.example.demo.metrics.ReportMetrics;
+import com.example.demo.metrics.ReportRenderEvent;
+import com.example.demo.model.PaymentData;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Equivalencia visual entre los modos de renderizado: el mismo reporte estampado sobre un
+ * esqueleto o escrito en coordenadas precalculadas debe verse igual que maquetado por completo
+ * con iText
+ */
+class PaymentReportGeneratorTest {
+
+    private static final ResourceLoader RESOURCE_LOADER = new DefaultResourceLoader();
+    private static final LocalDateTime GENERATED_AT = LocalDateTime.of(2024, 5, 17, 10, 30, 0);
+    private static final PaymentData PAYMENT = new PaymentData("TX-20240517-0001", 1250.75,
+            "Tarjeta de Crédito", "María García");
+    private static final String LONG_FOOTER = "Gracias por su pago. Este comprobante es válido como constancia "
+            + "de la operación y puede presentarse ante cualquier sucursal para aclaraciones o devoluciones.";
+    private static final float DPI = 96;
+    /**
+     * Diferencia máxima por canal entre dos píxeles que se consideran iguales (suavizado)
+     */
+    private static final int CHANNEL_TOLERANCE = 8;
+
+    private static final PaymentReportGenerator HELVETICA = generator(false, new SimpleMeterRegistry());
+    private static final PaymentReportGenerator CUSTOM_FONT = generator(true, new SimpleMeterRegistry());
+
+    static Stream<Arguments> configurations() {
+        List<Arguments> arguments = new ArrayList<>();
+        for (boolean customFont : new boolean[]{false, true}) {
+            String font = customFont ? "fuente personalizada" : "Helvetica";
+            for (Theme theme : Theme.values()) {
+                for (Format format : Format.values()) {
+                    arguments.add(Arguments.of(font + ", " + theme + " " + format, customFont,
+                            baseConfig().withTheme(theme).withFormat(format)));
+                }
+            }
+            arguments.add(Arguments.of(font + ", sin logo", customFont, baseConfig().withLogo(false)));
+            arguments.add(Arguments.of(font + ", pie largo", customFont, baseConfig().withFooterMessage(LONG_FOOTER)));
+            arguments.add(Arguments.of(font + ", sin detalles ni cliente", customFont,
+                    baseConfig().withPaymentDetails(false).withUserInfo(false)));
+            arguments.add(Arguments.of(font + ", marca sin logo", customFont, baseConfig().withBrand("desconocida")));
+            arguments.add(Arguments.of(font + ", plantilla compacta", customFont,
+                    baseConfig().withTemplate("compact").withTheme(Theme.DARK)));
+            arguments.add(Arguments.of(font + ", perfil smallest", customFont,
+                    baseConfig().withOutputProfile(OutputProfile.SMALLEST)));
+        }
+        return arguments.stream();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("configurations")
+    void directRenderingLooksLikeFlow(String name, boolean customFont, PaymentReportConfig.Builder builder)
+            throws IOException {
+        assertLooksLikeFlow(customFont, builder, RenderMode.DIRECT);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("configurations")
+    void skeletonRenderingLooksLikeFlow(String name, boolean customFont, PaymentReportConfig.Builder builder)
+            throws IOException {
+        assertLooksLikeFlow(customFont, builder, RenderMode.SKELETON);
+    }
+
+    @Test
+    void directRenderingIsUsedWhenValuesFit() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PaymentReportGenerator generator = generator(false, registry);
+        PaymentReportConfig config = baseConfig().withRenderMode(RenderMode.DIRECT).build();
+
+        render(generator, config, PAYMENT);
+        render(generator, config, new PaymentData("TX-2", 10, "Efectivo", "Ana"));
+        // La plantilla compacta ubica los campos en celdas
+        render(generator, baseConfig().withTemplate("compact").withRenderMode(RenderMode.DIRECT).build(), PAYMENT);
+        // El pie se estampa como un campo: si ocupa varias líneas se maqueta completo
+        render(generator, baseConfig().withFooterMessage(LONG_FOOTER).withRenderMode(RenderMode.DIRECT).build(), PAYMENT);
+
+        assertEquals(3, directWrites(registry));
+    }
+
+    @Test
+    void valuesThatDoNotFitFallBackToFlow() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PaymentReportGenerator generator = generator(false, registry);
+        PaymentData longCustomer = new PaymentData("TX-3", 10, "Efectivo", "Ana ".repeat(60).trim());
+        PaymentReportConfig.Builder builder = baseConfig();
+
+        BufferedImage flow = rasterize(render(generator, builder.withRenderMode(RenderMode.FLOW).build(), longCustomer));
+        BufferedImage direct = rasterize(render(generator, builder.withRenderMode(RenderMode.DIRECT).build(), longCustomer));
+
+        assertEquals(0, directWrites(registry));
+        assertEquals(0, differentPixels(flow, direct));
+    }
+
+    @Test
+    void renderingEmitsFlightRecorderEvents() throws Exception {
+        PaymentReportGenerator generator = generator(false, new SimpleMeterRegistry());
+        Path file = Files.createTempFile("render", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ReportRenderEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(RenderStageEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            render(generator, baseConfig().withRenderMode(RenderMode.FLOW).build(), PAYMENT);
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            RecordedEvent render = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("com.example.demo.ReportRender"))
+                    .findFirst().orElseThrow();
+            assertEquals(PAYMENT.getTransactionId(), render.getString("transactionId"));
+            assertEquals("FLOW", render.getString("path"));
+            assertTrue(render.getLong("bytes") > 0);
+            assertTrue(render.getString("shape").contains("mode=FLOW"));
+            // La etapa de cierre escribe el PDF y lleva la transacción del renderizado en curso
+            RecordedEvent close = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("com.example.demo.RenderStage"))
+                    .filter(event -> "document.close".equals(event.getString("stage")))
+                    .findFirst().orElseThrow();
+            assertEquals(PAYMENT.getTransactionId(), close.getString("transactionId"));
+            assertTrue(close.getLong("bytes") > 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void assertLooksLikeFlow(boolean customFont, PaymentReportConfig.Builder builder,
+                                            RenderMode renderMode) throws IOException {
+        PaymentReportGenerator generator = customFont ? CUSTOM_FONT : HELVETICA;
+
+        BufferedImage flow = rasterize(render(generator, builder.withRenderMode(RenderMode.FLOW).build(), PAYMENT));
+        BufferedImage other = rasterize(render(generator, builder.withRenderMode(renderMode).build(), PAYMENT));
+
+        assertEquals(flow.getWidth(), other.getWidth());
+        assertEquals(flow.getHeight(), other.getHeight());
+        assertEquals(0, differentPixels(flow, other), "píxeles distintos entre FLOW y " + renderMode);
+    }
+
+    private static PaymentReportConfig.Builder baseConfig() {
+        return new PaymentReportConfig.Builder()
+                .withLogo(true)
+                .withTitle("Reporte de Pago")
+                .withPaymentDetails(true)
+                .withUserInfo(true)
+                .withTimestamp(true)
+                .withFooterMessage("Gracias por su pago");
+    }
+
+    private static byte[] render(PaymentReportGenerator generator, PaymentReportConfig config, PaymentData payment) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        generator.generatePDF(config, payment, GENERATED_AT, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static BufferedImage rasterize(byte[] pdf) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            assertEquals(1, document.getNumberOfPages());
+            return new PDFRenderer(document).renderImageWithDPI(0, DPI, ImageType.RGB);
+        }
+    }
+
+    private static int differentPixels(BufferedImage expected, BufferedImage actual) {
+        int different = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    if (Math.abs((a >> shift & 0xFF) - (b >> shift & 0xFF)) > CHANNEL_TOLERANCE) {
+                        different++;
+                        break;
+                    }
+                }
+            }
+        }
+        return different;
+    }
+
+    private static long directWrites(SimpleMeterRegistry registry) {
+        Timer timer = registry.find("report.render.stage").tag("stage", "direct.write").timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    private static PaymentReportGenerator generator(boolean customFont, SimpleMeterRegistry registry) {
+        LogoProperties logoProperties = new LogoProperties();
+        logoProperties.getLocations().put("default", "classpath:report/images/company-logo.jpg");
+        FontProperties fontProperties = new FontProperties();
+        fontProperties.setUseCustomFont(customFont);
+        TemplateProperties templateProperties = new TemplateProperties();
+        templateProperties.setHotReload(false);
+        return new PaymentReportGenerator(new LogoRegistry(logoProperties, RESOURCE_LOADER),
+                new PageSkeletonCache(16 * 1024 * 1024), new FontRegistry(fontProperties, RESOURCE_LOADER),
+                new ReportMetrics(registry), new ReportTemplateEngine(templateProperties, RESOURCE_LOADER));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo.report.generator;
+
+import com.example.demo.generator.PngEncoder;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El PNG que se compone por franjas comprimidas por separado debe poder leerse con un
+ * decodificador estándar y reproducir exactamente los píxeles de la imagen
+ */
+class PngEncoderTest {
+
+    @Test
+    void encodedImageDecodesToTheSamePixels() throws IOException {
+        BufferedImage image = page(120, 90, "TX-0001", 7);
+
+        assertSamePixels(image, decode(new PngEncoder(1 << 20).encode(image)));
+    }
+
+    @Test
+    void heightNotMultipleOfBandRowsKeepsTheLastRows() throws IOException {
+        PngEncoder encoder = new PngEncoder(1 << 20);
+        for (int height : new int[]{1, PngEncoder.BAND_ROWS - 1, 5 * PngEncoder.BAND_ROWS + 3}) {
+            BufferedImage image = page(33, height, "1", height);
+
+            assertSamePixels(image, decode(encoder.encode(image)));
+        }
+    }
+
+    @Test
+    void cachedBandsAreReusedAcrossImages() throws IOException {
+        PngEncoder encoder = new PngEncoder(1 << 20);
+        BufferedImage first = page(150, 100, "TX-0001", 1);
+        BufferedImage second = page(150, 100, "TX-0002", 1);
+
+        assertSamePixels(first, decode(encoder.encode(first)));
+        long missesAfterFirst = encoder.bandStats().getMisses();
+        assertSamePixels(second, decode(encoder.encode(second)));
+
+        // Solo las franjas con el texto que cambia se vuelven a comprimir
+        int bands = (100 + PngEncoder.BAND_ROWS - 1) / PngEncoder.BAND_ROWS;
+        assertTrue(encoder.bandStats().getHits() > bands / 2, "la segunda imagen debe reutilizar franjas");
+        assertTrue(encoder.bandStats().getMisses() - missesAfterFirst < bands / 2);
+    }
+
+    @Test
+    void combinedAdlerMatchesAdlerOfTheConcatenation() {
+        Random random = new Random(11);
+        for (int length1 : new int[]{0, 1, 100, 65521, 200_000}) {
+            for (int length2 : new int[]{0, 1, 5552, 65521, 70_000}) {
+                byte[] first = new byte[length1];
+                byte[] second = new byte[length2];
+                random.nextBytes(first);
+                random.nextBytes(second);
+                // Bytes 0xFF llevan las sumas cerca del módulo
+                if (length2 > 10) {
+                    Arrays.fill(second, 0, length2 / 2, (byte) 0xFF);
+                }
+
+                Adler32 whole = new Adler32();
+                whole.update(first);
+                whole.update(second);
+                Adler32 adler1 = new Adler32();
+                adler1.update(first);
+                Adler32 adler2 = new Adler32();
+                adler2.update(second);
+
+                assertEquals(whole.getValue(), PngEncoder.combineAdler(adler1.getValue(), adler2.getValue(), length2),
+                        length1 + " + " + length2);
+            }
+        }
+    }
+
+    @Test
+    void rejectsImagesThatAreNotIntRgb() {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+
+        assertThrows(IllegalArgumentException.class, () -> new PngEncoder(1024).encode(image));
+    }
+
+    /**
+     * Página con fondo liso, un bloque de color, texto y algo de ruido, como una miniatura real
+     */
+    private static BufferedImage page(int width, int height, String text, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(new Color(30, 60, 120));
+        graphics.fillRect(0, 0, width, Math.min(height, 12));
+        graphics.setColor(Color.BLACK);
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 10));
+        graphics.drawString(text, 4, Math.min(height, 60));
+        graphics.dispose();
+        Random random = new Random(seed);
+        for (int i = 0; i < 5; i++) {
+            image.setRGB(random.nextInt(width), Math.min(height - 1, 20 + random.nextInt(4)), random.nextInt(0xFFFFFF));
+        }
+        return image;
+    }
+
+    private static BufferedImage decode(byte[] png) throws IOException {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+        assertNotNull(decoded, "ImageIO no reconoce el PNG");
+        return decoded;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y) & 0xFFFFFF, actual.getRGB(x, y) & 0xFFFFFF,
+                        "píxel (" + x + ", " + y + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.demo.report.generator;
+
+import com.example.demo.config.FontProperties;
+import com.example.demo.config.LogoProperties;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.RenderMode;
+import com.example.demo.config.TemplateProperties;
+import com.example.demo.exception.ReportTemplateException;
+import com.example.demo.generator.FontRegistry;
+import com.example.demo.generator.LogoRegistry;
+import com.example.demo.generator.PageSkeletonCache;
+import com.example.demo.generator.PaymentReportGenerator;
+import com.example.demo.generator.ReportTemplateEngine;
+import com.example.demo.metrics.ReportMetrics;
+import com.example.demo.model.PaymentData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Análisis, recarga y compilación de las plantillas de reportes
+ */
+class ReportTemplateEngineTest {
+
+    private static final ResourceLoader RESOURCE_LOADER = new DefaultResourceLoader();
+    private static final LocalDateTime GENERATED_AT = LocalDateTime.of(2024, 5, 17, 10, 30, 0);
+    private static final PaymentData PAYMENT = new PaymentData("TX-20240517-0001", 1250.75,
+            "Tarjeta de Crédito", "María García");
+
+    /**
+     * Texto del reporte completo tal como lo escribía el generador anterior a las plantillas;
+     * las celdas de la tabla quedan al final porque iText las escribe después de los párrafos
+     */
+    private static final List<String> PRE_TEMPLATE_TEXT = List.of(
+            "Reporte de Pago",
+            "Detalles del Pago",
+            "Información del Cliente",
+            "Cliente: María García",
+            "Generado el: 17/05/2024 10:30:00",
+            "Gracias por su pago",
+            "ID de Transacción: TX-20240517-0001",
+            "Monto: 1250.75",
+            "Método de Pago: Tarjeta de Crédito");
+
+    private static final String MINIMAL_TEMPLATE = """
+            <html><body>
+                <section id="title"><h1>{{title}}</h1></section>
+                <section id="payment-details"><p data-field="amount"/></section>
+            </body></html>
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void validTemplatesAreLoadedByFileName() throws IOException {
+        write("report-template.html", MINIMAL_TEMPLATE);
+        write("compact.html", MINIMAL_TEMPLATE.replace("<h1>", "<h2>").replace("</h1>", "</h2>"));
+
+        ReportTemplateEngine engine = engine(false);
+
+        assertEquals(Set.of("compact", "report-template"), engine.getTemplateNames());
+        assertEquals(16, engine.version(config().build()).length());
+        assertNotEquals(engine.version(config().build()), engine.version(config().withTemplate("compact").build()));
+        assertThrows(IllegalArgumentException.class, () -> engine.version(config().withTemplate("missing").build()));
+    }
+
+    @Test
+    void unknownDataFieldIsRejected() throws IOException {
+        write("report-template.html", MINIMAL_TEMPLATE.replace("data-field=\"amount\"", "data-field=\"iban\""));
+
+        ReportTemplateException error = assertThrows(ReportTemplateException.class, () -> engine(false));
+
+        assertTrue(error.getMessage().contains("campo desconocido: iban"), error.getMessage());
+    }
+
+    @Test
+    void malformedXhtmlIsRejected() throws IOException {
+        write("report-template.html", MINIMAL_TEMPLATE.replace("</section>", ""));
+
+        ReportTemplateException error = assertThrows(ReportTemplateException.class, () -> engine(false));
+
+        assertTrue(error.getMessage().contains("no es XHTML válido"), error.getMessage());
+    }
+
+    @Test
+    void configValueMustBeTheWholeTextOfItsElement() throws IOException {
+        write("report-template.html", MINIMAL_TEMPLATE.replace("{{title}}", "Recibo: {{title}}"));
+
+        ReportTemplateException error = assertThrows(ReportTemplateException.class, () -> engine(false));
+
+        assertTrue(error.getMessage().contains("{{title}}"), error.getMessage());
+    }
+
+    @Test
+    void reloadSwapsInChangedTemplatesAndKeepsThePreviousVersionOnBrokenEdits() throws IOException {
+        write("report-template.html", MINIMAL_TEMPLATE);
+        ReportTemplateEngine engine = engine(true);
+        PaymentReportGenerator generator = generator(engine, new PageSkeletonCache(16 * 1024 * 1024));
+        String original = engine.version(config().build());
+
+        write("report-template.html", MINIMAL_TEMPLATE.replace("data-field=\"amount\"", "data-field=\"customer\""));
+        engine.reloadChanged();
+        String edited = engine.version(config().build());
+        assertNotEquals(original, edited);
+        assertTrue(text(generator, config().build()).contains("Cliente: María García"));
+
+        write("report-template.html", "<html><body><section id=\"title\">");
+        engine.reloadChanged();
+        assertEquals(edited, engine.version(config().build()));
+        assertTrue(text(generator, config().build()).contains("Cliente: María García"));
+
+        write("compact.html", MINIMAL_TEMPLATE);
+        engine.reloadChanged();
+        assertEquals(Set.of("compact", "report-template"), engine.getTemplateNames());
+    }
+
+    @Test
+    void reloadDiscardsTheSkeletonsOfThePreviousPlans() throws IOException {
+        write("report-template.html", MINIMAL_TEMPLATE);
+        ReportTemplateEngine engine = engine(true);
+        PageSkeletonCache skeletons = new PageSkeletonCache(16 * 1024 * 1024);
+        PaymentReportGenerator generator = generator(engine, skeletons);
+        PaymentReportConfig config = config().withRenderMode(RenderMode.SKELETON).build();
+
+        render(generator, config);
+        assertEquals(1, skeletons.stats().getSize());
+
+        write("report-template.html", MINIMAL_TEMPLATE.replace("<h1>", "<h2>").replace("</h1>", "</h2>"));
+        engine.reloadChanged();
+        assertEquals(0, skeletons.stats().getSize());
+
+        render(generator, config);
+        assertEquals(1, skeletons.stats().getSize());
+    }
+
+    @Test
+    void distinctTitlesAndFootersShareOnePlanAndOneSkeleton() throws IOException {
+        ReportTemplateEngine engine = new ReportTemplateEngine(bundledTemplates(), RESOURCE_LOADER);
+        PageSkeletonCache skeletons = new PageSkeletonCache(16 * 1024 * 1024);
+        PaymentReportGenerator generator = generator(engine, skeletons);
+
+        for (int i = 0; i < 5; i++) {
+            PaymentReportConfig config = fullConfig().withTitle("Recibo " + i).withFooterMessage("Pie " + i)
+                    .withRenderMode(RenderMode.SKELETON).build();
+            String text = text(generator, config);
+            assertTrue(text.contains("Recibo " + i), text);
+            assertTrue(text.contains("Pie " + i), text);
+        }
+
+        assertEquals(1, engine.planStats().getSize());
+        assertEquals(1, skeletons.stats().getMisses());
+        assertEquals(4, skeletons.stats().getHits());
+    }
+
+    @Test
+    void flowRenderKeepsThePreTemplateText() throws IOException {
+        ReportTemplateEngine engine = new ReportTemplateEngine(bundledTemplates(), RESOURCE_LOADER);
+        PaymentReportGenerator generator = generator(engine, new PageSkeletonCache(16 * 1024 * 1024));
+
+        String text = text(generator, fullConfig().withRenderMode(RenderMode.FLOW).build());
+
+        assertEquals(PRE_TEMPLATE_TEXT, text.lines().map(String::strip).filter(line -> !line.isEmpty()).toList());
+    }
+
+    private void write(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        FileTime previous = Files.exists(file) ? Files.getLastModifiedTime(file) : FileTime.from(Instant.EPOCH);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        // Garantizar que la fecha de modificación cambie aunque el sistema de archivos tenga poca resolución
+        Files.setLastModifiedTime(file, FileTime.fromMillis(previous.toMillis() + 2000));
+    }
+
+    private ReportTemplateEngine engine(boolean hotReload) {
+        TemplateProperties properties = new TemplateProperties();
+        properties.setLocation(directory.toUri().toString());
+        properties.setHotReload(hotReload);
+        return new ReportTemplateEngine(properties, RESOURCE_LOADER);
+    }
+
+    private static TemplateProperties bundledTemplates() {
+        TemplateProperties properties = new TemplateProperties();
+        properties.setHotReload(false);
+        return properties;
+    }
+
+    private static PaymentReportGenerator generator(ReportTemplateEngine engine, PageSkeletonCache skeletons) {
+        LogoProperties logoProperties = new LogoProperties();
+        logoProperties.getLocations().put("default", "classpath:report/images/company-logo.jpg");
+        return new PaymentReportGenerator(new LogoRegistry(logoProperties, RESOURCE_LOADER), skeletons,
+                new FontRegistry(new FontProperties(), RESOURCE_LOADER), new ReportMetrics(new SimpleMeterRegistry()),
+                engine);
+    }
+
+    private static PaymentReportConfig.Builder config() {
+        return new PaymentReportConfig.Builder().withLogo(false).withTimestamp(false);
+    }
+
+    private static PaymentReportConfig.Builder fullConfig() {
+        return new PaymentReportConfig.Builder()
+                .withLogo(true)
+                .withTitle("Reporte de Pago")
+                .withPaymentDetails(true)
+                .withUserInfo(true)
+                .withTimestamp(true)
+                .withFooterMessage("Gracias por su pago");
+    }
+
+    private static byte[] render(PaymentReportGenerator generator, PaymentReportConfig config) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        generator.generatePDF(config, PAYMENT, GENERATED_AT, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static String text(PaymentReportGenerator generator, PaymentReportConfig config) throws IOException {
+        try (PDDocument document = Loader.loadPDF(render(generator, config))) {
+            return new PDFTextStripper().getText(document);
+        }
+    }
+}
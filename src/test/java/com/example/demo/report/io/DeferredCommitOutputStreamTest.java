@@ -0,0 +1,106 @@
+package com.example.demo.report.io;
+
+import com.example.demo.io.DeferredCommitOutputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Envío diferido de la respuesta: tamaño anunciado cuando todo cabe en el búfer, envío al
+ * superar el umbral y respuesta de error cuando el renderizado falla antes de enviar nada
+ */
+class DeferredCommitOutputStreamTest {
+
+    private static final int THRESHOLD = 1024;
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void responseWithinTheThresholdAnnouncesItsLengthOnClose() throws IOException {
+        DeferredCommitOutputStream stream = new DeferredCommitOutputStream(response.getOutputStream(), THRESHOLD,
+                response::setContentLength);
+        byte[] content = content(THRESHOLD);
+
+        stream.write(content, 0, 1000);
+        stream.write(content[1000]);
+        stream.flush();
+
+        assertFalse(stream.isCommitted(), "las descargas intermedias no envían nada");
+        assertFalse(response.isCommitted());
+        assertEquals(0, response.getContentAsByteArray().length);
+
+        stream.close();
+
+        assertTrue(stream.isCommitted());
+        assertEquals("1001", response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertArrayEquals(Arrays.copyOf(content, 1001), response.getContentAsByteArray());
+    }
+
+    @Test
+    void crossingTheThresholdSendsTheHeldBytesFirst() throws IOException {
+        AtomicInteger announced = new AtomicInteger(-1);
+        DeferredCommitOutputStream stream = new DeferredCommitOutputStream(response.getOutputStream(), THRESHOLD,
+                announced::set);
+        byte[] content = content(3 * THRESHOLD);
+
+        stream.write(content, 0, 600);
+        assertFalse(stream.isCommitted());
+        stream.write(content, 600, 600);
+
+        assertTrue(stream.isCommitted());
+        assertArrayEquals(Arrays.copyOf(content, 1200), response.getContentAsByteArray());
+
+        stream.write(content[1200]);
+        stream.write(content, 1201, content.length - 1201);
+        stream.close();
+
+        assertArrayEquals(content, response.getContentAsByteArray());
+        assertEquals(-1, announced.get(), "el tamaño solo se anuncia si todo cupo en el búfer");
+        assertNull(response.getHeader(HttpHeaders.CONTENT_LENGTH));
+    }
+
+    @Test
+    void singleByteWritesCommitOnceTheBufferIsFull() throws IOException {
+        DeferredCommitOutputStream stream = new DeferredCommitOutputStream(response.getOutputStream(), THRESHOLD);
+
+        for (int i = 0; i < THRESHOLD; i++) {
+            stream.write(i);
+        }
+        assertFalse(stream.isCommitted(), "un búfer lleno todavía no se envía");
+
+        stream.write(THRESHOLD);
+
+        assertTrue(stream.isCommitted());
+        assertEquals(THRESHOLD + 1, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void failureBeforeCommitStillAllowsAnErrorResponse() throws IOException {
+        DeferredCommitOutputStream stream = new DeferredCommitOutputStream(response.getOutputStream(), THRESHOLD,
+                response::setContentLength);
+        stream.write(content(500), 0, 500);
+
+        // El renderizado falla a mitad del documento, sin cerrar el flujo
+        assertFalse(stream.isCommitted());
+        response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Error al generar el reporte");
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), response.getStatus());
+        assertEquals("Error al generar el reporte", response.getErrorMessage());
+        assertEquals(0, response.getContentAsByteArray().length, "no se envía un documento truncado");
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.demo.report.io;
+
+import com.example.demo.io.OutputBufferPool;
+import com.example.demo.io.PooledOutputBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clases de tamaño, límite de bytes retenidos, reutilización y previsión del tamaño del pool
+ * de búferes de salida
+ */
+class OutputBufferPoolTest {
+
+    private static final int MIB = 1024 * 1024;
+
+    @Test
+    void capacitiesAreRoundedUpToPowerOfTwoClasses() {
+        OutputBufferPool pool = new OutputBufferPool(MIB, MIB);
+
+        assertEquals(16 * 1024, acquireCapacity(pool, "nueva"), "una forma desconocida usa el tamaño por defecto");
+
+        fill(pool, "pequeña", 1000);
+        assertEquals(4096, acquireCapacity(pool, "pequeña"), "nunca por debajo de la clase mínima");
+
+        fill(pool, "media", 20_000);
+        assertEquals(25_000, pool.predictedSize("media"));
+        assertEquals(32 * 1024, acquireCapacity(pool, "media"));
+    }
+
+    @Test
+    void buffersAboveTheLargestClassAreExactAndNotRetained() {
+        OutputBufferPool pool = new OutputBufferPool(MIB, 64 * 1024);
+        PooledOutputBuffer buffer = pool.acquire("grande");
+
+        buffer.write(new byte[100_000], 0, 100_000);
+        assertEquals(100_000, buffer.array().length);
+        buffer.release();
+
+        assertEquals(16 * 1024, pool.getRetainedBytes(), "solo vuelve al pool el arreglo inicial, que se quedó corto");
+    }
+
+    @Test
+    void retainedBytesStayWithinTheLimit() {
+        OutputBufferPool pool = new OutputBufferPool(32 * 1024, MIB);
+        PooledOutputBuffer first = pool.acquire("forma");
+        PooledOutputBuffer second = pool.acquire("forma");
+        PooledOutputBuffer third = pool.acquire("forma");
+        assertEquals(3, pool.getAllocated());
+        // Con 10 000 bytes la previsión sigue en la clase de 16 KiB
+        for (PooledOutputBuffer buffer : new PooledOutputBuffer[] {first, second, third}) {
+            buffer.write(new byte[10_000], 0, 10_000);
+            buffer.release();
+        }
+        assertEquals(32 * 1024, pool.getRetainedBytes(), "el tercer arreglo no cabe y se descarta");
+
+        pool.acquire("forma");
+        pool.acquire("forma");
+        pool.acquire("forma");
+        assertEquals(2, pool.getReused());
+        assertEquals(4, pool.getAllocated());
+        assertEquals(0, pool.getRetainedBytes());
+    }
+
+    @Test
+    void zeroRetainedBytesDisablesReuse() {
+        OutputBufferPool pool = new OutputBufferPool(0, MIB);
+
+        pool.acquire("forma").release();
+        pool.acquire("forma").release();
+
+        assertEquals(0, pool.getReused());
+        assertEquals(2, pool.getAllocated());
+    }
+
+    @Test
+    void releasedArraysAreHandedOutAgain() {
+        OutputBufferPool pool = new OutputBufferPool(MIB, MIB);
+        PooledOutputBuffer buffer = pool.acquire("forma");
+        byte[] array = buffer.array();
+        buffer.write(new byte[10_000], 0, 10_000);
+        buffer.release();
+
+        PooledOutputBuffer next = pool.acquire("forma");
+
+        assertSame(array, next.array());
+        assertEquals(0, next.size(), "el búfer reutilizado empieza vacío");
+        assertEquals(1, pool.getReused());
+        assertEquals(0, pool.getRetainedBytes());
+    }
+
+    @Test
+    void predictionConvergesToTheObservedSize() {
+        OutputBufferPool pool = new OutputBufferPool(MIB, MIB);
+        fill(pool, "forma", 1000);
+
+        int previous = pool.predictedSize("forma");
+        for (int i = 0; i < 30; i++) {
+            fill(pool, "forma", 40_000);
+            int predicted = pool.predictedSize("forma");
+            assertTrue(predicted >= previous, "la previsión crece hacia el nuevo tamaño");
+            previous = predicted;
+        }
+
+        assertEquals(50_000, previous, 50_000 * 0.01, "el tamaño observado más un margen del 25 %");
+        assertEquals(1, pool.getShapes());
+    }
+
+    @Test
+    void releasedBufferCannotBeUsed() {
+        OutputBufferPool pool = new OutputBufferPool(MIB, MIB);
+        PooledOutputBuffer buffer = pool.acquire("forma");
+        buffer.write(1);
+        buffer.release();
+
+        assertThrows(IllegalStateException.class, () -> buffer.write(2));
+        assertThrows(IllegalStateException.class, () -> buffer.write(new byte[4], 0, 4));
+        assertThrows(IllegalStateException.class, buffer::array);
+        assertThrows(IllegalStateException.class, buffer::toByteArray);
+        assertThrows(IllegalStateException.class, () -> buffer.writeTo(new ByteArrayOutputStream()));
+
+        buffer.release();
+        assertEquals(16 * 1024, pool.getRetainedBytes(), "una segunda liberación no devuelve el arreglo otra vez");
+    }
+
+    private static int acquireCapacity(OutputBufferPool pool, Object shape) {
+        PooledOutputBuffer buffer = pool.acquire(shape);
+        try {
+            return buffer.array().length;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Escribe un contenido del tamaño indicado y libera el búfer, con lo que el pool aprende ese tamaño
+     */
+    private static void fill(OutputBufferPool pool, Object shape, int size) {
+        PooledOutputBuffer buffer = pool.acquire(shape);
+        buffer.write(new byte[size], 0, size);
+        buffer.release();
+    }
+}
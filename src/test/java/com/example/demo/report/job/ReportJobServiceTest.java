@@ -0,0 +1,254 @@
+package com.example.demo.report.job;
+
+import com.example.demo.config.RequestEncoding;
+import com.example.demo.exception.ReportExceptionHandler;
+import com.example.demo.service.BulkReportService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Máquina de estados de los trabajos asíncronos: cancelación en cola y en ejecución, plazo
+ * vencido, expiración de resultados y rechazo con la cola o el ejecutor saturados. El lote se sustituye por una
+ * tarea que informa su avance hasta que el test la libera.
+ */
+@SpringBootTest(properties = {
+        "report.jobs.workers=1",
+        "report.jobs.queue-capacity=1",
+        "report.jobs.result-ttl=2s",
+        "report.jobs.retry-after=30s",
+        "report.jobs.sweep-interval-ms=100"
+})
+@AutoConfigureMockMvc
+class ReportJobServiceTest {
+
+    private static final String BULK = "{\"transactionId\":\"TX-1\"}\n{\"transactionId\":\"TX-2\"}\n";
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private static final Path DIRECTORY = createDirectory();
+
+    @DynamicPropertySource
+    static void jobDirectory(DynamicPropertyRegistry registry) {
+        registry.add("report.jobs.directory", DIRECTORY::toString);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("reportJobExecutor")
+    private ThreadPoolExecutor jobExecutor;
+
+    @MockitoBean
+    private BulkReportService bulkReportService;
+
+    private volatile CountDownLatch release;
+    private volatile CountDownLatch started;
+    private volatile boolean reportProgressWhileBlocked;
+
+    @BeforeEach
+    void blockBulkJobs() throws IOException {
+        release = new CountDownLatch(1);
+        started = new CountDownLatch(1);
+        reportProgressWhileBlocked = false;
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(2);
+            IntConsumer progress = invocation.getArgument(3);
+            started.countDown();
+            int processed = 0;
+            boolean released = false;
+            while (!released) {
+                // Las interrupciones se ignoran: el trabajo solo se detiene en sus puntos de avance
+                try {
+                    released = release.await(20, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                if (!released && reportProgressWhileBlocked) {
+                    progress.accept(++processed);
+                }
+            }
+            progress.accept(++processed);
+            outputStream.write("zip".getBytes(StandardCharsets.US_ASCII));
+            return processed;
+        }).when(bulkReportService).writeBulkZip(any(InputStream.class), eq(RequestEncoding.JSON),
+                any(OutputStream.class), any(IntConsumer.class));
+    }
+
+    @AfterEach
+    void drainJobs() throws InterruptedException {
+        release.countDown();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (jobExecutor.getActiveCount() > 0 || !jobExecutor.getQueue().isEmpty()) {
+            assertTrue(System.currentTimeMillis() < deadline, "los trabajos del test no terminaron");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void cancellingAQueuedJobFinishesItImmediately() throws Exception {
+        String running = submit().get("id").asText();
+        assertTrue(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        String queued = submit().get("id").asText();
+        assertEquals("QUEUED", job(queued).get("state").asText());
+        assertTrue(Files.exists(DIRECTORY.resolve("job-" + queued + ".ndjson")));
+
+        JsonNode cancelled = json(mockMvc.perform(delete("/api/reports/jobs/{id}", queued)).andExpect(status().isOk()));
+
+        assertEquals("CANCELLED", cancelled.get("state").asText());
+        assertTrue(jobExecutor.getQueue().isEmpty(), "el trabajo cancelado se retira de la cola");
+        assertFalse(Files.exists(DIRECTORY.resolve("job-" + queued + ".ndjson")), "se elimina la entrada guardada");
+        assertEquals("RUNNING", job(running).get("state").asText());
+    }
+
+    @Test
+    void cancellingARunningJobStopsItAtTheNextProgressPoint() throws Exception {
+        String id = submit().get("id").asText();
+        assertTrue(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        JsonNode requested = json(mockMvc.perform(delete("/api/reports/jobs/{id}", id)).andExpect(status().isOk()));
+        assertEquals("RUNNING", requested.get("state").asText(), "un trabajo en ejecución termina en su siguiente avance");
+        Thread.sleep(100);
+        assertEquals("RUNNING", job(id).get("state").asText());
+
+        release.countDown();
+        JsonNode cancelled = awaitState(id, "CANCELLED");
+        assertEquals(1, cancelled.get("processed").asInt());
+        assertFalse(Files.exists(DIRECTORY.resolve("job-" + id + ".zip")), "se elimina el resultado parcial");
+        mockMvc.perform(get("/api/reports/jobs/{id}/result", id)).andExpect(status().isConflict());
+    }
+
+    @Test
+    void jobsThatExceedTheirDeadlineAreTimedOut() throws Exception {
+        reportProgressWhileBlocked = true;
+        String id = submit(1L).get("id").asText();
+
+        JsonNode timedOut = awaitState(id, "TIMED_OUT");
+
+        assertTrue(timedOut.path("resultUrl").isNull());
+        assertFalse(Files.exists(DIRECTORY.resolve("job-" + id + ".zip")));
+    }
+
+    @Test
+    void expiredResultsAreSweptWithTheirFiles() throws Exception {
+        String id = submit().get("id").asText();
+        release.countDown();
+        awaitState(id, "COMPLETED");
+        Path result = DIRECTORY.resolve("job-" + id + ".zip");
+        assertTrue(Files.exists(result));
+        assertFalse(Files.exists(DIRECTORY.resolve("job-" + id + ".ndjson")), "la entrada se elimina al terminar");
+        mockMvc.perform(get("/api/reports/jobs/{id}/result", id)).andExpect(status().isOk());
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (mockMvc.perform(get("/api/reports/jobs/{id}", id)).andReturn().getResponse().getStatus() != 404) {
+            assertTrue(System.currentTimeMillis() < deadline, "el trabajo no expiró");
+            Thread.sleep(50);
+        }
+
+        assertFalse(Files.exists(result));
+        try (Stream<Path> files = Files.list(DIRECTORY)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().contains(id)));
+        }
+    }
+
+    @Test
+    void aFullQueueIsRejectedWithServiceUnavailableAndRetryAfter() throws Exception {
+        submit();
+        assertTrue(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        submit();
+
+        mockMvc.perform(post("/api/reports/jobs/bulk").contentType("application/x-ndjson").content(BULK))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "30"));
+    }
+
+    @Test
+    void saturatedAsyncExecutorIsServiceUnavailableWithRetryAfter() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new ReportExceptionHandler().handleTaskRejected(new TaskRejectedException("saturado"), response);
+
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    private JsonNode submit() throws Exception {
+        return submit(null);
+    }
+
+    private JsonNode submit(Long deadlineSeconds) throws Exception {
+        var request = post("/api/reports/jobs/bulk").contentType("application/x-ndjson").content(BULK);
+        if (deadlineSeconds != null) {
+            request.param("deadlineSeconds", deadlineSeconds.toString());
+        }
+        return json(mockMvc.perform(request).andExpect(status().isAccepted()));
+    }
+
+    private JsonNode job(String id) throws Exception {
+        return json(mockMvc.perform(get("/api/reports/jobs/{id}", id)).andExpect(status().isOk()));
+    }
+
+    private JsonNode awaitState(String id, String state) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (true) {
+            JsonNode job = job(id);
+            if (job.get("state").asText().equals(state)) {
+                return job;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "estado esperado " + state + ", actual " + job);
+            Thread.sleep(20);
+        }
+    }
+
+    private JsonNode json(ResultActions result) throws Exception {
+        return objectMapper.readTree(result.andReturn().getResponse().getContentAsByteArray());
+    }
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("report-jobs-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
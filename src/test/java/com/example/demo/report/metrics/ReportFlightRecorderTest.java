@@ -0,0 +1,59 @@
+package com.example.demo.report.metrics;
+
+import com.example.demo.config.FlightRecorderProperties;
+import com.example.demo.dto.FlightRecordingDump;
+import com.example.demo.metrics.ReportFlightRecorder;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Volcados de la grabación de JFR y su retención en disco
+ */
+class ReportFlightRecorderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void onlyTheLatestDumpsAreKept() throws Exception {
+        Path unrelated = Files.writeString(directory.resolve("notas.txt"), "no es un volcado");
+        FlightRecorderProperties properties = new FlightRecorderProperties();
+        properties.setDumpDirectory(directory);
+        properties.setMaxDumps(2);
+        ReportFlightRecorder flightRecorder = new ReportFlightRecorder(properties);
+
+        List<String> dumped = new ArrayList<>();
+        try (Recording recording = new Recording()) {
+            recording.start();
+            for (int i = 0; i < 4; i++) {
+                FlightRecordingDump dump = flightRecorder.dump();
+                assertTrue(dump.getSize() > 0);
+                dumped.add(dump.getFile());
+                // Los nombres llevan la fecha con milisegundos
+                Thread.sleep(5);
+            }
+        }
+
+        assertEquals(List.copyOf(dumped.subList(2, 4)), dumps());
+        assertTrue(Files.exists(unrelated), "solo se eliminan los volcados");
+    }
+
+    private List<String> dumps() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".jfr"))
+                    .map(file -> file.getFileName().toString())
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.demo.report.service;
+
+import com.example.demo.concurrent.RenderBulkhead;
+import com.example.demo.config.RequestEncoding;
+import com.example.demo.config.RequestMappers;
+import com.example.demo.dto.PaymentReportRequestMapper;
+import com.example.demo.generator.PaymentReportGenerator;
+import com.example.demo.io.OutputBufferPool;
+import com.example.demo.service.BulkReportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Lotes de reportes: orden de las entradas del ZIP, entradas de error y memoria acotada por
+ * el número de reportes en curso
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class BulkReportServiceTest {
+
+    private static final int MAX_IN_FLIGHT = 3;
+
+    @Autowired
+    private BulkReportService bulkReportService;
+
+    @Autowired
+    private PaymentReportGenerator reportGenerator;
+
+    @Autowired
+    private RenderBulkhead renderBulkhead;
+
+    @Autowired
+    private PaymentReportRequestMapper requestMapper;
+
+    @Autowired
+    private RequestMappers requestMappers;
+
+    @Autowired
+    private OutputBufferPool bufferPool;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final AtomicInteger submitted = new AtomicInteger();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger maxOutstanding = new AtomicInteger();
+
+    /**
+     * Ejecutor de renderizado que mide cuántos reportes se han encargado y aún no se han escrito en el ZIP
+     */
+    private final ThreadPoolExecutor renderExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>()) {
+        @Override
+        public void execute(Runnable command) {
+            int outstanding = submitted.incrementAndGet() - written.get();
+            maxOutstanding.accumulateAndGet(outstanding, Math::max);
+            super.execute(command);
+        }
+    };
+
+    @AfterEach
+    void stopExecutor() {
+        renderExecutor.shutdownNow();
+    }
+
+    @Test
+    void entriesFollowTheInputOrder() throws IOException {
+        List<String> ids = IntStream.rangeClosed(1, 12).mapToObj(i -> "TX-" + i).toList();
+        String ndjson = ids.stream().map(BulkReportServiceTest::bulkRequest).collect(Collectors.joining("\n"));
+
+        Map<String, byte[]> entries = bulkZip(bulkReportService, ndjson);
+
+        List<String> expected = IntStream.range(0, ids.size())
+                .mapToObj(i -> String.format("%06d-%s.pdf", i + 1, ids.get(i))).toList();
+        assertEquals(expected, new ArrayList<>(entries.keySet()));
+        entries.values().forEach(pdf -> assertEquals("%PDF", new String(pdf, 0, 4, StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void failingRequestBecomesAnErrorEntryInItsPosition() throws IOException {
+        String ndjson = bulkRequest("TX-1") + "\n{\"transactionId\": \"TX-2\"}\n" + bulkRequest("TX-3");
+
+        Map<String, byte[]> entries = bulkZip(bulkReportService, ndjson);
+
+        assertEquals(List.of("000001-TX-1.pdf", "000002-TX-2.error.txt", "000003-TX-3.pdf"),
+                new ArrayList<>(entries.keySet()));
+        assertEquals("Error al generar el reporte: El monto es obligatorio",
+                new String(entries.get("000002-TX-2.error.txt"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void reportsInFlightStayWithinTheLimit() throws IOException {
+        BulkReportService service = new BulkReportService(reportGenerator, renderBulkhead, requestMapper,
+                requestMappers, renderExecutor, bufferPool, MAX_IN_FLIGHT);
+        String ndjson = IntStream.rangeClosed(1, 20).mapToObj(i -> bulkRequest("TX-" + i))
+                .collect(Collectors.joining("\n"));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        int processed = service.writeBulkZip(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                RequestEncoding.JSON, outputStream, written::set);
+
+        assertEquals(20, processed);
+        assertEquals(20, submitted.get());
+        assertEquals(MAX_IN_FLIGHT, maxOutstanding.get(), "como máximo hay " + MAX_IN_FLIGHT + " reportes en curso");
+        assertEquals(20, unzip(outputStream.toByteArray()).size());
+    }
+
+    @Test
+    void onlyBulkResponsesGetTheLongAsyncTimeout() throws Exception {
+        MvcResult bulk = mockMvc.perform(post("/api/reports/payment/bulk").contentType("application/x-ndjson")
+                        .content(bulkRequest("TX-1")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult single = mockMvc.perform(post("/api/reports/payment").contentType("application/json")
+                        .content(bulkRequest("TX-1")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(Duration.ofMinutes(30).toMillis(), bulk.getRequest().getAsyncContext().getTimeout());
+        assertNotEquals(Duration.ofMinutes(30).toMillis(), single.getRequest().getAsyncContext().getTimeout());
+    }
+
+    private static Map<String, byte[]> bulkZip(BulkReportService service, String ndjson) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        int processed = service.writeBulkZip(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                outputStream);
+        assertEquals(ndjson.lines().count(), processed);
+        return unzip(outputStream.toByteArray());
+    }
+
+    /**
+     * @return el contenido de cada entrada del ZIP, en el orden en que aparecen
+     */
+    private static Map<String, byte[]> unzip(byte[] zip) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                entries.put(entry.getName(), input.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    private static String bulkRequest(String transactionId) {
+        return "{\"transactionId\": \"" + transactionId + "\", \"amount\": 10.5, \"paymentMethod\": \"Efectivo\", "
+                + "\"customerName\": \"Ana\"}";
+    }
+}
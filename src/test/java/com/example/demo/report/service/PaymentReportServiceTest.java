@@ -0,0 +1,102 @@
+package com.example.demo.report.service;
+
+import com.example.demo.concurrent.RenderBulkhead;
+import com.example.demo.concurrent.RenderPriority;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.model.PaymentData;
+import com.example.demo.service.PaymentReportService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Descargas en streaming: las solicitudes idénticas simultáneas, incluida la primera, comparten
+ * un único renderizado
+ */
+@SpringBootTest
+class PaymentReportServiceTest {
+
+    private static final int REQUESTS = 4;
+
+    @Autowired
+    private PaymentReportService paymentReportService;
+
+    @Autowired
+    private RenderBulkhead renderBulkhead;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void identicalConcurrentDownloadsCostOneRender() throws Exception {
+        PaymentReportConfig config = new PaymentReportConfig.Builder().withLogo(false).build();
+        PaymentData payment = new PaymentData("TX-" + UUID.randomUUID(), 10.5, "Efectivo", "Ana");
+        int slots = renderBulkhead.getMaxConcurrent();
+        ExecutorService executor = Executors.newFixedThreadPool(slots + REQUESTS);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Se ocupan todos los turnos para que las solicitudes lleguen mientras el renderizado espera
+            for (int i = 0; i < slots; i++) {
+                executor.submit(() -> renderBulkhead.run(RenderPriority.STANDARD, () -> await(release)));
+            }
+            awaitUntil(() -> renderBulkhead.getActive(RenderPriority.STANDARD) == slots);
+            double executed = counter("report.coalescing.executed");
+            double joined = counter("report.coalescing.joined");
+
+            List<Future<byte[]>> downloads = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                downloads.add(executor.submit(() -> {
+                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    paymentReportService.writePdfReport(config, payment, outputStream, RenderPriority.STANDARD);
+                    return outputStream.toByteArray();
+                }));
+            }
+            awaitUntil(() -> counter("report.coalescing.joined") - joined == REQUESTS - 1);
+            release.countDown();
+
+            byte[] first = downloads.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<byte[]> download : downloads) {
+                assertArrayEquals(first, download.get(10, TimeUnit.SECONDS), "todas reciben los mismos bytes");
+            }
+            assertEquals(1, counter("report.coalescing.executed") - executed);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private double counter(String name) {
+        return registry.get(name).functionCounter().count();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "la condición no se cumplió a tiempo");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.demo.report.service;
+
+import com.example.demo.archive.ReportArchive;
+import com.example.demo.config.RequestEncoding;
+import com.example.demo.config.RequestMappers;
+import com.example.demo.dto.PaymentReportRequestMapper;
+import com.example.demo.exception.ReportRejectedException;
+import com.example.demo.metrics.ReportMetrics;
+import com.example.demo.service.PaymentReportService;
+import com.example.demo.service.ReceiptBundleService;
+import com.example.demo.service.ReportResultCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Paquetes de recibos: orden de las páginas, reutilización de los recibos ya generados y
+ * errores de la solicitud
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReceiptBundleServiceTest {
+
+    @Autowired
+    private ReceiptBundleService bundleService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private PaymentReportService paymentReportService;
+
+    @Autowired
+    private ReportResultCache reportCache;
+
+    @Autowired
+    private ReportArchive archive;
+
+    @Autowired
+    private PaymentReportRequestMapper requestMapper;
+
+    @Autowired
+    private RequestMappers requestMappers;
+
+    @Autowired
+    private ReportMetrics metrics;
+
+    @Test
+    void receiptsFollowTheInputOrderAndAreReusedOnTheNextBundle() throws IOException {
+        String batch = UUID.randomUUID().toString().substring(0, 8);
+        List<String> ids = IntStream.rangeClosed(1, 4).mapToObj(i -> "TX-" + batch + "-" + i).toList();
+        String ndjson = ids.stream().map(id -> receiptRequest(id, ", \"generatedAt\": \"2024-05-17T10:30:00\""))
+                .collect(Collectors.joining("\n"));
+        double rendered = receipts("render");
+        double cached = receipts("cache");
+
+        byte[] first = bundle(ndjson);
+
+        assertEquals(ids, transactionIdsByPage(first, batch));
+        assertEquals(4, receipts("render") - rendered);
+        assertEquals(0, receipts("cache") - cached);
+
+        byte[] second = bundle(ndjson);
+
+        assertEquals(ids, transactionIdsByPage(second, batch));
+        assertEquals(4, receipts("render") - rendered, "el segundo paquete no vuelve a renderizar");
+        assertEquals(4, receipts("cache") - cached);
+    }
+
+    @Test
+    void receiptsThatAreNotReproducibleAreAlwaysRendered() throws IOException {
+        String batch = UUID.randomUUID().toString().substring(0, 8);
+        String ndjson = receiptRequest("TX-" + batch + "-1", "") + "\n" + receiptRequest("TX-" + batch + "-2", "");
+        double rendered = receipts("render");
+
+        bundle(ndjson);
+        byte[] pdf = bundle(ndjson);
+
+        assertEquals(List.of("TX-" + batch + "-1", "TX-" + batch + "-2"), transactionIdsByPage(pdf, batch));
+        assertEquals(4, receipts("render") - rendered);
+    }
+
+    @Test
+    void emptyBundleIsABadRequest() throws Exception {
+        assertEquals(HttpStatus.BAD_REQUEST.value(), bundleStatus(""));
+    }
+
+    @Test
+    void unreadableRequestIsABadRequest() throws Exception {
+        assertEquals(HttpStatus.BAD_REQUEST.value(), bundleStatus(receiptRequest("TX-1", "") + "\n{\"transactionId\": "));
+    }
+
+    @Test
+    void rejectedRendersAreServiceUnavailable() {
+        ExecutorService stopped = Executors.newSingleThreadExecutor();
+        stopped.shutdown();
+        ReceiptBundleService service = new ReceiptBundleService(paymentReportService, reportCache, archive,
+                requestMapper, requestMappers, stopped, metrics, 16384, 0);
+        ByteArrayInputStream input = new ByteArrayInputStream(receiptRequest("TX-REJECTED", "").getBytes(StandardCharsets.UTF_8));
+
+        ReportRejectedException error = assertThrows(ReportRejectedException.class,
+                () -> service.writeBundle(input, RequestEncoding.JSON, new ByteArrayOutputStream()));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, error.getStatus());
+    }
+
+    private byte[] bundle(String ndjson) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        int count = bundleService.writeBundle(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                RequestEncoding.JSON, outputStream);
+        assertEquals(ndjson.lines().count(), count);
+        return outputStream.toByteArray();
+    }
+
+    private int bundleStatus(String ndjson) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/reports/payment/bundle")
+                        .contentType("application/x-ndjson").content(ndjson))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result)).andReturn().getResponse().getStatus();
+    }
+
+    private double receipts(String source) {
+        Counter counter = registry.find("report.bundle.receipts").tag("source", source).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    /**
+     * @return el identificador de transacción que aparece en cada página, en orden
+     */
+    private static List<String> transactionIdsByPage(byte[] pdf, String batch) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            return IntStream.rangeClosed(1, document.getNumberOfPages()).mapToObj(page -> {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                try {
+                    return stripper.getText(document).lines()
+                            .filter(line -> line.contains("TX-" + batch))
+                            .map(line -> line.substring(line.indexOf("TX-" + batch)).strip())
+                            .findFirst().orElse("");
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).toList();
+        }
+    }
+
+    private static String receiptRequest(String transactionId, String extra) {
+        return "{\"transactionId\": \"" + transactionId + "\", \"amount\": 10.5, \"paymentMethod\": \"Efectivo\", "
+                + "\"customerName\": \"Ana\"" + extra + "}";
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.demo.report.service;
+
+import com.example.demo.config.FontProperties;
+import com.example.demo.config.LogoProperties;
+import com.example.demo.config.PaymentReportConfig;
+import com.example.demo.config.ReportCacheProperties;
+import com.example.demo.config.TemplateProperties;
+import com.example.demo.generator.LogoRegistry;
+import com.example.demo.generator.PaymentReportGenerator;
+import com.example.demo.generator.PdfFileId;
+import com.example.demo.generator.ReportTemplateEngine;
+import com.example.demo.model.PaymentData;
+import com.example.demo.service.ReportFingerprint;
+import com.example.demo.service.ReportResultCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Reportes reproducibles: revalidación con ETag, aciertos de la caché, identificador de archivo
+ * fijo y huella que cambia con el logo y con su reducción
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReportResultCacheTest {
+
+    private static final ResourceLoader RESOURCE_LOADER = new DefaultResourceLoader();
+    private static final LocalDateTime GENERATED_AT = LocalDateTime.of(2024, 5, 17, 10, 30, 0);
+    private static final PaymentData PAYMENT = new PaymentData("TX-20240517-0001", 1250.75,
+            "Tarjeta de Crédito", "María García");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReportResultCache reportCache;
+
+    @Autowired
+    private PaymentReportGenerator generator;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void matchingIfNoneMatchIsNotModified() throws Exception {
+        String body = reproducibleRequest();
+        MockHttpServletResponse first = render(body);
+        String eTag = first.getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        mockMvc.perform(post("/api/reports/payment").contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"otro\", " + eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+    }
+
+    @Test
+    void repeatedRequestIsServedFromTheCache() throws Exception {
+        String body = reproducibleRequest();
+        byte[] rendered = render(body).getContentAsByteArray();
+        long hits = reportCache.stats().getHits();
+
+        MockHttpServletResponse second = render(body);
+
+        assertEquals(hits + 1, reportCache.stats().getHits());
+        assertArrayEquals(rendered, second.getContentAsByteArray());
+    }
+
+    @Test
+    void pinnedRendersAreByteIdentical() {
+        PaymentReportConfig config = new PaymentReportConfig.Builder().withLogo(true).build();
+        byte[] first = renderPdf(config);
+        byte[] second = renderPdf(config);
+        assertFalse(Arrays.equals(first, second), "iText genera un /ID distinto en cada renderizado");
+
+        byte[] seed = reportCache.fingerprint(config, PAYMENT, GENERATED_AT).getDigest();
+        assertTrue(PdfFileId.pin(first, first.length, seed));
+        assertTrue(PdfFileId.pin(second, second.length, seed));
+
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void replacingTheLogoChangesTheFingerprint() throws IOException {
+        Path logo = directory.resolve("logo.jpg");
+        copyBundledLogo(logo);
+        PaymentReportConfig withLogo = new PaymentReportConfig.Builder().withLogo(true).build();
+        PaymentReportConfig withoutLogo = new PaymentReportConfig.Builder().withLogo(false).build();
+        ReportResultCache original = cache(logo);
+        ReportFingerprint before = original.fingerprint(withLogo, PAYMENT, GENERATED_AT);
+        ReportFingerprint beforeWithoutLogo = original.fingerprint(withoutLogo, PAYMENT, GENERATED_AT);
+
+        Files.write(logo, Files.readAllBytes(logo), StandardOpenOption.APPEND);
+        ReportResultCache reloaded = cache(logo);
+
+        assertNotEquals(before, reloaded.fingerprint(withLogo, PAYMENT, GENERATED_AT));
+        assertEquals(beforeWithoutLogo, reloaded.fingerprint(withoutLogo, PAYMENT, GENERATED_AT),
+                "el logo no cuenta en los reportes que no lo muestran");
+        assertEquals(before, original.fingerprint(withLogo, PAYMENT, GENERATED_AT),
+                "mientras el logo anterior siga cargado se renderiza con él y la huella no cambia");
+    }
+
+    @Test
+    void logoScalingSettingsChangeTheFingerprint() throws IOException {
+        Path logo = directory.resolve("logo.jpg");
+        copyBundledLogo(logo);
+        PaymentReportConfig config = new PaymentReportConfig.Builder().withLogo(true).build();
+        ReportFingerprint before = cache(logo).fingerprint(config, PAYMENT, GENERATED_AT);
+
+        LogoProperties maxPixels = logoProperties(logo);
+        maxPixels.setMaxPixels(300);
+        LogoProperties scaledQuality = logoProperties(logo);
+        scaledQuality.setScaledQuality(0.5f);
+        LogoProperties recompressedMaxPixels = logoProperties(logo);
+        recompressedMaxPixels.setRecompressedMaxPixels(150);
+        LogoProperties recompressedQuality = logoProperties(logo);
+        recompressedQuality.setRecompressedQuality(0.4f);
+
+        for (LogoProperties changed : new LogoProperties[] {maxPixels, scaledQuality, recompressedMaxPixels,
+                recompressedQuality}) {
+            assertNotEquals(before, cache(changed).fingerprint(config, PAYMENT, GENERATED_AT));
+        }
+        assertEquals(before, cache(logo).fingerprint(config, PAYMENT, GENERATED_AT));
+    }
+
+    private MockHttpServletResponse render(String body) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/reports/payment").contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andReturn().getResponse();
+    }
+
+    private byte[] renderPdf(PaymentReportConfig config) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        generator.generatePDF(config, PAYMENT, GENERATED_AT, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static ReportResultCache cache(Path logo) {
+        return cache(logoProperties(logo));
+    }
+
+    private static ReportResultCache cache(LogoProperties logoProperties) {
+        TemplateProperties templateProperties = new TemplateProperties();
+        templateProperties.setHotReload(false);
+        return new ReportResultCache(new ReportCacheProperties(), new FontProperties(), logoProperties,
+                new ReportTemplateEngine(templateProperties, RESOURCE_LOADER),
+                new LogoRegistry(logoProperties, RESOURCE_LOADER));
+    }
+
+    private static LogoProperties logoProperties(Path logo) {
+        LogoProperties logoProperties = new LogoProperties();
+        logoProperties.getLocations().put("default", logo.toUri().toString());
+        return logoProperties;
+    }
+
+    private static void copyBundledLogo(Path target) throws IOException {
+        try (InputStream inputStream = RESOURCE_LOADER.getResource("classpath:report/images/company-logo.jpg")
+                .getInputStream()) {
+            Files.copy(inputStream, target);
+        }
+    }
+
+    private static String reproducibleRequest() {
+        return "{\"transactionId\": \"TX-" + UUID.randomUUID() + "\", \"amount\": 10.5, \"paymentMethod\": \"Efectivo\", "
+                + "\"customerName\": \"Ana\", \"includeLogo\": true, \"generatedAt\": \"2024-05-17T10:30:00\"}";
+    }
+}
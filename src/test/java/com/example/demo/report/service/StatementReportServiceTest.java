@@ -0,0 +1,146 @@
+package com.example.demo.report.service;
+
+import com.example.demo.concurrent.RenderBulkhead;
+import com.example.demo.concurrent.RenderPriority;
+import com.example.demo.exception.ReportGenerationException;
+import com.example.demo.service.StatementReportService;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Estados de cuenta: la tabla escrita por bloques no pierde ni repite filas, los eventos de
+ * página, las entradas no válidas y el turno de renderizado, que no se ocupa mientras se
+ * recibe la solicitud
+ */
+@SpringBootTest
+class StatementReportServiceTest {
+
+    private static final String HEADER = "{\"customerName\": \"Ana Pérez\", \"title\": \"Estado de Cuenta\", "
+            + "\"includeTimestamp\": false, \"memoryBudgetKb\": 1}";
+
+    @Autowired
+    private StatementReportService statementReportService;
+
+    @Autowired
+    private RenderBulkhead renderBulkhead;
+
+    @Test
+    void paymentsWrittenInChunksKeepEveryRowOnce() throws IOException {
+        // Con 1 KB de memoria la tabla se escribe en bloques del mínimo de filas
+        int payments = 300;
+        List<String> pages = pages(render(statement(payments)));
+
+        String text = String.join("\n", pages);
+        for (int i = 1; i <= payments; i++) {
+            String row = "TX-" + i + " ";
+            assertEquals(1, occurrences(text, row), "la fila " + row.trim() + " aparece una vez");
+        }
+        assertTrue(text.contains("Total (" + payments + " pagos)"));
+        assertTrue(text.contains("1500.00"), "el total suma todos los pagos");
+        assertTrue(pages.size() > 1);
+        pages.forEach(page -> assertTrue(page.contains("ID de Transacción"),
+                "la fila de encabezado se repite en cada página"));
+    }
+
+    @Test
+    void pageEventNumbersEveryPageAndRepeatsTheHeaderAfterTheFirst() throws IOException {
+        List<String> pages = pages(render(statement(300)));
+
+        assertFalse(pages.get(0).contains("Estado de Cuenta - Ana Pérez"),
+                "la primera página ya lleva el título completo");
+        for (int i = 0; i < pages.size(); i++) {
+            assertTrue(pages.get(i).contains("Página " + (i + 1)));
+            if (i > 0) {
+                assertTrue(pages.get(i).contains("Estado de Cuenta - Ana Pérez"));
+            }
+        }
+    }
+
+    @Test
+    void invalidInputFailsBeforeSendingAnything() {
+        assertInvalid("", "La solicitud no contiene la cabecera del estado de cuenta");
+        assertInvalid(statement(2) + "\n{\"transactionId\": \"TX-3\", \"paymentMethod\": \"Efectivo\"}",
+                "El monto es obligatorio en el pago TX-3");
+        assertInvalid(statement(2) + "\n{\"transactionId\": ", "Error al generar el estado de cuenta");
+    }
+
+    @Test
+    void renderSlotIsNotHeldWhileTheRequestArrives() throws IOException {
+        List<Integer> activeWhileReading = new ArrayList<>();
+        byte[] body = statement(50).getBytes(StandardCharsets.UTF_8);
+        InputStream slowClient = new FilterInputStream(new ByteArrayInputStream(body)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                activeWhileReading.add(renderBulkhead.getActive(RenderPriority.STANDARD));
+                return super.read(b, off, Math.min(len, 64));
+            }
+        };
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertEquals(50, statementReportService.writeStatement(slowClient, outputStream));
+
+        assertTrue(activeWhileReading.size() > 1);
+        assertTrue(activeWhileReading.stream().allMatch(active -> active == 0), activeWhileReading.toString());
+        assertEquals("%PDF", new String(outputStream.toByteArray(), 0, 4, StandardCharsets.US_ASCII));
+    }
+
+    private void assertInvalid(String ndjson, String message) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ReportGenerationException e = assertThrows(ReportGenerationException.class,
+                () -> statementReportService.writeStatement(
+                        new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), outputStream));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+        assertEquals(0, outputStream.size(), "todavía se puede responder con un error");
+    }
+
+    private byte[] render(String ndjson) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        statementReportService.writeStatement(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static List<String> pages(byte[] pdf) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            List<String> pages = new ArrayList<>();
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int page = 1; page <= document.getNumberOfPages(); page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                pages.add(stripper.getText(document));
+            }
+            return pages;
+        }
+    }
+
+    private static int occurrences(String text, String value) {
+        int count = 0;
+        for (int index = text.indexOf(value); index >= 0; index = text.indexOf(value, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static String statement(int payments) {
+        return HEADER + "\n" + IntStream.rangeClosed(1, payments)
+                .mapToObj(i -> "{\"transactionId\": \"TX-" + i + "\", \"amount\": 5, \"paymentMethod\": \"Efectivo\"}")
+                .collect(Collectors.joining("\n"));
+    }
+}